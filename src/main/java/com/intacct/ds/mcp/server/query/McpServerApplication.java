@@ -1,5 +1,7 @@
 package com.intacct.ds.mcp.server.query;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.tool.ToolCallbackProvider;
@@ -15,10 +17,16 @@ import org.springframework.core.env.Environment;
 
 import com.intacct.ds.mcp.server.query.config.McpServerProperties;
 import com.intacct.ds.mcp.server.query.service.ModelService;
+import com.intacct.ds.mcp.server.query.service.ObjectResources;
 import com.intacct.ds.mcp.server.query.service.QueryService;
+import com.intacct.ds.mcp.server.query.transport.CancellationRegistry;
+import com.intacct.ds.mcp.server.query.transport.SidecarClient;
+import com.intacct.ds.mcp.server.query.transport.ToolBulkheads;
+import com.intacct.ds.mcp.server.query.transport.ToolCallContextCallback;
 import com.intacct.ds.mcp.server.query.transport.TransportManager;
 import com.intacct.ds.mcp.server.query.transport.TransportMode;
 
+import io.modelcontextprotocol.server.McpServerFeatures;
 import jakarta.annotation.PostConstruct;
 
 @SpringBootApplication
@@ -110,15 +118,27 @@ public class McpServerApplication {
 	}
 
 	@Bean
-	public ToolCallbackProvider modelTools(ModelService modelService) {
-		// Exposes methods annotated with @Tool in ModelService
-		return MethodToolCallbackProvider.builder().toolObjects(modelService).build();
+	public ToolCallbackProvider modelTools(ModelService modelService, CancellationRegistry cancellationRegistry,
+			ToolBulkheads bulkheads, SidecarClient sidecarClient) {
+		// Exposes methods annotated with @Tool in ModelService, run on the sidecar daemon when this process is a front-end
+		return ToolCallContextCallback.wrap(
+				sidecarClient.wrap(MethodToolCallbackProvider.builder().toolObjects(modelService).build()),
+				cancellationRegistry, bulkheads);
+	}
+
+	@Bean
+	public ToolCallbackProvider queryTools(QueryService queryService, CancellationRegistry cancellationRegistry,
+			ToolBulkheads bulkheads, SidecarClient sidecarClient) {
+		// Exposes methods annotated with @Tool in QueryService, run on the sidecar daemon when this process is a front-end
+		return ToolCallContextCallback.wrap(
+				sidecarClient.wrap(MethodToolCallbackProvider.builder().toolObjects(queryService).build()),
+				cancellationRegistry, bulkheads);
 	}
 
 	@Bean
-	public ToolCallbackProvider queryTools(QueryService queryService) {
-		// Exposes methods annotated with @Tool in QueryService
-		return MethodToolCallbackProvider.builder().toolObjects(queryService).build();
+	public List<McpServerFeatures.SyncResourceSpecification> objectResourceSpecifications(ObjectResources objectResources) {
+		// The objects of tool-integration.resources, read from the local replicas
+		return objectResources.specifications();
 	}
 
 }
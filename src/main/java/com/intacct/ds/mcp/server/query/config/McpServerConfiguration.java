@@ -1,13 +1,34 @@
 package com.intacct.ds.mcp.server.query.config;
 
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.intacct.ds.mcp.server.query.transport.ResourceSubscriptions;
+
+import io.modelcontextprotocol.spec.McpSchema;
+
 /**
  * Configuration class to enable MCP server configuration properties.
+ * The STDIO transport is provided by {@link com.intacct.ds.mcp.server.query.transport.StdioTransport},
+ * which replaces the auto-configured one.
  */
 @Configuration
 @EnableConfigurationProperties(McpServerProperties.class)
 public class McpServerConfiguration {
-    // This class enables the configuration properties binding
+
+    /**
+     * Server capabilities that advertise resource subscriptions when the STDIO transport answers them and
+     * they can be notified (see {@link ResourceSubscriptions#isEnabled()}); the auto-configured builder always
+     * turns them off.
+     */
+    @Bean
+    public McpSchema.ServerCapabilities.Builder capabilitiesBuilder(ResourceSubscriptions subscriptions) {
+        return new McpSchema.ServerCapabilities.Builder() {
+            @Override
+            public McpSchema.ServerCapabilities.Builder resources(Boolean subscribe, Boolean listChanged) {
+                return super.resources(subscriptions.isEnabled(), listChanged);
+            }
+        };
+    }
 }
@@ -1,7 +1,9 @@
 package com.intacct.ds.mcp.server.query.config;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
@@ -61,6 +63,126 @@ public class McpServerProperties {
     @NestedConfigurationProperty
     private ToolIntegrationConfig toolIntegration = new ToolIntegrationConfig();
 
+    /**
+     * Query result cache configuration
+     */
+    @NestedConfigurationProperty
+    private QueryCacheConfig queryCache = new QueryCacheConfig();
+
+    /**
+     * Local replica configuration
+     */
+    @NestedConfigurationProperty
+    private ReplicaConfig replica = new ReplicaConfig();
+
+    /**
+     * Server-wide limits on the size of a single query result
+     */
+    @NestedConfigurationProperty
+    private ResultBudgetConfig resultBudget = new ResultBudgetConfig();
+
+    /**
+     * Progress notification configuration for long tool calls
+     */
+    @NestedConfigurationProperty
+    private ProgressConfig progress = new ProgressConfig();
+
+    /**
+     * Model definition cache configuration
+     */
+    @NestedConfigurationProperty
+    private ModelCacheConfig modelCache = new ModelCacheConfig();
+
+    /**
+     * Background schema pre-warming configuration
+     */
+    @NestedConfigurationProperty
+    private SchemaWarmupConfig schemaWarmup = new SchemaWarmupConfig();
+
+    /**
+     * HTTP compression configuration for Intacct API calls
+     */
+    @NestedConfigurationProperty
+    private CompressionConfig compression = new CompressionConfig();
+
+    /**
+     * Object name resolution configuration
+     */
+    @NestedConfigurationProperty
+    private ObjectResolutionConfig objectResolution = new ObjectResolutionConfig();
+
+    /**
+     * Raw query result passthrough configuration
+     */
+    @NestedConfigurationProperty
+    private QueryPassthroughConfig queryPassthrough = new QueryPassthroughConfig();
+
+    /**
+     * Per-tool concurrency limits
+     */
+    @NestedConfigurationProperty
+    private BulkheadConfig bulkhead = new BulkheadConfig();
+
+    /**
+     * Page sizes learned from observed page latency and row width
+     */
+    @NestedConfigurationProperty
+    private AdaptivePagingConfig adaptivePaging = new AdaptivePagingConfig();
+
+    /**
+     * Query exports to local files
+     */
+    @NestedConfigurationProperty
+    private ExportConfig export = new ExportConfig();
+
+    /**
+     * Joins of two query results (joinQuery tool)
+     */
+    @NestedConfigurationProperty
+    private JoinConfig join = new JoinConfig();
+
+    /**
+     * Batched lookups of records by key
+     */
+    @NestedConfigurationProperty
+    private LookupConfig lookup = new LookupConfig();
+
+    /**
+     * Per-record cache of records looked up by key or id
+     */
+    @NestedConfigurationProperty
+    private RecordCacheConfig recordCache = new RecordCacheConfig();
+
+    /**
+     * Second-level cache of query and model responses on local disk
+     */
+    @NestedConfigurationProperty
+    private DiskCacheConfig diskCache = new DiskCacheConfig();
+
+    /**
+     * Local sidecar daemon shared by the STDIO processes of a workstation
+     */
+    @NestedConfigurationProperty
+    private SidecarConfig sidecar = new SidecarConfig();
+
+    /**
+     * Encrypted on-disk store of access tokens
+     */
+    @NestedConfigurationProperty
+    private TokenStoreConfig tokenStore = new TokenStoreConfig();
+
+    /**
+     * Model catalog generated at build time and packaged in the jar
+     */
+    @NestedConfigurationProperty
+    private BundledCatalogConfig bundledCatalog = new BundledCatalogConfig();
+
+    /**
+     * MCP resources for the objects of tool-integration.resources
+     */
+    @NestedConfigurationProperty
+    private ObjectResourcesConfig objectResources = new ObjectResourcesConfig();
+
     // Getters and setters
     public String getName() {
         return name;
@@ -134,6 +256,166 @@ public class McpServerProperties {
         this.toolIntegration = toolIntegration;
     }
 
+    public QueryCacheConfig getQueryCache() {
+        return queryCache;
+    }
+
+    public void setQueryCache(QueryCacheConfig queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    public ReplicaConfig getReplica() {
+        return replica;
+    }
+
+    public void setReplica(ReplicaConfig replica) {
+        this.replica = replica;
+    }
+
+    public ResultBudgetConfig getResultBudget() {
+        return resultBudget;
+    }
+
+    public void setResultBudget(ResultBudgetConfig resultBudget) {
+        this.resultBudget = resultBudget;
+    }
+
+    public ProgressConfig getProgress() {
+        return progress;
+    }
+
+    public void setProgress(ProgressConfig progress) {
+        this.progress = progress;
+    }
+
+    public ModelCacheConfig getModelCache() {
+        return modelCache;
+    }
+
+    public void setModelCache(ModelCacheConfig modelCache) {
+        this.modelCache = modelCache;
+    }
+
+    public SchemaWarmupConfig getSchemaWarmup() {
+        return schemaWarmup;
+    }
+
+    public void setSchemaWarmup(SchemaWarmupConfig schemaWarmup) {
+        this.schemaWarmup = schemaWarmup;
+    }
+
+    public CompressionConfig getCompression() {
+        return compression;
+    }
+
+    public void setCompression(CompressionConfig compression) {
+        this.compression = compression;
+    }
+
+    public ObjectResolutionConfig getObjectResolution() {
+        return objectResolution;
+    }
+
+    public void setObjectResolution(ObjectResolutionConfig objectResolution) {
+        this.objectResolution = objectResolution;
+    }
+
+    public QueryPassthroughConfig getQueryPassthrough() {
+        return queryPassthrough;
+    }
+
+    public void setQueryPassthrough(QueryPassthroughConfig queryPassthrough) {
+        this.queryPassthrough = queryPassthrough;
+    }
+
+    public BulkheadConfig getBulkhead() {
+        return bulkhead;
+    }
+
+    public void setBulkhead(BulkheadConfig bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    public AdaptivePagingConfig getAdaptivePaging() {
+        return adaptivePaging;
+    }
+
+    public void setAdaptivePaging(AdaptivePagingConfig adaptivePaging) {
+        this.adaptivePaging = adaptivePaging;
+    }
+
+    public ExportConfig getExport() {
+        return export;
+    }
+
+    public void setExport(ExportConfig export) {
+        this.export = export;
+    }
+
+    public JoinConfig getJoin() {
+        return join;
+    }
+
+    public void setJoin(JoinConfig join) {
+        this.join = join;
+    }
+
+    public LookupConfig getLookup() {
+        return lookup;
+    }
+
+    public void setLookup(LookupConfig lookup) {
+        this.lookup = lookup;
+    }
+
+    public RecordCacheConfig getRecordCache() {
+        return recordCache;
+    }
+
+    public void setRecordCache(RecordCacheConfig recordCache) {
+        this.recordCache = recordCache;
+    }
+
+    public DiskCacheConfig getDiskCache() {
+        return diskCache;
+    }
+
+    public void setDiskCache(DiskCacheConfig diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    public SidecarConfig getSidecar() {
+        return sidecar;
+    }
+
+    public void setSidecar(SidecarConfig sidecar) {
+        this.sidecar = sidecar;
+    }
+
+    public TokenStoreConfig getTokenStore() {
+        return tokenStore;
+    }
+
+    public void setTokenStore(TokenStoreConfig tokenStore) {
+        this.tokenStore = tokenStore;
+    }
+
+    public BundledCatalogConfig getBundledCatalog() {
+        return bundledCatalog;
+    }
+
+    public void setBundledCatalog(BundledCatalogConfig bundledCatalog) {
+        this.bundledCatalog = bundledCatalog;
+    }
+
+    public ObjectResourcesConfig getObjectResources() {
+        return objectResources;
+    }
+
+    public void setObjectResources(ObjectResourcesConfig objectResources) {
+        this.objectResources = objectResources;
+    }
+
     /**
      * Server type enumeration
      */
@@ -151,6 +433,24 @@ public class McpServerProperties {
         BASIC
     }
 
+    /**
+     * Role of this process towards the sidecar daemon
+     */
+    public enum SidecarMode {
+        /**
+         * Standalone server with its own token, caches and connections
+         */
+        OFF,
+        /**
+         * Daemon serving the tool calls and tokens of STDIO front-ends over a Unix domain socket
+         */
+        DAEMON,
+        /**
+         * STDIO front-end forwarding tool calls to the daemon, and running them itself while it is unreachable
+         */
+        CLIENT
+    }
+
     /**
      * STDIO transport specific configuration
      */
@@ -170,6 +470,26 @@ public class McpServerProperties {
          */
         private boolean disableBanner = true;
 
+        /**
+         * Threads handling requests concurrently; 0 uses two per available processor, at least 4
+         */
+        private int workerThreads = 0;
+
+        /**
+         * Requests read but not yet answered before stdin is no longer read (backpressure on the client)
+         */
+        private int maxPendingRequests = 64;
+
+        /**
+         * Size of the buffer stdin is read through
+         */
+        private int readBufferBytes = 65536;
+
+        /**
+         * Longest accepted message line; longer lines are skipped and answered with an error
+         */
+        private int maxMessageBytes = 16 * 1024 * 1024;
+
         public boolean isEnabled() {
             return enabled;
         }
@@ -193,6 +513,38 @@ public class McpServerProperties {
         public void setDisableBanner(boolean disableBanner) {
             this.disableBanner = disableBanner;
         }
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+
+        public int getMaxPendingRequests() {
+            return maxPendingRequests;
+        }
+
+        public void setMaxPendingRequests(int maxPendingRequests) {
+            this.maxPendingRequests = maxPendingRequests;
+        }
+
+        public int getReadBufferBytes() {
+            return readBufferBytes;
+        }
+
+        public void setReadBufferBytes(int readBufferBytes) {
+            this.readBufferBytes = readBufferBytes;
+        }
+
+        public int getMaxMessageBytes() {
+            return maxMessageBytes;
+        }
+
+        public void setMaxMessageBytes(int maxMessageBytes) {
+            this.maxMessageBytes = maxMessageBytes;
+        }
     }
 
     /**
@@ -400,4 +752,1309 @@ public class McpServerProperties {
             this.prompts = prompts;
         }
     }
+
+    /**
+     * Query result cache configuration.
+     * Complete query results are kept for a short time so that narrower follow-up
+     * queries can be answered locally.
+     */
+    public static class QueryCacheConfig {
+        /**
+         * Enable answering follow-up queries from cached superset results
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of cached query results
+         */
+        private int maxEntries = 100;
+
+        /**
+         * Time-to-live of a cached query result in seconds
+         */
+        private long ttlSeconds = 300;
+
+        /**
+         * Results with more rows than this are not cached
+         */
+        private int maxRowsPerEntry = 5000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public int getMaxRowsPerEntry() {
+            return maxRowsPerEntry;
+        }
+
+        public void setMaxRowsPerEntry(int maxRowsPerEntry) {
+            this.maxRowsPerEntry = maxRowsPerEntry;
+        }
+    }
+
+    /**
+     * Local replica configuration.
+     * The objects listed in tool-integration.resources are bulk loaded once and then kept
+     * current with delta syncs on audit.modifiedDateTime, so queries on them can be answered locally.
+     */
+    public static class ReplicaConfig {
+        /**
+         * Enable replicating the configured resources. Off by default: a replica bulk loads every record of each
+         * object and keeps it on disk
+         */
+        private boolean enabled = false;
+
+        /**
+         * Delay before the initial bulk load in seconds
+         */
+        private long initialDelaySeconds = 5;
+
+        /**
+         * Interval between delta syncs in seconds
+         */
+        private long syncIntervalSeconds = 300;
+
+        /**
+         * Page size used when loading from the Query API
+         */
+        private int pageSize = 1000;
+
+        /**
+         * Objects with more records than this are not replicated
+         */
+        private int maxRows = 1000000;
+
+        /**
+         * Directory the memory-mapped replica segments are persisted in, in a subdirectory per company and user
+         */
+        private String storageDir = System.getProperty("user.home") + "/.mcp-query-server/replicas";
+
+        /**
+         * Fields that get secondary indexes (hash for text, sorted for numbers); the record key is always indexed
+         */
+        private List<String> indexedFields = new ArrayList<>(List.of("id", "status", "vendor.id", "customer.id"));
+
+        /**
+         * Changed records held on-heap before they are compacted into a new segment
+         */
+        private int overlayMaxRows = 10000;
+
+        /**
+         * Query API object for each resource name in tool-integration.resources
+         */
+        private Map<String, String> objects = new LinkedHashMap<>(Map.of(
+                "vendor", "accounts-payable/vendor",
+                "customer", "accounts-receivable/customer",
+                "invoice", "accounts-receivable/invoice"));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getInitialDelaySeconds() {
+            return initialDelaySeconds;
+        }
+
+        public void setInitialDelaySeconds(long initialDelaySeconds) {
+            this.initialDelaySeconds = initialDelaySeconds;
+        }
+
+        public long getSyncIntervalSeconds() {
+            return syncIntervalSeconds;
+        }
+
+        public void setSyncIntervalSeconds(long syncIntervalSeconds) {
+            this.syncIntervalSeconds = syncIntervalSeconds;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public String getStorageDir() {
+            return storageDir;
+        }
+
+        public void setStorageDir(String storageDir) {
+            this.storageDir = storageDir;
+        }
+
+        public List<String> getIndexedFields() {
+            return indexedFields;
+        }
+
+        public void setIndexedFields(List<String> indexedFields) {
+            this.indexedFields = indexedFields;
+        }
+
+        public int getOverlayMaxRows() {
+            return overlayMaxRows;
+        }
+
+        public void setOverlayMaxRows(int overlayMaxRows) {
+            this.overlayMaxRows = overlayMaxRows;
+        }
+
+        public Map<String, String> getObjects() {
+            return objects;
+        }
+
+        public void setObjects(Map<String, String> objects) {
+            this.objects = objects;
+        }
+    }
+
+    /**
+     * Server-wide result budget.
+     * Every executeQuery response is cut off at these limits; a per-call budget can only tighten them.
+     */
+    public static class ResultBudgetConfig {
+        /**
+         * Maximum rows returned by one call
+         */
+        private int maxRows = 1000;
+
+        /**
+         * Maximum serialized size of the returned rows in bytes
+         */
+        private long maxBytes = 1048576;
+
+        /**
+         * Maximum fields kept per row; further fields are dropped
+         */
+        private int maxFieldsPerRow = 200;
+
+        public int getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public int getMaxFieldsPerRow() {
+            return maxFieldsPerRow;
+        }
+
+        public void setMaxFieldsPerRow(int maxFieldsPerRow) {
+            this.maxFieldsPerRow = maxFieldsPerRow;
+        }
+    }
+
+    /**
+     * Progress notification configuration.
+     * Calls that carry a progress token and ask for more rows than one page are fetched page by page,
+     * with a notifications/progress message after each page.
+     */
+    public static class ProgressConfig {
+        /**
+         * Enable progress notifications
+         */
+        private boolean enabled = true;
+
+        /**
+         * Rows fetched per Query API request while reporting progress
+         */
+        private int pageSize = 250;
+
+        /**
+         * Allow clients to request partial row batches (notifications/partial_result) as pages arrive
+         */
+        private boolean partialResults = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public boolean isPartialResults() {
+            return partialResults;
+        }
+
+        public void setPartialResults(boolean partialResults) {
+            this.partialResults = partialResults;
+        }
+    }
+
+    /**
+     * Model definition cache configuration
+     */
+    public static class ModelCacheConfig {
+        /**
+         * Enable caching model definitions
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of cached model definitions
+         */
+        private int maxEntries = 500;
+
+        /**
+         * Time-to-live of a cached model definition in seconds
+         */
+        private long ttlSeconds = 3600;
+
+        /**
+         * Age in seconds after which a cached model definition is revalidated in the background with a
+         * conditional request (ETag / Last-Modified); 0 disables revalidation
+         */
+        private long revalidateAfterSeconds = 600;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public long getRevalidateAfterSeconds() {
+            return revalidateAfterSeconds;
+        }
+
+        public void setRevalidateAfterSeconds(long revalidateAfterSeconds) {
+            this.revalidateAfterSeconds = revalidateAfterSeconds;
+        }
+    }
+
+    /**
+     * Background schema pre-warming configuration.
+     * On startup the models of tool-integration.resources and of the most used objects in the
+     * persisted usage history are loaded into the model cache on low-priority threads.
+     */
+    public static class SchemaWarmupConfig {
+        /**
+         * Enable pre-warming model definitions
+         */
+        private boolean enabled = true;
+
+        /**
+         * Delay before pre-warming starts in seconds
+         */
+        private long initialDelaySeconds = 2;
+
+        /**
+         * Model definitions loaded concurrently
+         */
+        private int parallelism = 2;
+
+        /**
+         * Most used objects from the usage history to pre-warm
+         */
+        private int topObjects = 10;
+
+        /**
+         * File the model usage history is persisted in
+         */
+        private String usageHistoryFile = System.getProperty("user.home") + "/.mcp-query-server/model-usage.json";
+
+        /**
+         * Interval between saves of the usage history in seconds
+         */
+        private long saveIntervalSeconds = 60;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getInitialDelaySeconds() {
+            return initialDelaySeconds;
+        }
+
+        public void setInitialDelaySeconds(long initialDelaySeconds) {
+            this.initialDelaySeconds = initialDelaySeconds;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getTopObjects() {
+            return topObjects;
+        }
+
+        public void setTopObjects(int topObjects) {
+            this.topObjects = topObjects;
+        }
+
+        public String getUsageHistoryFile() {
+            return usageHistoryFile;
+        }
+
+        public void setUsageHistoryFile(String usageHistoryFile) {
+            this.usageHistoryFile = usageHistoryFile;
+        }
+
+        public long getSaveIntervalSeconds() {
+            return saveIntervalSeconds;
+        }
+
+        public void setSaveIntervalSeconds(long saveIntervalSeconds) {
+            this.saveIntervalSeconds = saveIntervalSeconds;
+        }
+    }
+
+    /**
+     * HTTP compression configuration for Intacct API calls.
+     * Responses are requested with Accept-Encoding gzip/deflate and decompressed while they are decoded;
+     * request bodies are only compressed when the endpoint is known to accept Content-Encoding: gzip.
+     */
+    public static class CompressionConfig {
+        /**
+         * Negotiate compressed responses
+         */
+        private boolean enabled = true;
+
+        /**
+         * Gzip request bodies (only if the Intacct endpoint accepts compressed requests)
+         */
+        private boolean compressRequests = false;
+
+        /**
+         * Smallest request body in bytes that is compressed
+         */
+        private int minRequestBytes = 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isCompressRequests() {
+            return compressRequests;
+        }
+
+        public void setCompressRequests(boolean compressRequests) {
+            this.compressRequests = compressRequests;
+        }
+
+        public int getMinRequestBytes() {
+            return minRequestBytes;
+        }
+
+        public void setMinRequestBytes(int minRequestBytes) {
+            this.minRequestBytes = minRequestBytes;
+        }
+    }
+
+    /**
+     * Object name resolution configuration.
+     * Object names passed to the tools are checked against the model catalog (listAvailableModels) before
+     * any remote call; aliases, plurals, missing modules and close misspellings are corrected, and
+     * unknown names are rejected with suggestions.
+     */
+    public static class ObjectResolutionConfig {
+        /**
+         * Resolve object names against the model catalog
+         */
+        private boolean enabled = true;
+
+        /**
+         * Suggestions returned for an unknown object name
+         */
+        private int maxSuggestions = 5;
+
+        /**
+         * Interval after which the model catalog is listed again in seconds
+         */
+        private long catalogTtlSeconds = 3600;
+
+        /**
+         * Module abbreviations and their module names (e.g., ap: accounts-payable)
+         */
+        private Map<String, String> moduleAliases = new LinkedHashMap<>(Map.ofEntries(
+                Map.entry("ap", "accounts-payable"),
+                Map.entry("ar", "accounts-receivable"),
+                Map.entry("gl", "general-ledger"),
+                Map.entry("cm", "cash-management"),
+                Map.entry("co", "company-config"),
+                Map.entry("company", "company-config"),
+                Map.entry("ee", "expenses"),
+                Map.entry("fa", "fixed-assets"),
+                Map.entry("ic", "inventory-control"),
+                Map.entry("inventory", "inventory-control"),
+                Map.entry("oe", "order-entry"),
+                Map.entry("po", "purchasing"),
+                Map.entry("pa", "projects")));
+
+        /**
+         * Alternative object names and the catalog object names they stand for, without module
+         * (e.g., supplier: vendor)
+         */
+        private Map<String, String> objectAliases = new LinkedHashMap<>(Map.of(
+                "supplier", "vendor",
+                "client", "customer",
+                "gl-account", "account",
+                "journal-entries", "journal-entry"));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSuggestions() {
+            return maxSuggestions;
+        }
+
+        public void setMaxSuggestions(int maxSuggestions) {
+            this.maxSuggestions = maxSuggestions;
+        }
+
+        public long getCatalogTtlSeconds() {
+            return catalogTtlSeconds;
+        }
+
+        public void setCatalogTtlSeconds(long catalogTtlSeconds) {
+            this.catalogTtlSeconds = catalogTtlSeconds;
+        }
+
+        public Map<String, String> getModuleAliases() {
+            return moduleAliases;
+        }
+
+        public void setModuleAliases(Map<String, String> moduleAliases) {
+            this.moduleAliases = moduleAliases;
+        }
+
+        public Map<String, String> getObjectAliases() {
+            return objectAliases;
+        }
+
+        public void setObjectAliases(Map<String, String> objectAliases) {
+            this.objectAliases = objectAliases;
+        }
+    }
+
+    /**
+     * Raw query result passthrough configuration.
+     * Rows of single-request queries are forwarded as the bytes the Query API returned instead of being
+     * decoded into maps and encoded again; rows are only tokenized to validate them and drop unrequested keys.
+     */
+    public static class QueryPassthroughConfig {
+        /**
+         * Forward raw ia::result rows as the tool result
+         */
+        private boolean enabled = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Per-tool concurrency limits (bulkheads).
+     * Each tool gets its own pool of call slots, so slow tools cannot take every worker thread and
+     * outbound connection from cheap ones. A call that finds its tool's slots taken waits up to
+     * maxWaitMillis and is then rejected with a structured error.
+     */
+    public static class BulkheadConfig {
+        /**
+         * Limit concurrent calls per tool
+         */
+        private boolean enabled = true;
+
+        /**
+         * Concurrent calls allowed for tools without their own limit
+         */
+        private int maxConcurrent = 4;
+
+        /**
+         * Longest wait for a free slot, in milliseconds, for tools without their own limit; 0 rejects at once
+         */
+        private long maxWaitMillis = 2000;
+
+        /**
+         * Limits by tool name; unset values fall back to the defaults above
+         */
+        private Map<String, ToolLimit> tools = new LinkedHashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public void setMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public Map<String, ToolLimit> getTools() {
+            return tools;
+        }
+
+        public void setTools(Map<String, ToolLimit> tools) {
+            this.tools = tools;
+        }
+
+        /**
+         * Concurrent calls allowed for a tool
+         */
+        public int maxConcurrent(String tool) {
+            ToolLimit limit = tools.get(tool);
+            return limit != null && limit.getMaxConcurrent() != null ? limit.getMaxConcurrent() : maxConcurrent;
+        }
+
+        /**
+         * Longest wait for a free slot of a tool, in milliseconds
+         */
+        public long maxWaitMillis(String tool) {
+            ToolLimit limit = tools.get(tool);
+            return limit != null && limit.getMaxWaitMillis() != null ? limit.getMaxWaitMillis() : maxWaitMillis;
+        }
+    }
+
+    /**
+     * Concurrency limit of one tool
+     */
+    public static class ToolLimit {
+        /**
+         * Concurrent calls allowed
+         */
+        private Integer maxConcurrent;
+
+        /**
+         * Longest wait for a free slot, in milliseconds
+         */
+        private Long maxWaitMillis;
+
+        public Integer getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(Integer maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public Long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public void setMaxWaitMillis(Long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+        }
+    }
+
+    /**
+     * Adaptive page sizing.
+     * When a result is fetched page by page, the page size is tuned per object and field set so a page
+     * takes about targetPageMillis and stays under maxPageBytes. Learned sizes are kept in stateFile.
+     */
+    public static class AdaptivePagingConfig {
+        /**
+         * Tune page sizes; when disabled the progress page size is always used
+         */
+        private boolean enabled = true;
+
+        /**
+         * Latency to aim for per page, in milliseconds
+         */
+        private long targetPageMillis = 2000;
+
+        /**
+         * Largest response per page, in bytes
+         */
+        private long maxPageBytes = 4L * 1024 * 1024;
+
+        /**
+         * Smallest page size used
+         */
+        private int minPageSize = 50;
+
+        /**
+         * Largest page size used
+         */
+        private int maxPageSize = 2000;
+
+        /**
+         * File the learned page sizes are kept in
+         */
+        private String stateFile = System.getProperty("user.home") + "/.mcp-query-server/page-sizes.json";
+
+        /**
+         * Least time between saves of the state file, in seconds; it is also saved on shutdown
+         */
+        private long saveIntervalSeconds = 60;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getTargetPageMillis() {
+            return targetPageMillis;
+        }
+
+        public void setTargetPageMillis(long targetPageMillis) {
+            this.targetPageMillis = targetPageMillis;
+        }
+
+        public long getMaxPageBytes() {
+            return maxPageBytes;
+        }
+
+        public void setMaxPageBytes(long maxPageBytes) {
+            this.maxPageBytes = maxPageBytes;
+        }
+
+        public int getMinPageSize() {
+            return minPageSize;
+        }
+
+        public void setMinPageSize(int minPageSize) {
+            this.minPageSize = minPageSize;
+        }
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public String getStateFile() {
+            return stateFile;
+        }
+
+        public void setStateFile(String stateFile) {
+            this.stateFile = stateFile;
+        }
+
+        public long getSaveIntervalSeconds() {
+            return saveIntervalSeconds;
+        }
+
+        public void setSaveIntervalSeconds(long saveIntervalSeconds) {
+            this.saveIntervalSeconds = saveIntervalSeconds;
+        }
+    }
+
+    /**
+     * Query export configuration.
+     * The exportQuery tool pages through a whole query result and streams the rows to a file in the
+     * export directory, returning only the path, row count and checksum.
+     */
+    public static class ExportConfig {
+        /**
+         * Allow exports
+         */
+        private boolean enabled = true;
+
+        /**
+         * Directory export files are written to; file names cannot point outside it
+         */
+        private String directory = System.getProperty("user.home") + "/.mcp-query-server/exports";
+
+        /**
+         * Rows per Query API request to start with; tuned by adaptive paging when it is enabled
+         */
+        private int pageSize = 1000;
+
+        /**
+         * Most rows written by one export
+         */
+        private long maxRows = 1_000_000;
+
+        /**
+         * Size of the file write buffer, in bytes
+         */
+        private int bufferBytes = 256 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public long getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(long maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public int getBufferBytes() {
+            return bufferBytes;
+        }
+
+        public void setBufferBytes(int bufferBytes) {
+            this.bufferBytes = bufferBytes;
+        }
+    }
+
+    /**
+     * Join configuration.
+     * The joinQuery tool reads the dimension side of a join into a hash table once and streams the fact side
+     * past it; these limits keep the table and the scan bounded.
+     */
+    public static class JoinConfig {
+        /**
+         * Most dimension rows read into the hash table; larger dimension sides must be narrowed with filters
+         */
+        private int maxDimensionRows = 20_000;
+
+        /**
+         * Most fact rows read by one call; the result reports nextStart to continue from
+         */
+        private int maxFactRows = 50_000;
+
+        /**
+         * Rows per Query API request to start with; tuned by adaptive paging when it is enabled
+         */
+        private int pageSize = 1000;
+
+        public int getMaxDimensionRows() {
+            return maxDimensionRows;
+        }
+
+        public void setMaxDimensionRows(int maxDimensionRows) {
+            this.maxDimensionRows = maxDimensionRows;
+        }
+
+        public int getMaxFactRows() {
+            return maxFactRows;
+        }
+
+        public void setMaxFactRows(int maxFactRows) {
+            this.maxFactRows = maxFactRows;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+    }
+
+    /**
+     * Batched lookup configuration.
+     * Records referenced from a result (executeQuery 'expand') are fetched by key with $in queries of up to
+     * chunkSize keys, run in parallel, instead of one query per record.
+     */
+    public static class LookupConfig {
+        /**
+         * Keys per $in query
+         */
+        private int chunkSize = 100;
+
+        /**
+         * Lookup queries run at the same time
+         */
+        private int parallelism = 4;
+
+        /**
+         * Most distinct keys looked up per relationship in one call
+         */
+        private int maxKeys = 1000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getMaxKeys() {
+            return maxKeys;
+        }
+
+        public void setMaxKeys(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+    }
+
+    /**
+     * Record cache configuration.
+     * Records fetched by key or id (lookupRecords, executeQuery 'expand') are kept per (object, key), so
+     * overlapping lookups only fetch the records not seen recently.
+     */
+    public static class RecordCacheConfig {
+        /**
+         * Enable serving record lookups from the cache
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of cached records
+         */
+        private long maxRecords = 50000;
+
+        /**
+         * Time-to-live of a cached record in seconds
+         */
+        private long ttlSeconds = 300;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxRecords() {
+            return maxRecords;
+        }
+
+        public void setMaxRecords(long maxRecords) {
+            this.maxRecords = maxRecords;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+    }
+
+    /**
+     * Disk cache configuration.
+     * Query and model responses are appended to segment files shared by every server process, so a new
+     * STDIO session starts with the responses of earlier ones.
+     */
+    public static class DiskCacheConfig {
+        /**
+         * Enable the disk cache. Off by default: it keeps query responses on disk
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory of the segment files
+         */
+        private String directory = System.getProperty("user.home") + "/.mcp-query-server/l2-cache";
+
+        /**
+         * Size of the segment files above which they are compacted
+         */
+        private long maxBytes = 256L * 1024 * 1024;
+
+        /**
+         * Size at which a new segment file is started
+         */
+        private long maxSegmentBytes = 16L * 1024 * 1024;
+
+        /**
+         * Responses larger than this are not cached
+         */
+        private int maxEntryBytes = 1024 * 1024;
+
+        /**
+         * Time-to-live of a cached query response in seconds
+         */
+        private long queryTtlSeconds = 900;
+
+        /**
+         * Time-to-live of a cached model definition or model catalog in seconds
+         */
+        private long modelTtlSeconds = 86400;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public long getMaxSegmentBytes() {
+            return maxSegmentBytes;
+        }
+
+        public void setMaxSegmentBytes(long maxSegmentBytes) {
+            this.maxSegmentBytes = maxSegmentBytes;
+        }
+
+        public int getMaxEntryBytes() {
+            return maxEntryBytes;
+        }
+
+        public void setMaxEntryBytes(int maxEntryBytes) {
+            this.maxEntryBytes = maxEntryBytes;
+        }
+
+        public long getQueryTtlSeconds() {
+            return queryTtlSeconds;
+        }
+
+        public void setQueryTtlSeconds(long queryTtlSeconds) {
+            this.queryTtlSeconds = queryTtlSeconds;
+        }
+
+        public long getModelTtlSeconds() {
+            return modelTtlSeconds;
+        }
+
+        public void setModelTtlSeconds(long modelTtlSeconds) {
+            this.modelTtlSeconds = modelTtlSeconds;
+        }
+    }
+
+    /**
+     * Sidecar daemon configuration.
+     * One daemon per workstation owns the access token, the model and query caches and the outbound
+     * connections; the STDIO processes started by each MCP client forward their tool calls to it.
+     */
+    public static class SidecarConfig {
+        /**
+         * Role of this process: OFF, DAEMON or CLIENT
+         */
+        private SidecarMode mode = SidecarMode.OFF;
+
+        /**
+         * Unix domain socket the daemon listens on
+         */
+        private String socketPath = System.getProperty("user.home") + "/.mcp-query-server/sidecar.sock";
+
+        /**
+         * Threads of the daemon running forwarded tool calls; 0 uses two per available processor, at least 4
+         */
+        private int workerThreads = 0;
+
+        /**
+         * Largest accepted message on the socket
+         */
+        private int maxMessageBytes = 16 * 1024 * 1024;
+
+        /**
+         * After the daemon could not be reached, tool calls run locally for this many seconds before it is tried again
+         */
+        private long retryAfterSeconds = 30;
+
+        /**
+         * Longest wait for the daemon's answer to a tool call; the call is then cancelled there and run locally
+         */
+        private long callTimeoutSeconds = 300;
+
+        public SidecarMode getMode() {
+            return mode;
+        }
+
+        public void setMode(SidecarMode mode) {
+            this.mode = mode;
+        }
+
+        public String getSocketPath() {
+            return socketPath;
+        }
+
+        public void setSocketPath(String socketPath) {
+            this.socketPath = socketPath;
+        }
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+
+        public int getMaxMessageBytes() {
+            return maxMessageBytes;
+        }
+
+        public void setMaxMessageBytes(int maxMessageBytes) {
+            this.maxMessageBytes = maxMessageBytes;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(long retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getCallTimeoutSeconds() {
+            return callTimeoutSeconds;
+        }
+
+        public void setCallTimeoutSeconds(long callTimeoutSeconds) {
+            this.callTimeoutSeconds = callTimeoutSeconds;
+        }
+    }
+
+    /**
+     * Token store configuration.
+     * The access token is kept encrypted on disk, one file per client id, user and base URL, so a new
+     * session reuses the previous session's token while it is still valid instead of fetching one.
+     */
+    public static class TokenStoreConfig {
+        /**
+         * Enable the token store
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory of the token files, only accessible to the user
+         */
+        private String directory = System.getProperty("user.home") + "/.mcp-query-server/tokens";
+
+        /**
+         * Least remaining lifetime of a stored token for a new session to reuse it; a token closer to expiry is
+         * replaced by a new one
+         */
+        private long minRemainingSeconds = 900;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getMinRemainingSeconds() {
+            return minRemainingSeconds;
+        }
+
+        public void setMinRemainingSeconds(long minRemainingSeconds) {
+            this.minRemainingSeconds = minRemainingSeconds;
+        }
+    }
+
+    /**
+     * Bundled model catalog configuration.
+     * The object summaries and field definitions of the model catalog, generated at build time (Maven profile
+     * model-catalog) and packaged in the jar, answer catalog lookups, object name resolution and field-only
+     * model requests of a cold session without a remote call. Objects missing from it, and the whole catalog
+     * once it is older than max-age-days, are served by the Model API.
+     */
+    public static class BundledCatalogConfig {
+        /**
+         * Use the bundled model catalog
+         */
+        private boolean enabled = true;
+
+        /**
+         * Location of the bundled catalog (a classpath resource unless prefixed, e.g. file:)
+         */
+        private String resource = "classpath:model-catalog.json";
+
+        /**
+         * Age in days after which the bundled catalog is ignored
+         */
+        private int maxAgeDays = 30;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        public void setResource(String resource) {
+            this.resource = resource;
+        }
+
+        public int getMaxAgeDays() {
+            return maxAgeDays;
+        }
+
+        public void setMaxAgeDays(int maxAgeDays) {
+            this.maxAgeDays = maxAgeDays;
+        }
+    }
+
+    /**
+     * Object resources configuration.
+     * Each object of tool-integration.resources is an MCP resource (intacct://objects/{name}) read from the
+     * local replica, or through the query cache until the replica is loaded. Clients may subscribe to it and
+     * receive notifications/resources/updated when a replica sync finds changed records.
+     */
+    public static class ObjectResourcesConfig {
+        /**
+         * Register the object resources
+         */
+        private boolean enabled = true;
+
+        /**
+         * Records returned when a resource is read
+         */
+        private int maxRows = 200;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(int maxRows) {
+            this.maxRows = maxRows;
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package com.intacct.ds.mcp.server.query.filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A Query API filter (the {@code filters} list plus {@code filterExpression}) compiled into a row predicate.
+ *
+ * @param predicate Predicate over result rows
+ * @param fields    Fields referenced by the filter conditions
+ * @param conjuncts The filter conditions when the filter is a plain conjunction, or null when it contains "or".
+ *                  An empty list means the filter matches every row.
+ */
+public record CompiledFilter(
+        Predicate<Map<String, Object>> predicate,
+        Set<String> fields,
+        List<Map<String, Map<String, Object>>> conjuncts
+) implements Predicate<Map<String, Object>> {
+
+    @Override
+    public boolean test(Map<String, Object> row) {
+        return predicate.test(row);
+    }
+
+    /**
+     * Whether every row matching this filter also matches {@code other}.
+     * Only conjunctions are compared: a filter implies another if it contains all of the other's conditions.
+     */
+    public boolean implies(CompiledFilter other) {
+        if (other.conjuncts() != null && other.conjuncts().isEmpty()) {
+            return true;
+        }
+        return conjuncts != null && other.conjuncts() != null && conjuncts.containsAll(other.conjuncts());
+    }
+}
@@ -0,0 +1,263 @@
+package com.intacct.ds.mcp.server.query.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import com.intacct.ds.mcp.server.query.filter.FilterExpression.And;
+import com.intacct.ds.mcp.server.query.filter.FilterExpression.Or;
+import com.intacct.ds.mcp.server.query.filter.FilterExpression.Ref;
+
+/**
+ * Compiles Query API filters into JVM predicates so that queries can be evaluated against rows held locally.
+ * Supports every operator documented on {@code executeQuery}. Filters that cannot be evaluated faithfully
+ * outside Intacct (relative date macros such as 'today', unknown operators, malformed expressions) are
+ * reported as not compilable so the caller can fall back to the API.
+ *
+ * Null field values follow SQL semantics: they only match {@code $eq: null} and {@code $ne} with a
+ * non-null operand never matches them.
+ */
+public final class FilterCompiler {
+
+    private static final Pattern DATE_MACRO = Pattern.compile(
+            "(?i)today|yesterday|tomorrow|(current|prior|next)(week|month|quarter|year)(todate)?|(last|next)\\d+days");
+
+    private FilterCompiler() {
+    }
+
+    /**
+     * Compiles a filter for local evaluation.
+     *
+     * @param filters          Filter conditions, each {"operator": {"field": value}}. May be null or empty.
+     * @param filterExpression Optional expression combining the filters by 1-based index
+     * @param caseSensitive    Whether string comparisons are case-sensitive (filterParameters.caseSensitiveComparison)
+     * @param numericFields    Fields the object's model types as numbers (see ObjectModel.numericFields);
+     *                         range operators compare every other field as text
+     * @return The compiled filter, or empty if the filter cannot be evaluated locally
+     */
+    public static Optional<CompiledFilter> compile(List<Map<String, Map<String, Object>>> filters,
+            String filterExpression, boolean caseSensitive, Set<String> numericFields) {
+        List<Map<String, Map<String, Object>>> conditions = filters != null ? filters : List.of();
+        FilterExpression expression;
+        try {
+            expression = FilterExpression.parse(filterExpression, conditions.size());
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        Set<String> fields = new LinkedHashSet<>();
+        List<Predicate<Map<String, Object>>> predicates = new ArrayList<>(conditions.size());
+        for (Map<String, Map<String, Object>> condition : conditions) {
+            Predicate<Map<String, Object>> predicate = compileCondition(condition, caseSensitive, numericFields, fields);
+            if (predicate == null) {
+                return Optional.empty();
+            }
+            predicates.add(predicate);
+        }
+
+        Set<Integer> conjunctIndexes = FilterExpression.conjunctIndexes(expression);
+        List<Map<String, Map<String, Object>>> conjuncts = null;
+        if (conjunctIndexes != null) {
+            conjuncts = new ArrayList<>(conjunctIndexes.size());
+            for (int index : conjunctIndexes) {
+                conjuncts.add(conditions.get(index - 1));
+            }
+        }
+        return Optional.of(new CompiledFilter(combine(expression, predicates), Set.copyOf(fields), conjuncts));
+    }
+
+    private static Predicate<Map<String, Object>> combine(FilterExpression expression,
+            List<Predicate<Map<String, Object>>> predicates) {
+        if (expression instanceof Ref ref) {
+            return predicates.get(ref.index() - 1);
+        }
+        if (expression instanceof And and) {
+            List<Predicate<Map<String, Object>>> operands = and.operands().stream()
+                    .map(operand -> combine(operand, predicates)).toList();
+            return row -> {
+                for (Predicate<Map<String, Object>> operand : operands) {
+                    if (!operand.test(row)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        List<Predicate<Map<String, Object>>> operands = ((Or) expression).operands().stream()
+                .map(operand -> combine(operand, predicates)).toList();
+        return row -> {
+            for (Predicate<Map<String, Object>> operand : operands) {
+                if (operand.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static Predicate<Map<String, Object>> compileCondition(Map<String, Map<String, Object>> condition,
+            boolean caseSensitive, Set<String> numericFields, Set<String> fields) {
+        if (condition == null || condition.size() != 1) {
+            return null;
+        }
+        Map.Entry<String, Map<String, Object>> entry = condition.entrySet().iterator().next();
+        if (entry.getValue() == null || entry.getValue().isEmpty()) {
+            return null;
+        }
+        Predicate<Map<String, Object>> combined = null;
+        for (Map.Entry<String, Object> operand : entry.getValue().entrySet()) {
+            if (isDateMacro(operand.getValue())) {
+                return null;
+            }
+            Predicate<Map<String, Object>> predicate = compileOperator(entry.getKey(), operand.getKey(),
+                    operand.getValue(), caseSensitive, numericFields.contains(operand.getKey()));
+            if (predicate == null) {
+                return null;
+            }
+            fields.add(operand.getKey());
+            combined = combined == null ? predicate : combined.and(predicate);
+        }
+        return combined;
+    }
+
+    private static Predicate<Map<String, Object>> compileOperator(String operator, String field, Object operand,
+            boolean caseSensitive, boolean numeric) {
+        switch (operator) {
+            case "$eq":
+                return row -> RowValues.valueEquals(RowValues.get(row, field), operand, caseSensitive);
+            case "$ne":
+                if (operand == null) {
+                    return row -> RowValues.get(row, field) != null;
+                }
+                return row -> {
+                    Object value = RowValues.get(row, field);
+                    return value != null && !RowValues.valueEquals(value, operand, caseSensitive);
+                };
+            case "$lt":
+                return ordering(field, operand, numeric, caseSensitive, cmp -> cmp < 0);
+            case "$lte":
+                return ordering(field, operand, numeric, caseSensitive, cmp -> cmp <= 0);
+            case "$gt":
+                return ordering(field, operand, numeric, caseSensitive, cmp -> cmp > 0);
+            case "$gte":
+                return ordering(field, operand, numeric, caseSensitive, cmp -> cmp >= 0);
+            case "$in":
+                return membership(field, operand, caseSensitive, true);
+            case "$notIn":
+                return membership(field, operand, caseSensitive, false);
+            case "$between":
+                return range(field, operand, numeric, caseSensitive, true);
+            case "$notBetween":
+                return range(field, operand, numeric, caseSensitive, false);
+            case "$contains":
+                return text(field, operand, caseSensitive, true, String::contains);
+            case "$notContains":
+                return text(field, operand, caseSensitive, false, String::contains);
+            case "$startsWith":
+                return text(field, operand, caseSensitive, true, String::startsWith);
+            case "$notStartsWith":
+                return text(field, operand, caseSensitive, false, String::startsWith);
+            case "$endsWith":
+                return text(field, operand, caseSensitive, true, String::endsWith);
+            case "$notEndsWith":
+                return text(field, operand, caseSensitive, false, String::endsWith);
+            default:
+                return null;
+        }
+    }
+
+    private interface CompareTest {
+        boolean test(int comparison);
+    }
+
+    private interface TextTest {
+        boolean test(String value, String operand);
+    }
+
+    private static Predicate<Map<String, Object>> ordering(String field, Object operand, boolean numeric,
+            boolean caseSensitive, CompareTest test) {
+        if (operand == null || operand instanceof Collection<?> || operand instanceof Map<?, ?>) {
+            return null;
+        }
+        return row -> {
+            Object value = RowValues.get(row, field);
+            return value != null && test.test(RowValues.compare(value, operand, numeric, caseSensitive));
+        };
+    }
+
+    private static Predicate<Map<String, Object>> membership(String field, Object operand, boolean caseSensitive,
+            boolean in) {
+        if (!(operand instanceof Collection<?> values)) {
+            return null;
+        }
+        List<Object> candidates = new ArrayList<>(values);
+        return row -> {
+            Object value = RowValues.get(row, field);
+            if (value == null) {
+                return false;
+            }
+            for (Object candidate : candidates) {
+                if (RowValues.valueEquals(value, candidate, caseSensitive)) {
+                    return in;
+                }
+            }
+            return !in;
+        };
+    }
+
+    private static Predicate<Map<String, Object>> range(String field, Object operand, boolean numeric,
+            boolean caseSensitive, boolean between) {
+        if (!(operand instanceof Collection<?> bounds) || bounds.size() != 2 || bounds.stream().anyMatch(Objects::isNull)) {
+            return null;
+        }
+        List<Object> limits = new ArrayList<>(bounds);
+        Object low = limits.get(0);
+        Object high = limits.get(1);
+        return row -> {
+            Object value = RowValues.get(row, field);
+            if (value == null) {
+                return false;
+            }
+            boolean inside = RowValues.compare(value, low, numeric, caseSensitive) >= 0
+                    && RowValues.compare(value, high, numeric, caseSensitive) <= 0;
+            return inside == between;
+        };
+    }
+
+    private static Predicate<Map<String, Object>> text(String field, Object operand, boolean caseSensitive,
+            boolean positive, TextTest test) {
+        if (operand == null || operand instanceof Collection<?> || operand instanceof Map<?, ?>) {
+            return null;
+        }
+        String expected = normalize(RowValues.asText(operand), caseSensitive);
+        return row -> {
+            Object value = RowValues.get(row, field);
+            if (value == null) {
+                return false;
+            }
+            return test.test(normalize(RowValues.asText(value), caseSensitive), expected) == positive;
+        };
+    }
+
+    private static String normalize(String text, boolean caseSensitive) {
+        return caseSensitive ? text : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isDateMacro(Object operand) {
+        if (operand instanceof String text) {
+            return DATE_MACRO.matcher(text).matches();
+        }
+        if (operand instanceof Collection<?> values) {
+            return values.stream().anyMatch(FilterCompiler::isDateMacro);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,66 @@
+package com.intacct.ds.mcp.server.query.filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parsed form of a Query API {@code filterExpression} such as "(1 and 2) or 3".
+ * Numbers are 1-based indexes into the {@code filters} list; "and" binds tighter than "or".
+ */
+public sealed interface FilterExpression {
+
+    record Ref(int index) implements FilterExpression {
+    }
+
+    record And(List<FilterExpression> operands) implements FilterExpression {
+    }
+
+    record Or(List<FilterExpression> operands) implements FilterExpression {
+    }
+
+    /**
+     * Parses a filter expression. A null or blank expression combines all filters with "and".
+     *
+     * @param expression  The filterExpression value
+     * @param filterCount Number of entries in the filters list
+     * @return The parsed expression
+     * @throws IllegalArgumentException if the expression is malformed or references a missing filter
+     */
+    static FilterExpression parse(String expression, int filterCount) {
+        if (expression == null || expression.isBlank()) {
+            List<FilterExpression> all = new ArrayList<>();
+            for (int i = 1; i <= filterCount; i++) {
+                all.add(new Ref(i));
+            }
+            return new And(all);
+        }
+        return new FilterExpressionParser(expression, filterCount).parse();
+    }
+
+    /**
+     * Returns the filter indexes of an expression that is a plain conjunction ("1 and 2 and 3"),
+     * or null when the expression contains "or".
+     */
+    static Set<Integer> conjunctIndexes(FilterExpression expression) {
+        Set<Integer> indexes = new LinkedHashSet<>();
+        return collectConjuncts(expression, indexes) ? indexes : null;
+    }
+
+    private static boolean collectConjuncts(FilterExpression expression, Set<Integer> indexes) {
+        if (expression instanceof Ref ref) {
+            indexes.add(ref.index());
+            return true;
+        }
+        if (expression instanceof And and) {
+            for (FilterExpression operand : and.operands()) {
+                if (!collectConjuncts(operand, indexes)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
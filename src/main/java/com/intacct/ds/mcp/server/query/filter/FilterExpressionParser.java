@@ -0,0 +1,107 @@
+package com.intacct.ds.mcp.server.query.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.intacct.ds.mcp.server.query.filter.FilterExpression.And;
+import com.intacct.ds.mcp.server.query.filter.FilterExpression.Or;
+import com.intacct.ds.mcp.server.query.filter.FilterExpression.Ref;
+
+/**
+ * Recursive-descent parser for filter expressions.
+ */
+final class FilterExpressionParser {
+
+    private final String expression;
+    private final List<String> tokens;
+    private final int filterCount;
+    private int position;
+
+    FilterExpressionParser(String expression, int filterCount) {
+        this.expression = expression;
+        this.tokens = tokenize(expression);
+        this.filterCount = filterCount;
+    }
+
+    FilterExpression parse() {
+        FilterExpression parsed = parseOr();
+        if (position != tokens.size()) {
+            throw new IllegalArgumentException("Unexpected token '" + tokens.get(position)
+                    + "' in filterExpression: " + expression);
+        }
+        return parsed;
+    }
+
+    private FilterExpression parseOr() {
+        List<FilterExpression> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (accept("or")) {
+            operands.add(parseAnd());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Or(operands);
+    }
+
+    private FilterExpression parseAnd() {
+        List<FilterExpression> operands = new ArrayList<>();
+        operands.add(parseTerm());
+        while (accept("and")) {
+            operands.add(parseTerm());
+        }
+        return operands.size() == 1 ? operands.get(0) : new And(operands);
+    }
+
+    private FilterExpression parseTerm() {
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Unexpected end of filterExpression");
+        }
+        String token = tokens.get(position++);
+        if (token.equals("(")) {
+            FilterExpression inner = parseOr();
+            if (!accept(")")) {
+                throw new IllegalArgumentException("Missing ')' in filterExpression");
+            }
+            return inner;
+        }
+        try {
+            int index = Integer.parseInt(token);
+            if (index < 1 || index > filterCount) {
+                throw new IllegalArgumentException("filterExpression references filter " + index
+                        + " but only " + filterCount + " filters were provided");
+            }
+            return new Ref(index);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unexpected token '" + token + "' in filterExpression");
+        }
+    }
+
+    private boolean accept(String expected) {
+        if (position < tokens.size() && tokens.get(position).equals(expected)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else {
+                int startIndex = i;
+                while (i < expression.length() && !Character.isWhitespace(expression.charAt(i))
+                        && expression.charAt(i) != '(' && expression.charAt(i) != ')') {
+                    i++;
+                }
+                tokens.add(expression.substring(startIndex, i).toLowerCase(Locale.ROOT));
+            }
+        }
+        return tokens;
+    }
+}
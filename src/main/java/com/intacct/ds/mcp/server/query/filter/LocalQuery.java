@@ -0,0 +1,126 @@
+package com.intacct.ds.mcp.server.query.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates a query against rows held in memory: filter, order, page and project,
+ * mirroring what the Query API does server-side.
+ */
+public final class LocalQuery {
+
+    private LocalQuery() {
+    }
+
+    /**
+     * One page of a local query.
+     *
+     * @param rows       The rows of the page
+     * @param totalCount Number of rows that matched the filter, on this and every other page
+     */
+    public record Page(List<Map<String, Object>> rows, int totalCount) {}
+
+    /**
+     * Runs a query over local rows.
+     *
+     * @param rows          Candidate rows (a superset of the answer)
+     * @param filter        Row predicate, typically a {@link CompiledFilter}
+     * @param orderBy       Sort order, e.g. [{"name": "asc"}]. May be null.
+     * @param caseSensitive Whether string ordering is case-sensitive
+     * @param numericFields Fields the object's model types as numbers; every other field orders as text
+     * @param start         1-based index of the first row to return. May be null.
+     * @param size          Maximum number of rows to return
+     * @param fields        Fields to project. Null keeps every field of the row.
+     * @return The matching rows as new maps
+     */
+    public static List<Map<String, Object>> evaluate(Collection<Map<String, Object>> rows,
+            Predicate<Map<String, Object>> filter, List<Map<String, String>> orderBy, boolean caseSensitive,
+            Set<String> numericFields, Integer start, int size, List<String> fields) {
+        return page(rows, filter, orderBy, caseSensitive, numericFields, start, size, fields).rows();
+    }
+
+    /**
+     * Runs a query over local rows, counting every match like the API's totalCount.
+     *
+     * @see #evaluate(Collection, Predicate, List, boolean, Set, Integer, int, List)
+     */
+    public static Page page(Collection<Map<String, Object>> rows,
+            Predicate<Map<String, Object>> filter, List<Map<String, String>> orderBy, boolean caseSensitive,
+            Set<String> numericFields, Integer start, int size, List<String> fields) {
+        List<Map<String, Object>> matches = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            if (filter.test(row)) {
+                matches.add(row);
+            }
+        }
+        Comparator<Map<String, Object>> ordering = comparator(orderBy, matches, caseSensitive, numericFields);
+        if (ordering != null) {
+            matches.sort(ordering);
+        }
+
+        int from = Math.max(0, (start != null ? start : 1) - 1);
+        int to = (int) Math.min(matches.size(), (long) from + Math.max(0, size));
+        List<Map<String, Object>> page = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            page.add(project(matches.get(i), fields));
+        }
+        return new Page(page, matches.size());
+    }
+
+    /**
+     * Copies a row, keeping only the requested fields in the requested order.
+     */
+    public static Map<String, Object> project(Map<String, Object> row, List<String> fields) {
+        if (fields == null) {
+            return new LinkedHashMap<>(row);
+        }
+        Map<String, Object> projected = new LinkedHashMap<>(fields.size() * 2);
+        for (String field : fields) {
+            if (RowValues.has(row, field)) {
+                projected.put(field, RowValues.get(row, field));
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * Builds a comparator for an orderBy list. A column is ordered numerically only when the model types
+     * it as a number and all of its values are numeric, which keeps the comparator consistent for mixed
+     * columns. Nulls sort last in ascending order and first in descending order, as in the database.
+     */
+    static Comparator<Map<String, Object>> comparator(List<Map<String, String>> orderBy,
+            List<Map<String, Object>> rows, boolean caseSensitive, Set<String> numericFields) {
+        if (orderBy == null || orderBy.isEmpty()) {
+            return null;
+        }
+        Comparator<Map<String, Object>> combined = null;
+        for (Map<String, String> clause : orderBy) {
+            if (clause == null) {
+                continue;
+            }
+            for (Map.Entry<String, String> entry : clause.entrySet()) {
+                String field = entry.getKey();
+                boolean descending = entry.getValue() != null
+                        && entry.getValue().toLowerCase(Locale.ROOT).startsWith("desc");
+                boolean numeric = numericFields.contains(field) && rows.stream()
+                        .map(row -> RowValues.get(row, field))
+                        .allMatch(value -> value == null || RowValues.asNumber(value) != null);
+                Comparator<Object> values = numeric
+                        ? Comparator.comparing(RowValues::asNumber)
+                        : Comparator.comparing(RowValues::asText, RowValues.textComparator(caseSensitive));
+                Comparator<Object> withNulls = Comparator.nullsLast(values);
+                Comparator<Map<String, Object>> column = Comparator.comparing(row -> RowValues.get(row, field),
+                        descending ? withNulls.reversed() : withNulls);
+                combined = combined == null ? column : combined.thenComparing(column);
+            }
+        }
+        return combined;
+    }
+}
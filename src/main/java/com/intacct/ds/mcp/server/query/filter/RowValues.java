@@ -0,0 +1,135 @@
+package com.intacct.ds.mcp.server.query.filter;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Helpers for reading and comparing field values of Query API result rows.
+ * Result rows use dotted keys for related fields (e.g. "vendor.id"); nested maps are accepted as well.
+ */
+public final class RowValues {
+
+    private RowValues() {
+    }
+
+    /**
+     * Reads a field from a result row, first as a flat key and then as a nested path.
+     *
+     * @param row   Result row
+     * @param field Field name, possibly dotted (e.g. "audit.modifiedDateTime")
+     * @return The field value, or null if the row does not contain it
+     */
+    @SuppressWarnings("unchecked")
+    public static Object get(Map<String, Object> row, String field) {
+        if (row == null || field == null) {
+            return null;
+        }
+        if (row.containsKey(field)) {
+            return row.get(field);
+        }
+        int dot = field.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        Object head = row.get(field.substring(0, dot));
+        if (head instanceof Map<?, ?> nested) {
+            return get((Map<String, Object>) nested, field.substring(dot + 1));
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a row holds a field, either as a flat key or as a nested path.
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean has(Map<String, Object> row, String field) {
+        if (row.containsKey(field)) {
+            return true;
+        }
+        int dot = field.indexOf('.');
+        if (dot < 0) {
+            return false;
+        }
+        Object head = row.get(field.substring(0, dot));
+        return head instanceof Map<?, ?> nested && has((Map<String, Object>) nested, field.substring(dot + 1));
+    }
+
+    /**
+     * Parses a value as a decimal number.
+     * The Query API returns decimal fields as strings (e.g. "123.45"), so numeric strings are accepted.
+     *
+     * @return The numeric value, or null if the value is not numeric
+     */
+    public static BigDecimal asNumber(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (value instanceof Number number) {
+            return new BigDecimal(number.toString());
+        }
+        if (value instanceof String text && !text.isEmpty()) {
+            char first = text.charAt(0);
+            if ((first < '0' || first > '9') && first != '-' && first != '+' && first != '.') {
+                return null;
+            }
+            try {
+                return new BigDecimal(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Text form of a value used for string comparisons.
+     */
+    public static String asText(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Equality as the Query API applies it: numerically when either side is a number, otherwise as text.
+     */
+    public static boolean valueEquals(Object left, Object right, boolean caseSensitive) {
+        if (left == null || right == null) {
+            return left == null && right == null;
+        }
+        if (left instanceof Number || right instanceof Number) {
+            BigDecimal l = asNumber(left);
+            BigDecimal r = asNumber(right);
+            if (l != null && r != null) {
+                return l.compareTo(r) == 0;
+            }
+        }
+        String l = asText(left);
+        String r = asText(right);
+        return caseSensitive ? l.equals(r) : l.equalsIgnoreCase(r);
+    }
+
+    /**
+     * Orders two non-null values of a field: numerically when the model types the field as a number and both
+     * values parse as one, otherwise as text. String fields holding digits (e.g. id "10") order as text, as in
+     * the database. ISO dates and timestamps order correctly as text.
+     *
+     * @param numeric Whether the field is numeric in the object's model
+     */
+    public static int compare(Object left, Object right, boolean numeric, boolean caseSensitive) {
+        if (numeric) {
+            BigDecimal l = asNumber(left);
+            BigDecimal r = asNumber(right);
+            if (l != null && r != null) {
+                return l.compareTo(r);
+            }
+        }
+        return textComparator(caseSensitive).compare(asText(left), asText(right));
+    }
+
+    static Comparator<String> textComparator(boolean caseSensitive) {
+        return caseSensitive ? Comparator.naturalOrder() : String.CASE_INSENSITIVE_ORDER;
+    }
+}
@@ -0,0 +1,221 @@
+package com.intacct.ds.mcp.server.query.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+/**
+ * RestClient interceptor that negotiates compressed responses and optionally compresses request bodies.
+ * The JDK HTTP client does not decompress on its own, so compressed bodies are wrapped in a streaming
+ * GZIP/Inflater stream: callers (e.g. the streaming query decoder) read decoded JSON while it downloads,
+ * and stopping early leaves the rest of the compressed body unread. Bytes are counted in {@link TransferMetrics}.
+ */
+@Component
+public class CompressionInterceptor implements ClientHttpRequestInterceptor {
+
+    static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+
+    private final McpServerProperties.CompressionConfig config;
+    private final TransferMetrics metrics;
+
+    public CompressionInterceptor(McpServerProperties properties, TransferMetrics metrics) {
+        this.config = properties != null && properties.getCompression() != null
+                ? properties.getCompression() : new McpServerProperties.CompressionConfig();
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String endpoint = endpoint(request);
+        if (!config.isEnabled()) {
+            metrics.recordRequest(endpoint, body.length, body.length);
+            return new CountingResponse(execution.execute(request, body), endpoint, metrics, false);
+        }
+
+        HttpHeaders headers = request.getHeaders();
+        if (!headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+        }
+        byte[] sent = body;
+        if (config.isCompressRequests() && body.length >= config.getMinRequestBytes()
+                && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            sent = gzip(body);
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.setContentLength(sent.length);
+        }
+        metrics.recordRequest(endpoint, body.length, sent.length);
+        return new CountingResponse(execution.execute(request, sent), endpoint, metrics, true);
+    }
+
+    // Last path segment, e.g. "query" for /services/core/query
+    private static String endpoint(HttpRequest request) {
+        String path = request.getURI().getPath();
+        if (path == null || path.isEmpty()) {
+            return "other";
+        }
+        String trimmed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        return trimmed.substring(trimmed.lastIndexOf('/') + 1);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Response whose body is decompressed according to Content-Encoding and counted before and after decoding.
+     */
+    private static final class CountingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final String endpoint;
+        private final TransferMetrics metrics;
+        private final boolean decode;
+        private HttpHeaders headers;
+        private CountingInputStream wire;
+        private CountingInputStream decoded;
+        private InputStream body;
+        private boolean closed;
+
+        CountingResponse(ClientHttpResponse delegate, String endpoint, TransferMetrics metrics, boolean decode) {
+            this.delegate = delegate;
+            this.endpoint = endpoint;
+            this.metrics = metrics;
+            this.decode = decode;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                headers = new HttpHeaders();
+                headers.putAll(delegate.getHeaders());
+                if (decode && encoding() != null) {
+                    // The body handed out is decoded, so its encoding and length no longer apply
+                    headers.remove(HttpHeaders.CONTENT_ENCODING);
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                }
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                wire = new CountingInputStream(delegate.getBody());
+                String encoding = decode ? encoding() : null;
+                InputStream stream = wire;
+                if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+                    stream = new GZIPInputStream(wire, 8192);
+                } else if ("deflate".equals(encoding)) {
+                    stream = inflate(wire);
+                }
+                decoded = stream == wire ? wire : new CountingInputStream(stream);
+                body = decoded;
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (body != null) {
+                    body.close();
+                }
+            } catch (IOException e) {
+                // Closing an abandoned compressed stream may fail; the exchange is released below either way
+            } finally {
+                delegate.close();
+                if (wire != null) {
+                    metrics.recordResponse(endpoint, wire.count, decoded.count);
+                }
+            }
+        }
+
+        private String encoding() {
+            String encoding = delegate.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            return encoding != null && !encoding.isBlank() && !"identity".equalsIgnoreCase(encoding.trim())
+                    ? encoding.trim().toLowerCase() : null;
+        }
+
+        // "deflate" should be zlib-wrapped, but some servers send raw deflate; tell them apart by the zlib header
+        private static InputStream inflate(InputStream in) throws IOException {
+            PushbackInputStream pushback = new PushbackInputStream(in, 2);
+            int first = pushback.read();
+            int second = pushback.read();
+            if (second >= 0) {
+                pushback.unread(second);
+            }
+            if (first >= 0) {
+                pushback.unread(first);
+            }
+            boolean zlib = first >= 0 && second >= 0 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+            return new InflaterInputStream(pushback, new Inflater(!zlib), 8192);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.intacct.ds.mcp.server.query.http;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bytes sent to and received from the Intacct API, per endpoint ("query", "model", ...), both as they cross
+ * the wire and before compression / after decompression. Exposed as Micrometer counters
+ * (intacct.http.client.bytes.*) on the application's MeterRegistry, or on the global registry when the
+ * application has none, and logged as a summary at shutdown.
+ */
+@Component
+public class TransferMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferMetrics.class);
+
+    private final MeterRegistry registry;
+    private final Map<String, Counters> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Totals for one endpoint.
+     *
+     * @param requests      Requests sent
+     * @param sentRaw       Request body bytes before compression
+     * @param sentWire      Request body bytes sent
+     * @param receivedWire  Response body bytes received
+     * @param receivedBytes Response body bytes after decompression
+     */
+    public record Snapshot(long requests, long sentRaw, long sentWire, long receivedWire, long receivedBytes) {
+        /**
+         * Received bytes saved by compression, as a fraction of the decoded size.
+         */
+        public double responseSavings() {
+            return receivedBytes == 0 ? 0 : 1 - (double) receivedWire / receivedBytes;
+        }
+    }
+
+    private static final class Counters {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong sentRaw = new AtomicLong();
+        final AtomicLong sentWire = new AtomicLong();
+        final AtomicLong receivedWire = new AtomicLong();
+        final AtomicLong receivedBytes = new AtomicLong();
+
+        Snapshot snapshot() {
+            return new Snapshot(requests.get(), sentRaw.get(), sentWire.get(), receivedWire.get(), receivedBytes.get());
+        }
+    }
+
+    @Autowired
+    public TransferMetrics(ObjectProvider<MeterRegistry> registry) {
+        this(registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    TransferMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordRequest(String endpoint, long rawBytes, long wireBytes) {
+        Counters counters = counters(endpoint);
+        counters.requests.incrementAndGet();
+        counters.sentRaw.addAndGet(rawBytes);
+        counters.sentWire.addAndGet(wireBytes);
+    }
+
+    public void recordResponse(String endpoint, long wireBytes, long decodedBytes) {
+        Counters counters = counters(endpoint);
+        counters.receivedWire.addAndGet(wireBytes);
+        counters.receivedBytes.addAndGet(decodedBytes);
+    }
+
+    /**
+     * Totals for an endpoint so far.
+     */
+    public Snapshot snapshot(String endpoint) {
+        Counters counters = endpoints.get(endpoint);
+        return counters != null ? counters.snapshot() : new Snapshot(0, 0, 0, 0, 0);
+    }
+
+    @PreDestroy
+    public void logSummary() {
+        endpoints.forEach((endpoint, counters) -> {
+            Snapshot snapshot = counters.snapshot();
+            logger.info("Intacct '{}' transfer: {} requests, sent {} bytes ({} raw), received {} bytes ({} decoded, {}% saved)",
+                    endpoint, snapshot.requests(), snapshot.sentWire(), snapshot.sentRaw(), snapshot.receivedWire(),
+                    snapshot.receivedBytes(), Math.round(snapshot.responseSavings() * 100));
+        });
+    }
+
+    private Counters counters(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, name -> {
+            Counters counters = new Counters();
+            register("intacct.http.client.requests", "Requests sent to the Intacct API", name, null, counters.requests);
+            register("intacct.http.client.bytes.sent", "Request body bytes", name, "wire", counters.sentWire);
+            register("intacct.http.client.bytes.sent", "Request body bytes", name, "raw", counters.sentRaw);
+            register("intacct.http.client.bytes.received", "Response body bytes", name, "wire", counters.receivedWire);
+            register("intacct.http.client.bytes.received", "Response body bytes", name, "decoded", counters.receivedBytes);
+            return counters;
+        });
+    }
+
+    private void register(String meter, String description, String endpoint, String encoding, AtomicLong value) {
+        FunctionCounter.Builder<AtomicLong> builder = FunctionCounter.builder(meter, value, AtomicLong::get)
+                .description(description)
+                .tag("endpoint", endpoint);
+        if (encoding != null) {
+            builder.tag("encoding", encoding).baseUnit("bytes");
+        }
+        builder.register(registry);
+    }
+}
@@ -0,0 +1,17 @@
+package com.intacct.ds.mcp.server.query.replica;
+
+/**
+ * Physical encoding of a column in a {@link ColumnarSegment}.
+ */
+public enum ColumnType {
+    /** Dictionary-encoded strings: int codes per row into a sorted dictionary */
+    STRING,
+    /** Dictionary-encoded JSON text, for nested or mixed-type values */
+    JSON,
+    /** 64-bit integers with a null bitmap */
+    LONG,
+    /** 64-bit floating point values with a null bitmap */
+    DOUBLE,
+    /** Booleans stored as 0/1 longs with a null bitmap */
+    BOOLEAN
+}
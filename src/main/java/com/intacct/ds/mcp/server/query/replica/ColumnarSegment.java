@@ -0,0 +1,363 @@
+package com.intacct.ds.mcp.server.query.replica;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.filter.RowValues;
+import com.intacct.ds.mcp.server.query.replica.SegmentMeta.ColumnMeta;
+
+/**
+ * Read-only columnar snapshot of a replicated object, memory-mapped from disk.
+ * Strings are dictionary-encoded against a sorted dictionary, numbers are stored as primitive
+ * columns with a null bitmap. Indexed string columns carry an open-addressing hash of the dictionary
+ * plus CSR postings (row ids per dictionary code); indexed numeric columns carry row ids sorted by value.
+ * Values are decoded on access, so scans and lookups keep the data off-heap.
+ *
+ * A segment lives in its own directory as a data file plus meta.json; see {@link SegmentWriter}.
+ */
+public final class ColumnarSegment {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarSegment.class);
+
+    static final String META_FILE = "meta.json";
+    // Held exclusively by a writer and shared by readers, across the processes that share storage-dir
+    static final String LOCK_FILE = "segment.lock";
+    static final int FORMAT_VERSION = 1;
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SegmentMeta meta;
+    private final ByteBuffer data;
+    private final Map<String, Integer> columnIndex;
+
+    private ColumnarSegment(SegmentMeta meta, ByteBuffer data) {
+        this.meta = meta;
+        this.data = data;
+        this.columnIndex = new HashMap<>();
+        for (int i = 0; i < meta.columns().size(); i++) {
+            columnIndex.put(meta.columns().get(i).name(), i);
+        }
+    }
+
+    /**
+     * Maps the segment stored in a directory.
+     *
+     * @return The segment, or null if the directory holds no readable segment of this format
+     */
+    public static ColumnarSegment open(Path directory) {
+        if (!Files.isRegularFile(directory.resolve(META_FILE))) {
+            return null;
+        }
+        // The lock keeps another process from replacing meta.json and removing its data file in between
+        try (FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
+            return read(directory);
+        } catch (IOException e) {
+            logger.warn("Cannot lock segment in {}: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Maps the segment stored in a directory while the caller holds its lock.
+     */
+    static ColumnarSegment read(Path directory) {
+        Path metaFile = directory.resolve(META_FILE);
+        if (!Files.isRegularFile(metaFile)) {
+            return null;
+        }
+        try {
+            SegmentMeta meta = MAPPER.readValue(metaFile.toFile(), SegmentMeta.class);
+            if (meta.formatVersion() != FORMAT_VERSION || meta.columns() == null) {
+                logger.info("Ignoring segment in {} with format version {}", directory, meta.formatVersion());
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(directory.resolve(meta.dataFile()), StandardOpenOption.READ)) {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return new ColumnarSegment(meta, data);
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot open segment in {}: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    public SegmentMeta getMeta() {
+        return meta;
+    }
+
+    public int getRowCount() {
+        return meta.rowCount();
+    }
+
+    public boolean hasField(String field) {
+        return columnIndex.containsKey(field);
+    }
+
+    /**
+     * Decodes one value.
+     *
+     * @return The value, or null if the row has no value or the field is not stored
+     */
+    public Object value(int row, String field) {
+        Integer column = columnIndex.get(field);
+        return column != null ? value(row, meta.columns().get(column)) : null;
+    }
+
+    /**
+     * A lightweight map view of one row; values are decoded when read.
+     */
+    public Map<String, Object> row(int row) {
+        return new SegmentRow(row);
+    }
+
+    /**
+     * Finds the rows matching one filter condition using a secondary index.
+     *
+     * @return Matching row ids in ascending order, or null if no index can answer the condition exactly
+     */
+    public int[] lookup(String operator, String field, Object operand, boolean caseSensitive) {
+        Integer column = columnIndex.get(field);
+        if (column == null || operand == null) {
+            return null;
+        }
+        ColumnMeta c = meta.columns().get(column);
+        if (c.type() == ColumnType.STRING) {
+            // Hash lookups are exact, so they only match case-sensitive text equality
+            if (c.hashTable() < 0 || !caseSensitive) {
+                return null;
+            }
+            if ("$eq".equals(operator) && operand instanceof String text) {
+                return postings(c, code(c, text));
+            }
+            if ("$in".equals(operator) && operand instanceof Collection<?> candidates
+                    && candidates.stream().allMatch(String.class::isInstance)) {
+                return union(candidates.stream().mapToInt(text -> code(c, (String) text))
+                        .mapToObj(code -> postings(c, code)).toList());
+            }
+            return null;
+        }
+        if (c.sortedRows() < 0) {
+            return null;
+        }
+        switch (operator) {
+            case "$eq":
+                return number(operand) != null ? sortedRange(c, operand, true, operand, true) : null;
+            case "$lt":
+                return number(operand) != null ? sortedRange(c, null, true, operand, false) : null;
+            case "$lte":
+                return number(operand) != null ? sortedRange(c, null, true, operand, true) : null;
+            case "$gt":
+                return number(operand) != null ? sortedRange(c, operand, false, null, true) : null;
+            case "$gte":
+                return number(operand) != null ? sortedRange(c, operand, true, null, true) : null;
+            case "$between":
+                if (operand instanceof List<?> bounds && bounds.size() == 2
+                        && number(bounds.get(0)) != null && number(bounds.get(1)) != null) {
+                    return sortedRange(c, bounds.get(0), true, bounds.get(1), true);
+                }
+                return null;
+            case "$in":
+                if (operand instanceof Collection<?> candidates
+                        && candidates.stream().allMatch(candidate -> number(candidate) != null)) {
+                    return union(candidates.stream().map(candidate -> sortedRange(c, candidate, true, candidate, true))
+                            .toList());
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private Object value(int row, ColumnMeta c) {
+        switch (c.type()) {
+            case STRING:
+            case JSON: {
+                int code = data.getInt(c.values() + 4 * row);
+                if (code < 0) {
+                    return null;
+                }
+                String text = dictionaryEntry(c, code);
+                if (c.type() == ColumnType.STRING) {
+                    return text;
+                }
+                try {
+                    return MAPPER.readValue(text, Object.class);
+                } catch (IOException e) {
+                    return text;
+                }
+            }
+            default: {
+                if (isNull(c, row)) {
+                    return null;
+                }
+                int position = c.values() + 8 * row;
+                return switch (c.type()) {
+                    case DOUBLE -> data.getDouble(position);
+                    case BOOLEAN -> data.getLong(position) != 0;
+                    default -> data.getLong(position);
+                };
+            }
+        }
+    }
+
+    private boolean isNull(ColumnMeta c, int row) {
+        return ((data.getLong(c.nulls() + 8 * (row >>> 6)) >>> (row & 63)) & 1L) != 0;
+    }
+
+    private String dictionaryEntry(ColumnMeta c, int code) {
+        int start = data.getInt(c.dictionaryOffsets() + 4 * code);
+        int end = data.getInt(c.dictionaryOffsets() + 4 * (code + 1));
+        byte[] bytes = new byte[end - start];
+        data.get(c.dictionaryBytes() + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean dictionaryEntryEquals(ColumnMeta c, int code, byte[] expected) {
+        int start = data.getInt(c.dictionaryOffsets() + 4 * code);
+        int end = data.getInt(c.dictionaryOffsets() + 4 * (code + 1));
+        if (end - start != expected.length) {
+            return false;
+        }
+        int base = c.dictionaryBytes() + start;
+        for (int i = 0; i < expected.length; i++) {
+            if (data.get(base + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Dictionary code of a string via the hash index, or -1 if the value does not occur
+    private int code(ColumnMeta c, String text) {
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+        int mask = c.hashCapacity() - 1;
+        int slot = spread(text.hashCode()) & mask;
+        for (int probes = 0; probes < c.hashCapacity(); probes++) {
+            int code = data.getInt(c.hashTable() + 4 * slot);
+            if (code < 0) {
+                return -1;
+            }
+            if (dictionaryEntryEquals(c, code, expected)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int[] postings(ColumnMeta c, int code) {
+        if (code < 0) {
+            return new int[0];
+        }
+        int from = data.getInt(c.postingOffsets() + 4 * code);
+        int to = data.getInt(c.postingOffsets() + 4 * (code + 1));
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = data.getInt(c.postings() + 4 * (from + i));
+        }
+        return rows;
+    }
+
+    // Rows whose value lies between two bounds (null for unbounded), found by binary search of the sorted rows
+    private int[] sortedRange(ColumnMeta c, Object low, boolean lowInclusive, Object high, boolean highInclusive) {
+        int from = low == null ? 0 : bound(c, low, !lowInclusive);
+        int to = high == null ? c.nonNullCount() : bound(c, high, highInclusive);
+        if (to <= from) {
+            return new int[0];
+        }
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = data.getInt(c.sortedRows() + 4 * (from + i));
+        }
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    // First position whose value is greater than (after = true) or at least (after = false) the operand
+    private int bound(ColumnMeta c, Object operand, boolean after) {
+        BigDecimal target = number(operand);
+        int low = 0;
+        int high = c.nonNullCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int row = data.getInt(c.sortedRows() + 4 * mid);
+            int cmp = RowValues.asNumber(value(row, c)).compareTo(target);
+            if (cmp < 0 || (after && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static BigDecimal number(Object operand) {
+        return operand instanceof Boolean ? null : RowValues.asNumber(operand);
+    }
+
+    private static int[] union(List<int[]> parts) {
+        return parts.stream().flatMapToInt(Arrays::stream).sorted().distinct().toArray();
+    }
+
+    /**
+     * Map view of one row. Every stored field is present, with a null value when the row has none,
+     * as in Query API results.
+     */
+    private final class SegmentRow extends AbstractMap<String, Object> {
+        private final int row;
+
+        SegmentRow(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer column = columnIndex.get(key);
+            return column != null ? value(row, meta.columns().get(column)) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return columnIndex.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return meta.columns().size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            Map<String, Object> values = new LinkedHashMap<>(meta.columns().size() * 2);
+            for (ColumnMeta c : meta.columns()) {
+                values.put(c.name(), value(row, c));
+            }
+            return values.entrySet();
+        }
+    }
+}
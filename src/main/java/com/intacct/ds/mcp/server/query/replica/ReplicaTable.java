@@ -0,0 +1,318 @@
+package com.intacct.ds.mcp.server.query.replica;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.intacct.ds.mcp.server.query.filter.CompiledFilter;
+import com.intacct.ds.mcp.server.query.filter.RowValues;
+
+/**
+ * Local copy of one Intacct object, keyed by record key.
+ * The bulk of the rows lives in a memory-mapped {@link ColumnarSegment} persisted in the table's
+ * directory, so the replica survives restarts. Rows changed by delta syncs are held in a small
+ * on-heap overlay that shadows their segment versions until the overlay is compacted into a new
+ * segment. The watermark is the latest audit.modifiedDateTime seen, which is where the next
+ * delta sync starts.
+ */
+public class ReplicaTable {
+
+    public static final String KEY_FIELD = "key";
+    public static final String MODIFIED_FIELD = "audit.modifiedDateTime";
+
+    /**
+     * Immutable snapshot read by queries while a sync prepares the next one.
+     *
+     * @param segment  Persisted rows, or null before the first load
+     * @param shadowed Segment rows replaced by an overlay row
+     * @param overlay  Rows changed since the segment was written, by key
+     */
+    private record State(ColumnarSegment segment, BitSet shadowed, Map<String, Map<String, Object>> overlay) {}
+
+    private final String object;
+    private final List<String> fields;
+    private final Path directory;
+    private final Set<String> indexedFields;
+    private final int overlayMaxRows;
+    private volatile State state = new State(null, new BitSet(), Map.of());
+    private volatile String watermark;
+
+    /**
+     * @param object         Query API object (e.g., "accounts-payable/vendor")
+     * @param fields         Fields held for every row; must include {@link #KEY_FIELD} and {@link #MODIFIED_FIELD}
+     * @param directory      Directory the segment is persisted in
+     * @param indexedFields  Fields to build secondary indexes for; the key is always indexed
+     * @param overlayMaxRows Changed rows kept on-heap before they are compacted into a new segment
+     */
+    public ReplicaTable(String object, List<String> fields, Path directory, Set<String> indexedFields,
+            int overlayMaxRows) {
+        this.object = object;
+        this.fields = List.copyOf(fields);
+        this.directory = directory;
+        Set<String> indexed = new HashSet<>(indexedFields);
+        indexed.add(KEY_FIELD);
+        this.indexedFields = Set.copyOf(indexed);
+        this.overlayMaxRows = overlayMaxRows;
+    }
+
+    public String getObject() {
+        return object;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public String getWatermark() {
+        return watermark;
+    }
+
+    public boolean isLoaded() {
+        return state.segment() != null;
+    }
+
+    public int size() {
+        State current = state;
+        int segmentRows = current.segment() != null ? current.segment().getRowCount() : 0;
+        return segmentRows - current.shadowed().cardinality() + current.overlay().size();
+    }
+
+    /**
+     * Reopens the segment persisted by an earlier run.
+     *
+     * @return true if a segment with the same fields was found; the table then resumes from its watermark
+     */
+    public synchronized boolean restore() {
+        ColumnarSegment segment = ColumnarSegment.open(directory);
+        if (segment == null || !object.equals(segment.getMeta().object()) || !fields.equals(segment.getMeta().fields())) {
+            return false;
+        }
+        this.state = new State(segment, new BitSet(), Map.of());
+        this.watermark = segment.getMeta().watermark();
+        return true;
+    }
+
+    /**
+     * Starts a bulk load; add every row to the writer and pass it to {@link #replaceAll(SegmentWriter)}.
+     */
+    public SegmentWriter newWriter() {
+        return new SegmentWriter(fields, indexedFields);
+    }
+
+    /**
+     * Replaces the whole table with the result of a bulk load and persists it.
+     */
+    public synchronized void replaceAll(SegmentWriter writer) throws IOException {
+        ColumnarSegment segment = writer.write(directory, object, writer.getWatermark());
+        this.state = new State(segment, new BitSet(), Map.of());
+        this.watermark = writer.getWatermark();
+    }
+
+    /**
+     * Replaces the whole table with the given rows and persists it.
+     */
+    public void replaceAll(List<Map<String, Object>> loadedRows) throws IOException {
+        SegmentWriter writer = newWriter();
+        loadedRows.forEach(writer::add);
+        replaceAll(writer);
+    }
+
+    /**
+     * Applies rows returned by a delta sync.
+     *
+     * @return The number of rows inserted or replaced
+     */
+    public synchronized int upsert(List<Map<String, Object>> changedRows) throws IOException {
+        State current = state;
+        BitSet shadowed = (BitSet) current.shadowed().clone();
+        Map<String, Map<String, Object>> overlay = new HashMap<>(current.overlay());
+        String latest = watermark;
+        int applied = 0;
+        for (Map<String, Object> row : changedRows) {
+            String key = text(row, KEY_FIELD);
+            if (key == null) {
+                continue;
+            }
+            if (current.segment() != null && !overlay.containsKey(key)) {
+                for (int rowId : segmentRows(current.segment(), key)) {
+                    shadowed.set(rowId);
+                }
+            }
+            overlay.put(key, row);
+            latest = later(latest, text(row, MODIFIED_FIELD));
+            applied++;
+        }
+        this.state = new State(current.segment(), shadowed, Map.copyOf(overlay));
+        this.watermark = latest;
+
+        if (overlay.size() > overlayMaxRows) {
+            compact();
+        }
+        return applied;
+    }
+
+    /**
+     * Rewrites the segment with the overlay merged in.
+     */
+    public synchronized void compact() throws IOException {
+        SegmentWriter writer = newWriter();
+        for (Map<String, Object> row : rows()) {
+            writer.add(row);
+        }
+        ColumnarSegment segment = writer.write(directory, object, watermark);
+        this.state = new State(segment, new BitSet(), Map.of());
+    }
+
+    /**
+     * Live view of the replicated rows, reading a consistent snapshot. Segment rows are decoded lazily.
+     */
+    public Collection<Map<String, Object>> rows() {
+        State current = state;
+        int segmentRows = current.segment() != null ? current.segment().getRowCount() : 0;
+        return rows(current, null, segmentRows);
+    }
+
+    /**
+     * Rows that may match a filter: when an AND-ed condition of the filter can be answered by a
+     * secondary index, only the segment rows it selects are returned (plus every overlay row).
+     * The caller still applies the full filter.
+     */
+    public Collection<Map<String, Object>> candidates(CompiledFilter filter, boolean caseSensitive) {
+        State current = state;
+        if (current.segment() == null || filter.conjuncts() == null) {
+            return rows();
+        }
+        int[] selected = null;
+        for (Map<String, Map<String, Object>> condition : filter.conjuncts()) {
+            for (Map.Entry<String, Map<String, Object>> operator : condition.entrySet()) {
+                for (Map.Entry<String, Object> operand : operator.getValue().entrySet()) {
+                    int[] rows = current.segment().lookup(operator.getKey(), operand.getKey(), operand.getValue(),
+                            caseSensitive);
+                    if (rows != null) {
+                        selected = selected == null ? rows : intersect(selected, rows);
+                    }
+                }
+            }
+        }
+        if (selected == null) {
+            return rows();
+        }
+        return rows(current, selected, selected.length);
+    }
+
+    private static Collection<Map<String, Object>> rows(State state, int[] selected, int segmentCount) {
+        List<Map<String, Object>> overlay = new ArrayList<>(state.overlay().values());
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Map<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int position = advance(0);
+                    private int overlayPosition;
+
+                    private int advance(int from) {
+                        int p = from;
+                        while (p < segmentCount && state.shadowed().get(rowId(p))) {
+                            p++;
+                        }
+                        return p;
+                    }
+
+                    private int rowId(int p) {
+                        return selected != null ? selected[p] : p;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < segmentCount || overlayPosition < overlay.size();
+                    }
+
+                    @Override
+                    public Map<String, Object> next() {
+                        if (position < segmentCount) {
+                            Map<String, Object> row = state.segment().row(rowId(position));
+                            position = advance(position + 1);
+                            return row;
+                        }
+                        if (overlayPosition < overlay.size()) {
+                            return overlay.get(overlayPosition++);
+                        }
+                        throw new NoSuchElementException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int shadowedCount = 0;
+                if (selected == null) {
+                    shadowedCount = state.shadowed().cardinality();
+                } else {
+                    for (int rowId : selected) {
+                        if (state.shadowed().get(rowId)) {
+                            shadowedCount++;
+                        }
+                    }
+                }
+                return segmentCount - shadowedCount + overlay.size();
+            }
+        };
+    }
+
+    private static int[] segmentRows(ColumnarSegment segment, String key) {
+        int[] rows = segment.lookup("$eq", KEY_FIELD, key, true);
+        if (rows != null) {
+            return rows;
+        }
+        // Keys that are not stored as text cannot use the hash index
+        List<Integer> matches = new ArrayList<>();
+        for (int rowId = 0; rowId < segment.getRowCount(); rowId++) {
+            if (RowValues.valueEquals(segment.value(rowId, KEY_FIELD), key, true)) {
+                matches.add(rowId);
+            }
+        }
+        return matches.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[n++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static String text(Map<String, Object> row, String field) {
+        Object value = RowValues.get(row, field);
+        return value != null ? RowValues.asText(value) : null;
+    }
+
+    // Timestamps are ISO-8601 UTC strings, so they order lexicographically
+    static String later(String current, String candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.compareTo(current) > 0 ? candidate : current;
+    }
+}
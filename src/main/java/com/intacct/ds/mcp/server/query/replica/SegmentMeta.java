@@ -0,0 +1,65 @@
+package com.intacct.ds.mcp.server.query.replica;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Contents of a segment's meta.json: what the data file holds and where each section starts.
+ * Offsets are byte positions in the data file, or -1 when the section is absent.
+ *
+ * @param formatVersion Layout version of the data file
+ * @param object        Query API object the rows belong to
+ * @param fields        Replicated fields, one column each
+ * @param watermark     Latest audit.modifiedDateTime held in the segment
+ * @param rowCount      Number of rows
+ * @param dataFile      Name of the data file in the segment directory
+ * @param createdAt     Epoch millis when the segment was written
+ * @param columns       Layout of each column, in field order
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SegmentMeta(
+        int formatVersion,
+        String object,
+        List<String> fields,
+        String watermark,
+        int rowCount,
+        String dataFile,
+        long createdAt,
+        List<ColumnMeta> columns
+) {
+
+    /**
+     * Layout of one column.
+     *
+     * @param name              Field name
+     * @param type              Encoding
+     * @param nonNullCount      Number of rows with a value
+     * @param nulls             Null bitmap (numeric columns), one bit per row
+     * @param values            Row values: int codes (-1 for null) or 8-byte numbers
+     * @param dictionarySize    Number of distinct values (dictionary columns)
+     * @param dictionaryOffsets int[dictionarySize + 1] start of each entry in the dictionary bytes
+     * @param dictionaryBytes   UTF-8 bytes of the sorted dictionary entries
+     * @param hashCapacity      Slots in the hash index (power of two)
+     * @param hashTable         int[hashCapacity] dictionary codes, -1 for empty slots
+     * @param postingOffsets    int[dictionarySize + 1] start of each code's rows in the postings
+     * @param postings          int[nonNullCount] row ids grouped by code, ascending within a code
+     * @param sortedRows        int[nonNullCount] row ids ordered by value (numeric columns)
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record ColumnMeta(
+            String name,
+            ColumnType type,
+            int nonNullCount,
+            int nulls,
+            int values,
+            int dictionarySize,
+            int dictionaryOffsets,
+            int dictionaryBytes,
+            int hashCapacity,
+            int hashTable,
+            int postingOffsets,
+            int postings,
+            int sortedRows
+    ) {}
+}
@@ -0,0 +1,361 @@
+package com.intacct.ds.mcp.server.query.replica;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.intacct.ds.mcp.server.query.filter.RowValues;
+import com.intacct.ds.mcp.server.query.replica.SegmentMeta.ColumnMeta;
+
+/**
+ * Builds a {@link ColumnarSegment} from rows. Rows are consumed one at a time and only the distinct
+ * values of each column plus an int code per row are kept, so a bulk load does not need every row
+ * on the heap at once. Column encodings are chosen from the values seen when the segment is written.
+ */
+public final class SegmentWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentWriter.class);
+
+    private final List<String> fields;
+    private final Set<String> indexedFields;
+    private final List<ColumnBuilder> columns;
+    private int rowCount;
+    private String watermark;
+
+    /**
+     * @param fields        Fields to store, one column each
+     * @param indexedFields Fields that get secondary indexes (hash for strings, sorted for numbers)
+     */
+    public SegmentWriter(List<String> fields, Set<String> indexedFields) {
+        this.fields = List.copyOf(fields);
+        this.indexedFields = Set.copyOf(indexedFields);
+        this.columns = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            columns.add(new ColumnBuilder());
+        }
+    }
+
+    public void add(Map<String, Object> row) {
+        for (int i = 0; i < fields.size(); i++) {
+            columns.get(i).add(RowValues.get(row, fields.get(i)));
+        }
+        Object modified = RowValues.get(row, ReplicaTable.MODIFIED_FIELD);
+        if (modified != null) {
+            watermark = ReplicaTable.later(watermark, RowValues.asText(modified));
+        }
+        rowCount++;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Latest audit.modifiedDateTime among the added rows.
+     */
+    public String getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Writes the data file and meta.json into a directory and maps the result.
+     * The meta file is replaced atomically, so a concurrent or crashed write never leaves a
+     * half-written segment visible; data files of older segments are removed afterwards.
+     * Processes sharing the directory are serialized by an exclusive lock on its lock file, so one
+     * never removes the data file another has just published. Files that cannot be removed yet
+     * (mapped files on Windows) are left for the next write.
+     *
+     * @param directory Segment directory, created if missing
+     * @param object    Query API object the rows belong to
+     * @param watermark Watermark to record, usually at least {@link #getWatermark()}
+     * @return The new segment
+     */
+    public ColumnarSegment write(Path directory, String object, String watermark) throws IOException {
+        Files.createDirectories(directory);
+        try (FileChannel channel = FileChannel.open(directory.resolve(ColumnarSegment.LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileLock lock = channel.lock()) {
+            ColumnarSegment segment = writeLocked(directory, object, watermark);
+            removeOldFiles(directory, segment.getMeta().dataFile());
+            return segment;
+        }
+    }
+
+    private ColumnarSegment writeLocked(Path directory, String object, String watermark) throws IOException {
+        long createdAt = System.currentTimeMillis();
+        // Never reuse a name: the current segment's file may still be mapped by readers
+        String dataFile = "segment-" + createdAt + "-" + Long.toHexString(System.nanoTime()) + ".col";
+        List<ColumnMeta> columnMetas = new ArrayList<>(columns.size());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve(dataFile), StandardOpenOption.CREATE_NEW), 1 << 16))) {
+            for (int i = 0; i < columns.size(); i++) {
+                String field = fields.get(i);
+                columnMetas.add(columns.get(i).write(out, field, indexedFields.contains(field), rowCount));
+                if (out.size() < 0) {
+                    throw new IOException("Segment for object '" + object + "' exceeds 2 GB");
+                }
+            }
+        }
+
+        SegmentMeta meta = new SegmentMeta(ColumnarSegment.FORMAT_VERSION, object, fields, watermark, rowCount,
+                dataFile, createdAt, columnMetas);
+        Path tmp = Files.createTempFile(directory, "meta-", ".tmp");
+        try {
+            ColumnarSegment.MAPPER.writeValue(tmp.toFile(), meta);
+            Files.move(tmp, directory.resolve(ColumnarSegment.META_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        ColumnarSegment segment = ColumnarSegment.read(directory);
+        if (segment == null) {
+            throw new IOException("Segment written to " + directory + " could not be opened");
+        }
+        return segment;
+    }
+
+    // Data files of older segments and meta files left by a crashed write; mapped buffers of the old
+    // files stay valid after the files are unlinked
+    private static void removeOldFiles(Path directory, String dataFile) throws IOException {
+        try (DirectoryStream<Path> old = Files.newDirectoryStream(directory, "{segment-*.col,meta-*.tmp}")) {
+            for (Path path : old) {
+                if (path.getFileName().toString().equals(dataFile)) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.debug("Cannot remove {} yet: {}", path, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Distinct values of a column in first-seen order, and the code of each row's value.
+     */
+    private static final class ColumnBuilder {
+        private final Map<Object, Integer> codes = new HashMap<>();
+        private final List<Object> distinct = new ArrayList<>();
+        private int[] rows = new int[1024];
+        private int count;
+
+        void add(Object value) {
+            int code = -1;
+            if (value != null) {
+                code = codes.computeIfAbsent(value, v -> {
+                    distinct.add(v);
+                    return distinct.size() - 1;
+                });
+            }
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+            rows[count++] = code;
+        }
+
+        ColumnMeta write(DataOutputStream out, String name, boolean indexed, int rowCount) throws IOException {
+            ColumnType type = type();
+            int nonNull = 0;
+            for (int i = 0; i < count; i++) {
+                if (rows[i] >= 0) {
+                    nonNull++;
+                }
+            }
+            if (type == ColumnType.STRING || type == ColumnType.JSON) {
+                return writeDictionary(out, name, type, indexed && type == ColumnType.STRING, nonNull);
+            }
+            return writeNumeric(out, name, type, indexed, nonNull, rowCount);
+        }
+
+        private ColumnType type() {
+            boolean strings = true;
+            boolean longs = true;
+            boolean numbers = true;
+            boolean booleans = true;
+            for (Object value : distinct) {
+                strings &= value instanceof String;
+                longs &= value instanceof Integer || value instanceof Long || value instanceof Short
+                        || value instanceof Byte || (value instanceof BigInteger big && big.bitLength() < 64);
+                numbers &= value instanceof Number;
+                booleans &= value instanceof Boolean;
+            }
+            if (strings) {
+                return ColumnType.STRING; // Also covers all-null columns
+            }
+            if (booleans) {
+                return ColumnType.BOOLEAN;
+            }
+            if (longs) {
+                return ColumnType.LONG;
+            }
+            return numbers ? ColumnType.DOUBLE : ColumnType.JSON;
+        }
+
+        private ColumnMeta writeDictionary(DataOutputStream out, String name, ColumnType type, boolean indexed,
+                int nonNull) throws IOException {
+            String[] texts = new String[distinct.size()];
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = type == ColumnType.JSON ? json(distinct.get(i)) : (String) distinct.get(i);
+            }
+            Integer[] order = new Integer[texts.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(i -> texts[i]));
+
+            // Sorted dictionary; equal texts (e.g. 1 and 1L as JSON) share an entry
+            int[] remap = new int[texts.length];
+            List<String> dictionary = new ArrayList<>(texts.length);
+            for (int rank = 0; rank < order.length; rank++) {
+                String text = texts[order[rank]];
+                if (dictionary.isEmpty() || !dictionary.get(dictionary.size() - 1).equals(text)) {
+                    dictionary.add(text);
+                }
+                remap[order[rank]] = dictionary.size() - 1;
+            }
+
+            int values = out.size();
+            for (int i = 0; i < count; i++) {
+                out.writeInt(rows[i] >= 0 ? remap[rows[i]] : -1);
+            }
+
+            int dictionaryOffsets = out.size();
+            List<byte[]> encoded = new ArrayList<>(dictionary.size());
+            int offset = 0;
+            for (String text : dictionary) {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                out.writeInt(offset);
+                offset += bytes.length;
+            }
+            out.writeInt(offset);
+            int dictionaryBytes = out.size();
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+
+            int hashCapacity = 0;
+            int hashTable = -1;
+            int postingOffsets = -1;
+            int postings = -1;
+            if (indexed) {
+                hashCapacity = Integer.highestOneBit(Math.max(1, dictionary.size()) * 2 - 1) << 1;
+                int[] slots = new int[hashCapacity];
+                Arrays.fill(slots, -1);
+                for (int code = 0; code < dictionary.size(); code++) {
+                    int slot = ColumnarSegment.spread(dictionary.get(code).hashCode()) & (hashCapacity - 1);
+                    while (slots[slot] >= 0) {
+                        slot = (slot + 1) & (hashCapacity - 1);
+                    }
+                    slots[slot] = code;
+                }
+                hashTable = out.size();
+                for (int slot : slots) {
+                    out.writeInt(slot);
+                }
+
+                // CSR postings: counting sort of row ids by code
+                int[] starts = new int[dictionary.size() + 1];
+                for (int i = 0; i < count; i++) {
+                    if (rows[i] >= 0) {
+                        starts[remap[rows[i]] + 1]++;
+                    }
+                }
+                for (int code = 0; code < dictionary.size(); code++) {
+                    starts[code + 1] += starts[code];
+                }
+                int[] rowIds = new int[nonNull];
+                int[] next = Arrays.copyOf(starts, dictionary.size());
+                for (int i = 0; i < count; i++) {
+                    if (rows[i] >= 0) {
+                        rowIds[next[remap[rows[i]]]++] = i;
+                    }
+                }
+                postingOffsets = out.size();
+                for (int start : starts) {
+                    out.writeInt(start);
+                }
+                postings = out.size();
+                for (int rowId : rowIds) {
+                    out.writeInt(rowId);
+                }
+            }
+            return new ColumnMeta(name, type, nonNull, -1, values, dictionary.size(), dictionaryOffsets,
+                    dictionaryBytes, hashCapacity, hashTable, postingOffsets, postings, -1);
+        }
+
+        private ColumnMeta writeNumeric(DataOutputStream out, String name, ColumnType type, boolean indexed,
+                int nonNull, int rowCount) throws IOException {
+            int nulls = out.size();
+            long[] bitmap = new long[(rowCount + 63) >>> 6];
+            for (int i = 0; i < count; i++) {
+                if (rows[i] < 0) {
+                    bitmap[i >>> 6] |= 1L << (i & 63);
+                }
+            }
+            for (long word : bitmap) {
+                out.writeLong(word);
+            }
+
+            int values = out.size();
+            for (int i = 0; i < count; i++) {
+                Object value = rows[i] >= 0 ? distinct.get(rows[i]) : null;
+                switch (type) {
+                    case DOUBLE -> out.writeDouble(value != null ? ((Number) value).doubleValue() : 0d);
+                    case BOOLEAN -> out.writeLong(Boolean.TRUE.equals(value) ? 1L : 0L);
+                    default -> out.writeLong(value != null ? ((Number) value).longValue() : 0L);
+                }
+            }
+
+            int sortedRows = -1;
+            if (indexed && type != ColumnType.BOOLEAN) {
+                Integer[] rowIds = new Integer[nonNull];
+                int n = 0;
+                for (int i = 0; i < count; i++) {
+                    if (rows[i] >= 0) {
+                        rowIds[n++] = i;
+                    }
+                }
+                Comparator<Integer> byValue = type == ColumnType.DOUBLE
+                        ? Comparator.comparingDouble(i -> ((Number) distinct.get(rows[i])).doubleValue())
+                        : Comparator.comparingLong(i -> ((Number) distinct.get(rows[i])).longValue());
+                Arrays.sort(rowIds, byValue);
+                sortedRows = out.size();
+                for (int rowId : rowIds) {
+                    out.writeInt(rowId);
+                }
+            }
+            return new ColumnMeta(name, type, nonNull, nulls, values, 0, -1, -1, 0, -1, -1, -1, sortedRows);
+        }
+
+        private static String json(Object value) throws IOException {
+            try {
+                return ColumnarSegment.MAPPER.writeValueAsString(value);
+            } catch (JsonProcessingException e) {
+                throw new IOException("Cannot encode value of type " + value.getClass().getName(), e);
+            }
+        }
+    }
+}
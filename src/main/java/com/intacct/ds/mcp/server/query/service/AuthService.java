@@ -6,9 +6,11 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
@@ -18,12 +20,15 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.transport.SidecarClient;
 
 import jakarta.annotation.PostConstruct;
 
 /**
  * Handles OAuth2 authentication (password grant) for Intacct API.
  * Includes token caching and basic expiration handling.
+ * A sidecar front-end takes the token of the sidecar daemon and only fetches its own while the daemon is unreachable.
+ * With the {@link TokenStore} enabled, a new session reuses the still valid token of the previous one.
  */
 @Service
 public class AuthService {
@@ -45,6 +50,10 @@ public class AuthService {
     private final String clientSecret;
     private final String username;
     private final String password;
+    private final Duration storedTokenMinLifetime;
+
+    private SidecarClient sidecarClient; // Null unless this process is a sidecar front-end
+    private TokenStore tokenStore; // Null unless tokens are kept on disk
 
     // --- DTOs for OAuth2 Token Exchange ---
     private record TokenRequest(
@@ -116,6 +125,10 @@ public class AuthService {
             this.password = System.getProperty("intacct.password", "");
             logger.debug("Using system properties: clientId={}, username={}", this.clientId, this.username);
         }
+        Duration minLifetime = Duration.ofSeconds(properties != null && properties.getTokenStore() != null
+                ? properties.getTokenStore().getMinRemainingSeconds()
+                : new McpServerProperties.TokenStoreConfig().getMinRemainingSeconds());
+        this.storedTokenMinLifetime = minLifetime.compareTo(EXPIRATION_BUFFER) > 0 ? minLifetime : EXPIRATION_BUFFER;
         logger.debug("Final configuration: clientId={}, username={}, baseUrl={}", this.clientId, this.username, this.baseUrl);
     }
 
@@ -131,6 +144,44 @@ public class AuthService {
         return this.baseUrl;
     }
 
+    /**
+     * Gets the configured user, which with the base URL identifies whose data responses hold.
+     * @return The username being used by this AuthService instance
+     */
+    public String getUsername() {
+        return this.username;
+    }
+
+    /**
+     * Takes access tokens from the sidecar daemon when this process is one of its front-ends.
+     */
+    @Autowired(required = false)
+    public void setSidecarClient(SidecarClient sidecarClient) {
+        if (sidecarClient != null && sidecarClient.isEnabled()) {
+            sidecarClient.identify(this.baseUrl, this.username);
+            this.sidecarClient = sidecarClient;
+        }
+    }
+
+    /**
+     * Keeps tokens in the encrypted token store when it is enabled.
+     */
+    @Autowired(required = false)
+    public void setTokenStore(TokenStore tokenStore) {
+        if (tokenStore != null && tokenStore.isEnabled()) {
+            this.tokenStore = tokenStore;
+        }
+    }
+
+    /**
+     * Gets when the cached access token expires.
+     * @return The expiration, or null if no token is cached
+     */
+    public Instant getAccessTokenExpiration() {
+        TokenCacheValue cacheValue = tokenCache.getIfPresent("access_token");
+        return cacheValue != null ? cacheValue.expiration() : null;
+    }
+
     /**
      * Gets a valid access token from Caffeine cache, fetching a new one if needed.
      * This method is thread-safe.
@@ -145,6 +196,21 @@ public class AuthService {
                 logger.debug("Returning cached access token from Caffeine.");
                 return cacheValue.token();
             }
+            if (sidecarClient != null) {
+                SidecarClient.SharedToken shared = sidecarClient.accessToken();
+                if (shared != null && Instant.now().isBefore(shared.expiration().minus(EXPIRATION_BUFFER))) {
+                    tokenCache.put("access_token", new TokenCacheValue(shared.token(), shared.expiration()));
+                    return shared.token();
+                }
+            }
+            if (tokenStore != null) {
+                TokenStore.StoredToken stored = tokenStore.load(tokenOwner(), tokenSecret());
+                // Only a token with a good part of its life left is worth starting a session with
+                if (stored != null && Instant.now().isBefore(stored.expiration().minus(storedTokenMinLifetime))) {
+                    tokenCache.put("access_token", new TokenCacheValue(stored.token(), stored.expiration()));
+                    return stored.token();
+                }
+            }
             logger.info("Cached token is null or expired. Fetching new access token...");
             boolean success = fetchNewAccessToken();
             if (success) {
@@ -159,6 +225,23 @@ public class AuthService {
         }
     }
 
+    /**
+     * RestClient interceptor that authorizes every request with the current access token, so a client built once
+     * keeps working in a long-running process (e.g. the sidecar daemon) after the token it started with expires.
+     *
+     * @param authService The service handing out access tokens
+     * @return The interceptor
+     */
+    public static ClientHttpRequestInterceptor bearerTokenInterceptor(AuthService authService) {
+        return (request, body, execution) -> {
+            String token = authService.getAccessToken();
+            if (token != null) {
+                request.getHeaders().setBearerAuth(token);
+            }
+            return execution.execute(request, body);
+        };
+    }
+
     /**
      * Fetches a new access token from the provider and updates the Caffeine cache.
      *
@@ -192,6 +275,9 @@ public class AuthService {
             if (response != null && response.accessToken() != null && response.expiresIn() != null) {
                 Instant expiration = Instant.now().plusSeconds(response.expiresIn());
                 tokenCache.put("access_token", new TokenCacheValue(response.accessToken(), expiration));
+                if (tokenStore != null) {
+                    tokenStore.save(tokenOwner(), tokenSecret(), response.accessToken(), expiration);
+                }
                 logger.info("Successfully obtained and cached new OAuth2 access token (Caffeine). Expires around: {}", expiration);
                 return true;
             } else {
@@ -204,6 +290,15 @@ public class AuthService {
         }
     }
 
+    private TokenStore.Owner tokenOwner() {
+        return new TokenStore.Owner(this.clientId, this.username, this.baseUrl);
+    }
+
+    // The stored token is encrypted under the credentials it was granted for
+    private String tokenSecret() {
+        return this.clientSecret + "\n" + this.password;
+    }
+
     // TokenCacheValue: holds token and expiration
     private record TokenCacheValue(String token, Instant expiration) {}
 
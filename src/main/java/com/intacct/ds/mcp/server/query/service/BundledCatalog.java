@@ -0,0 +1,139 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.ModelService.ObjectModel;
+import com.intacct.ds.mcp.server.query.service.ModelService.ResourceSummary;
+
+/**
+ * Model catalog packaged in the jar: the object summaries of the Model API's catalog and the field definitions of
+ * each object, generated at build time by {@link ModelCatalogGenerator}. {@link ModelService} answers from it while
+ * a session has not listed the catalog itself, so a cold session resolves object names and gets field lists
+ * without a remote call.
+ *
+ * The resource is read on first use. A missing, unreadable or disabled resource, or one older than
+ * max-age-days, leaves the catalog unavailable and everything is served by the Model API as before.
+ */
+@Component
+public class BundledCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(BundledCatalog.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Content of the resource.
+     *
+     * @param generatedAt When it was generated, in epoch milliseconds
+     * @param catalog     Summaries of the catalog's objects
+     * @param models      Field definitions of each object by name, as a model with only its fields
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Contents(long generatedAt, List<ResourceSummary> catalog, Map<String, ObjectModel> models) {}
+
+    private final McpServerProperties.BundledCatalogConfig config;
+    private volatile Contents contents; // Null until loaded, or when unavailable
+    private volatile boolean loaded;
+
+    @Autowired
+    public BundledCatalog(McpServerProperties properties) {
+        this(properties.getBundledCatalog() != null
+                ? properties.getBundledCatalog()
+                : new McpServerProperties.BundledCatalogConfig());
+    }
+
+    BundledCatalog(McpServerProperties.BundledCatalogConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Whether the catalog is enabled, packaged and recent enough to use.
+     */
+    public boolean isAvailable() {
+        return contents() != null;
+    }
+
+    /**
+     * Summaries of the catalog's objects.
+     *
+     * @return The summaries, or null if the catalog is not available
+     */
+    public List<ResourceSummary> models() {
+        Contents current = contents();
+        return current != null ? current.catalog() : null;
+    }
+
+    /**
+     * The fields of an object.
+     *
+     * @param name Catalog name of the object
+     * @return A model with only its fields section, or null if the object is not in the catalog
+     */
+    public ObjectModel model(String name) {
+        Contents current = contents();
+        return current != null && current.models() != null ? current.models().get(name) : null;
+    }
+
+    /**
+     * When the catalog was generated, or null if it is not available.
+     */
+    public Instant generatedAt() {
+        Contents current = contents();
+        return current != null ? Instant.ofEpochMilli(current.generatedAt()) : null;
+    }
+
+    private Contents contents() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    contents = config.isEnabled() ? load() : null;
+                    loaded = true;
+                }
+            }
+        }
+        return contents;
+    }
+
+    private Contents load() {
+        Resource resource = new DefaultResourceLoader(BundledCatalog.class.getClassLoader())
+                .getResource(config.getResource());
+        if (!resource.exists()) {
+            logger.debug("No bundled model catalog at {}", config.getResource());
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            Contents read = MAPPER.readValue(in, Contents.class);
+            if (read.catalog() == null || read.catalog().isEmpty()) {
+                return null;
+            }
+            Duration age = Duration.ofMillis(System.currentTimeMillis() - read.generatedAt());
+            if (age.compareTo(Duration.ofDays(config.getMaxAgeDays())) > 0) {
+                logger.info("Ignoring the bundled model catalog, generated {} days ago", age.toDays());
+                return null;
+            }
+            logger.info("Loaded the bundled model catalog of {} objects ({} with fields), generated at {}",
+                    read.catalog().size(), read.models() != null ? read.models().size() : 0,
+                    Instant.ofEpochMilli(read.generatedAt()));
+            return read;
+        } catch (IOException e) {
+            logger.warn("Ignoring an unreadable bundled model catalog {}: {}", config.getResource(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map with String keys held in parallel arrays, in insertion order. Unlike a HashMap it
+ * allocates no entry or node objects; lookups binary-search a key order computed once.
+ */
+final class CompactMap<V> extends AbstractMap<String, V> {
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int[] sorted; // Positions of the keys in key order
+
+    CompactMap(String[] keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> keys[i]));
+        this.sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = order[i];
+        }
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String text)) {
+            return -1;
+        }
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = keys[sorted[mid]].compareTo(text);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return sorted[mid];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new Iterator<>() {
+                    private int position;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < keys.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<String, V> next() {
+                        if (position >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = position++;
+                        return new SimpleImmutableEntry<>(keys[i], (V) values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+}
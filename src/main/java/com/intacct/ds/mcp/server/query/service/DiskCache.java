@@ -0,0 +1,391 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Second-level cache of API responses on local disk, shared by every server process of the user. Each STDIO
+ * session is a new JVM whose in-memory caches start cold; responses kept here let a new session start warm.
+ *
+ * Entries are appended to numbered segment files ("segment-N.dat"), each record carrying its key, its value,
+ * the time it was written, when it expires and a CRC32. Each process keeps an in-memory index of where the
+ * newest record of each key is, built by scanning the segments and brought up to date with the records other
+ * processes appended since. Appends and compaction hold an exclusive lock on "cache.lock", lookups a shared
+ * one. When the segments outgrow the size bound they are compacted: the newest live entries are rewritten to
+ * new segments and the old ones deleted.
+ */
+@Component
+public class DiskCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskCache.class);
+
+    private static final int MAGIC = 0x4D435131; // "MCQ1"
+    // Magic, key length, value length, written at, expires at, CRC32 of the key and value
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 8 + 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    private static final String SEGMENT_SUFFIX = ".dat";
+    // Compaction keeps the newest entries up to this share of the size bound, so it does not run on every append
+    private static final double COMPACTED_SHARE = 0.75;
+
+    /**
+     * A cached value.
+     *
+     * @param value     The value
+     * @param writtenAt When it was written (epoch millis)
+     * @param expiresAt When it expires (epoch millis)
+     */
+    public record Entry(byte[] value, long writtenAt, long expiresAt) {}
+
+    // Where the newest record of a key is
+    private record Location(long segment, long offset, int keyLength, int valueLength, long writtenAt,
+            long expiresAt) {
+
+        long end() {
+            return offset + HEADER_BYTES + keyLength + valueLength;
+        }
+    }
+
+    private final McpServerProperties.DiskCacheConfig config;
+    private final Path directory;
+    private final Map<String, Location> index = new HashMap<>();
+    // Bytes of each segment indexed so far; a crashed append can leave a torn record after them
+    private final TreeMap<Long, Long> indexed = new TreeMap<>();
+    private FileChannel lockChannel; // Null when the cache is disabled or its directory is not usable
+
+    @Autowired
+    public DiskCache(McpServerProperties properties) {
+        this(properties != null && properties.getDiskCache() != null
+                ? properties.getDiskCache()
+                : new McpServerProperties.DiskCacheConfig());
+    }
+
+    DiskCache(McpServerProperties.DiskCacheConfig config) {
+        this.config = config;
+        this.directory = Paths.get(config.getDirectory());
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            if (POSIX) {
+                Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwx------"));
+            }
+            this.lockChannel = openForWrite(directory.resolve("cache.lock"), StandardOpenOption.READ);
+        } catch (IOException e) {
+            logger.warn("Disk cache disabled: cannot open {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * A key from its parts (e.g. kind, base URL, user, request), hashed to a fixed length.
+     */
+    public static String key(Object... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return lockChannel != null;
+    }
+
+    /**
+     * Largest value that is cached.
+     */
+    public int maxEntryBytes() {
+        return config.getMaxEntryBytes();
+    }
+
+    public Duration queryTtl() {
+        return Duration.ofSeconds(config.getQueryTtlSeconds());
+    }
+
+    public Duration modelTtl() {
+        return Duration.ofSeconds(config.getModelTtlSeconds());
+    }
+
+    /**
+     * Looks up a value.
+     *
+     * @return The newest unexpired value of the key, or null
+     */
+    public synchronized Entry get(String key) {
+        if (lockChannel == null) {
+            return null;
+        }
+        try (FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, true)) {
+            refresh();
+            Location location = index.get(key);
+            if (location == null || location.expiresAt() <= System.currentTimeMillis()) {
+                return null;
+            }
+            byte[] value = read(location, key);
+            return value != null ? new Entry(value, location.writtenAt(), location.expiresAt()) : null;
+        } catch (IOException e) {
+            logger.warn("Cannot read from the disk cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores a value; values larger than max-entry-bytes are skipped.
+     */
+    public synchronized void put(String key, byte[] value, Duration ttl) {
+        if (lockChannel == null || value.length > config.getMaxEntryBytes()) {
+            return;
+        }
+        try (FileLock lock = lockChannel.lock()) {
+            refresh();
+            long now = System.currentTimeMillis();
+            append(key, value, now, now + ttl.toMillis());
+            if (size() > config.getMaxBytes()) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot write to the disk cache: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (lockChannel != null) {
+            try {
+                lockChannel.close();
+            } catch (IOException e) {
+                logger.debug("Cannot close the disk cache lock: {}", e.getMessage());
+            }
+            lockChannel = null;
+        }
+    }
+
+    // Indexes the records appended since the last call and forgets segments removed by a compaction
+    private void refresh() throws IOException {
+        Map<Long, Path> segments = segments();
+        if (!segments.keySet().containsAll(indexed.keySet())) {
+            index.clear();
+            indexed.clear();
+        }
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            long from = indexed.getOrDefault(segment.getKey(), 0L);
+            if (Files.size(segment.getValue()) > from) {
+                indexed.put(segment.getKey(), scan(segment.getKey(), segment.getValue(), from));
+            }
+        }
+    }
+
+    // Reads record headers from an offset; returns the end of the last whole record
+    private long scan(long segment, Path file, long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(from)), 65536));
+            long offset = from;
+            while (offset + HEADER_BYTES <= size) {
+                if (in.readInt() != MAGIC) {
+                    break;
+                }
+                int keyLength = in.readInt();
+                int valueLength = in.readInt();
+                long writtenAt = in.readLong();
+                long expiresAt = in.readLong();
+                in.readInt(); // CRC, checked when the value is read
+                Location location = new Location(segment, offset, keyLength, valueLength, writtenAt, expiresAt);
+                if (keyLength < 0 || valueLength < 0 || location.end() > size) {
+                    break;
+                }
+                byte[] key = in.readNBytes(keyLength);
+                in.skipNBytes(valueLength);
+                index.put(new String(key, StandardCharsets.UTF_8), location);
+                offset = location.end();
+            }
+            return offset;
+        } catch (EOFException e) {
+            return from;
+        }
+    }
+
+    private byte[] read(Location location, String key) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(location.segment()), StandardOpenOption.READ)) {
+            ByteBuffer record = ByteBuffer.allocate((int) (location.end() - location.offset()));
+            while (record.hasRemaining()) {
+                if (channel.read(record, location.offset() + record.position()) < 0) {
+                    break;
+                }
+            }
+            boolean whole = !record.hasRemaining();
+            record.flip();
+            CRC32 expected = new CRC32();
+            int crc = 0;
+            byte[] value = new byte[location.valueLength()];
+            if (whole) {
+                crc = record.getInt(HEADER_BYTES - 4);
+                expected.update(record.slice(HEADER_BYTES, record.limit() - HEADER_BYTES));
+                record.get(HEADER_BYTES + location.keyLength(), value);
+            }
+            if (!whole || (int) expected.getValue() != crc) {
+                logger.warn("Skipping a corrupt disk cache record in segment {}", location.segment());
+                index.remove(key);
+                return null;
+            }
+            return value;
+        } catch (NoSuchFileException e) {
+            // Removed by another process's compaction: the next lookup rebuilds the index
+            indexed.clear();
+            index.clear();
+            return null;
+        }
+    }
+
+    private void append(String key, byte[] value, long writtenAt, long expiresAt) throws IOException {
+        long segment = indexed.isEmpty() ? 1 : indexed.lastKey();
+        long end = indexed.getOrDefault(segment, 0L);
+        if (end >= config.getMaxSegmentBytes()) {
+            segment++;
+            end = 0;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(value);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length + value.length);
+        record.putInt(MAGIC).putInt(keyBytes.length).putInt(value.length).putLong(writtenAt).putLong(expiresAt)
+                .putInt((int) crc.getValue()).put(keyBytes).put(value).flip();
+        try (FileChannel channel = openForWrite(segmentPath(segment))) {
+            // A torn record left by a crashed append is overwritten
+            channel.truncate(end);
+            while (record.hasRemaining()) {
+                end += channel.write(record, end);
+            }
+        }
+        index.put(key, new Location(segment, end - HEADER_BYTES - keyBytes.length - value.length, keyBytes.length,
+                value.length, writtenAt, expiresAt));
+        indexed.put(segment, end);
+    }
+
+    // Rewrites the newest live entries to new segments and deletes the old ones
+    private void compact() throws IOException {
+        long before = size();
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Location>> live = new ArrayList<>(index.entrySet().stream()
+                .filter(entry -> entry.getValue().expiresAt() > now)
+                .sorted(Comparator.comparingLong((Map.Entry<String, Location> entry) -> entry.getValue().writtenAt())
+                        .reversed())
+                .toList());
+        long budget = (long) (config.getMaxBytes() * COMPACTED_SHARE);
+        Map<String, byte[]> kept = new HashMap<>();
+        List<Map.Entry<String, Location>> keptOrder = new ArrayList<>();
+        long keptBytes = 0;
+        for (Map.Entry<String, Location> entry : live) {
+            long bytes = entry.getValue().end() - entry.getValue().offset();
+            if (keptBytes + bytes > budget) {
+                break;
+            }
+            byte[] value = read(entry.getValue(), entry.getKey());
+            if (value != null) {
+                kept.put(entry.getKey(), value);
+                keptOrder.add(entry);
+                keptBytes += bytes;
+            }
+        }
+
+        List<Long> old = new ArrayList<>(indexed.keySet());
+        long next = old.isEmpty() ? 1 : old.get(old.size() - 1) + 1;
+        index.clear();
+        indexed.clear();
+        indexed.put(next, 0L);
+        // Oldest first, so that the newest entries end up last as they would after plain appends
+        for (int i = keptOrder.size() - 1; i >= 0; i--) {
+            Map.Entry<String, Location> entry = keptOrder.get(i);
+            append(entry.getKey(), kept.get(entry.getKey()), entry.getValue().writtenAt(),
+                    entry.getValue().expiresAt());
+        }
+        for (Long segment : old) {
+            Files.deleteIfExists(segmentPath(segment));
+        }
+        logger.info("Compacted the disk cache from {} to {} bytes, {} entries kept", before, size(), index.size());
+    }
+
+    private long size() {
+        return indexed.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private Map<Long, Path> segments() throws IOException {
+        Map<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                name.length() - SEGMENT_SUFFIX.length())), file);
+                    } catch (NumberFormatException e) {
+                        // Not a segment
+                    }
+                }
+            });
+        }
+        return segments;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+
+    // Responses hold company data, so new files are readable by the user only
+    private static FileChannel openForWrite(Path file, OpenOption... options) throws IOException {
+        Set<OpenOption> opened = new HashSet<>(List.of(options));
+        opened.add(StandardOpenOption.CREATE);
+        opened.add(StandardOpenOption.WRITE);
+        return POSIX
+                ? FileChannel.open(file, opened, PosixFilePermissions.asFileAttribute(
+                        Set.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)))
+                : FileChannel.open(file, opened);
+    }
+}
@@ -0,0 +1,275 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes exported query rows to a local file, for the exportQuery tool.
+ * Rows are appended through a direct buffer to a FileChannel on a ".part" file next to the target, named uniquely
+ * so that two exports to one target (e.g. one rerun after a sidecar timeout) never write the same file, and the
+ * SHA-256 checksum is computed as the buffer is drained; the file only replaces the target once the export
+ * is committed, and is deleted if it is closed without a commit. Exports hold company data, so the file and
+ * any directory created for it are only accessible to the user.
+ */
+final class ExportWriter implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    private static final TypeReference<LinkedHashMap<String, Object>> ROW_TYPE = new TypeReference<>() {};
+
+    /**
+     * File formats.
+     */
+    enum Format {
+        // One JSON object per line, each row as returned by the API
+        NDJSON("ndjson"),
+        // A header line and one line per row; nested objects are flattened into dotted columns (vendor.id)
+        CSV("csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        String extension() {
+            return extension;
+        }
+
+        static Format parse(String format) {
+            if (format == null || format.isBlank()) {
+                return NDJSON;
+            }
+            try {
+                return valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format '" + format + "'; use 'ndjson' or 'csv'.");
+            }
+        }
+    }
+
+    /**
+     * What was written.
+     *
+     * @param rows   Rows written
+     * @param bytes  Size of the file
+     * @param sha256 SHA-256 checksum of the file, hex encoded
+     */
+    record Summary(long rows, long bytes, String sha256) {}
+
+    private final Path target;
+    private final Path part;
+    private final Format format;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final MessageDigest digest;
+    private List<String> columns; // CSV columns; taken from the first row when no fields were requested
+    private boolean headerWritten;
+    private long rows;
+    private long bytes;
+    private boolean committed;
+
+    /**
+     * @param target      File to write
+     * @param format      File format
+     * @param fields      Requested fields, used as the CSV columns; null for the columns of the first row
+     * @param bufferBytes Size of the write buffer
+     */
+    ExportWriter(Path target, Format format, List<String> fields, int bufferBytes) throws IOException {
+        this.target = target;
+        this.part = POSIX
+                ? Files.createTempFile(target.getParent(), target.getFileName() + ".", ".part",
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+                : Files.createTempFile(target.getParent(), target.getFileName() + ".", ".part");
+        this.format = format;
+        this.columns = fields != null && !fields.isEmpty() ? List.copyOf(fields) : null;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(4096, bufferBytes));
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try {
+            this.channel = FileChannel.open(part, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the directory of an export, and its missing parents, accessible to the user only; an existing
+     * directory is left as it is.
+     */
+    static void createDirectories(Path directory) throws IOException {
+        if (POSIX && !Files.isDirectory(directory)) {
+            Files.createDirectories(directory,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Appends a row.
+     *
+     * @param json The row's JSON object, as returned by the API
+     */
+    void row(byte[] json) throws IOException {
+        if (format == Format.NDJSON) {
+            put(json);
+            put((byte) '\n');
+        } else {
+            Map<String, Object> row = MAPPER.readValue(json, ROW_TYPE);
+            if (columns == null) {
+                List<String> keys = new ArrayList<>();
+                flatten("", row, keys);
+                columns = keys;
+            }
+            writeHeader();
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(csv(value(row, columns.get(i))));
+            }
+            put(line.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+        }
+        rows++;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    /**
+     * Writes out what is buffered and moves the file into place.
+     */
+    Summary commit() throws IOException {
+        if (format == Format.CSV && columns != null) {
+            writeHeader();
+        }
+        drain();
+        channel.close();
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+        return new Summary(rows, bytes, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (headerWritten) {
+            return;
+        }
+        headerWritten = true;
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                header.append(',');
+            }
+            header.append(csv(columns.get(i)));
+        }
+        put(header.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(b);
+    }
+
+    private void put(byte[] data) throws IOException {
+        if (data.length > buffer.remaining()) {
+            drain();
+        }
+        if (data.length > buffer.capacity()) {
+            // Larger than the buffer: written straight through
+            digest.update(data);
+            write(ByteBuffer.wrap(data));
+            return;
+        }
+        buffer.put(data);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        digest.update(buffer.duplicate());
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        bytes += data.remaining();
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flatten(String prefix, Map<String, Object> row, List<String> keys) {
+        row.forEach((key, value) -> {
+            if (value instanceof Map<?, ?> nested && !nested.isEmpty()) {
+                flatten(prefix + key + ".", (Map<String, Object>) nested, keys);
+            } else {
+                keys.add(prefix + key);
+            }
+        });
+    }
+
+    // Value of a column: the key itself, or a path into nested objects for dotted names
+    static Object value(Map<String, Object> row, String column) {
+        if (row.containsKey(column)) {
+            return row.get(column);
+        }
+        Object value = row;
+        for (String segment : column.split("\\.")) {
+            if (!(value instanceof Map<?, ?> map)) {
+                return null;
+            }
+            value = map.get(segment);
+        }
+        return value;
+    }
+
+    static String csv(Object value) throws IOException {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Map || value instanceof List
+                ? MAPPER.writeValueAsString(value)
+                : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
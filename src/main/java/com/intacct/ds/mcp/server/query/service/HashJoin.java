@@ -0,0 +1,187 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.filter.RowValues;
+import com.intacct.ds.mcp.server.query.service.QueryResponseDecoder.Decoded;
+import com.intacct.ds.mcp.server.query.service.QueryService.JoinResult;
+import com.intacct.ds.mcp.server.query.service.QueryService.ResultBudget;
+
+/**
+ * Hash join of two query results, for the joinQuery tool. The dimension side is read once into a hash
+ * table on its join key, keeping only its projected fields; fact rows are then probed against the table one
+ * at a time as they stream in, and only the joined projection is kept.
+ * Output rows hold the projected fact fields under their own names and the projected dimension fields
+ * under "alias.field" (e.g. "vendor.term.id").
+ */
+final class HashJoin {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, Object>> ROW_TYPE = new TypeReference<>() {};
+
+    private final String factKey;
+    private final List<String> factFields;
+    private final String dimensionKey;
+    private final List<String> dimensionFields;
+    private final String alias;
+    private final boolean outer;
+    // Projected dimension rows by join key; most keys are unique, so a list is only built for duplicates
+    private final Map<String, Object> table = new HashMap<>();
+    private final List<Map<String, Object>> joined = new ArrayList<>();
+    private final List<Integer> positions = new ArrayList<>(); // Fact row position of each joined row
+    private final List<Integer> matchIndexes = new ArrayList<>(); // Index of each joined row among its fact row's matches
+    private int resumePosition;
+    private int resumeMatch;
+    private int dimensionRows;
+    private int factRows;
+    private int unmatched;
+
+    /**
+     * @param factKey         Join key field of the fact rows (e.g. "vendor.key")
+     * @param factFields      Fact fields to return
+     * @param dimensionKey    Join key field of the dimension rows (e.g. "key")
+     * @param dimensionFields Dimension fields to return
+     * @param alias           Prefix of the dimension fields in the output
+     * @param outer           Keep fact rows without a match (left join) instead of dropping them (inner join)
+     */
+    HashJoin(String factKey, List<String> factFields, String dimensionKey, List<String> dimensionFields,
+            String alias, boolean outer) {
+        this.factKey = factKey;
+        this.factFields = factFields;
+        this.dimensionKey = dimensionKey;
+        this.dimensionFields = dimensionFields;
+        this.alias = alias;
+        this.outer = outer;
+    }
+
+    /**
+     * Continues within a fact row whose matches did not all fit in the previous result.
+     *
+     * @param position   Position of the fact row
+     * @param matchStart Index of its first match to return; earlier matches are skipped
+     */
+    void resumeAt(int position, int matchStart) {
+        this.resumePosition = position;
+        this.resumeMatch = matchStart;
+    }
+
+    /**
+     * Adds a dimension row to the hash table. Rows without a key cannot match and are skipped.
+     */
+    @SuppressWarnings("unchecked")
+    void build(byte[] json) throws IOException {
+        Map<String, Object> row = MAPPER.readValue(json, ROW_TYPE);
+        dimensionRows++;
+        String key = key(RowValues.get(row, dimensionKey));
+        if (key == null) {
+            return;
+        }
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String field : dimensionFields) {
+            projected.put(alias + "." + field, RowValues.get(row, field));
+        }
+        table.merge(key, projected, (existing, added) -> {
+            List<Map<String, Object>> rows = existing instanceof List<?> list
+                    ? (List<Map<String, Object>>) list
+                    : new ArrayList<>(List.of((Map<String, Object>) existing));
+            rows.add((Map<String, Object>) added);
+            return rows;
+        });
+    }
+
+    /**
+     * Joins a fact row with its dimension rows.
+     *
+     * @param position Position of the row in the fact result ('start' value that returns it first)
+     * @param limit    Joined rows wanted
+     * @return false once the limit is exceeded, to stop reading fact rows
+     */
+    @SuppressWarnings("unchecked")
+    boolean probe(byte[] json, int position, int limit) throws IOException {
+        Map<String, Object> row = MAPPER.readValue(json, ROW_TYPE);
+        factRows++;
+        String key = key(RowValues.get(row, factKey));
+        Object match = key != null ? table.get(key) : null;
+        if (match == null) {
+            unmatched++;
+            if (outer) {
+                Map<String, Object> nulls = new LinkedHashMap<>();
+                for (String field : dimensionFields) {
+                    nulls.put(alias + "." + field, null);
+                }
+                add(row, nulls, position, 0);
+            }
+        } else if (match instanceof List<?> matches) {
+            int first = position == resumePosition ? resumeMatch : 0;
+            for (int i = first; i < matches.size(); i++) {
+                add(row, (Map<String, Object>) matches.get(i), position, i);
+            }
+        } else {
+            add(row, (Map<String, Object>) match, position, 0);
+        }
+        return joined.size() <= limit;
+    }
+
+    private void add(Map<String, Object> fact, Map<String, Object> dimension, int position, int matchIndex) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (String field : factFields) {
+            out.put(field, RowValues.get(fact, field));
+        }
+        out.putAll(dimension);
+        joined.add(out);
+        positions.add(position);
+        matchIndexes.add(matchIndex);
+    }
+
+    /**
+     * The joined rows within a budget.
+     *
+     * @param maxRows  Joined rows to return
+     * @param factNext 'start' of the first fact row not read, or null if the fact result was read to the end
+     */
+    JoinResult result(ResultBudget budget, int maxRows, Integer factNext) {
+        Decoded kept = QueryResponseDecoder.limit(joined, budget, maxRows);
+        List<Map<String, Object>> rows = kept.rows();
+        Integer nextStart = factNext;
+        Integer nextMatch = null;
+        if (rows.size() < joined.size()) {
+            // Continue from the first fact row that was not returned in full
+            nextStart = positions.get(rows.size());
+            int whole = rows.size();
+            while (whole > 0 && positions.get(whole - 1).equals(nextStart)) {
+                whole--;
+            }
+            if (whole > 0) {
+                rows = rows.subList(0, whole);
+            } else {
+                // One fact row has more matches than fit: continue within it
+                nextMatch = matchIndexes.get(rows.size());
+            }
+        }
+        return new JoinResult(rows, kept.truncated(), kept.truncatedBy(),
+                kept.fieldsTruncated() ? Boolean.TRUE : null, nextStart, nextMatch, factRows, dimensionRows, unmatched);
+    }
+
+    int dimensionRows() {
+        return dimensionRows;
+    }
+
+    // Keys are compared as text; numbers are normalized so that 7, 7.0 and "7" match
+    static String key(Object value) {
+        if (value == null || value instanceof Map || value instanceof List) {
+            return null;
+        }
+        if (value instanceof Number number) {
+            return new BigDecimal(number.toString()).stripTrailingZeros().toPlainString();
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.service.ModelService.ModelApiResponse;
+import com.intacct.ds.mcp.server.query.service.ModelService.ModelListApiResponse;
+import com.intacct.ds.mcp.server.query.service.ModelService.ObjectModel;
+import com.intacct.ds.mcp.server.query.service.ModelService.ResourceSummary;
+
+/**
+ * Generates the {@link BundledCatalog} resource at build time (Maven profile model-catalog), either from the
+ * Model API with the credentials of the intacct.* system properties, or offline from a recorded fixture of
+ * Model API responses:
+ *
+ * <pre>
+ * {"catalog": &lt;response of GET /services/core/model&gt;,
+ *  "models": {"accounts-payable/vendor": &lt;response of GET /services/core/model?name=accounts-payable/vendor&gt;}}
+ * </pre>
+ *
+ * Only the fields of each object are kept, so the catalog stays small enough to load at startup.
+ */
+public final class ModelCatalogGenerator {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private static final List<String> FIELDS = List.of("fields");
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Fixture(ModelListApiResponse catalog, Map<String, ModelApiResponse> models) {}
+
+    private ModelCatalogGenerator() {
+    }
+
+    /**
+     * Builds the catalog from a listing and the models of its objects.
+     *
+     * @param catalog Summaries of the catalog's objects
+     * @param models  Model of an object by name, or null if it has none (e.g. a service)
+     */
+    static BundledCatalog.Contents generate(List<ResourceSummary> catalog, Function<String, ObjectModel> models) {
+        Map<String, ObjectModel> fields = new LinkedHashMap<>();
+        for (ResourceSummary summary : catalog) {
+            if (summary.apiObject() == null || (summary.type() != null && !"object".equals(summary.type()))) {
+                continue;
+            }
+            ObjectModel model = models.apply(summary.apiObject());
+            if (model != null && model.fields() != null) {
+                fields.put(summary.apiObject(), model.select(FIELDS));
+            }
+        }
+        return new BundledCatalog.Contents(System.currentTimeMillis(), catalog, fields);
+    }
+
+    /**
+     * Builds the catalog from a recorded fixture.
+     */
+    static BundledCatalog.Contents fromFixture(Path fixture) throws IOException {
+        Fixture recorded = MAPPER.readValue(fixture.toFile(), Fixture.class);
+        if (recorded.catalog() == null || recorded.catalog().result() == null) {
+            throw new IOException("Fixture " + fixture + " has no catalog");
+        }
+        Map<String, ModelApiResponse> models = recorded.models() != null ? recorded.models() : Map.of();
+        return generate(recorded.catalog().result(), name -> {
+            ModelApiResponse response = models.get(name);
+            return response != null ? response.result() : null;
+        });
+    }
+
+    /**
+     * Builds the catalog from the Model API.
+     */
+    static BundledCatalog.Contents fromApi(ModelService modelService) throws IOException {
+        List<ResourceSummary> catalog = modelService.listAvailableModels();
+        if (catalog == null || catalog.isEmpty()) {
+            throw new IOException("The model catalog could not be listed");
+        }
+        return generate(catalog, modelService::loadModel);
+    }
+
+    static void write(BundledCatalog.Contents contents, Path output) throws IOException {
+        if (output.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+        }
+        MAPPER.writeValue(output.toFile(), contents);
+    }
+
+    // mvn -Pmodel-catalog package -Dmodel-catalog.fixture=src/test/resources/model-catalog-fixture.json
+    // mvn -Pmodel-catalog package -Dintacct.base.url=... -Dintacct.client-id=... (credentials as for AuthService)
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ModelCatalogGenerator <output file> [fixture file]");
+            System.exit(2);
+        }
+        Path output = Paths.get(args[0]);
+        BundledCatalog.Contents contents;
+        if (args.length > 1 && !args[1].isBlank()) {
+            contents = fromFixture(Paths.get(args[1]));
+        } else {
+            contents = fromApi(new ModelService(new AuthService()));
+        }
+        write(contents, output);
+        System.out.printf("Wrote the model catalog of %d objects (%d with fields) to %s (%d bytes)%n",
+                contents.catalog().size(), contents.models().size(), output, Files.size(output));
+    }
+}
@@ -0,0 +1,84 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.intacct.ds.mcp.server.query.service.ModelService.FieldDefinition;
+
+/**
+ * Flyweight pool for model definitions. Most fields across the catalog share a handful of
+ * shapes (a nullable string, a read-only date-time, ...), so structurally equal {@link FieldDefinition}s
+ * are shared and field names are interned; field maps are stored as {@link CompactMap}s.
+ */
+final class ModelInterner {
+
+    // Distinct definitions are few, but enum value lists make the pool open-ended; past this size
+    // new shapes are still compacted, just not pooled
+    private static final int MAX_POOLED = 50_000;
+    private static final Map<FieldDefinition, FieldDefinition> POOL = new ConcurrentHashMap<>();
+
+    private ModelInterner() {
+    }
+
+    /**
+     * A compact, immutable copy of a field map with interned names and shared definitions, in the original order.
+     *
+     * @return The copy, or null for null
+     */
+    static Map<String, FieldDefinition> fields(Map<String, FieldDefinition> fields) {
+        if (fields == null || fields instanceof CompactMap) {
+            return fields;
+        }
+        String[] names = new String[fields.size()];
+        FieldDefinition[] definitions = new FieldDefinition[fields.size()];
+        int i = 0;
+        for (Map.Entry<String, FieldDefinition> entry : fields.entrySet()) {
+            names[i] = entry.getKey().intern();
+            definitions[i] = field(entry.getValue());
+            i++;
+        }
+        return new CompactMap<>(names, definitions);
+    }
+
+    /**
+     * The shared instance structurally equal to a definition.
+     */
+    static FieldDefinition field(FieldDefinition definition) {
+        if (definition == null) {
+            return null;
+        }
+        FieldDefinition pooled = POOL.get(definition);
+        if (pooled != null) {
+            return pooled;
+        }
+        FieldDefinition canonical = new FieldDefinition(definition.mutable(), definition.nullable(),
+                intern(definition.type()), intern(definition.format()), definition.readOnly(),
+                definition.writeOnly(), definition.required(), enumValues(definition.enumValues()));
+        if (POOL.size() >= MAX_POOLED) {
+            return canonical;
+        }
+        pooled = POOL.putIfAbsent(canonical, canonical);
+        return pooled != null ? pooled : canonical;
+    }
+
+    static int pooled() {
+        return POOL.size();
+    }
+
+    private static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+
+    private static List<String> enumValues(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        List<String> interned = new ArrayList<>(values.size());
+        for (String value : values) {
+            interned.add(intern(value));
+        }
+        return List.copyOf(interned);
+    }
+}
@@ -1,9 +1,21 @@
 package com.intacct.ds.mcp.server.query.service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,14 +23,29 @@ import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.UriBuilder;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.http.CompressionInterceptor;
+import com.intacct.ds.mcp.server.query.transport.ToolCallCancellation;
 
 /**
  * Service to interact with the Intacct Core Model API.
@@ -28,15 +55,109 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class ModelService {
 
     private static final Logger logger = LoggerFactory.getLogger(ModelService.class);
+    private static final long CATALOG_RETRY_MILLIS = 60_000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     private final RestClient restClient;
     private final AuthService authService;
-    private String currentAccessToken; // Store the token used by this instance's RestClient
+    private final LoadingCache<ModelKey, CachedModel> modelCache; // Null when caching is disabled
+    private final ModelUsageHistory usageHistory; // May be null when usage is not tracked
+    private final DiskCache diskCache; // May be null when models are not cached on disk
+    private final BundledCatalog bundledCatalog; // May be null when no catalog is bundled
+    private final McpServerProperties.ObjectResolutionConfig resolutionConfig;
+    private final Object catalogLock = new Object();
+    private volatile ObjectNameIndex catalogIndex; // Null until the catalog has been listed
+    private volatile long catalogCheckedAt;
+    private volatile CachedCatalog catalog; // Last listing, revalidated on the next one
+    private volatile boolean catalogRestored; // Whether the disk cache was checked for a listing
+    private volatile boolean catalogBundled; // Whether the name index is still the bundled catalog's
+    private String currentAccessToken; // Token obtained at startup; null if this instance could not authenticate
     private final String baseUrl; // Store the base URL for this instance
 
-    @Autowired
+    // Options of a model request; each distinct combination is cached separately
+    private record ModelKey(String name, String type, String version, String schema, String tags) {}
+
+    /**
+     * Validators of a cached response, sent back when it is revalidated so that an unchanged resource costs a
+     * 304 Not Modified instead of its body.
+     *
+     * @param etag         ETag header, if the server sent one
+     * @param lastModified Last-Modified header, if the server sent one
+     * @param sha256       Hash of the body, which recognizes an unchanged body when the server sends neither
+     */
+    record Validators(String etag, String lastModified, String sha256) {
+
+        void apply(HttpHeaders headers) {
+            if (etag != null) {
+                headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+    }
+
+    private record CachedModel(ObjectModel model, Validators validators) {}
+
+    private record CachedCatalog(List<ResourceSummary> models, Validators validators) {}
+
+    /**
+     * Response of a conditional request.
+     *
+     * @param body       The new body, or null if the resource has not changed
+     * @param validators Validators of the current version
+     */
+    private record Revalidated(byte[] body, Validators validators) {}
+
+    /**
+     * A response body kept in the disk cache with its validators.
+     */
+    private record Stored(byte[] body, Validators validators, long writtenAt) {}
+
+    // Both constructors are candidates: Spring uses the one with the most resolvable dependencies,
+    // so optional collaborators are simply left out in narrow contexts (e.g. tests)
+    @Autowired(required = false)
     public ModelService(AuthService authService) {
+        this(authService, null, null, null, null, null);
+    }
+
+    @Autowired(required = false)
+    public ModelService(AuthService authService, McpServerProperties properties, ModelUsageHistory usageHistory,
+            CompressionInterceptor compressionInterceptor, DiskCache diskCache, BundledCatalog bundledCatalog) {
         this.authService = authService;
+        this.usageHistory = usageHistory;
+        this.diskCache = diskCache != null && diskCache.isEnabled() ? diskCache : null;
+        this.bundledCatalog = bundledCatalog;
+        this.resolutionConfig = properties != null && properties.getObjectResolution() != null
+                ? properties.getObjectResolution()
+                : new McpServerProperties.ObjectResolutionConfig();
+        McpServerProperties.ModelCacheConfig cacheConfig = properties != null && properties.getModelCache() != null
+                ? properties.getModelCache()
+                : new McpServerProperties.ModelCacheConfig();
+        if (cacheConfig.isEnabled()) {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                    .maximumSize(cacheConfig.getMaxEntries())
+                    .expireAfterWrite(Duration.ofSeconds(cacheConfig.getTtlSeconds()));
+            if (cacheConfig.getRevalidateAfterSeconds() > 0) {
+                // Past this age the cached model keeps being served while a conditional request revalidates it
+                builder.refreshAfterWrite(Duration.ofSeconds(cacheConfig.getRevalidateAfterSeconds()));
+            }
+            this.modelCache = builder.build(new CacheLoader<>() {
+                @Override
+                public CachedModel load(ModelKey key) {
+                    return restoreOrFetch(key);
+                }
+
+                @Override
+                public CachedModel reload(ModelKey key, CachedModel previous) {
+                    // A failed revalidation keeps the cached model until it expires
+                    CachedModel revalidated = fetchModel(key, previous);
+                    return revalidated != null ? revalidated : previous;
+                }
+            });
+        } else {
+            this.modelCache = null;
+        }
         this.currentAccessToken = this.authService.getAccessToken();
 
         // Get base URL from AuthService's baseUrl (which already handles properties priority)
@@ -51,12 +172,17 @@ public class ModelService {
              return;
         }
 
-        // Configure RestClient with base URL and Authorization header
+        // Configure RestClient with base URL; each request is authorized with the current access token
         this.restClient = RestClient.builder()
                 .baseUrl(this.baseUrl)
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + this.currentAccessToken)
                 .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
                 .defaultHeader(HttpHeaders.USER_AGENT, "MCP-Query-Server/1.0 (Java)")
+                .requestInterceptors(interceptors -> {
+                    interceptors.add(AuthService.bearerTokenInterceptor(authService));
+                    if (compressionInterceptor != null) {
+                        interceptors.add(compressionInterceptor);
+                    }
+                })
                 .build();
     }
 
@@ -68,15 +194,179 @@ public class ModelService {
             @JsonProperty("ia::meta") Metadata meta
     ) {}
 
+    /**
+     * Model of a resource, kept compact so many models can stay cached: field maps are {@link CompactMap}s of
+     * shared {@link FieldDefinition}s (see {@link ModelInterner}), and groups, refs and lists are held as their
+     * raw JSON and only decoded when read.
+     */
     @JsonIgnoreProperties(ignoreUnknown = true)
-    public record ObjectModel(
-            Map<String, FieldDefinition> fields,
-            Map<String, GroupDefinition> groups,
-            Map<String, RefDefinition> refs,
-            Object lists, // Changed to Object to handle cases where 'lists' is an object instead of an array
-            Boolean idempotenceSupported,
-            String httpMethods
-    ) {}
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonPropertyOrder({"fields", "groups", "refs", "lists", "idempotenceSupported", "httpMethods"})
+    public static final class ObjectModel {
+
+        public static final List<String> SECTIONS = List.of("fields", "groups", "refs", "lists");
+
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+        private static final TypeReference<Map<String, GroupDefinition>> GROUPS = new TypeReference<>() {};
+        private static final TypeReference<Map<String, RefDefinition>> REFS = new TypeReference<>() {};
+        private static final TypeReference<Object> LISTS = new TypeReference<>() {};
+
+        private final Map<String, FieldDefinition> fields;
+        private final byte[] rawGroups;
+        private final byte[] rawRefs;
+        private final byte[] rawLists; // 'lists' is sometimes an object instead of an array
+        private final Boolean idempotenceSupported;
+        private final String httpMethods;
+
+        @JsonCreator
+        public ObjectModel(
+                @JsonProperty("fields") Map<String, FieldDefinition> fields,
+                @JsonProperty("groups") JsonNode groups,
+                @JsonProperty("refs") JsonNode refs,
+                @JsonProperty("lists") JsonNode lists,
+                @JsonProperty("idempotenceSupported") Boolean idempotenceSupported,
+                @JsonProperty("httpMethods") String httpMethods
+        ) {
+            this(ModelInterner.fields(fields), raw(groups), raw(refs), raw(lists), idempotenceSupported,
+                    httpMethods != null ? httpMethods.intern() : null);
+        }
+
+        private ObjectModel(Map<String, FieldDefinition> fields, byte[] rawGroups, byte[] rawRefs, byte[] rawLists,
+                Boolean idempotenceSupported, String httpMethods) {
+            this.fields = fields;
+            this.rawGroups = rawGroups;
+            this.rawRefs = rawRefs;
+            this.rawLists = rawLists;
+            this.idempotenceSupported = idempotenceSupported;
+            this.httpMethods = httpMethods;
+        }
+
+        @JsonProperty("fields")
+        public Map<String, FieldDefinition> fields() {
+            return fields;
+        }
+
+        /**
+         * Groups of fields (e.g. audit), decoded on each call.
+         */
+        @JsonProperty("groups")
+        public Map<String, GroupDefinition> groups() {
+            return decode(rawGroups, GROUPS);
+        }
+
+        /**
+         * References to other objects, decoded on each call.
+         */
+        @JsonProperty("refs")
+        public Map<String, RefDefinition> refs() {
+            return decode(rawRefs, REFS);
+        }
+
+        /**
+         * Owned lists (line items), decoded on each call.
+         */
+        @JsonProperty("lists")
+        public Object lists() {
+            return decode(rawLists, LISTS);
+        }
+
+        @JsonProperty("idempotenceSupported")
+        public Boolean idempotenceSupported() {
+            return idempotenceSupported;
+        }
+
+        @JsonProperty("httpMethods")
+        public String httpMethods() {
+            return httpMethods;
+        }
+
+        /**
+         * A view with only some sections; the others are left out of the JSON. Nothing is copied.
+         *
+         * @param sections Any of {@link #SECTIONS}; null or empty for all
+         * @throws IllegalArgumentException for an unknown section
+         */
+        public ObjectModel select(List<String> sections) {
+            if (sections == null || sections.isEmpty()) {
+                return this;
+            }
+            checkSections(sections);
+            return new ObjectModel(
+                    sections.contains("fields") ? fields : null,
+                    sections.contains("groups") ? rawGroups : null,
+                    sections.contains("refs") ? rawRefs : null,
+                    sections.contains("lists") ? rawLists : null,
+                    idempotenceSupported, httpMethods);
+        }
+
+        /**
+         * Query API names of the fields the database compares as numbers: integer and number fields, and
+         * decimal-format fields, which the API returns as strings. Group and reference fields are dotted
+         * (e.g. "audit.recordNumber"). Groups and references are decoded on each call.
+         */
+        public Set<String> numericFields() {
+            Set<String> numeric = new HashSet<>();
+            addNumericFields(numeric, null, fields);
+            Map<String, GroupDefinition> groups = groups();
+            if (groups != null) {
+                groups.forEach((group, definition) -> addNumericFields(numeric, group, definition.fields()));
+            }
+            Map<String, RefDefinition> refs = refs();
+            if (refs != null) {
+                refs.forEach((ref, definition) -> addNumericFields(numeric, ref, definition.fields()));
+            }
+            return Set.copyOf(numeric);
+        }
+
+        private static void addNumericFields(Set<String> numeric, String prefix, Map<String, FieldDefinition> definitions) {
+            if (definitions == null) {
+                return;
+            }
+            definitions.forEach((name, definition) -> {
+                if (definition != null && ("integer".equals(definition.type()) || "number".equals(definition.type())
+                        || (definition.format() != null && definition.format().startsWith("decimal")))) {
+                    numeric.add(prefix != null ? prefix + "." + name : name);
+                }
+            });
+        }
+
+        /**
+         * @throws IllegalArgumentException if a section is not one of {@link #SECTIONS}
+         */
+        public static void checkSections(List<String> sections) {
+            if (sections == null) {
+                return;
+            }
+            for (String section : sections) {
+                if (!SECTIONS.contains(section)) {
+                    throw new IllegalArgumentException("Unknown model section '" + section + "'. Valid sections: "
+                            + String.join(", ", SECTIONS));
+                }
+            }
+        }
+
+        private static byte[] raw(JsonNode node) {
+            if (node == null || node.isNull() || node.isMissingNode()) {
+                return null;
+            }
+            try {
+                return MAPPER.writeValueAsBytes(node);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot encode model section", e);
+            }
+        }
+
+        private static <T> T decode(byte[] raw, TypeReference<T> type) {
+            if (raw == null) {
+                return null;
+            }
+            try {
+                return MAPPER.readValue(raw, type);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot decode model section", e);
+            }
+        }
+    }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record FieldDefinition(
@@ -117,13 +407,21 @@ public class ModelService {
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record GroupDefinition(
             Map<String, FieldDefinition> fields
-    ) {}
+    ) {
+        public GroupDefinition {
+            fields = ModelInterner.fields(fields);
+        }
+    }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record RefDefinition(
             String apiObject,
             Map<String, FieldDefinition> fields
-    ) {}
+    ) {
+        public RefDefinition {
+            fields = ModelInterner.fields(fields);
+        }
+    }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record Metadata(
@@ -151,15 +449,25 @@ public class ModelService {
             // httpMethods? // Depending on what the summary includes
     ) {}
 
+    /**
+     * Get an object model definition from the Intacct API, with all sections.
+     *
+     * @see #getModelDefinition(String, String, String, String, String, List)
+     */
+    public ObjectModel getModelDefinition(String name, String type, String version, String schema, String tags) {
+        return getModelDefinition(name, type, version, schema, tags, null);
+    }
+
     /**
      * Get an object model definition from the Intacct API.
      * Corresponds to the /services/core/model GET endpoint.
      *
-     * @param name    Resource name (e.g., accounts-payable/vendor). Required.
-     * @param type    Optional resource type (e.g., object, service).
-     * @param version Optional API version (e.g., v1).
-     * @param schema  Optional flag to include full schema ("true"/"false").
-     * @param tags    Optional flag for schema formatting ("true"/"false").
+     * @param name     Resource name (e.g., accounts-payable/vendor). Required.
+     * @param type     Optional resource type (e.g., object, service).
+     * @param version  Optional API version (e.g., v1).
+     * @param schema   Optional flag to include full schema ("true"/"false").
+     * @param tags     Optional flag for schema formatting ("true"/"false").
+     * @param sections Optional sections to return (fields, groups, refs, lists); all when omitted.
      * @return The ObjectModel definition, or null if an error occurs.
      */
     @Tool(description = "Get an object model definition. Lists fields, relationships, etc. for an Intacct resource (object, service).")
@@ -168,18 +476,14 @@ public class ModelService {
             @ToolParam(description = "Filter by resource type (e.g., 'object', 'service')", required = false) String type,
             @ToolParam(description = "API version (e.g., 'v1', 'ALL')", required = false) String version,
             @ToolParam(description = "Include full model ('true'/'false' as string, defaults based on context)", required = false) String schema,
-            @ToolParam(description = "Return schema without tags ('true'/'false' as string, default 'true')", required = false) String tags
+            @ToolParam(description = "Return schema without tags ('true'/'false' as string, default 'true')", required = false) String tags,
+            @ToolParam(description = "Sections to return, any of [\"fields\", \"groups\", \"refs\", \"lists\"] (default: all). Ask only for what you need, e.g. [\"fields\"] before writing a query.", required = false) List<String> sections
     ) {
         Objects.requireNonNull(name, "Resource name cannot be null");
+        ObjectModel.checkSections(sections);
 
-        // Fix common mistake: remove "objects/" prefix if present
-        final String resourceName;
-        if (name.startsWith("objects/")) {
-            resourceName = name.substring("objects/".length());
-            logger.debug("Removed 'objects/' prefix from resource name. Using: {}", resourceName);
-        } else {
-            resourceName = name;
-        }
+        // Fix common mistakes (e.g. "objects/" prefix, plurals, module abbreviations) and reject unknown names
+        final String resourceName = requireObjectName(name);
 
         // Check if RestClient was initialized properly (access token obtained)
         if (this.currentAccessToken == null) {
@@ -187,46 +491,369 @@ public class ModelService {
              return null; // Or throw an exception
         }
 
-        // Use UriBuilder within the RestClient call to correctly combine with base URL
-        logger.info("Requesting model definition for name: {}, type: {}, version: {}, schema: {}, tags: {}",
-                resourceName, type, version, schema, tags);
+        if (this.usageHistory != null) {
+            this.usageHistory.record(resourceName);
+        }
+        if (isFieldsOnly(sections) && isBlank(type) && isBlank(version) && isBlank(schema) && isBlank(tags)) {
+            ObjectModel bundled = bundledFields(resourceName);
+            if (bundled != null) {
+                logger.debug("Serving the fields of '{}' from the bundled model catalog", resourceName);
+                return bundled;
+            }
+        }
+        ObjectModel model = model(resourceName, type, version, schema, tags);
+        return model != null ? model.select(sections) : null;
+    }
+
+    /**
+     * Gets the model of a resource with default options, as used internally (e.g. by replicas and pre-warming).
+     * Served from the model cache when possible; unlike {@link #getModelDefinition} it is not counted as usage.
+     *
+     * @param name Resource name (e.g., accounts-payable/vendor)
+     * @return The ObjectModel definition, or null if an error occurs.
+     */
+    public ObjectModel loadModel(String name) {
+        if (this.currentAccessToken == null) {
+            logger.error("Cannot get model definition: Access token was not obtained during initialization.");
+            return null;
+        }
+        return model(name, null, null, null, null);
+    }
+
+    /**
+     * Gets a model of a resource with at least its fields section: the cached model if there is one, else the
+     * bundled fields (see {@link BundledCatalog}), else the model with default options from the Model API.
+     *
+     * @param name Resource name (e.g., accounts-payable/vendor)
+     * @return The ObjectModel definition, or null if an error occurs.
+     */
+    public ObjectModel loadFields(String name) {
+        ObjectModel bundled = bundledFields(name);
+        return bundled != null ? bundled : loadModel(name);
+    }
 
+    // The bundled fields of a resource whose model with default options has not been fetched in this session
+    private ObjectModel bundledFields(String name) {
+        if (bundledCatalog == null || isCached(name)) {
+            return null;
+        }
+        return bundledCatalog.model(name);
+    }
+
+    private static boolean isFieldsOnly(List<String> sections) {
+        return sections != null && !sections.isEmpty() && sections.stream().allMatch("fields"::equals);
+    }
+
+    private static boolean isBlank(String option) {
+        return option == null || option.isEmpty();
+    }
+
+    /**
+     * Resolves an object name against the model catalog (see {@link ObjectNameIndex}).
+     * The catalog is listed on first use and again after mcp.server.object-resolution.catalog-ttl-seconds;
+     * while no catalog is available names are passed through with only the "objects/" prefix removed.
+     *
+     * @param name Object name as given by the client (e.g., "vendors", "ap/vendor", "objects/accounts-payable/vendor")
+     * @return The resolution, with suggestions when the name was rejected
+     */
+    public ObjectNameIndex.Resolution resolveObjectName(String name) {
+        ObjectNameIndex index = catalogIndex();
+        if (index == null) {
+            return ObjectNameIndex.unchecked(name);
+        }
+        ObjectNameIndex.Resolution resolution = index.resolve(name);
+        if (!resolution.isResolved() && catalogBundled) {
+            // The bundled catalog may lack the company's own objects, so the live catalog has the last word
+            synchronized (catalogLock) {
+                if (catalogBundled) {
+                    catalogBundled = false;
+                    logger.info("'{}' is not in the bundled model catalog, listing the live catalog", name);
+                    refreshCatalog();
+                }
+            }
+            resolution = catalogIndex.resolve(name);
+        }
+        return resolution;
+    }
+
+    /**
+     * Resolves an object name against the model catalog, rejecting unknown names.
+     *
+     * @return The catalog name to use
+     * @throws IllegalArgumentException if the name is not in the catalog; the message lists suggestions
+     */
+    public String requireObjectName(String name) {
+        ObjectNameIndex.Resolution resolution = resolveObjectName(name);
+        if (!resolution.isResolved()) {
+            logger.info("Rejected object name '{}', suggestions: {}", name, resolution.suggestions());
+            throw new IllegalArgumentException(resolution.message());
+        }
+        if (!resolution.name().equals(name)) {
+            logger.debug("Resolved object name '{}' to '{}'", name, resolution.name());
+        }
+        return resolution.name();
+    }
+
+    /**
+     * Lists the model catalog and rebuilds the object name index from it.
+     *
+     * @return true if the catalog was listed
+     */
+    public boolean refreshCatalog() {
+        if (!resolutionConfig.isEnabled() || this.currentAccessToken == null) {
+            return false;
+        }
+        synchronized (catalogLock) {
+            catalogCheckedAt = System.currentTimeMillis();
+            return fetchCatalog() != null;
+        }
+    }
+
+    private ObjectNameIndex catalogIndex() {
+        if (!resolutionConfig.isEnabled() || this.currentAccessToken == null) {
+            return null;
+        }
+        restoreCatalogOnce();
+        if (catalogStale()) {
+            synchronized (catalogLock) {
+                // Another caller may have listed the catalog while this one waited
+                if (catalogStale()) {
+                    refreshCatalog();
+                }
+            }
+        }
+        return catalogIndex;
+    }
+
+    // Without a listing from an earlier session, a cold session starts from the bundled catalog
+    private void restoreCatalogOnce() {
+        if (catalogRestored) {
+            return;
+        }
+        synchronized (catalogLock) {
+            if (catalogRestored) {
+                return;
+            }
+            restoreCatalog();
+            if (this.catalog == null && bundledCatalog != null && bundledCatalog.isAvailable()) {
+                updateCatalog(bundledCatalog.models());
+                catalogBundled = catalogIndex != null;
+                logger.info("Indexed {} object names from the bundled model catalog generated at {}",
+                        bundledCatalog.models().size(), bundledCatalog.generatedAt());
+            }
+            catalogRestored = true;
+        }
+    }
+
+    // A listing from an earlier session counts as listed when it was stored, and is revalidated once stale
+    private void restoreCatalog() {
+        Stored stored = restore(catalogDiskKey());
+        if (stored == null) {
+            return;
+        }
         try {
-            ModelApiResponse response = restClient.get()
-                    .uri(builder -> {
-                        builder = builder.path("/services/core/model").queryParam("name", resourceName);
-                        // Add optional parameters if they are provided
-                        if (type != null && !type.isEmpty()) {
-                            builder.queryParam("type", type);
-                        }
-                        if (version != null && !version.isEmpty()) {
-                            builder.queryParam("version", version);
-                        }
-                        if (schema != null && !schema.isEmpty()) {
-                            builder.queryParam("schema", schema);
-                        }
-                        if (tags != null && !tags.isEmpty()) {
-                            builder.queryParam("tags", tags);
-                        }
-                        URI builtUri = builder.build();
-                        logger.debug("Constructed URI for request: {}", builtUri); // Log the final URI
-                        return builtUri;
-                    })
-                    .retrieve()
-                    .body(ModelApiResponse.class);
+            ModelListApiResponse response = MAPPER.readValue(stored.body(), ModelListApiResponse.class);
+            if (response != null && response.result() != null && !response.result().isEmpty()) {
+                updateCatalog(response.result());
+                this.catalog = new CachedCatalog(response.result(), stored.validators());
+                this.catalogCheckedAt = stored.writtenAt();
+                logger.info("Restored the model catalog of {} models from the disk cache", response.result().size());
+            }
+        } catch (IOException e) {
+            logger.warn("Ignoring an unreadable disk cache entry for the model catalog: {}", e.getMessage());
+        }
+    }
 
-            if (response != null) {
+    private String modelDiskKey(ModelKey key) {
+        return DiskCache.key("model", this.baseUrl, this.authService.getUsername(), key);
+    }
+
+    private String catalogDiskKey() {
+        return DiskCache.key("catalog", this.baseUrl, this.authService.getUsername());
+    }
+
+    private Stored restore(String key) {
+        DiskCache.Entry entry = this.diskCache != null ? this.diskCache.get(key) : null;
+        if (entry == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.value()))) {
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+            String sha256 = in.readUTF();
+            return new Stored(in.readAllBytes(), new Validators(etag.isEmpty() ? null : etag,
+                    lastModified.isEmpty() ? null : lastModified, sha256), entry.writtenAt());
+        } catch (IOException e) {
+            logger.warn("Ignoring an unreadable disk cache entry: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, Validators validators, byte[] body) {
+        if (this.diskCache == null || body.length > this.diskCache.maxEntryBytes()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(validators.etag() != null ? validators.etag() : "");
+            out.writeUTF(validators.lastModified() != null ? validators.lastModified() : "");
+            out.writeUTF(validators.sha256());
+            out.write(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode disk cache entry", e);
+        }
+        this.diskCache.put(key, bytes.toByteArray(), this.diskCache.modelTtl());
+    }
+
+    // A failed listing is retried sooner than a successful one is refreshed
+    private boolean catalogStale() {
+        long age = System.currentTimeMillis() - catalogCheckedAt;
+        return catalogIndex == null
+                ? age > CATALOG_RETRY_MILLIS
+                : age > Duration.ofSeconds(resolutionConfig.getCatalogTtlSeconds()).toMillis();
+    }
+
+    private void updateCatalog(List<ResourceSummary> models) {
+        if (!resolutionConfig.isEnabled() || models.isEmpty()) {
+            return;
+        }
+        this.catalogIndex = new ObjectNameIndex(models.stream().map(ResourceSummary::apiObject).toList(),
+                resolutionConfig.getModuleAliases(), resolutionConfig.getObjectAliases(),
+                resolutionConfig.getMaxSuggestions());
+        this.catalogCheckedAt = System.currentTimeMillis();
+        logger.debug("Indexed {} object names from the model catalog", catalogIndex.size());
+    }
+
+    /**
+     * Whether the model of a resource with default options is cached.
+     */
+    public boolean isCached(String name) {
+        return modelCache != null && modelCache.getIfPresent(new ModelKey(name, null, null, null, null)) != null;
+    }
+
+    private ObjectModel model(String resourceName, String type, String version, String schema, String tags) {
+        ModelKey key = new ModelKey(resourceName, type, version, schema, tags);
+        // Concurrent requests for the same model share one fetch; failures (null) are not cached
+        CachedModel cached = modelCache != null ? modelCache.get(key) : restoreOrFetch(key);
+        return cached != null ? cached.model() : null;
+    }
+
+    // A model fetched by an earlier session is taken from the disk cache; it is revalidated like any other
+    private CachedModel restoreOrFetch(ModelKey key) {
+        Stored stored = restore(modelDiskKey(key));
+        if (stored != null) {
+            try {
+                ModelApiResponse parsed = MAPPER.readValue(stored.body(), ModelApiResponse.class);
+                if (parsed != null && parsed.result() != null) {
+                    logger.debug("Loaded model definition for '{}' from the disk cache", key.name());
+                    return new CachedModel(parsed.result(), stored.validators());
+                }
+            } catch (IOException e) {
+                logger.warn("Ignoring an unreadable disk cache entry for model '{}': {}", key.name(), e.getMessage());
+            }
+        }
+        return fetchModel(key, null);
+    }
+
+    /**
+     * Fetches a model definition, or revalidates a cached one with a conditional request.
+     *
+     * @param previous The cached model to revalidate, or null to fetch it
+     * @return The model with its validators (the cached model itself if it has not changed), or null on error
+     */
+    private CachedModel fetchModel(ModelKey key, CachedModel previous) {
+        String resourceName = key.name();
+        if (previous == null) {
+            logger.info("Requesting model definition for name: {}, type: {}, version: {}, schema: {}, tags: {}",
+                    resourceName, key.type(), key.version(), key.schema(), key.tags());
+        } else {
+            logger.debug("Revalidating model definition for '{}'", resourceName);
+        }
+
+        try {
+            // Use UriBuilder within the RestClient call to correctly combine with base URL
+            Revalidated response = conditionalGet(builder -> {
+                builder = builder.path("/services/core/model").queryParam("name", resourceName);
+                // Add optional parameters if they are provided
+                if (key.type() != null && !key.type().isEmpty()) {
+                    builder.queryParam("type", key.type());
+                }
+                if (key.version() != null && !key.version().isEmpty()) {
+                    builder.queryParam("version", key.version());
+                }
+                if (key.schema() != null && !key.schema().isEmpty()) {
+                    builder.queryParam("schema", key.schema());
+                }
+                if (key.tags() != null && !key.tags().isEmpty()) {
+                    builder.queryParam("tags", key.tags());
+                }
+                URI builtUri = builder.build();
+                logger.debug("Constructed URI for request: {}", builtUri); // Log the final URI
+                return builtUri;
+            }, previous != null ? previous.validators() : null);
+
+            if (response.body() == null) {
+                logger.debug("Model definition for '{}' has not changed", resourceName);
+                return new CachedModel(previous.model(), response.validators());
+            }
+            ModelApiResponse parsed = MAPPER.readValue(response.body(), ModelApiResponse.class);
+            if (parsed != null && parsed.result() != null) {
                  logger.debug("Successfully retrieved model definition for '{}'", resourceName);
-                 return response.result();
+                 store(modelDiskKey(key), response.validators(), response.body());
+                 return new CachedModel(parsed.result(), response.validators());
             } else {
                  logger.warn("Received null response for model definition request: {}", resourceName);
                  return null;
             }
         } catch (RestClientException e) {
+            if (ToolCallCancellation.current().isCancelled()) {
+                logger.info("Model definition request for '{}' was cancelled by the client", resourceName);
+                return null;
+            }
             logger.error("Error retrieving model definition for '{}': {}", resourceName, e.getMessage(), e);
             // Consider throwing a custom exception or returning a specific error object
             // TODO: Handle potential 401 Unauthorized if token expires
             return null;
+        } catch (IOException e) {
+            logger.error("Cannot decode model definition for '{}': {}", resourceName, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * GET with the validators of a cached response. The resource has not changed if the server answers
+     * 304 Not Modified, or, when it sends no validators, if the new body hashes the same as the cached one.
+     *
+     * @param previous Validators of the cached response, or null for a plain GET
+     */
+    private Revalidated conditionalGet(Function<UriBuilder, URI> uri, Validators previous) {
+        ResponseEntity<byte[]> response = restClient.get()
+                .uri(uri)
+                .headers(headers -> {
+                    if (previous != null) {
+                        previous.apply(headers);
+                    }
+                })
+                .retrieve()
+                .toEntity(byte[].class);
+        HttpHeaders headers = response.getHeaders();
+        String etag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (previous != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            return new Revalidated(null, new Validators(etag != null ? etag : previous.etag(),
+                    lastModified != null ? lastModified : previous.lastModified(), previous.sha256()));
+        }
+        byte[] body = response.getBody() != null ? response.getBody() : new byte[0];
+        Validators validators = new Validators(etag, lastModified, sha256(body));
+        boolean unchanged = previous != null && validators.sha256().equals(previous.sha256());
+        return new Revalidated(unchanged ? null : body, validators);
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
     }
 
@@ -234,6 +861,9 @@ public class ModelService {
      * List all available object model definitions (summaries) from the Intacct API.
      * Corresponds to calling the /services/core/model GET endpoint without the 'name' parameter.
      *
+     * Until this session has listed the catalog (or restored a listing from the disk cache), the bundled
+     * catalog is returned without a remote call.
+     *
      * @return A list of ResourceSummary objects, or null if an error occurs.
      */
     @Tool(description = "List all available Intacct resource model summaries (e.g., object names and types).")
@@ -243,6 +873,20 @@ public class ModelService {
             logger.error("Cannot list models: Access token was not obtained during initialization.");
             return null; // Or throw?
         }
+        restoreCatalogOnce();
+        if (this.catalog == null && bundledCatalog != null && bundledCatalog.isAvailable()) {
+            logger.info("Listing the bundled model catalog of {} models", bundledCatalog.models().size());
+            return bundledCatalog.models();
+        }
+        return fetchCatalog();
+    }
+
+    /**
+     * Lists the model catalog from the Model API, revalidating the last listing.
+     *
+     * @return A list of ResourceSummary objects, or null if an error occurs.
+     */
+    private List<ResourceSummary> fetchCatalog() {
 
         logger.info("Requesting list of all available models...");
         logger.debug("Using base URL: {}", this.baseUrl);
@@ -254,10 +898,17 @@ public class ModelService {
             String fullUrl = this.baseUrl + "/services/core/model";
             logger.debug("Making GET request to: {}", fullUrl);
 
-            ModelListApiResponse response = restClient.get()
-                    .uri("/services/core/model") // No query parameters for listing
-                    .retrieve()
-                    .body(ModelListApiResponse.class);
+            // No query parameters for listing; a catalog listed before is revalidated
+            CachedCatalog cached = this.catalog;
+            Revalidated revalidated = conditionalGet(builder -> builder.path("/services/core/model").build(),
+                    cached != null ? cached.validators() : null);
+            if (revalidated.body() == null) {
+                logger.info("Model catalog of {} models has not changed", cached.models().size());
+                this.catalog = new CachedCatalog(cached.models(), revalidated.validators());
+                this.catalogCheckedAt = System.currentTimeMillis();
+                return cached.models();
+            }
+            ModelListApiResponse response = MAPPER.readValue(revalidated.body(), ModelListApiResponse.class);
 
             if (response != null) {
                 logger.debug("Raw response received: {}", response);
@@ -272,6 +923,10 @@ public class ModelService {
                                 response.result().subList(0, logLimit));
                     }
 
+                    updateCatalog(response.result());
+                    this.catalogBundled = false;
+                    this.catalog = new CachedCatalog(response.result(), revalidated.validators());
+                    store(catalogDiskKey(), revalidated.validators(), revalidated.body());
                     return response.result(); // Return the list
                 } else {
                     logger.warn("Response was not null, but response.result() was null");
@@ -282,6 +937,10 @@ public class ModelService {
                 return List.of(); // Return empty list
             }
         } catch (RestClientException e) {
+            if (ToolCallCancellation.current().isCancelled()) {
+                logger.info("Model list request was cancelled by the client");
+                return null;
+            }
             logger.error("Error retrieving list of models: {}", e.getMessage(), e);
             logger.error("Exception details:", e); // Log the full stack trace
 
@@ -0,0 +1,116 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Counts how often each object's model is requested, persisted across restarts so the most used
+ * models can be pre-warmed on startup (see {@link SchemaWarmer}).
+ */
+@Component
+public class ModelUsageHistory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelUsageHistory.class);
+
+    // Objects kept in the history file; the least used are dropped beyond this
+    static final int MAX_OBJECTS = 500;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Long>> COUNTS_TYPE = new TypeReference<>() {};
+
+    private final Path file;
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public ModelUsageHistory(McpServerProperties properties) {
+        McpServerProperties.SchemaWarmupConfig config = properties != null && properties.getSchemaWarmup() != null
+                ? properties.getSchemaWarmup()
+                : new McpServerProperties.SchemaWarmupConfig();
+        this.file = Paths.get(config.getUsageHistoryFile());
+        load();
+    }
+
+    /**
+     * Counts one model request for an object.
+     */
+    public void record(String object) {
+        if (object == null || object.isBlank()) {
+            return;
+        }
+        counts.computeIfAbsent(object, key -> new AtomicLong()).incrementAndGet();
+        dirty.set(true);
+    }
+
+    /**
+     * Most requested objects, most used first.
+     */
+    public List<String> topObjects(int limit) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, AtomicLong>comparingByValue(Comparator.comparingLong(AtomicLong::get))
+                        .reversed())
+                .limit(Math.max(0, limit))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Writes the history if it changed since the last save. The file is replaced atomically.
+     */
+    @PreDestroy
+    public synchronized void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        for (String object : topObjects(MAX_OBJECTS)) {
+            snapshot.put(object, counts.get(object).get());
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            MAPPER.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            counts.keySet().retainAll(snapshot.keySet());
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("Cannot save model usage history to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            Map<String, Long> stored = MAPPER.readValue(file.toFile(), COUNTS_TYPE);
+            stored.forEach((object, count) -> {
+                if (object != null && count != null) {
+                    counts.put(object, new AtomicLong(count));
+                }
+            });
+            logger.debug("Loaded model usage history for {} objects from {}", counts.size(), file);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable model usage history {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory index of the object names in the model catalog, used to resolve or reject object names
+ * before a remote call is made. Besides exact names it understands module aliases ("ap/vendor"),
+ * object aliases and plurals ("vendors"), object names given without or with the wrong module, and close
+ * misspellings. Names it cannot resolve get suggestions from the same index: prefix completions from a
+ * trie over the object names, and catalog names within a small edit distance.
+ */
+public final class ObjectNameIndex {
+
+    private static final String OBJECTS_PREFIX = "objects/";
+    // Misspellings closer than this are corrected without asking, when the object name is long enough
+    private static final int MIN_CORRECTED_LENGTH = 5;
+
+    /**
+     * Outcome of resolving a name.
+     *
+     * @param input       The name as given
+     * @param name        The catalog name to use, or null if the name was rejected
+     * @param status      How the name was resolved
+     * @param suggestions Likely intended names when the name was rejected, best first
+     */
+    public record Resolution(String input, String name, Status status, List<String> suggestions) {
+
+        public boolean isResolved() {
+            return name != null;
+        }
+
+        /**
+         * Explanation for a rejected name, listing the suggestions.
+         */
+        public String message() {
+            String problem = status == Status.AMBIGUOUS
+                    ? "Object name '" + input + "' is ambiguous"
+                    : "Unknown object '" + input + "'";
+            if (suggestions.isEmpty()) {
+                return problem + ". Call listAvailableModels for the available objects.";
+            }
+            return problem + ". Did you mean: " + String.join(", ", suggestions) + "?";
+        }
+    }
+
+    public enum Status {
+        /** The name is in the catalog as given (apart from case and the "objects/" prefix) */
+        EXACT,
+        /** The name was mapped to a catalog name through an alias, plural, module or spelling correction */
+        CORRECTED,
+        /** Several catalog objects match the name */
+        AMBIGUOUS,
+        /** No catalog object matches the name */
+        UNKNOWN,
+        /** No catalog is available; the name is passed on with only the "objects/" prefix removed */
+        UNCHECKED
+    }
+
+    // Normalized name -> catalog name as listed
+    private final Map<String, String> names;
+    // Normalized object name without module (e.g. "vendor") -> catalog names
+    private final Map<String, List<String>> byObject = new HashMap<>();
+    private final Map<String, String> moduleAliases;
+    private final Map<String, String> objectAliases;
+    private final int maxSuggestions;
+    private final TrieNode trie = new TrieNode();
+
+    /**
+     * @param catalogNames   Catalog object names (e.g. "accounts-payable/vendor")
+     * @param moduleAliases  Module abbreviations to module names (e.g. "ap" to "accounts-payable")
+     * @param objectAliases  Alternative object names to catalog object names, without module (e.g. "supplier" to "vendor")
+     * @param maxSuggestions Suggestions returned for a rejected name
+     */
+    public ObjectNameIndex(Collection<String> catalogNames, Map<String, String> moduleAliases,
+            Map<String, String> objectAliases, int maxSuggestions) {
+        Map<String, String> catalog = new HashMap<>();
+        for (String catalogName : catalogNames) {
+            if (catalogName == null || catalogName.isBlank()) {
+                continue;
+            }
+            String name = key(catalogName);
+            if (catalog.putIfAbsent(name, catalogName) != null) {
+                continue;
+            }
+            String object = objectPart(name);
+            byObject.computeIfAbsent(object, k -> new ArrayList<>(1)).add(catalogName);
+            trie.insert(object, catalogName);
+            if (!object.equals(name)) {
+                trie.insert(name, catalogName);
+            }
+        }
+        this.names = Map.copyOf(catalog);
+        this.moduleAliases = lowerCase(moduleAliases);
+        this.objectAliases = lowerCase(objectAliases);
+        this.maxSuggestions = Math.max(1, maxSuggestions);
+    }
+
+    /**
+     * Resolution when no catalog is available: the name is used as given, minus a leading "objects/".
+     */
+    public static Resolution unchecked(String name) {
+        String resolved = name.startsWith(OBJECTS_PREFIX) ? name.substring(OBJECTS_PREFIX.length()) : name;
+        return new Resolution(name, resolved, Status.UNCHECKED, List.of());
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Resolves a name to a catalog name, or rejects it with suggestions.
+     */
+    public Resolution resolve(String input) {
+        String name = key(input);
+        if (names.containsKey(name)) {
+            return new Resolution(input, names.get(name), Status.EXACT, List.of());
+        }
+
+        int slash = name.lastIndexOf('/');
+        String module = slash > 0 ? name.substring(0, slash) : null;
+        String object = objectPart(name);
+        if (module != null) {
+            module = moduleAliases.getOrDefault(module, module);
+        }
+
+        // Alias, plural and wrong or missing module
+        Set<String> matches = new LinkedHashSet<>();
+        for (String candidate : variants(object)) {
+            String qualified = names.get(module + "/" + candidate);
+            if (module != null && qualified != null) {
+                return corrected(input, qualified);
+            }
+            matches.addAll(byObject.getOrDefault(candidate, List.of()));
+        }
+        if (matches.size() == 1) {
+            return corrected(input, matches.iterator().next());
+        }
+        if (matches.size() > 1) {
+            return new Resolution(input, null, Status.AMBIGUOUS, limit(matches));
+        }
+
+        // Misspelling: correct a single close match, otherwise suggest
+        TreeMap<Integer, Set<String>> byDistance = new TreeMap<>();
+        int maxDistance = Math.min(3, Math.max(1, object.length() / 4));
+        for (Map.Entry<String, List<String>> entry : byObject.entrySet()) {
+            int distance = distance(object, entry.getKey(), maxDistance);
+            if (distance <= maxDistance) {
+                byDistance.computeIfAbsent(distance, d -> new LinkedHashSet<>()).addAll(entry.getValue());
+            }
+        }
+        if (module != null) {
+            int maxNameDistance = Math.min(3, Math.max(1, name.length() / 8));
+            for (Map.Entry<String, String> candidate : names.entrySet()) {
+                int distance = distance(module + "/" + object, candidate.getKey(), maxNameDistance);
+                if (distance <= maxNameDistance) {
+                    byDistance.computeIfAbsent(distance, d -> new LinkedHashSet<>()).add(candidate.getValue());
+                }
+            }
+        }
+        if (!byDistance.isEmpty()) {
+            Map.Entry<Integer, Set<String>> closest = byDistance.firstEntry();
+            if (closest.getKey() == 1 && closest.getValue().size() == 1 && object.length() >= MIN_CORRECTED_LENGTH) {
+                return corrected(input, closest.getValue().iterator().next());
+            }
+        }
+
+        Set<String> suggestions = new LinkedHashSet<>();
+        byDistance.values().forEach(suggestions::addAll);
+        trie.collect(object, maxSuggestions, suggestions);
+        if (module != null && suggestions.size() < maxSuggestions) {
+            trie.collect(module + "/", maxSuggestions - suggestions.size(), suggestions);
+        }
+        return new Resolution(input, null, Status.UNKNOWN, limit(suggestions));
+    }
+
+    private static Resolution corrected(String input, String name) {
+        return new Resolution(input, name, Status.CORRECTED, List.of());
+    }
+
+    private List<String> limit(Collection<String> candidates) {
+        return candidates.stream().limit(maxSuggestions).toList();
+    }
+
+    // Object names the given one may stand for: itself, its alias, and singular forms
+    private List<String> variants(String object) {
+        Set<String> variants = new LinkedHashSet<>();
+        variants.add(object);
+        String alias = objectAliases.get(object);
+        if (alias != null) {
+            variants.add(alias);
+        }
+        for (String singular : singulars(object)) {
+            variants.add(singular);
+            alias = objectAliases.get(singular);
+            if (alias != null) {
+                variants.add(alias);
+            }
+        }
+        return new ArrayList<>(variants);
+    }
+
+    private static List<String> singulars(String word) {
+        List<String> singulars = new ArrayList<>(2);
+        if (word.endsWith("ies") && word.length() > 4) {
+            singulars.add(word.substring(0, word.length() - 3) + "y");
+        }
+        if (word.endsWith("es") && word.length() > 3) {
+            singulars.add(word.substring(0, word.length() - 2));
+        }
+        if (word.endsWith("s") && !word.endsWith("ss") && word.length() > 2) {
+            singulars.add(word.substring(0, word.length() - 1));
+        }
+        return singulars;
+    }
+
+    // Normalized form: lower case, "_" and spaces as "-", without leading "objects/" or slashes
+    static String key(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT).replace('_', '-').replace(' ', '-');
+        while (key.startsWith("/")) {
+            key = key.substring(1);
+        }
+        while (key.startsWith(OBJECTS_PREFIX)) {
+            key = key.substring(OBJECTS_PREFIX.length());
+        }
+        return key;
+    }
+
+    private static String objectPart(String name) {
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    private static Map<String, String> lowerCase(Map<String, String> aliases) {
+        Map<String, String> normalized = new HashMap<>();
+        if (aliases != null) {
+            aliases.forEach((alias, target) -> normalized.put(key(alias), key(target)));
+        }
+        return normalized;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions), or max + 1
+     * as soon as the distance is known to exceed max.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Character trie over object names and full names; each node keeps the catalog names whose key ends there.
+     */
+    private static final class TrieNode {
+        private final TreeMap<Character, TrieNode> children = new TreeMap<>();
+        private List<String> names;
+
+        void insert(String key, String name) {
+            TrieNode node = this;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new TrieNode());
+            }
+            if (node.names == null) {
+                node.names = new ArrayList<>(1);
+            }
+            node.names.add(name);
+        }
+
+        // Adds up to limit catalog names whose key starts with the prefix, shortest keys first
+        void collect(String prefix, int limit, Set<String> into) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.children.get(prefix.charAt(i));
+            }
+            if (node == null) {
+                return;
+            }
+            int target = into.size() + limit;
+            List<TrieNode> level = List.of(node);
+            while (!level.isEmpty() && into.size() < target) {
+                List<TrieNode> next = new ArrayList<>();
+                for (TrieNode current : level) {
+                    if (current.names != null) {
+                        for (String name : current.names) {
+                            if (into.size() < target) {
+                                into.add(name);
+                            }
+                        }
+                    }
+                    next.addAll(current.children.values());
+                }
+                level = next;
+            }
+        }
+    }
+}
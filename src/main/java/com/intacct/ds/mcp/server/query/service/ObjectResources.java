@@ -0,0 +1,127 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.replica.ReplicaTable;
+import com.intacct.ds.mcp.server.query.service.QueryService.QueryResult;
+import com.intacct.ds.mcp.server.query.transport.ResourceSubscriptions;
+
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * The objects of tool-integration.resources as MCP resources (intacct://objects/{name}), so a client can read
+ * and subscribe to them instead of polling with executeQuery.
+ *
+ * A read returns the first max-rows records ordered by key, as an executeQuery result. While the object's replica
+ * is loaded it is answered from the replica with every replicated field; before that, the default fields are
+ * queried through the query cache. After a replica sync finds changed records, subscribed clients are sent
+ * notifications/resources/updated.
+ */
+@Service
+public class ObjectResources {
+
+    private static final Logger logger = LoggerFactory.getLogger(ObjectResources.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final String URI_PREFIX = "intacct://objects/";
+
+    private final McpServerProperties.ObjectResourcesConfig config;
+    private final List<String> resources;
+    private final QueryService queryService;
+    private final ReplicaService replicaService;
+    private final ResourceSubscriptions subscriptions;
+
+    @Autowired
+    public ObjectResources(McpServerProperties properties, QueryService queryService, ReplicaService replicaService,
+            ResourceSubscriptions subscriptions) {
+        this.config = properties.getObjectResources() != null
+                ? properties.getObjectResources()
+                : new McpServerProperties.ObjectResourcesConfig();
+        this.resources = properties.getToolIntegration() != null
+                ? properties.getToolIntegration().getResources() : List.of();
+        this.queryService = queryService;
+        this.replicaService = replicaService;
+        this.subscriptions = subscriptions;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (config.isEnabled()) {
+            replicaService.addChangeListener(this::replicaChanged);
+        }
+    }
+
+    /**
+     * The resources to register with the MCP server.
+     */
+    public List<McpServerFeatures.SyncResourceSpecification> specifications() {
+        if (!config.isEnabled()) {
+            return List.of();
+        }
+        List<McpServerFeatures.SyncResourceSpecification> specifications = new ArrayList<>();
+        for (Map.Entry<String, String> resource : objects().entrySet()) {
+            String name = resource.getKey();
+            String object = resource.getValue();
+            McpSchema.Resource definition = new McpSchema.Resource(URI_PREFIX + name, name,
+                    "Records of " + object + " (first " + config.getMaxRows() + " by key), served from the local replica"
+                            + (subscriptions.isEnabled() ? ". Subscribe to be notified of changes." : " once loaded."),
+                    "application/json", null);
+            specifications.add(new McpServerFeatures.SyncResourceSpecification(definition,
+                    (exchange, request) -> read(exchange, request, object)));
+            subscriptions.register(definition.uri());
+        }
+        logger.info("Registered {} object resources", specifications.size());
+        return specifications;
+    }
+
+    // Resource name -> Query API object
+    private Map<String, String> objects() {
+        Map<String, String> objects = new LinkedHashMap<>();
+        for (String resource : resources) {
+            String object = replicaService.objectOf(resource);
+            if (object != null) {
+                objects.put(resource, object);
+            }
+        }
+        return objects;
+    }
+
+    private McpSchema.ReadResourceResult read(McpSyncServerExchange exchange, McpSchema.ReadResourceRequest request,
+            String object) {
+        ReplicaTable table = replicaService.getTable(object);
+        List<String> fields = table != null && table.isLoaded() ? table.getFields() : QueryEstimator.DEFAULT_FIELDS;
+        QueryResult result = queryService.executeQuery(object, fields, null, null, null,
+                List.of(Map.of(ReplicaTable.KEY_FIELD, "asc")), 1, config.getMaxRows(), null, null, null);
+        if (result == null) {
+            throw new IllegalStateException("Could not read " + request.uri());
+        }
+        try {
+            return new McpSchema.ReadResourceResult(List.of(
+                    new McpSchema.TextResourceContents(request.uri(), "application/json", MAPPER.writeValueAsString(result))));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode " + request.uri(), e);
+        }
+    }
+
+    private void replicaChanged(String object) {
+        objects().forEach((name, replicated) -> {
+            if (replicated.equals(object)) {
+                subscriptions.updated(URI_PREFIX + name);
+            }
+        });
+    }
+}
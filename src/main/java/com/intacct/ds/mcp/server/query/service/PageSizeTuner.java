@@ -0,0 +1,205 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Learns the page size to use when a query result is fetched page by page, per object and field set.
+ * After each page the observed time per row is used to move the page size towards the size that would
+ * take the target page latency, and the observed bytes per row cap it at the memory budget per page:
+ * wide rows get smaller pages, narrow rows larger ones. The learned sizes are persisted across restarts.
+ *
+ * Only full pages are observed: a page also has a fixed cost per request, which in a short page (the last page
+ * of a result, or a small result) would be spread over few rows and shrink the page size for no reason.
+ */
+@Component
+public class PageSizeTuner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageSizeTuner.class);
+
+    // Field sets kept in the state file; the least recently observed are dropped beyond this
+    static final int MAX_ENTRIES = 500;
+    // A single observation moves the page size by at most this factor
+    private static final double MAX_STEP = 2.0;
+    // Weight of the newest observation in the moving averages
+    private static final double WEIGHT = 0.3;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Tuning>> STATE_TYPE = new TypeReference<>() {};
+
+    private final McpServerProperties.AdaptivePagingConfig config;
+    private final Path file;
+    private final Map<String, Tuning> tunings = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile long savedAt = System.currentTimeMillis();
+
+    /**
+     * What was learned for one object and field set.
+     *
+     * @param pageSize    Rows per page to use next
+     * @param msPerRow    Moving average of the fetch time per row, in milliseconds
+     * @param bytesPerRow Moving average of the response bytes per row
+     * @param pages       Pages observed
+     * @param observedAt  Time of the last observation (epoch millis)
+     */
+    public record Tuning(int pageSize, double msPerRow, double bytesPerRow, long pages, long observedAt) {}
+
+    @Autowired
+    public PageSizeTuner(McpServerProperties properties) {
+        this(properties != null && properties.getAdaptivePaging() != null
+                ? properties.getAdaptivePaging()
+                : new McpServerProperties.AdaptivePagingConfig());
+    }
+
+    PageSizeTuner(McpServerProperties.AdaptivePagingConfig config) {
+        this.config = config;
+        this.file = Paths.get(config.getStateFile());
+        if (config.isEnabled()) {
+            load();
+        }
+    }
+
+    /**
+     * Page size to use for a query.
+     *
+     * @param object       Object queried
+     * @param fields       Fields requested, null for the API defaults
+     * @param initialSize  Page size to start with when nothing has been learned yet
+     */
+    public int pageSize(String object, List<String> fields, int initialSize) {
+        if (!config.isEnabled()) {
+            return initialSize;
+        }
+        Tuning tuning = tunings.get(key(object, fields));
+        return clamp(tuning != null ? tuning.pageSize() : initialSize, tuning);
+    }
+
+    /**
+     * Records a fetched page and adjusts the page size of its object and field set. A page with fewer rows
+     * than requested is ignored.
+     *
+     * @param requested Rows requested
+     * @param rows      Rows returned
+     * @param bytes     Response bytes of the page
+     * @param nanos     Time the page took, request to last byte
+     */
+    public void observe(String object, List<String> fields, int requested, int rows, long bytes, long nanos) {
+        if (!config.isEnabled() || rows <= 0 || rows < requested || nanos <= 0) {
+            return;
+        }
+        double ms = nanos / 1_000_000.0;
+        tunings.compute(key(object, fields), (key, previous) -> {
+            double msPerRow = ms / rows;
+            double bytesPerRow = (double) bytes / rows;
+            int current = rows;
+            long pages = 1;
+            if (previous != null) {
+                msPerRow = previous.msPerRow() * (1 - WEIGHT) + msPerRow * WEIGHT;
+                bytesPerRow = previous.bytesPerRow() * (1 - WEIGHT) + bytesPerRow * WEIGHT;
+                current = Math.max(rows, previous.pageSize());
+                pages = previous.pages() + 1;
+            }
+            // Rows that would take the target latency at the observed rate, within one step of the current size
+            double target = config.getTargetPageMillis() / Math.max(msPerRow, 1e-6);
+            double next = Math.max(current / MAX_STEP, Math.min(current * MAX_STEP, target));
+            Tuning tuning = new Tuning(0, msPerRow, bytesPerRow, pages, System.currentTimeMillis());
+            return new Tuning(clamp((int) Math.round(next), tuning), msPerRow, bytesPerRow, pages,
+                    tuning.observedAt());
+        });
+        dirty.set(true);
+        if (System.currentTimeMillis() - savedAt > TimeUnit.SECONDS.toMillis(config.getSaveIntervalSeconds())) {
+            save();
+        }
+    }
+
+    /**
+     * What was learned for an object and field set, or null.
+     */
+    public Tuning tuning(String object, List<String> fields) {
+        return tunings.get(key(object, fields));
+    }
+
+    private int clamp(int pageSize, Tuning tuning) {
+        int size = pageSize;
+        if (tuning != null && tuning.bytesPerRow() > 0) {
+            size = (int) Math.min(size, config.getMaxPageBytes() / tuning.bytesPerRow());
+        }
+        return Math.max(config.getMinPageSize(), Math.min(config.getMaxPageSize(), size));
+    }
+
+    // Field order does not change the row width, so the key uses the sorted field set
+    static String key(String object, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return object + "|*";
+        }
+        List<String> sorted = new ArrayList<>(fields);
+        sorted.sort(null);
+        return object + "|" + String.join(",", sorted);
+    }
+
+    /**
+     * Writes the learned page sizes if they changed since the last save. The file is replaced atomically.
+     */
+    @PreDestroy
+    public synchronized void save() {
+        savedAt = System.currentTimeMillis();
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Map<String, Tuning> snapshot = new LinkedHashMap<>();
+        tunings.entrySet().stream()
+                .sorted(Map.Entry.<String, Tuning>comparingByValue(Comparator.comparingLong(Tuning::observedAt))
+                        .reversed())
+                .limit(MAX_ENTRIES)
+                .forEach(entry -> snapshot.put(entry.getKey(), entry.getValue()));
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            MAPPER.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tunings.keySet().retainAll(snapshot.keySet());
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("Cannot save page sizes to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            Map<String, Tuning> stored = MAPPER.readValue(file.toFile(), STATE_TYPE);
+            stored.forEach((key, tuning) -> {
+                if (key != null && tuning != null && tuning.pageSize() > 0) {
+                    tunings.put(key, tuning);
+                }
+            });
+            logger.debug("Loaded page sizes for {} field sets from {}", tunings.size(), file);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable page size state {}: {}", file, e.getMessage());
+        }
+    }
+}
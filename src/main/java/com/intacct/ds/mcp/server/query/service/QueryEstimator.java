@@ -0,0 +1,163 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.intacct.ds.mcp.server.query.service.ModelService.FieldDefinition;
+import com.intacct.ds.mcp.server.query.service.ModelService.GroupDefinition;
+import com.intacct.ds.mcp.server.query.service.ModelService.ObjectModel;
+import com.intacct.ds.mcp.server.query.service.ModelService.RefDefinition;
+import com.intacct.ds.mcp.server.query.service.QueryService.PagePlan;
+import com.intacct.ds.mcp.server.query.service.QueryService.ResultBudget;
+
+/**
+ * Size estimates for query results, used by the estimateQuery tool. The size of a row is estimated from
+ * the field definitions of the object model (type, format, enum values) as the JSON the Query API returns,
+ * and the page plan keeps every page within the result budget.
+ */
+final class QueryEstimator {
+
+    // Fields the Query API returns when none are requested
+    static final List<String> DEFAULT_FIELDS = List.of("key", "id", "href");
+    // Results that need more pages than this are better narrowed or aggregated than paged through
+    static final int MAX_PLANNED_PAGES = 10;
+
+    // Estimated JSON sizes of values, quotes included
+    private static final int STRING_BYTES = 24;
+    private static final int INTEGER_BYTES = 8;
+    private static final int NUMBER_BYTES = 12;
+    private static final int BOOLEAN_BYTES = 5;
+    private static final int DATE_BYTES = 12;
+    private static final int DATE_TIME_BYTES = 26;
+
+    /**
+     * Estimated size of a row.
+     *
+     * @param bytes         Estimated JSON bytes per row
+     * @param unknownFields Requested fields the model does not define (estimated as strings)
+     */
+    record RowSize(int bytes, List<String> unknownFields) {}
+
+    private QueryEstimator() {
+    }
+
+    /**
+     * Estimates the JSON size of one row with the given fields.
+     *
+     * @param object Object queried (for the size of href values)
+     * @param model  The object's model, or null when it could not be loaded
+     * @param fields Requested fields; null or empty for the API defaults
+     */
+    static RowSize rowSize(String object, ObjectModel model, List<String> fields) {
+        List<String> requested = fields == null || fields.isEmpty() ? DEFAULT_FIELDS : fields;
+        Map<String, FieldDefinition> topLevel = model != null ? model.fields() : null;
+        Map<String, GroupDefinition> groups = model != null ? model.groups() : null;
+        Map<String, RefDefinition> refs = model != null ? model.refs() : null;
+
+        int bytes = 2; // {}
+        Set<String> parents = new LinkedHashSet<>();
+        List<String> unknown = new ArrayList<>();
+        for (String field : requested) {
+            int dot = field.lastIndexOf('.');
+            String name = field.substring(dot + 1);
+            FieldDefinition definition = null;
+            if (dot < 0) {
+                definition = topLevel != null ? topLevel.get(field) : null;
+            } else {
+                String parent = field.substring(0, dot);
+                // Nested fields are returned inside an object per parent: "vendor":{"id":...}
+                for (String segment : parent.split("\\.")) {
+                    if (parents.add(segment)) {
+                        bytes += segment.length() + 6;
+                    }
+                }
+                if (groups != null && groups.get(parent) != null && groups.get(parent).fields() != null) {
+                    definition = groups.get(parent).fields().get(name);
+                } else if (refs != null && refs.get(parent) != null && refs.get(parent).fields() != null) {
+                    definition = refs.get(parent).fields().get(name);
+                }
+            }
+            if (definition == null && model != null && !DEFAULT_FIELDS.contains(name)) {
+                unknown.add(field);
+            }
+            // "name":value,
+            bytes += name.length() + 4 + valueBytes(object, name, definition);
+        }
+        return new RowSize(bytes, unknown);
+    }
+
+    static int valueBytes(String object, String name, FieldDefinition definition) {
+        if ("href".equals(name)) {
+            return object.length() + 20; // "/objects/<object>/<key>"
+        }
+        if (definition == null) {
+            return STRING_BYTES;
+        }
+        if (definition.enumValues() != null && !definition.enumValues().isEmpty()) {
+            int total = 0;
+            for (String value : definition.enumValues()) {
+                total += value != null ? value.length() : 4;
+            }
+            return total / definition.enumValues().size() + 2;
+        }
+        String format = definition.format() != null ? definition.format() : "";
+        if (format.equals("date-time")) {
+            return DATE_TIME_BYTES;
+        }
+        if (format.equals("date")) {
+            return DATE_BYTES;
+        }
+        if (format.startsWith("decimal")) {
+            return NUMBER_BYTES + 2; // Decimals are returned as strings
+        }
+        String type = definition.type() != null ? definition.type() : "";
+        return switch (type) {
+            case "integer" -> INTEGER_BYTES;
+            case "number" -> NUMBER_BYTES;
+            case "boolean" -> BOOLEAN_BYTES;
+            default -> STRING_BYTES;
+        };
+    }
+
+    /**
+     * Plans how to fetch a result of the given size within a budget.
+     *
+     * @param totalCount  Matching records, or null if unknown
+     * @param bytesPerRow Estimated bytes per row
+     * @param budget      Effective result budget
+     */
+    static PagePlan plan(Integer totalCount, int bytesPerRow, ResultBudget budget) {
+        long byBytes = budget.maxBytes() / Math.max(1, bytesPerRow);
+        int pageSize = (int) Math.max(1, Math.min(budget.maxRows(), byBytes));
+        long bytesPerPage = (long) pageSize * bytesPerRow;
+        if (totalCount == null) {
+            return new PagePlan(pageSize, null, bytesPerPage, "Total count unavailable; fetch with size="
+                    + pageSize + " and continue from nextStart while it is present.");
+        }
+        if (totalCount == 0) {
+            return new PagePlan(pageSize, 0, 0, "No records match; check the filters.");
+        }
+        int pages = (int) ((totalCount + (long) pageSize - 1) / pageSize);
+        if (pages == 1) {
+            return new PagePlan(totalCount, 1, (long) totalCount * bytesPerRow,
+                    "Fits in one call: executeQuery with size=" + totalCount + ".");
+        }
+        if (pages <= MAX_PLANNED_PAGES) {
+            return new PagePlan(pageSize, pages, bytesPerPage, "Fetch in " + pages + " pages with size=" + pageSize
+                    + ", starting at start=1 and continuing from nextStart.");
+        }
+        return new PagePlan(pageSize, pages, bytesPerPage, "Too large to page through (" + pages + " pages, about "
+                + humanBytes((long) totalCount * bytesPerRow) + "): narrow the filters, request fewer fields, "
+                + "or fetch a summary (e.g. filter by status or date range) instead of every record.");
+    }
+
+    private static String humanBytes(long bytes) {
+        if (bytes >= 1 << 20) {
+            return String.format("%.1f MB", bytes / (double) (1 << 20));
+        }
+        return String.format("%.1f KB", bytes / 1024.0);
+    }
+}
@@ -0,0 +1,417 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.service.QueryService.MetadataPages;
+import com.intacct.ds.mcp.server.query.service.QueryService.ResultBudget;
+
+/**
+ * Streaming decoder for Query API responses that enforces a {@link ResultBudget}.
+ * Rows are read one at a time from the response body; once a budget is exhausted the decoder stops
+ * and the caller closes the body, so the rest of an oversized response is never read or buffered.
+ */
+final class QueryResponseDecoder {
+
+    static final String TRUNCATED_BY_ROWS = "maxRows";
+    static final String TRUNCATED_BY_BYTES = "maxBytes";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, Object>> ROW_TYPE = new TypeReference<>() {};
+
+    private QueryResponseDecoder() {
+    }
+
+    /**
+     * Rows kept within a budget.
+     *
+     * @param rows            The rows kept
+     * @param meta            Response metadata, or null if it was not reached
+     * @param truncatedBy     Budget that cut the result short ({@link #TRUNCATED_BY_ROWS} or
+     *                        {@link #TRUNCATED_BY_BYTES}), or null if every row was kept
+     * @param fieldsTruncated Whether fields were dropped from some rows
+     * @param bytes           Serialized size of the rows kept
+     */
+    record Decoded(
+            List<Map<String, Object>> rows,
+            MetadataPages meta,
+            String truncatedBy,
+            boolean fieldsTruncated,
+            long bytes
+    ) {
+        boolean truncated() {
+            return truncatedBy != null;
+        }
+    }
+
+    /**
+     * Decodes a response body.
+     *
+     * @param body    Response body positioned at the top-level object
+     * @param budget  Effective budget
+     * @param maxRows Rows to keep; further rows mark the result as truncated
+     */
+    static Decoded decode(InputStream body, ResultBudget budget, int maxRows) throws IOException {
+        return decode(body, budget, maxRows, 0);
+    }
+
+    /**
+     * Decodes one page of a result that spans several responses.
+     *
+     * @param body      Response body positioned at the top-level object
+     * @param budget    Effective budget for the whole result
+     * @param maxRows   Rows to keep from this page; further rows mark the result as truncated
+     * @param usedBytes Bytes already taken from the budget by earlier pages
+     */
+    static Decoded decode(InputStream body, ResultBudget budget, int maxRows, long usedBytes) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        MetadataPages meta = null;
+        long bytes = usedBytes;
+        boolean fieldsTruncated = false;
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Query API response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("ia::result".equals(name) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (rows.size() >= maxRows) {
+                            return new Decoded(rows, meta, TRUNCATED_BY_ROWS, fieldsTruncated, bytes - usedBytes);
+                        }
+                        long rowStart = parser.currentTokenLocation().getByteOffset();
+                        LinkedHashMap<String, Object> row = MAPPER.readValue(parser, ROW_TYPE);
+                        long rowBytes = parser.currentLocation().getByteOffset() - rowStart;
+                        // The first row is always kept so that paging by nextStart makes progress
+                        if (bytes + rowBytes > budget.maxBytes() && (!rows.isEmpty() || usedBytes > 0)) {
+                            return new Decoded(rows, meta, TRUNCATED_BY_BYTES, fieldsTruncated, bytes - usedBytes);
+                        }
+                        bytes += rowBytes;
+                        fieldsTruncated |= trimFields(row, budget.maxFieldsPerRow());
+                        rows.add(row);
+                    }
+                } else if ("ia::meta".equals(name) && value == JsonToken.START_OBJECT) {
+                    meta = MAPPER.readValue(parser, MetadataPages.class);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Decoded(rows, meta, null, fieldsTruncated, bytes - usedBytes);
+    }
+
+    /**
+     * Decodes a response body without building rows: each row is only tokenized, to validate it and to
+     * check its keys, and its bytes are copied as they are into a {@link RawRows}. A row is rewritten
+     * only when it has keys that were not requested or more than maxFieldsPerRow fields.
+     *
+     * @param body    Response body positioned at the top-level object
+     * @param budget  Effective budget
+     * @param maxRows Rows to keep; further rows mark the result as truncated
+     * @param fields  Requested fields, or null for the API default field set
+     */
+    static Decoded passthrough(InputStream body, ResultBudget budget, int maxRows, List<String> fields)
+            throws IOException {
+        Set<String> requested = fields != null ? Set.copyOf(fields) : null;
+        RecordingInputStream recorded = new RecordingInputStream(body);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        out.write('[');
+        int count = 0;
+        MetadataPages meta = null;
+        long bytes = 0;
+        boolean fieldsTruncated = false;
+        String truncatedBy = null;
+        try (JsonParser parser = MAPPER.getFactory().createParser(recorded)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Query API response is not a JSON object");
+            }
+            fields:
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("ia::result".equals(name) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (count >= maxRows) {
+                            truncatedBy = TRUNCATED_BY_ROWS;
+                            break fields;
+                        }
+                        long rowStart = parser.currentTokenLocation().getByteOffset();
+                        boolean rewrite = scanRow(parser, requested, budget.maxFieldsPerRow());
+                        long rowEnd = parser.currentTokenLocation().getByteOffset() + 1;
+                        long rowBytes = rowEnd - rowStart;
+                        // The first row is always kept so that paging by nextStart makes progress
+                        if (bytes + rowBytes > budget.maxBytes() && count > 0) {
+                            truncatedBy = TRUNCATED_BY_BYTES;
+                            break fields;
+                        }
+                        bytes += rowBytes;
+                        if (count > 0) {
+                            out.write(',');
+                        }
+                        byte[] row = recorded.copy(rowStart, rowEnd);
+                        if (rewrite) {
+                            fieldsTruncated |= rewriteRow(row, requested, budget.maxFieldsPerRow(), out);
+                        } else {
+                            out.write(row);
+                        }
+                        recorded.release(rowEnd);
+                        count++;
+                    }
+                } else if ("ia::meta".equals(name) && value == JsonToken.START_OBJECT) {
+                    meta = MAPPER.readValue(parser, MetadataPages.class);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        out.write(']');
+        return new Decoded(new RawRows(out.toByteArray(), count), meta, truncatedBy, fieldsTruncated, bytes);
+    }
+
+    /**
+     * Receives the rows of a streamed response body, one at a time.
+     */
+    interface RowSink {
+        /**
+         * @param json The row's JSON object, as returned by the API
+         * @return false to stop reading the body after this row
+         */
+        boolean row(byte[] json) throws IOException;
+    }
+
+    /**
+     * Rows handed to a {@link RowSink}.
+     *
+     * @param rows    Rows streamed
+     * @param meta    Response metadata, or null if it was not reached
+     * @param bytes   Bytes of the rows
+     * @param stopped Whether the sink stopped reading before the end of the body
+     */
+    record Streamed(int rows, MetadataPages meta, long bytes, boolean stopped) {}
+
+    /**
+     * Streams the rows of a response body to a sink without keeping them: each row is tokenized to find
+     * its end and its bytes are handed on as they are, so only one row is held at a time however large
+     * the page. No budget applies; the sink can stop reading instead.
+     *
+     * @param body Response body positioned at the top-level object
+     * @param sink Receives each row
+     */
+    static Streamed stream(InputStream body, RowSink sink) throws IOException {
+        RecordingInputStream recorded = new RecordingInputStream(body);
+        int count = 0;
+        long bytes = 0;
+        MetadataPages meta = null;
+        try (JsonParser parser = MAPPER.getFactory().createParser(recorded)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Query API response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("ia::result".equals(name) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        long rowStart = parser.currentTokenLocation().getByteOffset();
+                        parser.skipChildren();
+                        long rowEnd = parser.currentTokenLocation().getByteOffset() + 1;
+                        boolean more = sink.row(recorded.copy(rowStart, rowEnd));
+                        recorded.release(rowEnd);
+                        bytes += rowEnd - rowStart;
+                        count++;
+                        if (!more) {
+                            return new Streamed(count, meta, bytes, true);
+                        }
+                    }
+                } else if ("ia::meta".equals(name) && value == JsonToken.START_OBJECT) {
+                    meta = MAPPER.readValue(parser, MetadataPages.class);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Streamed(count, meta, bytes, false);
+    }
+
+    // Skips to the end of a row object; true if it has keys to drop
+    private static boolean scanRow(JsonParser parser, Set<String> requested, int maxFields) throws IOException {
+        boolean rewrite = false;
+        int fieldCount = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            fieldCount++;
+            rewrite |= fieldCount > maxFields || !keep(parser.currentName(), requested);
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Malformed row in Query API response");
+        }
+        return rewrite;
+    }
+
+    // Copies a row without unrequested keys and with at most maxFields fields; true if fields were cut by maxFields
+    private static boolean rewriteRow(byte[] row, Set<String> requested, int maxFields, OutputStream out)
+            throws IOException {
+        int written = 0;
+        boolean trimmed = false;
+        try (JsonParser parser = MAPPER.getFactory().createParser(row);
+                JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            parser.nextToken();
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (!keep(name, requested)) {
+                    parser.skipChildren();
+                } else if (written >= maxFields) {
+                    trimmed = true;
+                    parser.skipChildren();
+                } else {
+                    generator.writeFieldName(name);
+                    generator.copyCurrentStructure(parser);
+                    written++;
+                }
+            }
+            generator.writeEndObject();
+        }
+        return trimmed;
+    }
+
+    // A key is kept if it was requested, or is the parent object or a part of a requested field
+    private static boolean keep(String key, Set<String> requested) {
+        if (requested == null || requested.contains(key)) {
+            return true;
+        }
+        for (String field : requested) {
+            if (field.startsWith(key) && field.length() > key.length() && field.charAt(key.length()) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies a budget to rows that are already in memory (e.g. answered locally).
+     *
+     * @param rows    Candidate rows, at most one more than maxRows
+     * @param budget  Effective budget
+     * @param maxRows Rows to keep; further rows mark the result as truncated
+     */
+    static Decoded limit(List<Map<String, Object>> rows, ResultBudget budget, int maxRows) {
+        List<Map<String, Object>> kept = new ArrayList<>(Math.min(rows.size(), maxRows));
+        long bytes = 0;
+        boolean fieldsTruncated = false;
+        for (Map<String, Object> row : rows) {
+            if (kept.size() >= maxRows) {
+                return new Decoded(kept, null, TRUNCATED_BY_ROWS, fieldsTruncated, bytes);
+            }
+            long rowBytes = serializedSize(row);
+            if (bytes + rowBytes > budget.maxBytes() && !kept.isEmpty()) {
+                return new Decoded(kept, null, TRUNCATED_BY_BYTES, fieldsTruncated, bytes);
+            }
+            bytes += rowBytes;
+            Map<String, Object> copy = new LinkedHashMap<>(row);
+            fieldsTruncated |= trimFields(copy, budget.maxFieldsPerRow());
+            kept.add(copy);
+        }
+        return new Decoded(kept, null, null, fieldsTruncated, bytes);
+    }
+
+    private static boolean trimFields(Map<String, Object> row, int maxFields) {
+        if (row.size() <= maxFields) {
+            return false;
+        }
+        Iterator<Map.Entry<String, Object>> fields = row.entrySet().iterator();
+        for (int i = 0; i < maxFields; i++) {
+            fields.next();
+        }
+        while (fields.hasNext()) {
+            fields.next();
+            fields.remove();
+        }
+        return true;
+    }
+
+    private static long serializedSize(Map<String, Object> row) {
+        try {
+            return MAPPER.writeValueAsBytes(row).length;
+        } catch (JsonProcessingException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Keeps the bytes read through it from a given offset on, so that the raw bytes of a token range
+     * can be copied once the parser has moved past it.
+     */
+    private static final class RecordingInputStream extends FilterInputStream {
+        private byte[] buffer = new byte[16384];
+        private long base; // Stream offset of buffer[0]
+        private int length;
+        private long released;
+
+        RecordingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                append(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) throws IOException {
+            int n = super.read(bytes, offset, count);
+            if (n > 0) {
+                append(bytes, offset, n);
+            }
+            return n;
+        }
+
+        byte[] copy(long from, long to) {
+            return Arrays.copyOfRange(buffer, (int) (from - base), (int) (to - base));
+        }
+
+        // Bytes before the offset are no longer needed; they are dropped when the buffer next fills up
+        void release(long offset) {
+            released = Math.max(released, offset);
+        }
+
+        private void append(byte[] bytes, int offset, int count) {
+            if (length + count > buffer.length && released > base) {
+                int drop = (int) (released - base);
+                System.arraycopy(buffer, drop, buffer, 0, length - drop);
+                length -= drop;
+                base = released;
+            }
+            if (length + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+            }
+            System.arraycopy(bytes, offset, buffer, length, count);
+            length += count;
+        }
+    }
+}
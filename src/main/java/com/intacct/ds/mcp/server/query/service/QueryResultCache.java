@@ -0,0 +1,190 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.filter.CompiledFilter;
+import com.intacct.ds.mcp.server.query.filter.FilterCompiler;
+import com.intacct.ds.mcp.server.query.filter.LocalQuery;
+import com.intacct.ds.mcp.server.query.filter.RowValues;
+import com.intacct.ds.mcp.server.query.service.QueryService.CoreQueryRequest;
+import com.intacct.ds.mcp.server.query.service.QueryService.FilterParameters;
+import com.intacct.ds.mcp.server.query.service.QueryService.MetadataPages;
+
+/**
+ * Short-lived cache of complete query results.
+ * A follow-up query whose filter implies the filter of a cached result, and whose fields are all
+ * present in that result, is answered in memory by {@link LocalQuery} instead of calling the API
+ * (e.g. "of those vendors, which are in CA").
+ */
+@Component
+public class QueryResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultCache.class);
+
+    private final boolean enabled;
+    private final int maxRowsPerEntry;
+    private final Cache<CoreQueryRequest, Entry> cache;
+
+    /**
+     * A complete result for one query shape.
+     *
+     * @param object  Queried object
+     * @param fields  Fields present in the rows, or null when the API default field set was returned
+     * @param filter  Compiled filter the rows satisfy
+     * @param filterParameters Filter parameters the rows were selected with
+     * @param rows    Every row matching the filter; passthrough results stay raw until a follow-up reads them
+     */
+    private record Entry(
+            String object,
+            Set<String> fields,
+            CompiledFilter filter,
+            FilterParameters filterParameters,
+            List<Map<String, Object>> rows
+    ) {}
+
+    public QueryResultCache(McpServerProperties properties) {
+        McpServerProperties.QueryCacheConfig config = properties != null && properties.getQueryCache() != null
+                ? properties.getQueryCache()
+                : new McpServerProperties.QueryCacheConfig();
+        this.enabled = config.isEnabled();
+        this.maxRowsPerEntry = config.getMaxRowsPerEntry();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(Duration.ofSeconds(config.getTtlSeconds()))
+                .build();
+    }
+
+    /**
+     * Stores a query result if it is complete, i.e. it holds every row matching the query's filter.
+     *
+     * @param request The request that produced the rows
+     * @param rows    The returned rows
+     * @param meta    The response metadata, used to check completeness
+     */
+    public void put(CoreQueryRequest request, List<Map<String, Object>> rows, MetadataPages meta) {
+        if (!enabled || rows == null || rows.size() > maxRowsPerEntry) {
+            return;
+        }
+        boolean firstPage = request.start() == null || request.start() <= 1;
+        boolean complete = firstPage && meta != null && meta.totalCount() != null && rows.size() >= meta.totalCount();
+        if (!complete) {
+            return;
+        }
+        // The stored filter is only compared with later ones, never evaluated, so field types do not matter
+        Optional<CompiledFilter> filter = FilterCompiler.compile(request.filters(), request.filterExpression(),
+                caseSensitive(request.filterParameters()), Set.of());
+        if (filter.isEmpty()) {
+            return;
+        }
+        Set<String> fields = request.fields() != null ? Set.copyOf(request.fields()) : null;
+        cache.put(cacheKey(request), new Entry(request.object(), fields, filter.get(), request.filterParameters(),
+                rows instanceof RawRows ? rows : List.copyOf(rows)));
+        logger.debug("Cached complete result of {} rows for object '{}'", rows.size(), request.object());
+    }
+
+    /**
+     * Answers a query from a cached superset result.
+     *
+     * @param request         The query to answer
+     * @param numericFields   Fields the object's model types as numbers (see ObjectModel.numericFields)
+     * @param defaultPageSize Page size the API applies when the request has no size
+     * @return The page the API would return, or null if no cached result covers the query
+     */
+    public LocalQuery.Page find(CoreQueryRequest request, Set<String> numericFields, int defaultPageSize) {
+        if (!enabled || cache.estimatedSize() == 0) {
+            return null;
+        }
+        boolean caseSensitive = caseSensitive(request.filterParameters());
+        Optional<CompiledFilter> compiled = FilterCompiler.compile(request.filters(), request.filterExpression(),
+                caseSensitive, numericFields);
+        if (compiled.isEmpty()) {
+            return null;
+        }
+        CompiledFilter filter = compiled.get();
+        Set<String> required = requiredFields(request, filter);
+
+        Entry best = null;
+        for (Entry entry : cache.asMap().values()) {
+            if (covers(entry, request, filter, required) && (best == null || entry.rows().size() < best.rows().size())) {
+                best = entry;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        int size = request.size() != null ? request.size() : defaultPageSize;
+        LocalQuery.Page page = LocalQuery.page(best.rows(), filter, request.orderBy(), caseSensitive,
+                numericFields, request.start(), size, request.fields());
+        logger.debug("Answered query on '{}' from a cached result of {} rows", request.object(), best.rows().size());
+        return page;
+    }
+
+    /**
+     * Checks whether any result of an object is cached, before the caller loads what {@link #find} needs.
+     */
+    public boolean holds(String object) {
+        return enabled && cache.asMap().values().stream().anyMatch(entry -> entry.object().equals(object));
+    }
+
+    /**
+     * Drops every cached result for an object.
+     */
+    public void invalidate(String object) {
+        cache.asMap().values().removeIf(entry -> entry.object().equals(object));
+    }
+
+    private boolean covers(Entry entry, CoreQueryRequest request, CompiledFilter filter, Set<String> required) {
+        if (!entry.object().equals(request.object())
+                || !Objects.equals(entry.filterParameters(), request.filterParameters())) {
+            return false;
+        }
+        if (entry.fields() == null) {
+            // Default field set: only an identical filter on the same default fields is known to be covered
+            return request.fields() == null && filter.implies(entry.filter()) && entry.filter().implies(filter)
+                    && (entry.rows().isEmpty() || orderByFields(request).stream()
+                            .allMatch(field -> RowValues.has(entry.rows().get(0), field)));
+        }
+        return required != null && entry.fields().containsAll(required) && filter.implies(entry.filter());
+    }
+
+    private static Set<String> requiredFields(CoreQueryRequest request, CompiledFilter filter) {
+        if (request.fields() == null) {
+            return null;
+        }
+        Set<String> required = new HashSet<>(request.fields());
+        required.addAll(filter.fields());
+        required.addAll(orderByFields(request));
+        return required;
+    }
+
+    private static Set<String> orderByFields(CoreQueryRequest request) {
+        Set<String> fields = new HashSet<>();
+        if (request.orderBy() != null) {
+            request.orderBy().stream().filter(Objects::nonNull).forEach(clause -> fields.addAll(clause.keySet()));
+        }
+        return fields;
+    }
+
+    private static CoreQueryRequest cacheKey(CoreQueryRequest request) {
+        // Paging and ordering do not change which rows a complete result holds
+        return new CoreQueryRequest(request.object(), request.fields(), request.filters(), request.filterExpression(),
+                request.filterParameters(), null, null, null);
+    }
+
+    static boolean caseSensitive(FilterParameters filterParameters) {
+        return filterParameters == null || !Boolean.FALSE.equals(filterParameters.caseSensitiveComparison());
+    }
+}
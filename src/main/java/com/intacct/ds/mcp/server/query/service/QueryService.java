@@ -1,11 +1,33 @@
 package com.intacct.ds.mcp.server.query.service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,10 +36,24 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.filter.LocalQuery;
+import com.intacct.ds.mcp.server.query.filter.RowValues;
+import com.intacct.ds.mcp.server.query.http.CompressionInterceptor;
+import com.intacct.ds.mcp.server.query.service.QueryResponseDecoder.Decoded;
+import com.intacct.ds.mcp.server.query.service.QueryResponseDecoder.Streamed;
+import com.intacct.ds.mcp.server.query.transport.ProgressNotifier;
+import com.intacct.ds.mcp.server.query.transport.ToolCallCancellation;
+
+import jakarta.annotation.PreDestroy;
 
 /**
  * Service to interact with the Intacct Core Query API.
@@ -28,14 +64,73 @@ public class QueryService {
 
     private static final Logger logger = LoggerFactory.getLogger(QueryService.class);
 
+    // Page size the Query API applies when 'size' is omitted
+    static final int DEFAULT_PAGE_SIZE = 100;
+    private static final DateTimeFormatter EXPORT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private final RestClient restClient;
     private final AuthService authService;
-    private String currentAccessToken; // Store the token used by this instance's RestClient
+    private final QueryResultCache resultCache; // May be null when local answering is not available
+    private final ReplicaService replicaService; // May be null when local replicas are not available
+    private final ModelService modelService; // May be null when object names are not resolved against the catalog
+    private final McpServerProperties.ResultBudgetConfig budgetConfig;
+    private final McpServerProperties.ExportConfig exportConfig;
+    private final McpServerProperties.JoinConfig joinConfig;
+    private final McpServerProperties.LookupConfig lookupConfig;
+    private final ExecutorService lookupPool; // Runs the chunks of batched lookups in parallel
+    private final ProgressNotifier progressNotifier; // May be null when progress notifications are not available
+    private final int progressPageSize;
+    private final PageSizeTuner pageSizeTuner; // May be null when page sizes are not tuned
+    private final RecordCache recordCache; // May be null when looked up records are not cached
+    private final DiskCache diskCache; // May be null when responses are not cached on disk
+    private final boolean passthrough;
+    private String currentAccessToken; // Token obtained at startup; null if this instance could not authenticate
     private final String baseUrl; // Store the base URL for this instance
 
-    @Autowired
+    // Both constructors are candidates: Spring uses the one with the most resolvable dependencies,
+    // so optional collaborators are simply left out in narrow contexts (e.g. tests)
+    @Autowired(required = false)
     public QueryService(AuthService authService) {
+        this(authService, null, null, null, null, null, null, null, null, null);
+    }
+
+    @Autowired(required = false)
+    public QueryService(AuthService authService, McpServerProperties properties, QueryResultCache resultCache,
+            ReplicaService replicaService, ProgressNotifier progressNotifier,
+            CompressionInterceptor compressionInterceptor, ModelService modelService, PageSizeTuner pageSizeTuner,
+            RecordCache recordCache, DiskCache diskCache) {
         this.authService = authService;
+        this.pageSizeTuner = pageSizeTuner;
+        this.recordCache = recordCache;
+        this.diskCache = diskCache != null && diskCache.isEnabled() ? diskCache : null;
+        this.modelService = modelService;
+        this.resultCache = resultCache;
+        this.replicaService = replicaService;
+        this.progressNotifier = progressNotifier;
+        this.budgetConfig = properties != null && properties.getResultBudget() != null
+                ? properties.getResultBudget()
+                : new McpServerProperties.ResultBudgetConfig();
+        this.exportConfig = properties != null && properties.getExport() != null
+                ? properties.getExport()
+                : new McpServerProperties.ExportConfig();
+        this.joinConfig = properties != null && properties.getJoin() != null
+                ? properties.getJoin()
+                : new McpServerProperties.JoinConfig();
+        this.lookupConfig = properties != null && properties.getLookup() != null
+                ? properties.getLookup()
+                : new McpServerProperties.LookupConfig();
+        AtomicInteger lookupThreads = new AtomicInteger();
+        this.lookupPool = Executors.newFixedThreadPool(Math.max(1, this.lookupConfig.getParallelism()), task -> {
+            Thread thread = new Thread(task, "mcp-query-lookup-" + lookupThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.passthrough = properties != null && properties.getQueryPassthrough() != null
+                && properties.getQueryPassthrough().isEnabled();
+        this.progressPageSize = properties != null && properties.getProgress() != null
+                ? Math.max(1, properties.getProgress().getPageSize())
+                : new McpServerProperties.ProgressConfig().getPageSize();
         this.currentAccessToken = this.authService.getAccessToken();
 
         // Get base URL from AuthService's baseUrl (which already handles properties priority)
@@ -48,13 +143,18 @@ public class QueryService {
             return;
         }
 
-        // Configure RestClient with base URL and Authorization header
+        // Configure RestClient with base URL; each request is authorized with the current access token
         this.restClient = RestClient.builder()
                 .baseUrl(this.baseUrl)
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + this.currentAccessToken)
                 .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
                 .defaultHeader(HttpHeaders.USER_AGENT, "MCP-Query-Server/1.0 (Java)")
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .requestInterceptors(interceptors -> {
+                    interceptors.add(AuthService.bearerTokenInterceptor(authService));
+                    if (compressionInterceptor != null) {
+                        interceptors.add(compressionInterceptor);
+                    }
+                })
                 .build();
     }
 
@@ -84,6 +184,175 @@ public class QueryService {
             Boolean includePrivate
     ) {}
 
+    /**
+     * Per-call limits on the size of a query result. Omitted limits default to the server-wide budget,
+     * and a per-call limit can only tighten the server-wide one.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ResultBudget(
+            Integer maxRows,
+            Long maxBytes,
+            Integer maxFieldsPerRow
+    ) {
+        static ResultBudget effective(ResultBudget perCall, McpServerProperties.ResultBudgetConfig server) {
+            if (perCall == null) {
+                return new ResultBudget(server.getMaxRows(), server.getMaxBytes(), server.getMaxFieldsPerRow());
+            }
+            return new ResultBudget(
+                    perCall.maxRows() != null ? Math.min(perCall.maxRows(), server.getMaxRows()) : server.getMaxRows(),
+                    perCall.maxBytes() != null ? Math.min(perCall.maxBytes(), server.getMaxBytes()) : server.getMaxBytes(),
+                    perCall.maxFieldsPerRow() != null
+                            ? Math.min(perCall.maxFieldsPerRow(), server.getMaxFieldsPerRow())
+                            : server.getMaxFieldsPerRow());
+        }
+    }
+
+    /**
+     * Result of executeQuery: the rows plus what is needed to fetch the rest.
+     *
+     * @param rows            Result rows
+     * @param totalCount      Total number of matching records, when known
+     * @param truncated       Whether a result budget cut the rows short
+     * @param truncatedBy     The budget that was exhausted ("maxRows" or "maxBytes")
+     * @param fieldsTruncated Present when fields were dropped from rows by maxFieldsPerRow
+     * @param nextStart       'start' value for the next page, or null if there are no more rows
+     * @param source          Where the rows came from: "api", "replica" or "cache"
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record QueryResult(
+            @JsonSerialize(using = RawRows.Serializer.class) List<Map<String, Object>> rows,
+            Integer totalCount,
+            boolean truncated,
+            String truncatedBy,
+            Boolean fieldsTruncated,
+            Integer nextStart,
+            String source
+    ) {
+        static QueryResult of(Decoded decoded, int firstRow, String source) {
+            MetadataPages meta = decoded.meta();
+            Integer nextStart = decoded.truncated() ? Integer.valueOf(firstRow + decoded.rows().size())
+                    : meta != null ? meta.next() : null;
+            return new QueryResult(decoded.rows(), meta != null ? meta.totalCount() : null, decoded.truncated(),
+                    decoded.truncatedBy(), decoded.fieldsTruncated() ? Boolean.TRUE : null, nextStart, source);
+        }
+    }
+
+    /**
+     * Result of estimateQuery: how big a query result is, measured before any rows are fetched.
+     *
+     * @param object               Object queried (as resolved)
+     * @param totalCount           Matching records, when the API reported it
+     * @param estimatedBytesPerRow Estimated JSON bytes per row for the requested fields
+     * @param estimatedTotalBytes  Estimated bytes of the whole result
+     * @param basis                What the row size is based on: "model" or "default" (no model available)
+     * @param unknownFields        Requested fields the object model does not define
+     * @param plan                 How to fetch the result within the result budget
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record QueryEstimate(
+            String object,
+            Integer totalCount,
+            int estimatedBytesPerRow,
+            Long estimatedTotalBytes,
+            String basis,
+            List<String> unknownFields,
+            PagePlan plan
+    ) {}
+
+    /**
+     * Recommended way to fetch a result.
+     *
+     * @param pageSize       'size' to use per executeQuery call
+     * @param pages          Calls needed for the whole result, when the total is known
+     * @param bytesPerPage   Estimated bytes per page
+     * @param recommendation What to do, in words
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record PagePlan(
+            int pageSize,
+            Integer pages,
+            long bytesPerPage,
+            String recommendation
+    ) {}
+
+    /**
+     * Result of exportQuery: where the rows were written. The rows themselves are not returned.
+     *
+     * @param path     Absolute path of the file written
+     * @param format   File format: "ndjson" or "csv"
+     * @param rows     Rows written
+     * @param bytes    Size of the file
+     * @param sha256   SHA-256 checksum of the file, hex encoded
+     * @param pages    Query API requests made
+     * @param complete Whether every matching row was written; false when the export stopped at the row limit
+     */
+    public record ExportResult(
+            String path,
+            String format,
+            long rows,
+            long bytes,
+            String sha256,
+            int pages,
+            boolean complete
+    ) {}
+
+    /**
+     * One side of a join: a query on one object.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record JoinSide(
+            String object,
+            List<String> fields,
+            List<Map<String, Map<String, Object>>> filters,
+            String filterExpression,
+            FilterParameters filterParameters,
+            List<Map<String, String>> orderBy
+    ) {}
+
+    /**
+     * Result of joinQuery: the joined projection plus what is needed to continue.
+     *
+     * @param rows            Joined rows: fact fields, then dimension fields as "alias.field"
+     * @param truncated       Whether a result budget cut the rows short
+     * @param truncatedBy     The budget that was exhausted ("maxRows" or "maxBytes")
+     * @param fieldsTruncated Present when fields were dropped from rows by maxFieldsPerRow
+     * @param nextStart       'start' of the fact side to continue from, or null if every fact row was joined
+     * @param nextMatch       Present when the fact row at nextStart has more matches than fit in one result:
+     *                        'matchStart' of its first match not returned
+     * @param factRows        Fact rows read
+     * @param dimensionRows   Dimension rows read into the hash table
+     * @param unmatched       Fact rows read without a matching dimension row
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record JoinResult(
+            List<Map<String, Object>> rows,
+            boolean truncated,
+            String truncatedBy,
+            Boolean fieldsTruncated,
+            Integer nextStart,
+            Integer nextMatch,
+            int factRows,
+            int dimensionRows,
+            int unmatched
+    ) {}
+
+    /**
+     * Result of lookupRecords.
+     *
+     * @param rows     The records found, in the order they were asked for
+     * @param notFound Keys or ids with no record
+     * @param cached   Records served from the record cache
+     * @param fetched  Records fetched from the API
+     */
+    public record LookupResult(
+            List<Map<String, Object>> rows,
+            List<String> notFound,
+            int cached,
+            int fetched
+    ) {}
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record QueryApiResponse(
             @JsonProperty("ia::result") List<Map<String, Object>> result, // Results are dynamic maps
@@ -179,7 +448,15 @@ public class QueryService {
      * @param orderBy          Sort order for results (e.g., [{"id": "asc"}]). Optional.
      * @param start            First record to include (for pagination). Optional.
      * @param size             Number of records to include (page size). Optional.
-     * @return A list of maps, where each map represents a result object with its requested fields, or null on error.
+     * @param budget           Per-call result budget (maxRows, maxBytes, maxFieldsPerRow). Optional; capped by the
+     *                         server-wide budget. Once a budget is hit the response body is no longer read.
+     * @param expand           Fields of referenced records to inline, by relationship of the object (e.g.
+     *                         {"vendor": ["name", "term.id"]}). The distinct references in the result are looked up
+     *                         with batched $in queries and their fields added to each row as "vendor.name". Optional.
+     * @param toolContext      MCP tool call context. When the client sent a progress token and more rows than
+     *                         one progress page are requested, rows are fetched page by page with a progress
+     *                         notification (and optionally a partial result) after each page. May be null.
+     * @return The result rows with truncation and paging information, or null on error.
      */
     @Tool(description = "Query data from a Sage Intacct object using filters, field selection, ordering, and pagination.\n\n" +
             "How to use filters:\n" +
@@ -270,8 +547,17 @@ public class QueryService {
             "    'filterExpression': '(1 or 2) and 3',\n" +
             "    'orderBy': [ { 'id': 'asc' } ],\n" +
             "    'size': 20\n" +
-            "  }\n" )
-    public List<Map<String, Object>> executeQuery(
+            "  }\n" +
+            "\n" +
+            "Result size:\n" +
+            "- Results are limited by a row, byte and fields-per-row budget. A smaller per-call 'budget' can be passed.\n" +
+            "- When 'truncated' is true, call again with 'start' set to 'nextStart' to continue.\n" +
+            "- Large results report progress when the request carries a progressToken.\n" +
+            "\n" +
+            "Related records:\n" +
+            "- Do NOT query referenced records one by one. Pass 'expand' with the fields wanted per relationship, e.g. {\"vendor\": [\"name\", \"term.id\"]}:\n" +
+            "  the referenced records are fetched in a few batched queries and their fields added to each row as 'vendor.name'.\n" )
+    public QueryResult executeQuery(
             @ToolParam(description = "Object type to query (e.g., 'accounts-payable/vendor'). Required.") String object,
             @ToolParam(description = "List of fields to include (e.g., [\"id\", \"name\"]).") List<String> fields,
             @ToolParam(description = "List of filter conditions. Required if filterExpression is used. Each is a Map: {\"operator\": {\"field\": \"value\"}}. Ex: `[{\"$eq\": {\"status\": \"active\"}}]`", required = false) List<Map<String, Map<String, Object>>> filters,
@@ -279,26 +565,21 @@ public class QueryService {
             @ToolParam(description = "Additional filter options (asOfDate, caseSensitive, etc.).", required = false) FilterParameters filterParameters,
             @ToolParam(description = "Sort order (e.g., [{\"id\": \"asc\"}]).", required = false) List<Map<String, String>> orderBy,
             @ToolParam(description = "Starting record number (for pagination).", required = false) Integer start,
-            @ToolParam(description = "Page size (number of records to return).", required = false) Integer size
+            @ToolParam(description = "Page size (number of records to return).", required = false) Integer size,
+            @ToolParam(description = "Per-call result budget: {\"maxRows\": 200, \"maxBytes\": 100000, \"maxFieldsPerRow\": 20}. Each limit is optional and capped by the server-wide budget.", required = false) ResultBudget budget,
+            @ToolParam(description = "Fields of referenced records to inline, by relationship (e.g., {\"vendor\": [\"name\", \"term.id\"]}). Added to each row as 'vendor.name'.", required = false) Map<String, List<String>> expand,
+            ToolContext toolContext
     ) {
-        Objects.requireNonNull(object, "Query object cannot be null");
-
-        // Fix common mistake: remove "objects/" prefix if present
-        if (object.startsWith("objects/")) {
-            object = object.substring("objects/".length());
-            logger.debug("Removed 'objects/' prefix from object name. Using: {}", object);
-        }
-
-        // Validate that filterExpression is only used when filters are provided
-        if (filterExpression != null && !filterExpression.trim().isEmpty()
-                && (filters == null || filters.isEmpty())) {
-            throw new IllegalArgumentException(
-                    "The 'filterExpression' parameter requires at least one entry in 'filters'.");
-        }
-
-        // Normalize blank filterExpression to null so the API can apply its default behaviour
-        if (filterExpression != null && filterExpression.trim().isEmpty()) {
-            filterExpression = null;
+        object = resolveObject(object);
+        filterExpression = filterExpression(filters, filterExpression);
+        Map<String, ModelService.RefDefinition> expansions = expansions(object, expand);
+        if (!expansions.isEmpty()) {
+            // The reference keys are needed to look the referenced records up
+            List<String> requested = fields != null && !fields.isEmpty() ? fields : QueryEstimator.DEFAULT_FIELDS;
+            for (String relationship : expansions.keySet()) {
+                requested = withField(requested, relationship + ".key");
+            }
+            fields = requested;
         }
 
         if (this.currentAccessToken == null) {
@@ -306,6 +587,14 @@ public class QueryService {
             return null;
         }
 
+        ResultBudget limits = ResultBudget.effective(budget, this.budgetConfig);
+        int requestedSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        int maxRows = Math.min(requestedSize, limits.maxRows());
+        boolean capped = requestedSize > limits.maxRows();
+        // When the budget caps the page, ask for one extra row so that a cut-off result is told apart from an exact fit
+        Integer pageSize = capped ? Integer.valueOf(limits.maxRows() + 1) : size;
+        int firstRow = start != null ? start : 1;
+
         CoreQueryRequest requestBody = new CoreQueryRequest(
                 object,
                 fields,
@@ -314,37 +603,940 @@ public class QueryService {
                 filterParameters,
                 orderBy,
                 start,
-                size
+                pageSize
         );
 
+        if (this.replicaService != null) {
+            LocalQuery.Page replicaPage = this.replicaService.find(requestBody, DEFAULT_PAGE_SIZE);
+            if (replicaPage != null) {
+                logger.info("Answered query for object '{}' from the local replica, {} results.", object, replicaPage.rows().size());
+                return expand(localResult(replicaPage, limits, maxRows, firstRow, "replica"), object, expand, expansions);
+            }
+        }
+
+        // Range filters and ordering compare by the model's field types, so without the model the API answers
+        Set<String> numericFields = this.resultCache != null && this.resultCache.holds(object)
+                ? numericFields(object) : null;
+        if (numericFields != null) {
+            LocalQuery.Page cachedPage = this.resultCache.find(requestBody, numericFields, DEFAULT_PAGE_SIZE);
+            if (cachedPage != null) {
+                logger.info("Answered query for object '{}' locally from a cached result, {} results.", object, cachedPage.rows().size());
+                return expand(localResult(cachedPage, limits, maxRows, firstRow, "cache"), object, expand, expansions);
+            }
+        }
+
         logger.info("Executing query for object: {}", object);
         logger.debug("Query Request Body: {}", requestBody); // Be cautious logging request bodies if they contain sensitive data
         logger.debug("Using base URL: {}", this.baseUrl);
         logger.debug("Full request URL: {}/services/core/query", this.baseUrl);
 
+        ProgressNotifier.Progress progress = this.progressNotifier != null ? this.progressNotifier.start(toolContext) : null;
+
         try {
-            QueryApiResponse response = restClient.post()
-                    .uri("/services/core/query")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(requestBody)
-                    .retrieve()
-                    .body(QueryApiResponse.class);
-
-            if (response != null && response.result() != null) {
-                logger.info("Successfully executed query for object '{}', received {} results.", object, response.result().size());
-                logger.debug("Query metadata: {}", response.meta());
-                return response.result();
-            } else {
-                logger.warn("Received null or empty result list for query on object: {}", object);
-                return List.of(); // Return empty list
-            }
-        } catch (RestClientException e) {
+            Decoded decoded = progress != null && maxRows > pageSize(requestBody)
+                    ? fetchPages(requestBody, limits, maxRows, capped, firstRow, progress)
+                    : fetch(requestBody, limits, maxRows, 0, this.passthrough && expansions.isEmpty());
+
+            logger.info("Successfully executed query for object '{}', received {} results.", object, decoded.rows().size());
+            logger.debug("Query metadata: {}", decoded.meta());
+            if (decoded.truncated()) {
+                logger.info("Query result for object '{}' truncated by {}", object, decoded.truncatedBy());
+            } else if (this.resultCache != null && !decoded.fieldsTruncated()) {
+                this.resultCache.put(requestBody, decoded.rows(), decoded.meta());
+            }
+            return expand(QueryResult.of(decoded, firstRow, "api"), object, expand, expansions);
+        } catch (RestClientException | CancellationException e) {
+            if (ToolCallCancellation.current().isCancelled()) {
+                logger.info("Query for object '{}' was cancelled by the client", object);
+                return null;
+            }
             logger.error("Error executing query for object '{}': {}", object, e.getMessage(), e);
             // Consider parsing the error response body for more details if possible
             return null;
         }
     }
 
+    /**
+     * Resolves the relationships named in an 'expand' option against the object's model.
+     *
+     * @return The references by relationship name; empty without expansions
+     */
+    private Map<String, ModelService.RefDefinition> expansions(String object, Map<String, List<String>> expand) {
+        if (expand == null || expand.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, ModelService.RefDefinition> refs = new LinkedHashMap<>();
+        expand.forEach((relationship, fields) -> {
+            if (fields == null || fields.isEmpty()) {
+                throw new IllegalArgumentException("'expand' needs the fields to inline for relationship '"
+                        + relationship + "', e.g. {\"" + relationship + "\": [\"name\"]}.");
+            }
+            refs.put(relationship, reference(object, relationship));
+        });
+        return refs;
+    }
+
+    /**
+     * Inlines fields of referenced records into the rows of a result. The distinct reference keys of each
+     * relationship are looked up with batched $in queries; rows whose reference is empty or not found get nulls.
+     */
+    private QueryResult expand(QueryResult result, String object, Map<String, List<String>> expand,
+            Map<String, ModelService.RefDefinition> expansions) {
+        if (expansions.isEmpty() || result.rows().isEmpty()) {
+            return result;
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(result.rows().size());
+        for (Map<String, Object> row : result.rows()) {
+            rows.add(new LinkedHashMap<>(row));
+        }
+        for (Map.Entry<String, ModelService.RefDefinition> expansion : expansions.entrySet()) {
+            String relationship = expansion.getKey();
+            List<String> fields = expand.get(relationship);
+            Set<String> keys = new LinkedHashSet<>();
+            for (Map<String, Object> row : rows) {
+                String key = HashJoin.key(RowValues.get(row, relationship + ".key"));
+                if (key != null) {
+                    keys.add(key);
+                }
+            }
+            Map<String, Map<String, Object>> records = lookup(expansion.getValue().apiObject(), "key", keys, fields)
+                    .records();
+            for (Map<String, Object> row : rows) {
+                Map<String, Object> record = records.get(HashJoin.key(RowValues.get(row, relationship + ".key")));
+                for (String field : fields) {
+                    row.put(relationship + "." + field, record != null ? RowValues.get(record, field) : null);
+                }
+            }
+            logger.info("Expanded '{}' of object '{}': {} records for {} rows", relationship, object, records.size(),
+                    rows.size());
+        }
+        return new QueryResult(rows, result.totalCount(), result.truncated(), result.truncatedBy(),
+                result.fieldsTruncated(), result.nextStart(), result.source());
+    }
+
+    /**
+     * Records found by lookup(), and how many of them came from the record cache.
+     */
+    private record Lookup(Map<String, Map<String, Object>> records, int cached) {}
+
+    /**
+     * Looks up records by key or id. Records in the record cache are served from it; only the others are
+     * fetched, and the fetched records are added to the cache.
+     *
+     * @param object Object to query
+     * @param field  Field the records are looked up by: 'key' or 'id'
+     * @param values Distinct values of that field
+     * @param fields Fields to return
+     * @return The records found, by value
+     */
+    private Lookup lookup(String object, String field, Collection<String> values, List<String> fields) {
+        if (values.size() > this.lookupConfig.getMaxKeys()) {
+            throw new IllegalArgumentException("Cannot look up " + values.size() + " '" + object
+                    + "' records at once (limit " + this.lookupConfig.getMaxKeys() + "); request fewer records.");
+        }
+        // The key is always fetched so that records can be cached by it
+        List<String> requested = withField(withField(fields, "key"), field);
+        Map<String, Map<String, Object>> cached = this.recordCache != null
+                ? this.recordCache.get(object, field, values, requested)
+                : Map.of();
+        List<String> missing = values.stream().filter(value -> !cached.containsKey(value)).toList();
+        Map<String, Map<String, Object>> records = new LinkedHashMap<>(cached);
+        if (!missing.isEmpty()) {
+            Map<String, Map<String, Object>> fetched = fetchByKeys(object, field, missing, requested);
+            if (this.recordCache != null) {
+                this.recordCache.put(object, requested, fetched.values());
+            }
+            records.putAll(fetched);
+        }
+        if (!cached.isEmpty()) {
+            logger.debug("Served {} of {} '{}' records from the record cache", cached.size(), values.size(), object);
+        }
+        return new Lookup(records, cached.size());
+    }
+
+    /**
+     * Fetches records by key or id with $in queries of up to chunkSize values. With more than one chunk the
+     * queries run in parallel on the lookup pool; cancelling the tool call cancels them.
+     *
+     * @param object Object to query
+     * @param field  Field to match: 'key' or 'id'
+     * @param values Values of that field
+     * @param fields Fields to fetch, including the field matched
+     * @return The records found, by value
+     */
+    private Map<String, Map<String, Object>> fetchByKeys(String object, String field, Collection<String> values,
+            List<String> fields) {
+        int chunkSize = Math.max(1, this.lookupConfig.getChunkSize());
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> all = new ArrayList<>(values);
+        for (int i = 0; i < all.size(); i += chunkSize) {
+            chunks.add(all.subList(i, Math.min(all.size(), i + chunkSize)));
+        }
+
+        Map<String, Map<String, Object>> records = new LinkedHashMap<>();
+        if (chunks.size() == 1) {
+            collect(fetchChunk(object, field, chunks.get(0), fields), field, records);
+            return records;
+        }
+        List<Future<Decoded>> futures = new ArrayList<>();
+        for (List<String> chunk : chunks) {
+            futures.add(this.lookupPool.submit(() -> fetchChunk(object, field, chunk, fields)));
+        }
+        Runnable deregister = ToolCallCancellation.current().onCancel(() -> futures.forEach(f -> f.cancel(true)));
+        try {
+            for (Future<Decoded> future : futures) {
+                collect(future.get(), field, records);
+            }
+            return records;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while looking up '" + object + "' records");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            deregister.run();
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private Decoded fetchChunk(String object, String field, List<String> values, List<String> fields) {
+        CoreQueryRequest request = new CoreQueryRequest(object, fields, List.of(Map.of("$in", Map.of(field, values))),
+                null, null, null, 1, values.size());
+        return fetch(request, new ResultBudget(values.size(), Long.MAX_VALUE, Integer.MAX_VALUE), values.size(), 0,
+                false);
+    }
+
+    private static void collect(Decoded decoded, String field, Map<String, Map<String, Object>> records) {
+        for (Map<String, Object> record : decoded.rows()) {
+            String key = HashJoin.key(RowValues.get(record, field));
+            if (key != null) {
+                records.put(key, record);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.lookupPool.shutdownNow();
+    }
+
+    /**
+     * Estimates the size of a query result without fetching it: the query is sent with size 1 and only the
+     * 'key' field to learn the total count, the size of a row is estimated from the object model, and a page
+     * plan is derived from the server-wide result budget.
+     *
+     * @param object           Object type to query. Required.
+     * @param fields           Fields that would be requested. Optional; the API defaults when omitted.
+     * @param filters          Filter conditions, as for executeQuery. Optional.
+     * @param filterExpression Combination of the filters, as for executeQuery. Optional.
+     * @param filterParameters Additional filter options, as for executeQuery. Optional.
+     * @return The estimate, or null on error.
+     */
+    @Tool(description = "Estimate how big a query result is before fetching it. Runs the query with size 1 and only the 'key' field, "
+            + "and returns totalCount, the estimated bytes per row (from the object model) and a recommended page plan within "
+            + "the server's result budget. Use it before executeQuery when a result may be large, to decide whether to narrow "
+            + "the filters, request fewer fields, aggregate, or page. Takes the same object, fields and filters as executeQuery.")
+    public QueryEstimate estimateQuery(
+            @ToolParam(description = "Object type to query (e.g., 'accounts-payable/vendor'). Required.") String object,
+            @ToolParam(description = "Fields the query would request (e.g., [\"id\", \"name\"]).", required = false) List<String> fields,
+            @ToolParam(description = "Filter conditions, as for executeQuery. Ex: `[{\"$eq\": {\"status\": \"active\"}}]`", required = false) List<Map<String, Map<String, Object>>> filters,
+            @ToolParam(description = "Combines filters by 1-based index (e.g., \"1 and 2\"), as for executeQuery.", required = false) String filterExpression,
+            @ToolParam(description = "Additional filter options (asOfDate, caseSensitive, etc.).", required = false) FilterParameters filterParameters
+    ) {
+        object = resolveObject(object);
+        filterExpression = filterExpression(filters, filterExpression);
+
+        if (this.currentAccessToken == null) {
+            logger.error("Cannot estimate query: Access token was not obtained during initialization.");
+            return null;
+        }
+
+        CoreQueryRequest countRequest = new CoreQueryRequest(object, List.of("key"), filters, filterExpression,
+                filterParameters, null, 1, 1);
+        ResultBudget limits = ResultBudget.effective(null, this.budgetConfig);
+        Integer totalCount;
+        try {
+            Decoded decoded = fetch(countRequest, limits, 1, 0, false);
+            totalCount = decoded.meta() != null ? decoded.meta().totalCount() : null;
+        } catch (RestClientException | CancellationException e) {
+            if (ToolCallCancellation.current().isCancelled()) {
+                logger.info("Estimate for object '{}' was cancelled by the client", object);
+                return null;
+            }
+            logger.error("Error estimating query for object '{}': {}", object, e.getMessage(), e);
+            return null;
+        }
+
+        ModelService.ObjectModel model = this.modelService != null ? this.modelService.loadFields(object) : null;
+        QueryEstimator.RowSize rowSize = QueryEstimator.rowSize(object, model, fields);
+        PagePlan plan = QueryEstimator.plan(totalCount, rowSize.bytes(), limits);
+        logger.info("Estimated query for object '{}': {} records of about {} bytes", object, totalCount, rowSize.bytes());
+        return new QueryEstimate(object, totalCount, rowSize.bytes(),
+                totalCount != null ? Long.valueOf((long) totalCount * rowSize.bytes()) : null,
+                model != null ? "model" : "default",
+                rowSize.unknownFields().isEmpty() ? null : rowSize.unknownFields(), plan);
+    }
+
+    /**
+     * Exports every row of a query to a local file. The result is fetched page by page and each page's
+     * response body is streamed row by row into the file, so memory use does not grow with the result or
+     * the page size. Only the file's path, row count and checksum are returned.
+     *
+     * @param object           Object type to query. Required.
+     * @param fields           Fields to export. Optional; the API defaults when omitted.
+     * @param filters          Filter conditions, as for executeQuery. Optional.
+     * @param filterExpression Combination of the filters, as for executeQuery. Optional.
+     * @param filterParameters Additional filter options, as for executeQuery. Optional.
+     * @param orderBy          Sort order. Optional; defaults to key ascending so that pages do not shift.
+     * @param format           "ndjson" (default) or "csv".
+     * @param fileName         Name of the file in the export directory. Optional; defaults to the object
+     *                         name and a timestamp. An existing file of the same name is replaced.
+     * @param toolContext      MCP tool call context; progress is reported after each page when the client
+     *                         sent a progress token. May be null.
+     * @return Where the rows were written, or null on error.
+     */
+    @Tool(description = "Export all rows of a query to a local NDJSON or CSV file instead of returning them. Use it for full "
+            + "object dumps or results too large for executeQuery. Pages through the whole result and returns only the file "
+            + "path, row count, size and SHA-256 checksum. Takes the same object, fields, filters and orderBy as executeQuery; "
+            + "format is 'ndjson' (default, one JSON object per line) or 'csv' (nested fields as dotted columns).")
+    public ExportResult exportQuery(
+            @ToolParam(description = "Object type to query (e.g., 'accounts-payable/vendor'). Required.") String object,
+            @ToolParam(description = "Fields to export (e.g., [\"id\", \"name\"]). These are also the CSV columns.", required = false) List<String> fields,
+            @ToolParam(description = "Filter conditions, as for executeQuery. Ex: `[{\"$eq\": {\"status\": \"active\"}}]`", required = false) List<Map<String, Map<String, Object>>> filters,
+            @ToolParam(description = "Combines filters by 1-based index (e.g., \"1 and 2\"), as for executeQuery.", required = false) String filterExpression,
+            @ToolParam(description = "Additional filter options (asOfDate, caseSensitive, etc.).", required = false) FilterParameters filterParameters,
+            @ToolParam(description = "Sort order (e.g., [{\"id\": \"asc\"}]). Defaults to key ascending.", required = false) List<Map<String, String>> orderBy,
+            @ToolParam(description = "File format: 'ndjson' (default) or 'csv'.", required = false) String format,
+            @ToolParam(description = "File name within the export directory (e.g., 'vendors.csv'). Defaults to the object name and a timestamp.", required = false) String fileName,
+            ToolContext toolContext
+    ) {
+        if (!this.exportConfig.isEnabled()) {
+            throw new IllegalStateException("Exports are disabled on this server.");
+        }
+        object = resolveObject(object);
+        filterExpression = filterExpression(filters, filterExpression);
+        ExportWriter.Format exportFormat = ExportWriter.Format.parse(format);
+        Path target = exportTarget(fileName, object, exportFormat);
+
+        if (this.currentAccessToken == null) {
+            logger.error("Cannot export query: Access token was not obtained during initialization.");
+            return null;
+        }
+
+        // A stable order keeps rows from moving between pages while the export runs
+        List<Map<String, String>> order = orderBy != null && !orderBy.isEmpty() ? orderBy : List.of(Map.of("key", "asc"));
+        int initialPageSize = Math.max(1, this.exportConfig.getPageSize());
+        long maxRows = this.exportConfig.getMaxRows();
+        ProgressNotifier.Progress progress = this.progressNotifier != null ? this.progressNotifier.start(toolContext) : null;
+        logger.info("Exporting object '{}' to {}", object, target);
+
+        int pages = 0;
+        int start = 1;
+        boolean complete = false;
+        try (ExportWriter out = new ExportWriter(target, exportFormat, fields, this.exportConfig.getBufferBytes())) {
+            while (out.rows() < maxRows) {
+                int pageRows = (int) Math.min(maxRows - out.rows(), this.pageSizeTuner != null
+                        ? this.pageSizeTuner.pageSize(object, fields, initialPageSize)
+                        : initialPageSize);
+                CoreQueryRequest page = new CoreQueryRequest(object, fields, filters, filterExpression,
+                        filterParameters, order, start, pageRows);
+                long started = System.nanoTime();
+                Streamed streamed = exchange(page, body -> QueryResponseDecoder.stream(body, json -> {
+                    out.row(json);
+                    return true;
+                }));
+                if (this.pageSizeTuner != null) {
+                    this.pageSizeTuner.observe(object, fields, pageRows, streamed.rows(), streamed.bytes(),
+                            System.nanoTime() - started);
+                }
+                pages++;
+
+                MetadataPages meta = streamed.meta();
+                if (progress != null) {
+                    Double total = meta != null && meta.totalCount() != null
+                            ? Double.valueOf(Math.min(maxRows, meta.totalCount()))
+                            : null;
+                    progress.report(out.rows(), total, String.format("Exported page %d of '%s': %d rows",
+                            pages, object, out.rows()));
+                }
+                if (meta == null || meta.next() == null || streamed.rows() == 0) {
+                    complete = true;
+                    break;
+                }
+                start = meta.next();
+            }
+            ExportWriter.Summary summary = out.commit();
+            logger.info("Exported {} rows of object '{}' to {} ({} bytes, {} pages)", summary.rows(), object, target,
+                    summary.bytes(), pages);
+            return new ExportResult(target.toString(), exportFormat.extension(), summary.rows(), summary.bytes(),
+                    summary.sha256(), pages, complete);
+        } catch (RestClientException | CancellationException | IOException | UncheckedIOException e) {
+            if (ToolCallCancellation.current().isCancelled()) {
+                logger.info("Export of object '{}' was cancelled by the client", object);
+                return null;
+            }
+            logger.error("Error exporting object '{}': {}", object, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Joins two query results on the client side with a hash join. The dimension side (e.g. vendors) is read
+     * once into a hash table on its join key; the fact side (e.g. bills) is then streamed past it page by page
+     * and stops as soon as enough joined rows are found. Only the requested fields of both sides are kept.
+     *
+     * @param fact         The driving query, whose rows are probed. Required.
+     * @param dimension    The query read into the hash table. Its object may be omitted with a relationship.
+     * @param relationship Name of a reference of the fact object (e.g. "vendor" on a bill). Optional; sets the
+     *                     dimension object and defaults the keys to "relationship.key" and "key".
+     * @param factKey      Join key field of the fact rows (e.g. "vendor.key"). Required without a relationship.
+     * @param dimensionKey Join key field of the dimension rows. Optional; defaults to "key".
+     * @param joinType     "inner" (default) or "left".
+     * @param start        First fact row to read. Optional.
+     * @param matchStart   First match of the fact row at start to return, from a previous nextMatch. Optional.
+     * @param size         Joined rows to return. Optional.
+     * @param budget       Per-call result budget, as for executeQuery. Optional.
+     * @return The joined rows, or null on error.
+     */
+    @Tool(description = "Join two queries on the server instead of fetching both and matching rows yourself, e.g. bills with "
+            + "their vendor's payment terms. 'fact' is the main query (e.g. bills); 'dimension' is the related object (e.g. "
+            + "vendors), read once into a hash table. Join either through a 'relationship' of the fact object from its model "
+            + "(e.g. 'vendor', which joins fact 'vendor.key' to dimension 'key'), or with explicit 'factKey' and 'dimensionKey' "
+            + "fields. Returns only the requested fields: fact fields by name and dimension fields as '<relationship>.<field>'. "
+            + "When 'nextStart' is present, call again with 'start' set to it (and 'matchStart' set to 'nextMatch' when "
+            + "present) to continue.")
+    public JoinResult joinQuery(
+            @ToolParam(description = "Main query: {\"object\": \"accounts-payable/bill\", \"fields\": [\"id\", \"totalDue\"], \"filters\": [...], \"filterExpression\": \"...\", \"orderBy\": [...]}. Required.") JoinSide fact,
+            @ToolParam(description = "Related query read into the hash table: {\"object\": ..., \"fields\": [\"id\", \"term.id\"], \"filters\": [...]}. 'object' may be omitted when 'relationship' is given.", required = false) JoinSide dimension,
+            @ToolParam(description = "Reference of the fact object to join through (e.g. 'vendor').", required = false) String relationship,
+            @ToolParam(description = "Join key field of the fact rows (e.g. 'vendor.key'). Required without 'relationship'.", required = false) String factKey,
+            @ToolParam(description = "Join key field of the dimension rows. Defaults to 'key'.", required = false) String dimensionKey,
+            @ToolParam(description = "'inner' (default, only fact rows with a match) or 'left' (all fact rows).", required = false) String joinType,
+            @ToolParam(description = "First fact row to read (for pagination).", required = false) Integer start,
+            @ToolParam(description = "First match of the fact row at 'start' to return: the 'nextMatch' of the previous call.", required = false) Integer matchStart,
+            @ToolParam(description = "Number of joined rows to return.", required = false) Integer size,
+            @ToolParam(description = "Per-call result budget: {\"maxRows\": 200, \"maxBytes\": 100000, \"maxFieldsPerRow\": 20}.", required = false) ResultBudget budget
+    ) {
+        if (fact == null || fact.object() == null) {
+            throw new IllegalArgumentException("The 'fact' query and its 'object' are required.");
+        }
+        String factObject = resolveObject(fact.object());
+        String dimensionObject = dimension != null ? dimension.object() : null;
+        String alias;
+        if (relationship != null && !relationship.isBlank()) {
+            ModelService.RefDefinition ref = reference(factObject, relationship.trim());
+            alias = relationship.trim();
+            dimensionObject = dimensionObject != null ? dimensionObject : ref.apiObject();
+            factKey = factKey != null ? factKey : alias + ".key";
+        } else {
+            if (dimensionObject == null || factKey == null) {
+                throw new IllegalArgumentException(
+                        "Give either a 'relationship' or the dimension 'object' and a 'factKey' to join on.");
+            }
+            alias = null;
+        }
+        dimensionObject = resolveObject(dimensionObject);
+        alias = alias != null ? alias : dimensionObject.substring(dimensionObject.lastIndexOf('/') + 1);
+        dimensionKey = dimensionKey != null ? dimensionKey : "key";
+        boolean outer = joinType != null && joinType.equalsIgnoreCase("left");
+        if (joinType != null && !outer && !joinType.equalsIgnoreCase("inner")) {
+            throw new IllegalArgumentException("Unsupported joinType '" + joinType + "'; use 'inner' or 'left'.");
+        }
+        List<String> factFields = fact.fields() != null && !fact.fields().isEmpty()
+                ? fact.fields() : QueryEstimator.DEFAULT_FIELDS;
+        List<String> dimensionFields = dimension != null && dimension.fields() != null && !dimension.fields().isEmpty()
+                ? dimension.fields() : QueryEstimator.DEFAULT_FIELDS;
+
+        if (this.currentAccessToken == null) {
+            logger.error("Cannot join queries: Access token was not obtained during initialization.");
+            return null;
+        }
+
+        ResultBudget limits = ResultBudget.effective(budget, this.budgetConfig);
+        int maxRows = Math.min(size != null ? size : DEFAULT_PAGE_SIZE, limits.maxRows());
+        HashJoin join = new HashJoin(factKey, factFields, dimensionKey, dimensionFields, alias, outer);
+        if (matchStart != null && matchStart > 0) {
+            join.resumeAt(start != null ? start : 1, matchStart);
+        }
+        int maxDimensionRows = this.joinConfig.getMaxDimensionRows();
+        try {
+            // Build: the dimension side is read once, in key order so that pages do not shift
+            CoreQueryRequest build = new CoreQueryRequest(dimensionObject, withField(dimensionFields, dimensionKey),
+                    dimension != null ? dimension.filters() : null,
+                    dimension != null ? filterExpression(dimension.filters(), dimension.filterExpression()) : null,
+                    dimension != null ? dimension.filterParameters() : null,
+                    List.of(Map.of("key", "asc")), 1, null);
+            Integer more = streamPages(build, maxDimensionRows + 1, (json, position) -> {
+                join.build(json);
+                return true;
+            });
+            if (join.dimensionRows() > maxDimensionRows || more != null) {
+                throw new IllegalArgumentException("The dimension side '" + dimensionObject + "' has more than "
+                        + maxDimensionRows + " rows; narrow it with filters.");
+            }
+
+            // Probe: fact rows are streamed past the table until enough rows are joined
+            CoreQueryRequest probe = new CoreQueryRequest(factObject, withField(factFields, factKey), fact.filters(),
+                    filterExpression(fact.filters(), fact.filterExpression()), fact.filterParameters(),
+                    fact.orderBy(), start != null ? start : 1, null);
+            Integer factNext = streamPages(probe, this.joinConfig.getMaxFactRows(),
+                    (json, position) -> join.probe(json, position, maxRows));
+
+            JoinResult result = join.result(limits, maxRows, factNext);
+            logger.info("Joined '{}' with '{}' on {} = {}: {} rows from {} fact and {} dimension rows", factObject,
+                    dimensionObject, factKey, dimensionKey, result.rows().size(), result.factRows(),
+                    result.dimensionRows());
+            return result;
+        } catch (RestClientException | CancellationException e) {
+            if (ToolCallCancellation.current().isCancelled()) {
+                logger.info("Join of '{}' with '{}' was cancelled by the client", factObject, dimensionObject);
+                return null;
+            }
+            logger.error("Error joining '{}' with '{}': {}", factObject, dimensionObject, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets records of one object by key or id. Records looked up recently are served from the record cache,
+     * whatever query they were fetched with; only the rest are fetched, with batched $in queries.
+     *
+     * @param object   The object to look records up in. Required.
+     * @param keys     Keys or ids of the records. Required.
+     * @param keyField "key" (default) or "id": the field the values are matched against.
+     * @param fields   Fields to return. Optional; defaults to key, id and href.
+     * @return The records in the order asked for, plus the values not found, or null on error.
+     */
+    @Tool(description = "Get records of one object by key or id, e.g. 'vendor V100' or 'these 40 customers'. Records looked "
+            + "up recently are answered from a per-record cache and only the others are fetched, so prefer this tool over "
+            + "executeQuery with a $eq or $in filter on key or id. Returns the records in the order asked for and the "
+            + "values with no record in 'notFound'.")
+    public LookupResult lookupRecords(
+            @ToolParam(description = "Object type (e.g., 'accounts-payable/vendor'). Required.") String object,
+            @ToolParam(description = "Keys or ids of the records (e.g., [\"V100\", \"V200\"]). Required.") List<String> keys,
+            @ToolParam(description = "'key' (default, the record number) or 'id' (the record ID shown to users).", required = false) String keyField,
+            @ToolParam(description = "List of fields to include (e.g., [\"id\", \"name\"]). Defaults to key, id and href.", required = false) List<String> fields
+    ) {
+        object = resolveObject(object);
+        if (keys == null || keys.isEmpty()) {
+            throw new IllegalArgumentException("'keys' needs at least one key or id to look up.");
+        }
+        String field = keyField == null || keyField.isBlank() ? "key" : keyField.trim();
+        if (!field.equals("key") && !field.equals("id")) {
+            throw new IllegalArgumentException("Unsupported keyField '" + keyField + "'; use 'key' or 'id'.");
+        }
+        List<String> requested = fields != null && !fields.isEmpty() ? fields : QueryEstimator.DEFAULT_FIELDS;
+        Set<String> values = new LinkedHashSet<>();
+        keys.stream().map(HashJoin::key).filter(Objects::nonNull).forEach(values::add);
+
+        if (this.currentAccessToken == null) {
+            logger.error("Cannot look up records: Access token was not obtained during initialization.");
+            return null;
+        }
+
+        try {
+            Lookup lookup = lookup(object, field, values, requested);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            List<String> notFound = new ArrayList<>();
+            for (String value : values) {
+                Map<String, Object> record = lookup.records().get(value);
+                if (record == null) {
+                    notFound.add(value);
+                    continue;
+                }
+                // Cached records may hold more fields than were asked for this time
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (String name : requested) {
+                    row.put(name, RowValues.get(record, name));
+                }
+                rows.add(row);
+            }
+            logger.info("Looked up {} '{}' records by {}: {} from the record cache, {} fetched, {} not found",
+                    values.size(), object, field, lookup.cached(), lookup.records().size() - lookup.cached(),
+                    notFound.size());
+            return new LookupResult(rows, notFound, lookup.cached(), lookup.records().size() - lookup.cached());
+        } catch (RestClientException | CancellationException e) {
+            if (ToolCallCancellation.current().isCancelled()) {
+                logger.info("Lookup of '{}' records was cancelled by the client", object);
+                return null;
+            }
+            logger.error("Error looking up '{}' records: {}", object, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Fields of an object that its model types as numbers.
+     *
+     * @return The fields, or null if the model is not available
+     */
+    private Set<String> numericFields(String object) {
+        ModelService.ObjectModel model = this.modelService != null ? this.modelService.loadModel(object) : null;
+        return model != null && model.fields() != null ? model.numericFields() : null;
+    }
+
+    /**
+     * A reference of an object, from its model.
+     */
+    private ModelService.RefDefinition reference(String object, String relationship) {
+        ModelService.ObjectModel model = this.modelService != null ? this.modelService.loadModel(object) : null;
+        if (model == null) {
+            throw new IllegalArgumentException("The model of '" + object + "' is not available to resolve relationship '"
+                    + relationship + "'; give the dimension 'object' and a 'factKey' instead.");
+        }
+        Map<String, ModelService.RefDefinition> refs = model.refs();
+        ModelService.RefDefinition ref = refs != null ? refs.get(relationship) : null;
+        if (ref == null || ref.apiObject() == null) {
+            throw new IllegalArgumentException("'" + object + "' has no relationship '" + relationship + "'. Relationships: "
+                    + (refs != null ? refs.keySet() : List.of()));
+        }
+        return ref;
+    }
+
+    // The fields to request: the projected fields plus the join key
+    private static List<String> withField(List<String> fields, String field) {
+        if (fields.contains(field)) {
+            return fields;
+        }
+        List<String> all = new ArrayList<>(fields);
+        all.add(field);
+        return all;
+    }
+
+    /**
+     * Receives streamed rows with their position in the result.
+     */
+    @FunctionalInterface
+    private interface PositionedRowSink {
+        /**
+         * @param position 'start' value that returns the row first
+         * @return false to stop reading
+         */
+        boolean row(byte[] json, int position) throws IOException;
+    }
+
+    /**
+     * Streams the rows of a query page by page, from its start, until the sink stops, maxRows rows are read
+     * or the result ends. Page sizes come from the adaptive page size tuner.
+     *
+     * @return 'start' of the first row not read, or null if the result was read to the end
+     */
+    private Integer streamPages(CoreQueryRequest query, int maxRows, PositionedRowSink sink) {
+        int start = query.start() != null ? query.start() : 1;
+        int read = 0;
+        int initialPageSize = Math.max(1, this.joinConfig.getPageSize());
+        while (read < maxRows) {
+            int pageStart = start;
+            int pageRows = Math.min(maxRows - read, this.pageSizeTuner != null
+                    ? this.pageSizeTuner.pageSize(query.object(), query.fields(), initialPageSize)
+                    : initialPageSize);
+            CoreQueryRequest page = new CoreQueryRequest(query.object(), query.fields(), query.filters(),
+                    query.filterExpression(), query.filterParameters(), query.orderBy(), pageStart, pageRows);
+            int[] offset = {0};
+            long started = System.nanoTime();
+            Streamed streamed = exchange(page, body -> QueryResponseDecoder.stream(body,
+                    json -> sink.row(json, pageStart + offset[0]++)));
+            if (this.pageSizeTuner != null) {
+                this.pageSizeTuner.observe(query.object(), query.fields(), pageRows, streamed.rows(),
+                        streamed.bytes(), System.nanoTime() - started);
+            }
+            read += streamed.rows();
+            if (streamed.stopped()) {
+                return pageStart + streamed.rows();
+            }
+            MetadataPages meta = streamed.meta();
+            if (meta == null || meta.next() == null || streamed.rows() == 0) {
+                return null;
+            }
+            start = meta.next();
+        }
+        return start;
+    }
+
+    /**
+     * File an export is written to: the given name, or the object name and a timestamp, in the export
+     * directory. Names that point outside the directory are rejected.
+     */
+    private Path exportTarget(String fileName, String object, ExportWriter.Format format) {
+        Path directory = Paths.get(this.exportConfig.getDirectory()).toAbsolutePath().normalize();
+        String name = fileName != null && !fileName.isBlank()
+                ? fileName.trim()
+                : object.replace('/', '_') + "-" + LocalDateTime.now().format(EXPORT_TIMESTAMP);
+        if (name.indexOf('.') < 0) {
+            name += "." + format.extension();
+        }
+        Path target = directory.resolve(name).normalize();
+        if (!target.startsWith(directory) || target.equals(directory)) {
+            throw new IllegalArgumentException("The export file name must name a file in the export directory: " + fileName);
+        }
+        try {
+            ExportWriter.createDirectories(target.getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the export directory " + target.getParent(), e);
+        }
+        return target;
+    }
+
+    /**
+     * Fixes common mistakes in an object name (e.g. "objects/" prefix, plurals, module abbreviations) and
+     * rejects unknown objects before any remote call.
+     */
+    private String resolveObject(String object) {
+        Objects.requireNonNull(object, "Query object cannot be null");
+        return this.modelService != null
+                ? this.modelService.requireObjectName(object)
+                : ObjectNameIndex.unchecked(object).name();
+    }
+
+    /**
+     * Validates that filterExpression is only used when filters are provided, and normalizes a blank
+     * filterExpression to null so the API can apply its default behaviour.
+     */
+    private static String filterExpression(List<Map<String, Map<String, Object>>> filters, String filterExpression) {
+        if (filterExpression != null && !filterExpression.trim().isEmpty()
+                && (filters == null || filters.isEmpty())) {
+            throw new IllegalArgumentException(
+                    "The 'filterExpression' parameter requires at least one entry in 'filters'.");
+        }
+        return filterExpression != null && filterExpression.trim().isEmpty() ? null : filterExpression;
+    }
+
+    /**
+     * Result of a query answered from the replica or the query cache, limited to the budget. Like the API's
+     * ia::meta, it reports every local match in totalCount and where the next page starts while rows remain.
+     */
+    private static QueryResult localResult(LocalQuery.Page page, ResultBudget limits, int maxRows, int firstRow,
+            String source) {
+        Decoded limited = QueryResponseDecoder.limit(page.rows(), limits, maxRows);
+        int end = firstRow + page.rows().size();
+        MetadataPages meta = new MetadataPages(page.totalCount(), firstRow, page.rows().size(),
+                end <= page.totalCount() ? Integer.valueOf(end) : null, null);
+        return QueryResult.of(new Decoded(limited.rows(), meta, limited.truncatedBy(), limited.fieldsTruncated(),
+                limited.bytes()), firstRow, source);
+    }
+
+    /**
+     * Sends one Query API request and decodes the response within a budget.
+     *
+     * @param usedBytes   Bytes of the budget already taken by earlier pages of the same result
+     * @param passthrough Keep the rows as the raw bytes returned (see {@link QueryResponseDecoder#passthrough})
+     */
+    private Decoded fetch(CoreQueryRequest requestBody, ResultBudget limits, int maxRows, long usedBytes,
+            boolean passthrough) {
+        BodyReader<Decoded> reader = body -> passthrough
+                ? QueryResponseDecoder.passthrough(body, limits, maxRows, requestBody.fields())
+                : QueryResponseDecoder.decode(body, limits, maxRows, usedBytes);
+        if (this.diskCache == null) {
+            return exchange(requestBody, reader);
+        }
+        String key = diskCacheKey(requestBody);
+        DiskCache.Entry cached = this.diskCache.get(key);
+        if (cached != null) {
+            logger.info("Answered query for object '{}' from the disk cache", requestBody.object());
+            try {
+                return reader.read(new ByteArrayInputStream(cached.value()));
+            } catch (IOException e) {
+                logger.warn("Ignoring an unreadable disk cache entry for object '{}': {}", requestBody.object(),
+                        e.getMessage());
+            }
+        }
+        return exchange(requestBody, body -> {
+            CapturingInputStream captured = new CapturingInputStream(body, this.diskCache.maxEntryBytes());
+            Decoded decoded = reader.read(captured);
+            // A result cut short by the budget is not cached: the rest of the body is abandoned, not read
+            byte[] whole = decoded.truncated() ? null : captured.whole();
+            if (whole != null) {
+                this.diskCache.put(key, whole, this.diskCache.queryTtl());
+            }
+            return decoded;
+        });
+    }
+
+    // Responses are kept per base URL and user, as another user may see other records
+    private String diskCacheKey(CoreQueryRequest requestBody) {
+        try {
+            return DiskCache.key("query", this.baseUrl, this.authService.getUsername(),
+                    MAPPER.writeValueAsString(requestBody));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode query request", e);
+        }
+    }
+
+    /**
+     * Keeps a copy of a response body as it is read, up to a limit, for the disk cache.
+     */
+    private static final class CapturingInputStream extends FilterInputStream {
+        private final int limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CapturingInputStream(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0 && copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) throws IOException {
+            int n = super.read(bytes, offset, count);
+            if (n > 0 && copy != null) {
+                copy.write(bytes, offset, n);
+                checkLimit();
+            }
+            return n;
+        }
+
+        // The decoder closes its input when done; the body is left open for whole() and closed with the response
+        @Override
+        public void close() {
+        }
+
+        /**
+         * The whole body, reading what the decoder left unread; null if it is larger than the limit.
+         */
+        byte[] whole() throws IOException {
+            byte[] buffer = new byte[8192];
+            while (copy != null && read(buffer, 0, buffer.length) >= 0) {
+                // Read to the end of the body, or until it proves too large
+            }
+            return copy != null ? copy.toByteArray() : null;
+        }
+
+        private void checkLimit() {
+            if (copy.size() > limit) {
+                copy = null;
+            }
+        }
+    }
+
+    /**
+     * Reads a successful response body.
+     */
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * Sends one Query API request and hands the response body to a reader while it streams in.
+     */
+    private <T> T exchange(CoreQueryRequest requestBody, BodyReader<T> reader) {
+        ToolCallCancellation cancellation = ToolCallCancellation.current();
+        cancellation.throwIfCancelled();
+        // Decode the body as it streams in; returning early closes the exchange and abandons the rest
+        return restClient.post()
+                .uri("/services/core/query")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requestBody)
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        throw new RestClientResponseException("Query API returned " + response.getStatusCode(),
+                                response.getStatusCode(), response.getStatusText(), response.getHeaders(),
+                                response.getBody().readAllBytes(), null);
+                    }
+                    // Cancelling the call closes the body, which aborts the read and releases the connection
+                    Runnable deregister = cancellation.onCancel(response::close);
+                    try {
+                        return reader.read(response.getBody());
+                    } finally {
+                        deregister.run();
+                    }
+                });
+    }
+
+    /**
+     * Rows per page when a result is fetched page by page: the size learned for the object and fields,
+     * or the configured progress page size.
+     */
+    private int pageSize(CoreQueryRequest request) {
+        return this.pageSizeTuner != null
+                ? this.pageSizeTuner.pageSize(request.object(), request.fields(), this.progressPageSize)
+                : this.progressPageSize;
+    }
+
+    /**
+     * Fetches a result page by page, reporting progress after each page.
+     * The budget applies to the result as a whole, and paging stops early once it is exhausted
+     * or the call is cancelled.
+     *
+     * @param capped Whether the budget (not the requested size) limits the rows, in which case the last page
+     *               asks for one extra row to tell a cut-off result apart from an exact fit
+     */
+    private Decoded fetchPages(CoreQueryRequest requestBody, ResultBudget limits, int maxRows, boolean capped,
+            int firstRow, ProgressNotifier.Progress progress) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        MetadataPages firstMeta = null;
+        MetadataPages lastMeta = null;
+        boolean fieldsTruncated = false;
+        long bytes = 0;
+        int pages = 0;
+        while (true) {
+            int remaining = maxRows - rows.size();
+            int pageRows = Math.min(pageSize(requestBody), remaining);
+            boolean lastPage = pageRows == remaining;
+            int pageStart = firstRow + rows.size();
+            CoreQueryRequest page = new CoreQueryRequest(requestBody.object(), requestBody.fields(),
+                    requestBody.filters(), requestBody.filterExpression(), requestBody.filterParameters(),
+                    requestBody.orderBy(), pageStart, lastPage && capped ? pageRows + 1 : pageRows);
+
+            // Pages are merged and streamed as partial results, so they are decoded into rows
+            long started = System.nanoTime();
+            Decoded decoded = fetch(page, limits, pageRows, bytes, false);
+            if (this.pageSizeTuner != null) {
+                this.pageSizeTuner.observe(requestBody.object(), requestBody.fields(), pageRows,
+                        decoded.rows().size(), decoded.bytes(), System.nanoTime() - started);
+            }
+            pages++;
+            rows.addAll(decoded.rows());
+            bytes += decoded.bytes();
+            fieldsTruncated |= decoded.fieldsTruncated();
+            if (decoded.meta() != null) {
+                firstMeta = firstMeta != null ? firstMeta : decoded.meta();
+                lastMeta = decoded.meta();
+            }
+
+            Double total = lastMeta != null && lastMeta.totalCount() != null
+                    ? Double.valueOf(Math.max(rows.size(), Math.min(maxRows, lastMeta.totalCount() - firstRow + 1)))
+                    : null;
+            progress.report(rows.size(), total, String.format("Fetched page %d of '%s': %d rows",
+                    pages, requestBody.object(), rows.size()));
+            progress.partialResult(pageStart, decoded.rows());
+
+            boolean more = decoded.meta() != null && decoded.meta().next() != null && decoded.rows().size() == pageRows;
+            if (decoded.truncated() || !more || rows.size() >= maxRows) {
+                logger.debug("Fetched {} rows of object '{}' in {} pages", rows.size(), requestBody.object(), pages);
+                MetadataPages meta = lastMeta == null ? null : new MetadataPages(lastMeta.totalCount(), firstRow,
+                        rows.size(), more ? Integer.valueOf(firstRow + rows.size()) : null, firstMeta.previous());
+                return new Decoded(rows, meta, decoded.truncatedBy(), fieldsTruncated, bytes);
+            }
+        }
+    }
+
+    /**
+     * Executes a query with the server-wide result budget and returns only the rows.
+     *
+     * @return The result rows, or null on error
+     * @see #executeQuery(String, List, List, String, FilterParameters, List, Integer, Integer, ResultBudget, Map, ToolContext)
+     */
+    public List<Map<String, Object>> executeQuery(String object, List<String> fields,
+            List<Map<String, Map<String, Object>>> filters, String filterExpression,
+            FilterParameters filterParameters, List<Map<String, String>> orderBy, Integer start, Integer size) {
+        QueryResult result = executeQuery(object, fields, filters, filterExpression, filterParameters, orderBy,
+                start, size, null, null, null);
+        return result != null ? result.rows() : null;
+    }
+
     // Example main method for testing
      public static void main(String[] args) {
          // For standalone testing, create AuthService manually
@@ -0,0 +1,90 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Query rows kept as the JSON array the API returned. Serializing them (see {@link Serializer}) writes
+ * the bytes as they are; the rows are only decoded into maps if something reads them as a list,
+ * e.g. the result cache answering a follow-up query.
+ */
+final class RawRows extends AbstractList<Map<String, Object>> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<LinkedHashMap<String, Object>>> ROWS_TYPE = new TypeReference<>() {};
+
+    private final byte[] json;
+    private final int size;
+    private volatile List<? extends Map<String, Object>> decoded;
+
+    /**
+     * @param json UTF-8 JSON array of row objects
+     * @param size Number of rows in the array
+     */
+    RawRows(byte[] json, int size) {
+        this.json = json;
+        this.size = size;
+    }
+
+    String json() {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+
+    int byteLength() {
+        return json.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        return rows().get(index);
+    }
+
+    private List<? extends Map<String, Object>> rows() {
+        List<? extends Map<String, Object>> rows = decoded;
+        if (rows == null) {
+            try {
+                rows = List.copyOf(MAPPER.readValue(json, ROWS_TYPE));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot decode query rows", e);
+            }
+            decoded = rows;
+        }
+        return rows;
+    }
+
+    /**
+     * Writes {@link RawRows} verbatim and any other list of rows as usual.
+     */
+    static final class Serializer extends StdSerializer<List<Map<String, Object>>> {
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Serializer() {
+            super((Class) List.class);
+        }
+
+        @Override
+        public void serialize(List<Map<String, Object>> rows, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            if (rows instanceof RawRows raw) {
+                generator.writeRawValue(raw.json());
+            } else {
+                provider.defaultSerializeValue(rows, generator);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.filter.RowValues;
+
+/**
+ * Short-lived cache of single records, keyed by object and record key.
+ * Unlike {@link QueryResultCache}, which only helps when a whole query is repeated or narrowed, lookups of
+ * overlapping sets of records ("vendor V100", then "these 40 vendors") are answered record by record, and
+ * only the records not seen recently are fetched. Records are also found by their 'id'.
+ */
+@Component
+public class RecordCache {
+
+    /**
+     * Cache key: a record of an object by the value of its 'key' or 'id' field.
+     */
+    private record RecordKey(String object, String field, String value) {}
+
+    /**
+     * A cached record.
+     *
+     * @param fields Fields fetched for the record, or null when the API default field set was returned
+     * @param row    The record
+     */
+    private record Entry(Set<String> fields, Map<String, Object> row) {}
+
+    private final boolean enabled;
+    private final Cache<RecordKey, Entry> cache;
+
+    public RecordCache(McpServerProperties properties) {
+        McpServerProperties.RecordCacheConfig config = properties != null && properties.getRecordCache() != null
+                ? properties.getRecordCache()
+                : new McpServerProperties.RecordCacheConfig();
+        this.enabled = config.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxRecords())
+                .expireAfterWrite(Duration.ofSeconds(config.getTtlSeconds()))
+                .build();
+    }
+
+    /**
+     * Finds cached records that hold every requested field.
+     *
+     * @param object Object of the records
+     * @param field  Field the records are looked up by: 'key' or 'id'
+     * @param values Values of that field
+     * @param fields Requested fields, or null for the API default field set
+     * @return The records found, by value; values not cached (or cached without some field) are left out
+     */
+    public Map<String, Map<String, Object>> get(String object, String field, Collection<String> values,
+            List<String> fields) {
+        Map<String, Map<String, Object>> found = new LinkedHashMap<>();
+        if (!enabled) {
+            return found;
+        }
+        for (String value : values) {
+            Entry entry = cache.getIfPresent(new RecordKey(object, field, value));
+            if (entry != null && covers(entry, fields)) {
+                found.put(value, entry.row());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Stores fetched records under their 'key' and 'id'. A record already cached with other fields is merged
+     * with the new one, so lookups of different field sets build up one entry.
+     *
+     * @param object Object of the records
+     * @param fields Fields the records were fetched with, or null for the API default field set
+     * @param rows   The records
+     */
+    public void put(String object, List<String> fields, Collection<Map<String, Object>> rows) {
+        if (!enabled) {
+            return;
+        }
+        for (Map<String, Object> row : rows) {
+            String key = HashJoin.key(RowValues.get(row, "key"));
+            if (key == null) {
+                continue;
+            }
+            Entry entry = new Entry(fields != null ? Set.copyOf(fields) : null, row);
+            Entry existing = cache.getIfPresent(new RecordKey(object, "key", key));
+            if (existing != null && existing.fields() != null && entry.fields() != null) {
+                Set<String> merged = new HashSet<>(existing.fields());
+                merged.addAll(entry.fields());
+                entry = new Entry(Set.copyOf(merged), merge(existing.row(), row));
+            }
+            cache.put(new RecordKey(object, "key", key), entry);
+            String id = HashJoin.key(RowValues.get(row, "id"));
+            if (id != null) {
+                cache.put(new RecordKey(object, "id", id), entry);
+            }
+        }
+    }
+
+    /**
+     * Drops every cached record of an object.
+     */
+    public void invalidate(String object) {
+        cache.asMap().keySet().removeIf(key -> key.object().equals(object));
+    }
+
+    private static boolean covers(Entry entry, List<String> fields) {
+        if (entry.fields() == null) {
+            return fields == null;
+        }
+        return fields != null && entry.fields().containsAll(fields);
+    }
+
+    // Nested objects (e.g. "term": {"id": ...}) are merged rather than replaced, so no fetched field is lost
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> merge(Map<String, Object> existing, Map<String, Object> added) {
+        Map<String, Object> merged = new LinkedHashMap<>(existing);
+        added.forEach((name, value) -> {
+            Object old = merged.get(name);
+            merged.put(name, old instanceof Map<?, ?> oldMap && value instanceof Map<?, ?> newMap
+                    ? merge((Map<String, Object>) oldMap, (Map<String, Object>) newMap)
+                    : value);
+        });
+        return merged;
+    }
+}
@@ -0,0 +1,425 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.filter.CompiledFilter;
+import com.intacct.ds.mcp.server.query.filter.FilterCompiler;
+import com.intacct.ds.mcp.server.query.filter.LocalQuery;
+import com.intacct.ds.mcp.server.query.filter.RowValues;
+import com.intacct.ds.mcp.server.query.http.CompressionInterceptor;
+import com.intacct.ds.mcp.server.query.replica.ReplicaTable;
+import com.intacct.ds.mcp.server.query.replica.SegmentWriter;
+import com.intacct.ds.mcp.server.query.service.ModelService.FieldDefinition;
+import com.intacct.ds.mcp.server.query.service.ModelService.ObjectModel;
+import com.intacct.ds.mcp.server.query.service.QueryService.CoreQueryRequest;
+import com.intacct.ds.mcp.server.query.service.QueryService.FilterParameters;
+import com.intacct.ds.mcp.server.query.service.QueryService.QueryApiResponse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps a local replica of the objects listed in tool-integration.resources.
+ * Each object is bulk loaded once and then kept current by delta syncs that fetch records whose
+ * audit.modifiedDateTime is at or after the last watermark. Queries the replica can answer
+ * (filters that compile locally, fields that are replicated) are served without calling the API.
+ *
+ * Replicas are persisted as memory-mapped columnar segments under storage-dir, one directory per
+ * company base URL and object, so a restart resumes with a delta sync from the stored watermark.
+ * Server processes sharing storage-dir take turns writing a segment through a lock file in its directory.
+ * Change listeners are told about each object whose replica a sync found changed.
+ */
+@Service
+public class ReplicaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaService.class);
+
+    // Ref fields worth replicating; the full ref models are large and rarely queried
+    private static final List<String> REF_FIELDS = List.of("key", "id", "name");
+
+    private final McpServerProperties.ReplicaConfig config;
+    private final boolean sidecarFrontEnd; // The sidecar daemon keeps the replicas
+    private final List<String> resources;
+    private final ModelService modelService;
+    private final RestClient restClient;
+    private final String currentAccessToken; // Token obtained at startup; null if this instance could not authenticate
+    private final Path storageRoot;
+    private final Map<String, ReplicaTable> tables = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> numericFields = new ConcurrentHashMap<>(); // Per object, from its model
+    private final Set<String> skipped = ConcurrentHashMap.newKeySet();
+    // Keys of the records modified at each object's watermark, which every delta sync reads again
+    private final Map<String, Set<String>> watermarkKeys = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public ReplicaService(AuthService authService, ModelService modelService, McpServerProperties properties,
+            CompressionInterceptor compressionInterceptor) {
+        this.config = properties.getReplica() != null ? properties.getReplica() : new McpServerProperties.ReplicaConfig();
+        this.resources = properties.getToolIntegration() != null
+                ? properties.getToolIntegration().getResources() : List.of();
+        this.modelService = modelService;
+        this.sidecarFrontEnd = properties.getSidecar() != null
+                && properties.getSidecar().getMode() == McpServerProperties.SidecarMode.CLIENT;
+        this.currentAccessToken = authService.getAccessToken();
+        // Per user as well as per company: the API only returns the records the user is allowed to see
+        this.storageRoot = Paths.get(config.getStorageDir(), directoryName(authService.getBaseUrl()),
+                userDirectoryName(authService.getUsername()));
+
+        if (this.currentAccessToken == null) {
+            logger.error("Failed to obtain access token during initialization. Replicas will not be loaded.");
+            this.restClient = RestClient.builder().build();
+            return;
+        }
+
+        this.restClient = RestClient.builder()
+                .baseUrl(authService.getBaseUrl())
+                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .defaultHeader(HttpHeaders.USER_AGENT, "MCP-Query-Server/1.0 (Java)")
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .requestInterceptors(interceptors -> {
+                    interceptors.add(AuthService.bearerTokenInterceptor(authService));
+                    if (compressionInterceptor != null) {
+                        interceptors.add(compressionInterceptor);
+                    }
+                })
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled() || sidecarFrontEnd || currentAccessToken == null || resources == null
+                || resources.isEmpty()) {
+            logger.info("Local replicas disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::syncAll, config.getInitialDelaySeconds(),
+                config.getSyncIntervalSeconds(), TimeUnit.SECONDS);
+        logger.info("Replicating {} every {}s", resources, config.getSyncIntervalSeconds());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Answers a query from a loaded replica.
+     *
+     * @param request         The query to answer
+     * @param defaultPageSize Page size the API applies when the request has no size
+     * @return The page the API would return, or null if no replica can answer the query
+     */
+    public LocalQuery.Page find(CoreQueryRequest request, int defaultPageSize) {
+        ReplicaTable table = tables.get(request.object());
+        if (table == null || !table.isLoaded() || request.fields() == null
+                || !answerable(request.filterParameters())) {
+            return null;
+        }
+        boolean caseSensitive = QueryResultCache.caseSensitive(request.filterParameters());
+        Set<String> numeric = numericFields.getOrDefault(request.object(), Set.of());
+        Optional<CompiledFilter> filter = FilterCompiler.compile(request.filters(), request.filterExpression(),
+                caseSensitive, numeric);
+        if (filter.isEmpty()) {
+            return null;
+        }
+        Set<String> required = new HashSet<>(request.fields());
+        required.addAll(filter.get().fields());
+        if (request.orderBy() != null) {
+            request.orderBy().stream().filter(Objects::nonNull).forEach(clause -> required.addAll(clause.keySet()));
+        }
+        if (!table.getFields().containsAll(required)) {
+            return null;
+        }
+        // Without an explicit order, page by key so that successive pages do not overlap
+        List<Map<String, String>> orderBy = request.orderBy() != null && !request.orderBy().isEmpty()
+                ? request.orderBy() : List.of(Map.of(ReplicaTable.KEY_FIELD, "asc"));
+        int size = request.size() != null ? request.size() : defaultPageSize;
+        return LocalQuery.page(table.candidates(filter.get(), caseSensitive), filter.get(), orderBy,
+                caseSensitive, numeric, request.start(), size, request.fields());
+    }
+
+    /**
+     * Query API object of a resource name in tool-integration.resources.
+     *
+     * @return The object, or null if none is configured for the resource
+     */
+    public String objectOf(String resource) {
+        return config.getObjects().getOrDefault(resource, resource.contains("/") ? resource : null);
+    }
+
+    /**
+     * Registers a listener called with the object name after a sync loaded its replica or found changed records.
+     * Listeners run on the sync thread.
+     */
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Returns the replica of an object, or null if the object is not replicated.
+     */
+    public ReplicaTable getTable(String object) {
+        return tables.get(object);
+    }
+
+    // Hierarchy and private-entity options change which records the API returns
+    private static boolean answerable(FilterParameters parameters) {
+        return parameters == null || (!Boolean.TRUE.equals(parameters.includeHierarchyFields())
+                && !Boolean.TRUE.equals(parameters.includePrivate()));
+    }
+
+    void syncAll() {
+        try {
+            createStorage();
+        } catch (IOException e) {
+            logger.error("Cannot create the replica storage directory {}: {}", storageRoot, e.getMessage());
+            return;
+        }
+        for (String resource : resources) {
+            String object = objectOf(resource);
+            if (object == null) {
+                logger.warn("No Query API object configured for resource '{}'", resource);
+                continue;
+            }
+            if (skipped.contains(object)) {
+                continue;
+            }
+            try {
+                ReplicaTable table = tables.get(object);
+                if (table == null) {
+                    table = openTable(object);
+                    if (table == null) {
+                        continue;
+                    }
+                }
+                boolean changed = !table.isLoaded() ? load(table) : deltaSync(table);
+                if (changed) {
+                    changed(object);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Replica sync failed for object '{}': {}", object, e.getMessage(), e);
+            }
+        }
+    }
+
+    // Replicas hold company data, so the company's and the user's directories are readable by the user only
+    private void createStorage() throws IOException {
+        Files.createDirectories(storageRoot);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(storageRoot.getParent(), PosixFilePermissions.fromString("rwx------"));
+            Files.setPosixFilePermissions(storageRoot, PosixFilePermissions.fromString("rwx------"));
+        }
+    }
+
+    // Creates the table for an object, resuming from a persisted segment when one matches the model
+    private ReplicaTable openTable(String object) {
+        ObjectModel model = modelService.loadModel(object);
+        List<String> fields = replicatedFields(object, model);
+        if (fields == null) {
+            skipped.add(object);
+            return null;
+        }
+        numericFields.put(object, model.numericFields());
+        ReplicaTable table = new ReplicaTable(object, fields, storageRoot.resolve(directoryName(object)),
+                new HashSet<>(config.getIndexedFields()), config.getOverlayMaxRows());
+        if (table.restore()) {
+            logger.info("Restored replica of object '{}': {} records, watermark {}", object, table.size(), table.getWatermark());
+        }
+        tables.put(object, table);
+        return table;
+    }
+
+    private void changed(String object) {
+        for (Consumer<String> listener : changeListeners) {
+            try {
+                listener.accept(object);
+            } catch (RuntimeException e) {
+                logger.warn("Replica change listener failed for object '{}': {}", object, e.getMessage());
+            }
+        }
+    }
+
+    // Returns true if the replica was loaded
+    private boolean load(ReplicaTable table) throws IOException {
+        String object = table.getObject();
+        Integer total = count(object);
+        if (total == null) {
+            return false;
+        }
+        if (total > config.getMaxRows()) {
+            logger.warn("Not replicating object '{}': {} records exceeds the limit of {}", object, total, config.getMaxRows());
+            tables.remove(object);
+            skipped.add(object);
+            return false;
+        }
+        // Pages are encoded into the segment as they arrive rather than collected first
+        SegmentWriter writer = table.newWriter();
+        if (!fetchAll(object, table.getFields(), null, page -> page.forEach(writer::add))) {
+            return false;
+        }
+        table.replaceAll(writer);
+        watermarkKeys.remove(object);
+        logger.info("Loaded replica of object '{}': {} records, watermark {}", object, table.size(), table.getWatermark());
+        return true;
+    }
+
+    // Returns true if records changed
+    private boolean deltaSync(ReplicaTable table) throws IOException {
+        String object = table.getObject();
+        String watermark = table.getWatermark();
+        List<Map<String, Map<String, Object>>> filters = watermark == null ? null
+                // Records modified within the watermark second may have been missed, so re-read them; upserts are idempotent
+                : List.of(Map.of("$gte", Map.of(ReplicaTable.MODIFIED_FIELD, watermark)));
+        List<Map<String, Object>> changed = new ArrayList<>();
+        if (!fetchAll(object, table.getFields(), filters, changed::addAll)) {
+            return false;
+        }
+        int applied = table.upsert(changed);
+        logger.debug("Delta sync of object '{}' applied {} records, watermark {}", object, applied, table.getWatermark());
+
+        // Only records past the watermark, or at it but not read at it before, are changes (unknown after a restart)
+        Set<String> atWatermark = new HashSet<>();
+        for (Map<String, Object> row : changed) {
+            if (Objects.equals(text(row, ReplicaTable.MODIFIED_FIELD), table.getWatermark())) {
+                atWatermark.add(text(row, ReplicaTable.KEY_FIELD));
+            }
+        }
+        Set<String> before = watermarkKeys.put(object, atWatermark);
+        boolean modified = !Objects.equals(watermark, table.getWatermark())
+                || (before != null && !before.containsAll(atWatermark));
+
+        // Deletions are invisible to a modified-since query; a count mismatch means records were removed
+        Integer total = count(object);
+        if (total != null && total != table.size()) {
+            logger.info("Replica of object '{}' has {} records but the API reports {}; reloading", object, table.size(), total);
+            return load(table) || modified;
+        }
+        return modified;
+    }
+
+    private static String text(Map<String, Object> row, String field) {
+        Object value = RowValues.get(row, field);
+        return value != null ? RowValues.asText(value) : null;
+    }
+
+    private List<String> replicatedFields(String object, ObjectModel model) {
+        if (model == null || model.fields() == null) {
+            logger.warn("Not replicating object '{}': model definition unavailable", object);
+            return null;
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        addFields(fields, null, model.fields());
+        if (model.groups() != null) {
+            model.groups().forEach((group, definition) -> addFields(fields, group, definition.fields()));
+        }
+        if (model.refs() != null) {
+            model.refs().forEach((ref, definition) -> {
+                if (definition.fields() != null) {
+                    REF_FIELDS.stream().filter(definition.fields()::containsKey).forEach(field -> fields.add(ref + "." + field));
+                }
+            });
+        }
+        if (!fields.contains(ReplicaTable.KEY_FIELD) || !fields.contains(ReplicaTable.MODIFIED_FIELD)) {
+            logger.warn("Not replicating object '{}': model has no '{}' or '{}' field", object,
+                    ReplicaTable.KEY_FIELD, ReplicaTable.MODIFIED_FIELD);
+            return null;
+        }
+        return new ArrayList<>(fields);
+    }
+
+    private static void addFields(Set<String> fields, String prefix, Map<String, FieldDefinition> definitions) {
+        if (definitions == null) {
+            return;
+        }
+        definitions.forEach((name, definition) -> {
+            if (definition == null || !Boolean.TRUE.equals(definition.writeOnly())) {
+                fields.add(prefix != null ? prefix + "." + name : name);
+            }
+        });
+    }
+
+    private Integer count(String object) {
+        QueryApiResponse response = fetchPage(new CoreQueryRequest(object, List.of(ReplicaTable.KEY_FIELD), null, null,
+                null, null, null, 1));
+        return response != null && response.meta() != null ? response.meta().totalCount() : null;
+    }
+
+    // Pages through every matching record, handing each page to the consumer; false if a page failed
+    private boolean fetchAll(String object, List<String> fields, List<Map<String, Map<String, Object>>> filters,
+            Consumer<List<Map<String, Object>>> consumer) {
+        int pageSize = config.getPageSize();
+        int start = 1;
+        while (true) {
+            QueryApiResponse response = fetchPage(new CoreQueryRequest(object, fields, filters, null, null,
+                    List.of(Map.of(ReplicaTable.KEY_FIELD, "asc")), start, pageSize));
+            if (response == null || response.result() == null) {
+                return false;
+            }
+            consumer.accept(response.result());
+            if (response.result().size() < pageSize || response.meta() == null || response.meta().next() == null) {
+                return true;
+            }
+            start = response.meta().next();
+        }
+    }
+
+    private static String directoryName(String name) {
+        return name == null ? "default" : name.replaceAll("[^A-Za-z0-9.-]+", "_");
+    }
+
+    // Readable, with a hash of the exact name so users differing only in replaced characters do not share it
+    static String userDirectoryName(String username) {
+        return directoryName(username) + "-" + DiskCache.key(username).substring(0, 12);
+    }
+
+    private QueryApiResponse fetchPage(CoreQueryRequest request) {
+        try {
+            return restClient.post()
+                    .uri("/services/core/query")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(request)
+                    .retrieve()
+                    .body(QueryApiResponse.class);
+        } catch (RestClientException e) {
+            logger.error("Error loading replica page for object '{}': {}", request.object(), e.getMessage(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.transport.CancellationRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Loads model definitions into the {@link ModelService} cache in the background, so the first
+ * getModelDefinition for a likely object does not cost a round trip while the user waits.
+ * The objects warmed are tool-integration.resources plus the most used objects in the {@link ModelUsageHistory};
+ * the model catalog used to resolve object names is listed first.
+ *
+ * Warming runs on minimum-priority daemon threads with bounded parallelism, and each load waits while tool
+ * calls are in flight, so it does not compete with live requests for the connection pool or the API quota.
+ */
+@Service
+public class SchemaWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaWarmer.class);
+
+    private static final long IDLE_POLL_MILLIS = 250;
+    // A busy server still gets its schemas warmed eventually
+    private static final long MAX_DEFER_MILLIS = 30_000;
+
+    private final ModelService modelService;
+    private final ModelUsageHistory usageHistory;
+    private final CancellationRegistry cancellationRegistry;
+    private final McpServerProperties.SchemaWarmupConfig config;
+    private final Map<String, String> objects;
+    private final List<String> resources;
+    private final boolean sidecarFrontEnd; // Models are loaded by the sidecar daemon
+    private ScheduledExecutorService scheduler;
+    private volatile ExecutorService workers;
+
+    public SchemaWarmer(ModelService modelService, ModelUsageHistory usageHistory,
+            CancellationRegistry cancellationRegistry, McpServerProperties properties) {
+        this.modelService = modelService;
+        this.usageHistory = usageHistory;
+        this.cancellationRegistry = cancellationRegistry;
+        this.config = properties.getSchemaWarmup() != null
+                ? properties.getSchemaWarmup() : new McpServerProperties.SchemaWarmupConfig();
+        this.objects = properties.getReplica() != null
+                ? properties.getReplica().getObjects() : new McpServerProperties.ReplicaConfig().getObjects();
+        this.resources = properties.getToolIntegration() != null
+                ? properties.getToolIntegration().getResources() : List.of();
+        this.sidecarFrontEnd = properties.getSidecar() != null
+                && properties.getSidecar().getMode() == McpServerProperties.SidecarMode.CLIENT;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("schema-warmup", false));
+        scheduler.scheduleWithFixedDelay(usageHistory::save, config.getSaveIntervalSeconds(),
+                config.getSaveIntervalSeconds(), TimeUnit.SECONDS);
+        if (!config.isEnabled() || sidecarFrontEnd) {
+            logger.info("Schema pre-warming disabled");
+            return;
+        }
+        scheduler.schedule(this::warmAll, config.getInitialDelaySeconds(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        ExecutorService current = workers;
+        if (current != null) {
+            current.shutdownNow();
+        }
+    }
+
+    /**
+     * Objects to warm: configured resources first, then the most used objects.
+     */
+    List<String> objectsToWarm() {
+        Set<String> names = new LinkedHashSet<>();
+        for (String resource : resources) {
+            String object = objects.getOrDefault(resource, resource.contains("/") ? resource : null);
+            if (object != null) {
+                names.add(object);
+            }
+        }
+        names.addAll(usageHistory.topObjects(config.getTopObjects()));
+        return new ArrayList<>(names);
+    }
+
+    void warmAll() {
+        // The object name index comes from the catalog, so the first tool call does not have to list it
+        if (awaitIdle() && modelService.refreshCatalog()) {
+            logger.debug("Listed the model catalog for object name resolution");
+        }
+        List<String> names = objectsToWarm();
+        if (names.isEmpty()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        AtomicInteger loaded = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(1, config.getParallelism()), threadFactory("schema-warmup-", true));
+        try {
+            for (String name : names) {
+                workers.execute(() -> {
+                    if (modelService.isCached(name) || !awaitIdle()) {
+                        return;
+                    }
+                    if (modelService.loadModel(name) != null) {
+                        loaded.incrementAndGet();
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(10, TimeUnit.MINUTES);
+            logger.info("Pre-warmed {} of {} model definitions in {} ms", loaded.get(), names.size(),
+                    System.currentTimeMillis() - started);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            workers = null;
+        }
+    }
+
+    // Waits while tool calls are running; false if the warmer is shutting down
+    private boolean awaitIdle() {
+        long deadline = System.currentTimeMillis() + MAX_DEFER_MILLIS;
+        try {
+            while (cancellationRegistry.activeCalls() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(IDLE_POLL_MILLIS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name, boolean numbered) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, numbered ? name + count.incrementAndGet() : name);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,198 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Set;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+/**
+ * Encrypted on-disk store of access tokens, so a new session reuses the token of the previous one while it is
+ * still valid instead of making a password-grant request at startup.
+ *
+ * There is one file per client id, user and base URL. The token and its expiration are encrypted with
+ * AES-256-GCM under a key derived (PBKDF2) from the client secret and password, so the file is useless without
+ * the credentials, and changed credentials simply make the stored token unreadable. The owner is bound to the
+ * ciphertext as associated data. Files are written to a temporary file and moved into place, and are only
+ * readable by the user, in a directory only the user can enter.
+ */
+@Component
+public class TokenStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenStore.class);
+
+    private static final byte VERSION = 1;
+    private static final int SALT_BYTES = 16;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final int KEY_BITS = 256;
+    private static final int KEY_ITERATIONS = 20_000;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Whose token a file holds.
+     *
+     * @param clientId OAuth2 client id
+     * @param username User the token was granted to
+     * @param baseUrl  API base URL the token is for
+     */
+    public record Owner(String clientId, String username, String baseUrl) {
+
+        private String id() {
+            return clientId + "\n" + username + "\n" + baseUrl;
+        }
+    }
+
+    /**
+     * A stored token.
+     *
+     * @param token      The access token
+     * @param expiration When it expires
+     */
+    public record StoredToken(String token, Instant expiration) {}
+
+    private final McpServerProperties.TokenStoreConfig config;
+    private final Path directory;
+
+    @Autowired
+    public TokenStore(McpServerProperties properties) {
+        this(properties.getTokenStore() != null ? properties.getTokenStore() : new McpServerProperties.TokenStoreConfig());
+    }
+
+    TokenStore(McpServerProperties.TokenStoreConfig config) {
+        this.config = config;
+        this.directory = Paths.get(config.getDirectory());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Reads the token of an owner.
+     *
+     * @param secret Credentials the key is derived from
+     * @return The token, or null if none is stored, it has expired or it cannot be decrypted with the secret
+     */
+    public StoredToken load(Owner owner, String secret) {
+        Path file = file(owner);
+        byte[] stored;
+        try {
+            stored = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Cannot read stored token {}: {}", file, e.getMessage());
+            return null;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(stored);
+            if (stored.length < 1 + SALT_BYTES + IV_BYTES || in.get() != VERSION) {
+                return null;
+            }
+            byte[] salt = new byte[SALT_BYTES];
+            byte[] iv = new byte[IV_BYTES];
+            in.get(salt).get(iv);
+            Cipher cipher = cipher(Cipher.DECRYPT_MODE, secret, salt, iv, owner);
+            ByteBuffer plain = ByteBuffer.wrap(cipher.doFinal(stored, in.position(), in.remaining()));
+            Instant expiration = Instant.ofEpochMilli(plain.getLong());
+            if (!Instant.now().isBefore(expiration)) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            String token = StandardCharsets.UTF_8.decode(plain).toString();
+            logger.info("Reusing the stored access token, which expires around {}", expiration);
+            return new StoredToken(token, expiration);
+        } catch (GeneralSecurityException e) {
+            // Other credentials, or a damaged file
+            logger.info("Stored access token cannot be decrypted with the current credentials");
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot read stored token {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the token of an owner, replacing the one stored before.
+     *
+     * @param secret Credentials the key is derived from
+     */
+    public void save(Owner owner, String secret, String token, Instant expiration) {
+        try {
+            byte[] salt = new byte[SALT_BYTES];
+            byte[] iv = new byte[IV_BYTES];
+            RANDOM.nextBytes(salt);
+            RANDOM.nextBytes(iv);
+            byte[] tokenBytes = token.getBytes(StandardCharsets.UTF_8);
+            byte[] plain = ByteBuffer.allocate(8 + tokenBytes.length)
+                    .putLong(expiration.toEpochMilli()).put(tokenBytes).array();
+            byte[] encrypted = cipher(Cipher.ENCRYPT_MODE, secret, salt, iv, owner).doFinal(plain);
+            byte[] stored = ByteBuffer.allocate(1 + SALT_BYTES + IV_BYTES + encrypted.length)
+                    .put(VERSION).put(salt).put(iv).put(encrypted).array();
+
+            boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+            Files.createDirectories(directory);
+            if (posix) {
+                Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwx------"));
+            }
+            // Created readable by the user only, then moved into place whole
+            FileAttribute<?>[] attributes = posix
+                    ? new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(
+                            Set.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE))}
+                    : new FileAttribute<?>[0];
+            Path tmp = Files.createTempFile(directory, "token-", ".tmp", attributes);
+            try {
+                Files.write(tmp, stored);
+                Files.move(tmp, file(owner), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            logger.warn("Cannot store the access token in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private Cipher cipher(int mode, String secret, byte[] salt, byte[] iv, Owner owner)
+            throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec((secret != null ? secret : "").toCharArray(), salt, KEY_ITERATIONS, KEY_BITS);
+        byte[] key;
+        try {
+            key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, new SecretKeySpec(key, "AES"), new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(owner.id().getBytes(StandardCharsets.UTF_8));
+        return cipher;
+    }
+
+    private Path file(Owner owner) {
+        return directory.resolve(DiskCache.key("token", owner.id()) + ".token");
+    }
+}
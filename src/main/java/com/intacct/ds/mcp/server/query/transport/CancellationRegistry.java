@@ -0,0 +1,85 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Tracks in-flight tool calls by JSON-RPC request id and cancels them on notifications/cancelled.
+ * A cancellation can overtake the request it refers to (requests are dispatched asynchronously),
+ * so ids cancelled before their call started are remembered for a short while.
+ */
+@Component
+public class CancellationRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(CancellationRegistry.class);
+
+    static final String METHOD_CANCELLED = "notifications/cancelled";
+
+    private final Map<String, ToolCallCancellation> active = new ConcurrentHashMap<>();
+    private final Cache<String, String> cancelledEarly = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * Starts tracking a tool call on the current thread.
+     *
+     * @param requestId JSON-RPC id of the tools/call request
+     * @return The call's handle, also available through {@link ToolCallCancellation#current()} until closed
+     */
+    public ToolCallCancellation begin(Object requestId) {
+        ToolCallCancellation cancellation = ToolCallCancellation.bind(requestId, this);
+        String key = key(requestId);
+        active.put(key, cancellation);
+        String reason = cancelledEarly.asMap().remove(key);
+        if (reason != null) {
+            cancellation.cancel(reason);
+        }
+        return cancellation;
+    }
+
+    /**
+     * Cancels a tool call.
+     *
+     * @param requestId JSON-RPC id of the request to cancel
+     * @param reason    Reason given by the client, may be null
+     */
+    public void cancel(Object requestId, String reason) {
+        if (requestId == null) {
+            return;
+        }
+        String key = key(requestId);
+        ToolCallCancellation cancellation = active.get(key);
+        if (cancellation == null) {
+            cancelledEarly.put(key, reason != null ? reason : "");
+            logger.debug("Request {} cancelled before it started", requestId);
+            return;
+        }
+        logger.info("Cancelling request {}{}", requestId, reason != null ? ": " + reason : "");
+        cancellation.cancel(reason);
+    }
+
+    /**
+     * Number of tool calls currently running.
+     */
+    public int activeCalls() {
+        return active.size();
+    }
+
+    void finish(ToolCallCancellation cancellation) {
+        active.remove(key(cancellation.getRequestId()), cancellation);
+    }
+
+    // JSON-RPC ids are strings or numbers; 7 and 7L must match
+    private static String key(Object requestId) {
+        return String.valueOf(requestId);
+    }
+}
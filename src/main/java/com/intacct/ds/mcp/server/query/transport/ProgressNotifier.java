@@ -0,0 +1,141 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+
+/**
+ * Sends MCP progress notifications for long tool calls.
+ * A client opts in per call by sending a progressToken in the request's _meta; it can additionally set
+ * _meta.partialResults to receive row batches (notifications/partial_result) as they are fetched.
+ * Calls forwarded by a sidecar front-end carry a {@link Sink} in their ToolContext, which relays the
+ * notifications to the front-end instead of this process's transport.
+ */
+@Component
+public class ProgressNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgressNotifier.class);
+
+    static final String METHOD_PROGRESS = "notifications/progress";
+    static final String METHOD_PARTIAL_RESULT = "notifications/partial_result";
+
+    /**
+     * ToolContext key of the {@link Sink} notifications of a call are sent to
+     */
+    static final String SINK_KEY = "mcpNotificationSink";
+
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ObjectProvider<McpServerTransportProvider> transportProvider;
+    private final McpServerProperties.ProgressConfig config;
+
+    public ProgressNotifier(ObjectProvider<McpServerTransportProvider> transportProvider, McpServerProperties properties) {
+        this.transportProvider = transportProvider;
+        this.config = properties.getProgress();
+    }
+
+    /**
+     * Starts reporting for a tool call.
+     *
+     * @return A reporter, or null if the client did not ask for progress or notifications are disabled
+     */
+    public Progress start(ToolContext toolContext) {
+        ToolCallMeta call = ToolCallMeta.from(toolContext);
+        if (!config.isEnabled() || call == null || call.progressToken() == null) {
+            return null;
+        }
+        Sink sink = toolContext.getContext().get(SINK_KEY) instanceof Sink callSink ? callSink : this::send;
+        return new Progress(call.progressToken(), call.partialResults() && config.isPartialResults(), sink);
+    }
+
+    /**
+     * Receiver of the notifications of one tool call.
+     */
+    interface Sink {
+        void send(String method, Map<String, Object> params);
+    }
+
+    /**
+     * Progress of one tool call. Progress values must increase from one report to the next.
+     */
+    public final class Progress {
+        private final Object progressToken;
+        private final boolean partialResults;
+        private final Sink sink;
+        private int batches;
+
+        private Progress(Object progressToken, boolean partialResults, Sink sink) {
+            this.progressToken = progressToken;
+            this.partialResults = partialResults;
+            this.sink = sink;
+        }
+
+        /**
+         * Whether the client wants partial row batches.
+         */
+        public boolean isPartialResults() {
+            return partialResults;
+        }
+
+        /**
+         * @param progress Work done so far (e.g. rows fetched)
+         * @param total    Total work, or null if unknown
+         * @param message  Human-readable status
+         */
+        public void report(double progress, Double total, String message) {
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("progressToken", progressToken);
+            params.put("progress", progress);
+            if (total != null) {
+                params.put("total", total);
+            }
+            params.put("message", message);
+            sink.send(METHOD_PROGRESS, params);
+        }
+
+        /**
+         * Sends a batch of rows ahead of the final result; does nothing unless {@link #isPartialResults()}.
+         *
+         * @param start Position of the first row in the result (1-based, like 'start')
+         * @param rows  Rows of the batch
+         */
+        public void partialResult(int start, List<Map<String, Object>> rows) {
+            if (!partialResults) {
+                return;
+            }
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("progressToken", progressToken);
+            params.put("batch", ++batches);
+            params.put("start", start);
+            params.put("rows", rows);
+            sink.send(METHOD_PARTIAL_RESULT, params);
+        }
+    }
+
+    /**
+     * Sends a notification to the clients of this process's transport.
+     */
+    void send(String method, Map<String, Object> params) {
+        McpServerTransportProvider transport = transportProvider.getIfAvailable();
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.notifyClients(method, params).block(SEND_TIMEOUT);
+        } catch (RuntimeException e) {
+            // Progress is best effort; the tool call itself carries on
+            logger.warn("Failed to send {}: {}", method, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCNotification;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCRequest;
+
+/**
+ * Jackson module for the transport's ObjectMapper that keeps the request id and _meta of tools/call requests.
+ * The SDK drops both when it converts the params into a CallToolRequest, so they are copied into the
+ * arguments under {@link ToolCallMeta#ARGUMENT}, where {@link ToolCallContextCallback} picks them up.
+ *
+ * The SDK has no handler for notifications/cancelled either; when a {@link CancellationRegistry} is given,
+ * cancellations are passed to it as they are read from the transport.
+ */
+public class RequestMetaModule extends SimpleModule {
+
+    public RequestMetaModule() {
+        this(null);
+    }
+
+    /**
+     * @param cancellationRegistry Registry to notify of cancelled requests, may be null
+     */
+    public RequestMetaModule(CancellationRegistry cancellationRegistry) {
+        super("RequestMetaModule");
+        addDeserializer(JSONRPCRequest.class, new RequestDeserializer());
+        if (cancellationRegistry != null) {
+            addDeserializer(JSONRPCNotification.class, new NotificationDeserializer(cancellationRegistry));
+        }
+    }
+
+    private static final class RequestDeserializer extends StdDeserializer<JSONRPCRequest> {
+
+        RequestDeserializer() {
+            super(JSONRPCRequest.class);
+        }
+
+        @Override
+        public JSONRPCRequest deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            ObjectCodec codec = parser.getCodec();
+            JsonNode request = codec.readTree(parser);
+            String method = request.path("method").asText(null);
+            JsonNode params = request.get("params");
+
+            if (McpSchema.METHOD_TOOLS_CALL.equals(method) && params instanceof ObjectNode paramsObject) {
+                JsonNode arguments = paramsObject.get("arguments");
+                ObjectNode argumentsObject = arguments instanceof ObjectNode object ? object : paramsObject.putObject("arguments");
+                ObjectNode meta = argumentsObject.putObject(ToolCallMeta.ARGUMENT);
+                meta.set("requestId", request.get("id"));
+                JsonNode requestMeta = paramsObject.get("_meta");
+                if (requestMeta instanceof ObjectNode) {
+                    meta.set("progressToken", requestMeta.get("progressToken"));
+                    meta.set("partialResults", requestMeta.get("partialResults"));
+                }
+            }
+
+            return new JSONRPCRequest(
+                    request.path("jsonrpc").asText(null),
+                    method,
+                    codec.treeToValue(request.get("id"), Object.class),
+                    params != null ? codec.treeToValue(params, Object.class) : null);
+        }
+    }
+
+    private static final class NotificationDeserializer extends StdDeserializer<JSONRPCNotification> {
+
+        private final CancellationRegistry cancellationRegistry;
+
+        NotificationDeserializer(CancellationRegistry cancellationRegistry) {
+            super(JSONRPCNotification.class);
+            this.cancellationRegistry = cancellationRegistry;
+        }
+
+        @Override
+        public JSONRPCNotification deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            ObjectCodec codec = parser.getCodec();
+            JsonNode notification = codec.readTree(parser);
+            String method = notification.path("method").asText(null);
+            JsonNode params = notification.get("params");
+
+            if (CancellationRegistry.METHOD_CANCELLED.equals(method) && params != null) {
+                cancellationRegistry.cancel(codec.treeToValue(params.get("requestId"), Object.class),
+                        params.path("reason").asText(null));
+            }
+
+            return new JSONRPCNotification(
+                    notification.path("jsonrpc").asText(null),
+                    method,
+                    params != null ? codec.treeToValue(params, Object.class) : null);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+
+/**
+ * Tracks the resources the client subscribed to and sends notifications/resources/updated when one changes.
+ * The MCP server of the SDK does not handle resources/subscribe, so the {@link StdioTransport} answers
+ * resources/subscribe and resources/unsubscribe itself through {@link #handle(String, Object)}.
+ *
+ * Updates only come from replica syncs, so subscriptions are only offered while object resources, resource change
+ * notifications and replicas are all enabled, and not by a sidecar front-end, whose daemon keeps the replicas.
+ * Only the resources registered through {@link #register(String)} can be subscribed to.
+ */
+@Component
+public class ResourceSubscriptions {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceSubscriptions.class);
+
+    static final String METHOD_SUBSCRIBE = "resources/subscribe";
+    static final String METHOD_UNSUBSCRIBE = "resources/unsubscribe";
+    static final String METHOD_UPDATED = "notifications/resources/updated";
+
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ObjectProvider<McpServerTransportProvider> transportProvider;
+    private final boolean enabled;
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+
+    public ResourceSubscriptions(ObjectProvider<McpServerTransportProvider> transportProvider,
+            McpServerProperties properties) {
+        this.transportProvider = transportProvider;
+        this.enabled = properties.isResourceChangeNotification()
+                && properties.getObjectResources() != null && properties.getObjectResources().isEnabled()
+                && properties.getReplica() != null && properties.getReplica().isEnabled()
+                && (properties.getSidecar() == null
+                        || properties.getSidecar().getMode() != McpServerProperties.SidecarMode.CLIENT);
+    }
+
+    /**
+     * Whether resource subscriptions are offered, i.e. whether a subscribed client can ever be notified.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Makes a resource available for subscription.
+     */
+    public void register(String uri) {
+        registered.add(uri);
+    }
+
+    /**
+     * Whether a request method is answered here rather than by the MCP server.
+     */
+    public boolean handles(String method) {
+        return enabled && (METHOD_SUBSCRIBE.equals(method) || METHOD_UNSUBSCRIBE.equals(method));
+    }
+
+    /**
+     * Answers resources/subscribe or resources/unsubscribe.
+     *
+     * @param params Request params, with the resource's uri
+     * @return The (empty) result
+     * @throws IllegalArgumentException if the params have no uri, or it is not a registered resource
+     */
+    public Object handle(String method, Object params) {
+        Object uri = params instanceof Map<?, ?> map ? map.get("uri") : null;
+        if (!(uri instanceof String resource) || resource.isBlank()) {
+            throw new IllegalArgumentException("Missing resource uri");
+        }
+        if (!registered.contains(resource)) {
+            throw new IllegalArgumentException("Unknown resource " + resource);
+        }
+        if (METHOD_SUBSCRIBE.equals(method)) {
+            subscribed.add(resource);
+            logger.info("Client subscribed to {}", resource);
+        } else {
+            subscribed.remove(resource);
+            logger.info("Client unsubscribed from {}", resource);
+        }
+        return Map.of();
+    }
+
+    public boolean isSubscribed(String uri) {
+        return subscribed.contains(uri);
+    }
+
+    /**
+     * Tells the client that a resource changed, if it subscribed to it and resource change notifications are enabled.
+     */
+    public void updated(String uri) {
+        if (!enabled || !subscribed.contains(uri)) {
+            return;
+        }
+        McpServerTransportProvider transport = transportProvider.getIfAvailable();
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.notifyClients(METHOD_UPDATED, Map.of("uri", uri)).block(SEND_TIMEOUT);
+            logger.debug("Sent {} for {}", METHOD_UPDATED, uri);
+        } catch (RuntimeException e) {
+            // The client reads the resource again on its next subscription or poll
+            logger.warn("Failed to send {} for {}: {}", METHOD_UPDATED, uri, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * One connection between a sidecar front-end and the daemon: newline-delimited JSON messages over a Unix
+ * domain socket, framed here like the STDIO transport frames stdin. One thread reads while any thread
+ * writes, one message per line.
+ *
+ * Writes run on the connection's own writer thread: a socket channel is closed when a thread writing to it is
+ * interrupted, and tool call threads are interrupted when their call is cancelled, which would drop every
+ * call sharing the connection.
+ */
+final class SidecarChannel implements AutoCloseable {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SocketChannel channel;
+    private final int maxMessageBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocate(65536);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mcp-sidecar-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private byte[] line = new byte[1024];
+
+    SidecarChannel(SocketChannel channel, int maxMessageBytes) {
+        this.channel = channel;
+        this.maxMessageBytes = maxMessageBytes;
+        this.buffer.flip();
+    }
+
+    /**
+     * Reads the next message.
+     *
+     * @return The message, or null at end of input
+     * @throws IOException if the connection fails or a message is longer than the maximum
+     */
+    JsonNode read() throws IOException {
+        int length = 0;
+        while (true) {
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    return MAPPER.readTree(line, 0, length);
+                }
+                if (length == maxMessageBytes) {
+                    throw new IOException("Message longer than " + maxMessageBytes + " bytes");
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, Math.min(maxMessageBytes, line.length * 2));
+                }
+                line[length++] = b;
+            }
+            buffer.clear();
+            int n = channel.read(buffer);
+            buffer.flip();
+            if (n < 0) {
+                if (length > 0) {
+                    throw new EOFException("Connection closed in the middle of a message");
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Writes a message as one line, and waits until it is written even if the calling thread is interrupted
+     * (the interrupt is kept for the caller).
+     */
+    void write(Object message) throws IOException {
+        byte[] json = MAPPER.writeValueAsBytes(message);
+        ByteBuffer out = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        Future<?> written;
+        try {
+            written = writer.submit(() -> {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            throw new ClosedChannelException();
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    written.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+}
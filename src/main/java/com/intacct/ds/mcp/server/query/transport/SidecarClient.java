@@ -0,0 +1,349 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sidecar front-end: forwards the tool calls of this STDIO process to the sidecar daemon ({@link SidecarServer})
+ * over its Unix domain socket, and takes the access token from the daemon instead of fetching one.
+ *
+ * All calls share one connection; replies are matched to calls by id, so calls run concurrently. Progress
+ * notifications relayed by the daemon are sent to this process's MCP client, and a cancelled call is
+ * cancelled on the daemon. While the daemon cannot be reached (not started, stopped, or serving another
+ * company or user), calls run locally and the daemon is only tried again after retry-after-seconds.
+ */
+@Component
+public class SidecarClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(SidecarClient.class);
+
+    private static final TypeReference<Map<String, Object>> PARAMS_TYPE = new TypeReference<>() {};
+    private static final long TOKEN_TIMEOUT_SECONDS = 30;
+    // Tools that write files, which are not run again locally while the daemon may still be running them
+    private static final Set<String> WRITING_TOOLS = Set.of("exportQuery");
+
+    private final McpServerProperties.SidecarConfig config;
+    private final ProgressNotifier progressNotifier;
+    private final AtomicLong callIds = new AtomicLong();
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private volatile String baseUrl;
+    private volatile String username;
+    private volatile SidecarChannel connection;
+    private volatile long unreachableUntil;
+    private volatile boolean closed;
+
+    @Autowired
+    public SidecarClient(McpServerProperties properties, ProgressNotifier progressNotifier) {
+        this(properties.getSidecar() != null ? properties.getSidecar() : new McpServerProperties.SidecarConfig(),
+                progressNotifier);
+    }
+
+    SidecarClient(McpServerProperties.SidecarConfig config, ProgressNotifier progressNotifier) {
+        this.config = config;
+        this.progressNotifier = progressNotifier;
+    }
+
+    /**
+     * Whether this process is a front-end of the daemon.
+     */
+    public boolean isEnabled() {
+        return config.getMode() == McpServerProperties.SidecarMode.CLIENT;
+    }
+
+    /**
+     * Sets the base URL and user this process is configured for; the daemon only serves front-ends whose
+     * identity matches its own.
+     */
+    public void identify(String baseUrl, String username) {
+        this.baseUrl = baseUrl;
+        this.username = username;
+    }
+
+    /**
+     * Decorates every callback of a provider so that it is forwarded to the daemon; returns the provider
+     * unchanged unless this process is a front-end.
+     */
+    public ToolCallbackProvider wrap(ToolCallbackProvider provider) {
+        if (!isEnabled()) {
+            return provider;
+        }
+        return ToolCallbackProvider.from(Arrays.stream(provider.getToolCallbacks())
+                .map(Forwarding::new)
+                .toArray(ToolCallback[]::new));
+    }
+
+    /**
+     * Access token held by the daemon, which fetches one if it has none.
+     *
+     * @param token      The token
+     * @param expiration When it expires
+     */
+    public record SharedToken(String token, Instant expiration) {}
+
+    /**
+     * Takes the daemon's access token.
+     *
+     * @return The token, or null if the daemon cannot be reached or has none
+     */
+    public SharedToken accessToken() {
+        if (!isEnabled()) {
+            return null;
+        }
+        SidecarChannel channel = connection();
+        if (channel == null) {
+            return null;
+        }
+        long id = callIds.incrementAndGet();
+        CompletableFuture<JsonNode> reply = new CompletableFuture<>();
+        pending.put(id, reply);
+        try {
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("type", "token");
+            request.put("id", id);
+            channel.write(request);
+            JsonNode answer = reply.get(TOKEN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!answer.hasNonNull("token")) {
+                return null;
+            }
+            logger.info("Using the access token of the sidecar daemon");
+            return new SharedToken(answer.get("token").asText(), Instant.ofEpochMilli(answer.path("expiresAt").asLong()));
+        } catch (IOException | ExecutionException | TimeoutException e) {
+            logger.warn("Could not get the access token from the sidecar daemon: {}", e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        SidecarChannel channel = connection;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Runs a tool call on the daemon, or locally if the daemon cannot be reached.
+     */
+    String call(ToolCallback local, String input, ToolContext toolContext) {
+        SidecarChannel channel = connection();
+        if (channel == null) {
+            return local.call(input, toolContext);
+        }
+        String tool = local.getToolDefinition().name();
+        ToolCallMeta meta = ToolCallMeta.from(toolContext);
+        long id = callIds.incrementAndGet();
+        CompletableFuture<JsonNode> reply = new CompletableFuture<>();
+        pending.put(id, reply);
+        ToolCallCancellation cancellation = ToolCallCancellation.current();
+        Runnable deregister = cancellation.onCancel(() -> cancel(channel, id, cancellation.getReason()));
+        try {
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("type", "call");
+            request.put("id", id);
+            request.put("tool", tool);
+            request.put("input", input);
+            if (meta != null && meta.progressToken() != null) {
+                request.put("progressToken", meta.progressToken());
+                request.put("partialResults", meta.partialResults());
+            }
+            channel.write(request);
+            JsonNode answer = reply.get(config.getCallTimeoutSeconds(), TimeUnit.SECONDS);
+            if ("error".equals(answer.path("type").asText())) {
+                throw new ToolExecutionException(local.getToolDefinition(),
+                        new IllegalStateException(answer.path("message").asText()));
+            }
+            return answer.path("result").isNull() ? null : answer.path("result").asText();
+        } catch (IOException | ExecutionException e) {
+            // The daemon cancels the calls of a lost connection, so the call is run again here unless it was cancelled
+            cancellation.throwIfCancelled();
+            logger.warn("Sidecar daemon failed during {}, running it locally: {}", tool, e.getMessage());
+            return local.call(input, toolContext);
+        } catch (TimeoutException e) {
+            // A stuck daemon must not hold the STDIO worker; its answer, if one still comes, is dropped
+            cancel(channel, id, "Timed out");
+            if (WRITING_TOOLS.contains(tool)) {
+                // The daemon may still be writing the file; a second run would race it for the target
+                logger.warn("Sidecar daemon did not answer {} within {}s", tool, config.getCallTimeoutSeconds());
+                throw new ToolExecutionException(local.getToolDefinition(), new IllegalStateException(
+                        "The sidecar daemon did not finish " + tool + " within " + config.getCallTimeoutSeconds()
+                                + " seconds; it was cancelled. Retry the call."));
+            }
+            logger.warn("Sidecar daemon did not answer {} within {}s, running it locally", tool,
+                    config.getCallTimeoutSeconds());
+            return local.call(input, toolContext);
+        } catch (InterruptedException e) {
+            cancellation.throwIfCancelled();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the sidecar daemon");
+        } finally {
+            deregister.run();
+            pending.remove(id);
+        }
+    }
+
+    private void cancel(SidecarChannel channel, long id, String reason) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("type", "cancel");
+        request.put("id", id);
+        request.put("reason", reason);
+        try {
+            channel.write(request);
+        } catch (IOException e) {
+            logger.debug("Could not cancel sidecar call {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * The open connection to the daemon, connecting if there is none.
+     *
+     * @return The connection, or null while the daemon cannot be reached
+     */
+    private SidecarChannel connection() {
+        SidecarChannel channel = connection;
+        if (channel != null || System.currentTimeMillis() < unreachableUntil) {
+            return channel;
+        }
+        synchronized (this) {
+            if (connection != null || System.currentTimeMillis() < unreachableUntil) {
+                return connection;
+            }
+            try {
+                connection = connect();
+            } catch (IOException e) {
+                logger.warn("Sidecar daemon unreachable at {}, running tool calls locally for {}s: {}",
+                        config.getSocketPath(), config.getRetryAfterSeconds(), e.getMessage());
+                unreachableUntil = System.currentTimeMillis() + config.getRetryAfterSeconds() * 1000;
+            }
+            return connection;
+        }
+    }
+
+    private SidecarChannel connect() throws IOException {
+        SocketChannel socket = SocketChannel.open(StandardProtocolFamily.UNIX);
+        SidecarChannel channel = new SidecarChannel(socket, config.getMaxMessageBytes());
+        try {
+            socket.connect(UnixDomainSocketAddress.of(Paths.get(config.getSocketPath())));
+            Map<String, Object> hello = new LinkedHashMap<>();
+            hello.put("type", "hello");
+            hello.put("baseUrl", baseUrl);
+            hello.put("username", username);
+            channel.write(hello);
+            JsonNode answer = channel.read();
+            if (answer == null || !"welcome".equals(answer.path("type").asText())) {
+                throw new IOException(answer != null ? answer.path("message").asText("turned away") : "no answer");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        Thread reader = new Thread(() -> readLoop(channel), "mcp-sidecar-client");
+        reader.setDaemon(true);
+        reader.start();
+        logger.info("Connected to the sidecar daemon at {}", config.getSocketPath());
+        return channel;
+    }
+
+    /**
+     * Hands replies to the calls waiting for them and relays notifications, until the connection fails.
+     */
+    private void readLoop(SidecarChannel channel) {
+        IOException failure = null;
+        try {
+            JsonNode message;
+            while ((message = channel.read()) != null) {
+                long id = message.path("id").asLong();
+                if ("notification".equals(message.path("type").asText())) {
+                    progressNotifier.send(message.path("method").asText(),
+                            SidecarChannel.MAPPER.convertValue(message.get("params"), PARAMS_TYPE));
+                    continue;
+                }
+                CompletableFuture<JsonNode> reply = pending.get(id);
+                if (reply != null) {
+                    reply.complete(message);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        synchronized (this) {
+            if (connection == channel) {
+                connection = null;
+            }
+        }
+        channel.close();
+        IOException cause = failure != null ? failure : new IOException("Sidecar daemon closed the connection");
+        if (!closed) {
+            logger.warn("Lost the connection to the sidecar daemon: {}", cause.getMessage());
+        }
+        pending.values().forEach(reply -> reply.completeExceptionally(cause));
+    }
+
+    /**
+     * A tool callback that runs on the daemon.
+     */
+    private final class Forwarding implements ToolCallback {
+        private final ToolCallback local;
+
+        private Forwarding(ToolCallback local) {
+            this.local = local;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return local.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return local.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            return SidecarClient.this.call(local, toolInput, toolContext);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.AuthService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sidecar daemon: serves the tool calls and access token of STDIO front-ends ({@link SidecarClient}) over a
+ * Unix domain socket, so that the processes of every MCP client on a workstation share one token, one set of
+ * model and query caches and one outbound connection pool.
+ *
+ * A front-end first introduces itself with the base URL and user it is configured for, and is turned away
+ * unless they match the daemon's own, so it never receives another company's data. Each forwarded call runs
+ * on the daemon's worker pool through the same callbacks as a local MCP call (bulkheads, cancellation);
+ * its progress notifications are relayed back to the front-end. When a front-end disconnects, its
+ * unfinished calls are cancelled. The socket file is only accessible to the user running the daemon.
+ */
+@Component
+public class SidecarServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SidecarServer.class);
+
+    private final McpServerProperties.SidecarConfig config;
+    private final List<ToolCallbackProvider> toolProviders;
+    private final AuthService authService;
+    private final CancellationRegistry cancellationRegistry;
+    private final Set<SidecarChannel> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionNumber = new AtomicInteger();
+    private Map<String, ToolCallback> tools;
+    private ExecutorService workers;
+    private ServerSocketChannel server;
+    private Path socketPath;
+
+    @Autowired
+    public SidecarServer(McpServerProperties properties, List<ToolCallbackProvider> toolProviders,
+            AuthService authService, CancellationRegistry cancellationRegistry) {
+        this(properties.getSidecar() != null ? properties.getSidecar() : new McpServerProperties.SidecarConfig(),
+                toolProviders, authService, cancellationRegistry);
+    }
+
+    SidecarServer(McpServerProperties.SidecarConfig config, List<ToolCallbackProvider> toolProviders,
+            AuthService authService, CancellationRegistry cancellationRegistry) {
+        this.config = config;
+        this.toolProviders = toolProviders;
+        this.authService = authService;
+        this.cancellationRegistry = cancellationRegistry;
+    }
+
+    /**
+     * Starts listening when this process is the daemon. Does nothing if another daemon already listens on the socket.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (config.getMode() != McpServerProperties.SidecarMode.DAEMON) {
+            return;
+        }
+        this.tools = toolProviders.stream()
+                .flatMap(provider -> Arrays.stream(provider.getToolCallbacks()))
+                .collect(Collectors.toMap(tool -> tool.getToolDefinition().name(), Function.identity(),
+                        (first, second) -> first));
+        this.socketPath = Paths.get(config.getSocketPath());
+        if (Files.exists(socketPath)) {
+            try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+                logger.error("Another sidecar daemon is already listening on {}", socketPath);
+                this.socketPath = null;
+                return;
+            } catch (IOException e) {
+                // Left behind by a daemon that did not shut down cleanly
+                Files.delete(socketPath);
+            }
+        }
+        // A missing directory is created for the user only; an existing one (e.g. /tmp) is left as it is
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        Path directory = socketPath.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            if (posix) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+
+        int threads = config.getWorkerThreads() > 0
+                ? config.getWorkerThreads()
+                : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "mcp-sidecar-worker-" + threadNumber.incrementAndGet()));
+        pool.allowCoreThreadTimeOut(true);
+        this.workers = pool;
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(UnixDomainSocketAddress.of(socketPath));
+        if (posix) {
+            Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+        }
+        // Not a daemon thread: it keeps the process alive after stdin is closed
+        new Thread(this::acceptLoop, "mcp-sidecar-accept").start();
+        logger.info("Sidecar daemon listening on {} with {} tools and {} worker threads", socketPath, tools.size(), threads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server == null) {
+            return;
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            logger.debug("Closing the sidecar socket failed: {}", e.getMessage());
+        }
+        connections.forEach(SidecarChannel::close);
+        workers.shutdownNow();
+        try {
+            Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+            logger.warn("Could not remove the sidecar socket {}: {}", socketPath, e.getMessage());
+        }
+        logger.info("Sidecar daemon stopped");
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                logger.error("Error accepting a sidecar connection", e);
+                return;
+            }
+            int number = connectionNumber.incrementAndGet();
+            Thread reader = new Thread(() -> serve(new SidecarChannel(channel, config.getMaxMessageBytes()), number),
+                    "mcp-sidecar-connection-" + number);
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    /**
+     * Reads the messages of one front-end until it disconnects.
+     */
+    private void serve(SidecarChannel channel, int number) {
+        connections.add(channel);
+        // Call id -> cancellation key of the calls still running
+        Map<Long, String> running = new ConcurrentHashMap<>();
+        try {
+            if (!welcome(channel, channel.read())) {
+                return;
+            }
+            logger.info("Sidecar front-end {} connected", number);
+            JsonNode message;
+            while ((message = channel.read()) != null) {
+                long id = message.path("id").asLong();
+                switch (message.path("type").asText()) {
+                    case "call" -> {
+                        String key = "sidecar-" + number + "-" + id;
+                        running.put(id, key);
+                        JsonNode call = message;
+                        workers.execute(() -> {
+                            try {
+                                reply(channel, id, call, key);
+                            } finally {
+                                running.remove(id);
+                            }
+                        });
+                    }
+                    case "cancel" -> {
+                        String key = running.get(id);
+                        if (key != null) {
+                            cancellationRegistry.cancel(key, message.path("reason").textValue());
+                        }
+                    }
+                    case "token" -> workers.execute(() -> sendToken(channel, id));
+                    default -> logger.warn("Ignoring sidecar message of type '{}'", message.path("type").asText());
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // Closed by stop()
+        } catch (IOException e) {
+            logger.warn("Sidecar front-end {} failed: {}", number, e.getMessage());
+        } finally {
+            connections.remove(channel);
+            channel.close();
+            // Nobody is waiting for these any more
+            running.values().forEach(key -> cancellationRegistry.cancel(key, "Front-end disconnected"));
+            logger.info("Sidecar front-end {} disconnected", number);
+        }
+    }
+
+    // Front-ends configured for another company or user are turned away
+    private boolean welcome(SidecarChannel channel, JsonNode hello) throws IOException {
+        if (hello == null || !"hello".equals(hello.path("type").asText())) {
+            return false;
+        }
+        boolean same = Objects.equals(authService.getBaseUrl(), hello.path("baseUrl").textValue())
+                && Objects.equals(authService.getUsername(), hello.path("username").textValue());
+        Map<String, Object> answer = new LinkedHashMap<>();
+        answer.put("type", same ? "welcome" : "rejected");
+        if (!same) {
+            answer.put("message", "The daemon serves " + authService.getUsername() + " at " + authService.getBaseUrl());
+            logger.warn("Turned away a sidecar front-end for {} at {}", hello.path("username").textValue(),
+                    hello.path("baseUrl").textValue());
+        }
+        channel.write(answer);
+        return same;
+    }
+
+    /**
+     * Runs a forwarded tool call and sends its result, or the error it failed with.
+     */
+    private void reply(SidecarChannel channel, long id, JsonNode call, String key) {
+        Map<String, Object> answer = new LinkedHashMap<>();
+        answer.put("id", id);
+        try {
+            ToolCallback tool = tools.get(call.path("tool").asText());
+            if (tool == null) {
+                throw new IllegalArgumentException("Unknown tool: " + call.path("tool").asText());
+            }
+            ProgressNotifier.Sink sink = (method, params) -> {
+                Map<String, Object> notification = new LinkedHashMap<>();
+                notification.put("type", "notification");
+                notification.put("id", id);
+                notification.put("method", method);
+                notification.put("params", params);
+                try {
+                    channel.write(notification);
+                } catch (IOException e) {
+                    logger.debug("Could not relay {}: {}", method, e.getMessage());
+                }
+            };
+            String result = tool.call(withMeta(call, key), new ToolContext(Map.of(ProgressNotifier.SINK_KEY, sink)));
+            answer.put("type", "result");
+            answer.put("result", result);
+        } catch (RuntimeException e) {
+            answer.put("type", "error");
+            answer.put("message", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        send(channel, answer);
+    }
+
+    // The call is registered for cancellation under a key unique to the connection, and keeps its progress token
+    private static String withMeta(JsonNode call, String key) {
+        try {
+            JsonNode input = SidecarChannel.MAPPER.readTree(call.path("input").asText("{}"));
+            if (!(input instanceof ObjectNode arguments)) {
+                return call.path("input").asText();
+            }
+            ObjectNode meta = arguments.putObject(ToolCallMeta.ARGUMENT);
+            meta.put("requestId", key);
+            meta.set("progressToken", call.get("progressToken"));
+            meta.put("partialResults", call.path("partialResults").asBoolean());
+            return SidecarChannel.MAPPER.writeValueAsString(arguments);
+        } catch (JsonProcessingException e) {
+            return call.path("input").asText(); // Let the tool report malformed input
+        }
+    }
+
+    private void sendToken(SidecarChannel channel, long id) {
+        Map<String, Object> answer = new LinkedHashMap<>();
+        answer.put("type", "token");
+        answer.put("id", id);
+        String token = authService.getAccessToken();
+        Instant expiration = authService.getAccessTokenExpiration();
+        if (token != null && expiration != null) {
+            answer.put("token", token);
+            answer.put("expiresAt", expiration.toEpochMilli());
+        }
+        send(channel, answer);
+    }
+
+    private static void send(SidecarChannel channel, Map<String, Object> answer) {
+        try {
+            channel.write(answer);
+        } catch (IOException e) {
+            logger.debug("Could not answer a sidecar front-end: {}", e.getMessage());
+        }
+    }
+}
@@ -1,25 +1,123 @@
 package com.intacct.ds.mcp.server.query.transport;
 
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.intacct.ds.mcp.server.query.config.McpServerProperties;
-import org.springframework.context.ApplicationContext;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import io.modelcontextprotocol.spec.McpError;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCMessage;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCNotification;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCRequest;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCResponse;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCResponse.JSONRPCError;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import reactor.core.publisher.Mono;
+
 /**
- * Handles STDIO transport mode for MCP server.
- * Manages reading from standard input and writing to standard output.
+ * STDIO transport for the MCP server: newline-delimited JSON-RPC over stdin and stdout.
+ *
+ * A dedicated reader thread reads stdin through an NIO channel and frames messages itself.
+ * Requests are handed to a bounded worker pool, so several tool calls run at once and their
+ * responses are written as they complete, in any order. Responses and notifications from the
+ * client are handled on the reader thread, so a tool waiting for the client is never queued
+ * behind other tools. JSON-RPC batches are split into their messages and answered with one array.
+ * A request reusing the id of one not answered yet is rejected, inside a batch or not.
+ *
+ * Once {@link McpServerProperties.StdioConfig#getMaxPendingRequests()} requests are waiting or
+ * running, the reader stops reading until one completes; the client then sees a full pipe instead
+ * of the server queueing without bound. Writes to stdout go through a single lock, one message per line.
+ *
+ * The ObjectMapper carries the {@link RequestMetaModule}, so tool calls keep their request id and _meta
+ * and cancellations reach the {@link CancellationRegistry} as soon as they are read. Resource subscriptions,
+ * which the MCP server does not handle, are answered by the {@link ResourceSubscriptions}.
  */
 @Component
-public class StdioTransport {
+public class StdioTransport implements McpServerTransportProvider {
     private static final Logger logger = LoggerFactory.getLogger(StdioTransport.class);
 
-    private final McpServerProperties properties;
-    private final ApplicationContext applicationContext;
+    private static final byte[] NEWLINE = { '\n' };
+    // How long in-flight requests may take to finish once stdin is closed
+    private static final long DRAIN_SECONDS = 30;
+
+    private final ObjectMapper objectMapper;
+    private final McpServerProperties.StdioConfig config;
+    private final ReadableByteChannel input;
+    private final WritableByteChannel output;
+    private final ResourceSubscriptions resourceSubscriptions; // May be null when subscriptions are not supported
+    private final ThreadPoolExecutor workers;
+    private final Semaphore pending;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Request id -> batch its response belongs to
+    private final Map<Object, Batch> batches = new ConcurrentHashMap<>();
+    // Ids of the requests read and not answered yet; a second request with one of them is rejected
+    private final Set<Object> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean closing = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+
+    private volatile McpServerSession session;
 
-    public StdioTransport(McpServerProperties properties, ApplicationContext applicationContext) {
-        this.properties = properties;
-        this.applicationContext = applicationContext;
+    @Autowired
+    public StdioTransport(McpServerProperties properties, CancellationRegistry cancellationRegistry,
+            ResourceSubscriptions resourceSubscriptions) {
+        this(new ObjectMapper().registerModule(new RequestMetaModule(cancellationRegistry)), properties.getStdio(),
+                new FileInputStream(FileDescriptor.in).getChannel(),
+                new FileOutputStream(FileDescriptor.out).getChannel(), resourceSubscriptions);
+    }
+
+    StdioTransport(ObjectMapper objectMapper, McpServerProperties.StdioConfig config, ReadableByteChannel input,
+            WritableByteChannel output, ResourceSubscriptions resourceSubscriptions) {
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.input = input;
+        this.output = output;
+        this.resourceSubscriptions = resourceSubscriptions;
+        // Tool calls mostly wait on the Intacct API, so the default pool is larger than the core count
+        int threads = config.getWorkerThreads() > 0
+                ? config.getWorkerThreads()
+                : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadNumber = new AtomicInteger();
+        // The semaphore bounds the queue, so it never rejects
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "mcp-stdio-worker-" + threadNumber.incrementAndGet()));
+        this.workers.allowCoreThreadTimeOut(true);
+        this.pending = new Semaphore(Math.max(threads, config.getMaxPendingRequests()));
     }
 
     /**
@@ -27,17 +125,18 @@ public class StdioTransport {
      */
     public void initialize() {
         logger.info("Initializing STDIO transport...");
-        
+
         // Set up STDIO-specific configuration
-        if (properties.getStdio().isDisableConsoleLogging()) {
+        if (config.isDisableConsoleLogging()) {
             logger.debug("Console logging disabled for STDIO compatibility");
         }
-        
-        if (properties.getStdio().isDisableBanner()) {
+
+        if (config.isDisableBanner()) {
             logger.debug("Spring Boot banner disabled for STDIO compatibility");
         }
-        
-        logger.info("STDIO transport initialized successfully");
+
+        logger.info("STDIO transport initialized with {} worker threads and up to {} pending requests",
+                workers.getMaximumPoolSize(), pending.availablePermits());
     }
 
     /**
@@ -45,7 +144,400 @@ public class StdioTransport {
      */
     public void shutdown() {
         logger.info("Shutting down STDIO transport...");
-        // Clean up any resources if needed
-        logger.info("STDIO transport shut down successfully");
+        close();
+        logger.info("STDIO transport shut down after {} requests in {} batches, reader stalled {} times",
+                requests.get(), batchCount.get(), stalls.get());
+    }
+
+    @Override
+    public void setSessionFactory(McpServerSession.Factory sessionFactory) {
+        // A single session for the stdio connection
+        this.session = sessionFactory.create(new SessionTransport());
+        new Thread(this::readLoop, "mcp-stdio-reader").start();
+    }
+
+    @Override
+    public Mono<Void> notifyClients(String method, Object params) {
+        if (session == null) {
+            return Mono.error(new McpError("No session to notify"));
+        }
+        return session.sendNotification(method, params)
+                .doOnError(e -> logger.error("Failed to send notification: {}", e.getMessage()));
+    }
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        return Mono.fromRunnable(this::close);
+    }
+
+    @Override
+    public void close() {
+        closing.set(true);
+        if (closed.compareAndSet(false, true)) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                    workers.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads stdin until end of input, splitting it into lines. Lines longer than the configured
+     * maximum are skipped and answered with an error.
+     */
+    private void readLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(1024, config.getReadBufferBytes()));
+        byte[] line = new byte[buffer.capacity()];
+        int lineLength = 0;
+        boolean oversized = false;
+        try {
+            while (!closing.get()) {
+                if (input.read(buffer) < 0) {
+                    break;
+                }
+                byte[] bytes = buffer.array();
+                int start = 0;
+                int end = buffer.position();
+                for (int i = 0; i < end; i++) {
+                    if (bytes[i] != '\n') {
+                        continue;
+                    }
+                    if (oversized) {
+                        oversized = false;
+                    } else if (lineLength == 0) {
+                        // Whole line in the buffer: no copy
+                        dispatchLine(bytes, start, i - start);
+                    } else {
+                        line = append(line, lineLength, bytes, start, i - start);
+                        dispatchLine(line, 0, lineLength + i - start);
+                    }
+                    lineLength = 0;
+                    start = i + 1;
+                }
+                int rest = end - start;
+                if (!oversized && rest > 0) {
+                    if (lineLength + rest > config.getMaxMessageBytes()) {
+                        logger.warn("Skipping message longer than {} bytes", config.getMaxMessageBytes());
+                        writeError(null, McpSchema.ErrorCodes.INVALID_REQUEST,
+                                "Message exceeds " + config.getMaxMessageBytes() + " bytes");
+                        oversized = true;
+                        lineLength = 0;
+                    } else {
+                        line = append(line, lineLength, bytes, start, rest);
+                        lineLength += rest;
+                    }
+                }
+                buffer.clear();
+            }
+            if (lineLength > 0 && !oversized) {
+                dispatchLine(line, 0, lineLength);
+            }
+        } catch (AsynchronousCloseException e) {
+            logger.debug("STDIO input closed");
+        } catch (IOException e) {
+            if (!closing.get()) {
+                logger.error("Error reading from stdin", e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            logger.info("STDIO input ended; finishing {} in-flight requests", workers.getActiveCount() + workers.getQueue().size());
+            drain();
+        }
+    }
+
+    // Lets requests already read finish and write their responses, then closes the session
+    private void drain() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(DRAIN_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("In-flight requests did not finish within {} seconds after stdin closed", DRAIN_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closing.set(true);
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    private static byte[] append(byte[] line, int lineLength, byte[] bytes, int from, int length) {
+        byte[] target = line;
+        if (lineLength + length > target.length) {
+            target = Arrays.copyOf(line, Math.max(lineLength + length, line.length * 2));
+        }
+        System.arraycopy(bytes, from, target, lineLength, length);
+        return target;
+    }
+
+    private void dispatchLine(byte[] bytes, int offset, int length) throws InterruptedException {
+        int end = offset + length;
+        while (offset < end && Character.isWhitespace(bytes[offset])) {
+            offset++;
+        }
+        if (offset == end) {
+            return;
+        }
+
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(bytes, offset, end - offset);
+        } catch (IOException e) {
+            logger.warn("Discarding unparseable message: {}", e.getMessage());
+            String detail = e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+            writeError(null, McpSchema.ErrorCodes.PARSE_ERROR, "Parse error: " + detail);
+            return;
+        }
+
+        if (!node.isArray()) {
+            JSONRPCMessage message = toMessage(node);
+            if (message instanceof JSONRPCRequest request && !inFlight.add(request.id())) {
+                // Written directly: through send() it would take the place of the request already using the id
+                logger.warn("Duplicate request id {}", request.id());
+                write(duplicateIdError(request));
+            } else if (message != null) {
+                dispatch(message);
+            }
+            return;
+        }
+        if (node.isEmpty()) {
+            writeError(null, McpSchema.ErrorCodes.INVALID_REQUEST, "Empty batch");
+            return;
+        }
+        dispatchBatch(node);
+    }
+
+    private void dispatchBatch(JsonNode batchNode) throws InterruptedException {
+        batchCount.incrementAndGet();
+        List<JSONRPCMessage> messages = new ArrayList<>(batchNode.size());
+        List<JSONRPCResponse> invalid = new ArrayList<>();
+        int expected = 0;
+        for (JsonNode element : batchNode) {
+            JSONRPCMessage message = convert(element);
+            if (message == null) {
+                invalid.add(errorResponse(id(element.get("id")), McpSchema.ErrorCodes.INVALID_REQUEST,
+                        "Invalid request"));
+                continue;
+            }
+            if (message instanceof JSONRPCRequest request) {
+                if (!inFlight.add(request.id())) {
+                    // Its response would complete the slot of the other request, in this batch or outside it
+                    logger.warn("Duplicate request id {} in batch", request.id());
+                    invalid.add(duplicateIdError(request));
+                    continue;
+                }
+                expected++;
+            }
+            messages.add(message);
+        }
+
+        // Register every request before any is dispatched, so no response can miss its batch
+        Batch batch = new Batch(expected + invalid.size());
+        for (JSONRPCMessage message : messages) {
+            if (message instanceof JSONRPCRequest request) {
+                batches.put(request.id(), batch);
+            }
+        }
+        for (JSONRPCResponse response : invalid) {
+            complete(batch, response);
+        }
+        for (JSONRPCMessage message : messages) {
+            dispatch(message);
+        }
+    }
+
+    private JSONRPCMessage toMessage(JsonNode node) {
+        JSONRPCMessage message = convert(node);
+        if (message == null) {
+            writeError(id(node.get("id")), McpSchema.ErrorCodes.INVALID_REQUEST, "Invalid request");
+        }
+        return message;
+    }
+
+    // Same discrimination as McpSchema.deserializeJsonRpcMessage, from an already parsed tree
+    private JSONRPCMessage convert(JsonNode node) {
+        if (!node.isObject()) {
+            return null;
+        }
+        try {
+            if (node.has("method") && node.has("id")) {
+                return objectMapper.treeToValue(node, JSONRPCRequest.class);
+            }
+            if (node.has("method")) {
+                return objectMapper.treeToValue(node, JSONRPCNotification.class);
+            }
+            if (node.has("result") || node.has("error")) {
+                return objectMapper.treeToValue(node, JSONRPCResponse.class);
+            }
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            logger.warn("Invalid JSON-RPC message: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private void dispatch(JSONRPCMessage message) throws InterruptedException {
+        McpServerSession current = session;
+        if (!(message instanceof JSONRPCRequest request)) {
+            // Responses complete a pending server request; notifications are cheap
+            current.handle(message).subscribe(null,
+                    e -> logger.warn("Error handling {}: {}", message.getClass().getSimpleName(), e.getMessage()));
+            return;
+        }
+        if (resourceSubscriptions != null && resourceSubscriptions.handles(request.method())) {
+            // Only updates a set, so it is answered on the reader thread
+            try {
+                send(new JSONRPCResponse(McpSchema.JSONRPC_VERSION, request.id(),
+                        resourceSubscriptions.handle(request.method(), request.params()), null));
+            } catch (IllegalArgumentException e) {
+                writeError(request.id(), McpSchema.ErrorCodes.INVALID_PARAMS, e.getMessage());
+            }
+            return;
+        }
+
+        if (!pending.tryAcquire()) {
+            stalls.incrementAndGet();
+            logger.debug("{} requests pending; pausing stdin until one completes", workers.getQueue().size()
+                    + workers.getActiveCount());
+            pending.acquire();
+        }
+        requests.incrementAndGet();
+        try {
+            workers.execute(() -> {
+                try {
+                    current.handle(request).block();
+                } catch (RuntimeException e) {
+                    logger.error("Error handling request {}: {}", request.method(), e.getMessage());
+                    inFlight.remove(request.id());
+                } finally {
+                    pending.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected after shutdown
+            pending.release();
+            writeError(request.id(), McpSchema.ErrorCodes.INTERNAL_ERROR, "Server is shutting down");
+        }
+    }
+
+    private void writeError(Object id, int code, String message) {
+        send(errorResponse(id, code, message));
+    }
+
+    private static JSONRPCResponse duplicateIdError(JSONRPCRequest request) {
+        return errorResponse(request.id(), McpSchema.ErrorCodes.INVALID_REQUEST,
+                "Request id " + request.id() + " is already in use");
+    }
+
+    private static JSONRPCResponse errorResponse(Object id, int code, String message) {
+        return new JSONRPCResponse(McpSchema.JSONRPC_VERSION, id, null, new JSONRPCError(code, message, null));
+    }
+
+    private Object id(JsonNode id) {
+        return id == null || id.isNull() ? null : objectMapper.convertValue(id, Object.class);
+    }
+
+    private void send(JSONRPCMessage message) {
+        if (message instanceof JSONRPCResponse response && response.id() != null) {
+            // Released before the response is written, so the client may reuse the id once it has it
+            inFlight.remove(response.id());
+            Batch batch = batches.remove(response.id());
+            if (batch != null) {
+                complete(batch, response);
+                return;
+            }
+        }
+        write(message);
+    }
+
+    private void complete(Batch batch, JSONRPCResponse response) {
+        List<JSONRPCResponse> responses = batch.add(response);
+        if (responses != null) {
+            write(responses);
+        }
+    }
+
+    private void write(Object message) {
+        byte[] json;
+        try {
+            // Compact output escapes every newline inside strings, so one message is one line
+            json = objectMapper.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializing message", e);
+            return;
+        }
+        ByteBuffer[] frame = { ByteBuffer.wrap(json), ByteBuffer.wrap(NEWLINE) };
+        writeLock.lock();
+        try {
+            if (output instanceof GatheringByteChannel gathering) {
+                while (frame[1].hasRemaining()) {
+                    gathering.write(frame);
+                }
+            } else {
+                for (ByteBuffer part : frame) {
+                    while (part.hasRemaining()) {
+                        output.write(part);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (!closing.get()) {
+                logger.error("Error writing message", e);
+            } else {
+                logger.debug("Stream closed during shutdown", e);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Responses of one batch, written together once every request in it has been answered.
+     */
+    private static final class Batch {
+        private final List<JSONRPCResponse> responses;
+        private int remaining;
+
+        Batch(int expected) {
+            this.responses = new ArrayList<>(expected);
+            this.remaining = expected;
+        }
+
+        // Returns the responses when this was the last one, otherwise null
+        synchronized List<JSONRPCResponse> add(JSONRPCResponse response) {
+            responses.add(response);
+            return --remaining == 0 ? responses : null;
+        }
+    }
+
+    /**
+     * The session's view of the transport.
+     */
+    private class SessionTransport implements McpServerTransport {
+
+        @Override
+        public Mono<Void> sendMessage(JSONRPCMessage message) {
+            return Mono.fromRunnable(() -> send(message));
+        }
+
+        @Override
+        public <T> T unmarshalFrom(Object data, TypeReference<T> typeRef) {
+            return objectMapper.convertValue(data, typeRef);
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            return Mono.fromRunnable(() -> closing.set(true));
+        }
+
+        @Override
+        public void close() {
+            closing.set(true);
+        }
     }
 }
@@ -0,0 +1,202 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Separate concurrency pools (bulkheads) for the tools, so a slow tool such as listAvailableModels or a
+ * long paginated executeQuery can only take its own share of worker threads and outbound connections.
+ * Each tool has a fixed number of call slots; a call that finds them all taken waits up to the tool's
+ * maximum wait and is then rejected with a {@link RejectedException}, whose message is a JSON object
+ * the client can act on (error "tool_busy", limit, calls in flight, suggested retry delay).
+ */
+@Component
+public class ToolBulkheads {
+
+    private static final Logger logger = LoggerFactory.getLogger(ToolBulkheads.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static final String ERROR_CODE = "tool_busy";
+    // Smallest retry delay suggested to rejected callers
+    private static final long MIN_RETRY_MILLIS = 100;
+
+    private final McpServerProperties.BulkheadConfig config;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * State of one tool's bulkhead.
+     *
+     * @param limit         Concurrent calls allowed
+     * @param inFlight      Calls running
+     * @param waiting       Calls waiting for a slot
+     * @param completed     Calls finished, successfully or not
+     * @param rejected      Calls rejected because no slot became free in time
+     * @param averageMillis Moving average of the call duration
+     */
+    public record Snapshot(int limit, int inFlight, int waiting, long completed, long rejected, long averageMillis) {}
+
+    /**
+     * Thrown when a tool call is rejected because the tool's slots stayed taken; the message is JSON.
+     */
+    public static class RejectedException extends RuntimeException {
+        private final String tool;
+        private final long retryAfterMillis;
+
+        RejectedException(String tool, String message, long retryAfterMillis) {
+            super(message);
+            this.tool = tool;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public String getTool() {
+            return tool;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+
+    private static final class Bulkhead {
+        final int limit;
+        final long maxWaitMillis;
+        final Semaphore slots;
+        final AtomicInteger waiting = new AtomicInteger();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        // Exponential moving average of call durations in nanoseconds
+        double averageNanos;
+
+        Bulkhead(int limit, long maxWaitMillis) {
+            this.limit = limit;
+            this.maxWaitMillis = maxWaitMillis;
+            this.slots = new Semaphore(limit, true);
+        }
+
+        synchronized void record(long nanos) {
+            averageNanos = averageNanos == 0 ? nanos : averageNanos * 0.8 + nanos * 0.2;
+            completed.incrementAndGet();
+        }
+
+        synchronized long averageMillis() {
+            return TimeUnit.NANOSECONDS.toMillis((long) averageNanos);
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(limit, limit - slots.availablePermits(), waiting.get(), completed.get(),
+                    rejected.get(), averageMillis());
+        }
+    }
+
+    @Autowired
+    public ToolBulkheads(McpServerProperties properties) {
+        this(properties.getBulkhead());
+    }
+
+    ToolBulkheads(McpServerProperties.BulkheadConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Runs a tool call in the tool's bulkhead.
+     *
+     * @param tool Tool name
+     * @param call The call
+     * @return The call's result
+     * @throws RejectedException     if no slot became free within the tool's maximum wait
+     * @throws CancellationException if the caller was interrupted (cancelled) while waiting
+     */
+    public <T> T call(String tool, Supplier<T> call) {
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(tool,
+                name -> new Bulkhead(Math.max(1, config.maxConcurrent(name)), Math.max(0, config.maxWaitMillis(name))));
+        acquire(tool, bulkhead);
+        long started = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            bulkhead.slots.release();
+            bulkhead.record(System.nanoTime() - started);
+        }
+    }
+
+    private void acquire(String tool, Bulkhead bulkhead) {
+        if (bulkhead.slots.tryAcquire()) {
+            return;
+        }
+        bulkhead.waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = bulkhead.maxWaitMillis > 0
+                    && bulkhead.slots.tryAcquire(bulkhead.maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Cancelled while waiting for a free " + tool + " slot");
+        } finally {
+            bulkhead.waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            bulkhead.rejected.incrementAndGet();
+            throw rejection(tool, bulkhead);
+        }
+    }
+
+    private static RejectedException rejection(String tool, Bulkhead bulkhead) {
+        Snapshot snapshot = bulkhead.snapshot();
+        long retryAfter = Math.max(MIN_RETRY_MILLIS, snapshot.averageMillis());
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", ERROR_CODE);
+        error.put("tool", tool);
+        error.put("message", "Too many concurrent " + tool + " calls (limit " + snapshot.limit()
+                + "); retry after about " + retryAfter + " ms");
+        error.put("limit", snapshot.limit());
+        error.put("inFlight", snapshot.inFlight());
+        error.put("waiting", snapshot.waiting());
+        error.put("waitedMillis", bulkhead.maxWaitMillis);
+        error.put("retryAfterMillis", retryAfter);
+        logger.warn("Rejected {} call: {} in flight (limit {}), {} waiting", tool, snapshot.inFlight(),
+                snapshot.limit(), snapshot.waiting());
+        try {
+            return new RejectedException(tool, MAPPER.writeValueAsString(error), retryAfter);
+        } catch (JsonProcessingException e) {
+            return new RejectedException(tool, (String) error.get("message"), retryAfter);
+        }
+    }
+
+    /**
+     * Current state of a tool's bulkhead, or null if the tool has not been called.
+     */
+    public Snapshot snapshot(String tool) {
+        Bulkhead bulkhead = bulkheads.get(tool);
+        return bulkhead != null ? bulkhead.snapshot() : null;
+    }
+
+    @PreDestroy
+    public void logSummary() {
+        bulkheads.forEach((tool, bulkhead) -> {
+            Snapshot snapshot = bulkhead.snapshot();
+            logger.info("Tool {}: {} calls, {} rejected, average {} ms (limit {})", tool, snapshot.completed(),
+                    snapshot.rejected(), snapshot.averageMillis(), snapshot.limit());
+        });
+    }
+}
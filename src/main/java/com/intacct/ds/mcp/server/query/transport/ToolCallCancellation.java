@@ -0,0 +1,139 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cancellation state of the tool call running on the current thread.
+ * Sync tools run on one thread from start to finish, so the handle is bound to that thread: cancelling
+ * interrupts it (which aborts a blocked HTTP exchange) and runs the registered cancel actions (e.g. closing a
+ * response body that is being read). Long-running work should also poll {@link #throwIfCancelled()} between steps.
+ */
+public final class ToolCallCancellation implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ToolCallCancellation.class);
+
+    private static final ThreadLocal<ToolCallCancellation> CURRENT = new ThreadLocal<>();
+    private static final ToolCallCancellation NONE = new ToolCallCancellation(null, null, null);
+
+    private final Object requestId;
+    private final CancellationRegistry registry;
+    private final List<Runnable> onCancel = new ArrayList<>();
+    private Thread thread;
+    private volatile boolean cancelled;
+    private volatile String reason;
+
+    ToolCallCancellation(Object requestId, Thread thread, CancellationRegistry registry) {
+        this.requestId = requestId;
+        this.thread = thread;
+        this.registry = registry;
+    }
+
+    /**
+     * Handle of the tool call running on the current thread; never null, but only tool calls that came
+     * through the MCP transport can actually be cancelled.
+     */
+    public static ToolCallCancellation current() {
+        ToolCallCancellation current = CURRENT.get();
+        return current != null ? current : NONE;
+    }
+
+    static ToolCallCancellation bind(Object requestId, CancellationRegistry registry) {
+        ToolCallCancellation cancellation = new ToolCallCancellation(requestId, Thread.currentThread(), registry);
+        CURRENT.set(cancellation);
+        return cancellation;
+    }
+
+    public Object getRequestId() {
+        return requestId;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Reason given by the client, if any.
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @throws CancellationException if the call was cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Request " + requestId + " was cancelled"
+                    + (reason != null ? ": " + reason : ""));
+        }
+    }
+
+    /**
+     * Registers an action to run when the call is cancelled, or runs it right away if it already was.
+     *
+     * @return Deregisters the action; call it once the resource the action releases is done with
+     */
+    public Runnable onCancel(Runnable action) {
+        if (this == NONE) {
+            return () -> {};
+        }
+        synchronized (this) {
+            if (!cancelled) {
+                onCancel.add(action);
+                return () -> {
+                    synchronized (this) {
+                        onCancel.remove(action);
+                    }
+                };
+            }
+        }
+        action.run();
+        return () -> {};
+    }
+
+    void cancel(String reason) {
+        List<Runnable> actions;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            this.reason = reason;
+            this.cancelled = true;
+            actions = new ArrayList<>(onCancel);
+            onCancel.clear();
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.debug("Cancel action for request {} failed: {}", requestId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ends the call: unbinds the thread and clears an interrupt left by a late cancellation,
+     * so it does not leak into the next task run by the pooled thread.
+     */
+    @Override
+    public void close() {
+        if (this == NONE) {
+            return;
+        }
+        synchronized (this) {
+            thread = null;
+            onCancel.clear();
+            Thread.interrupted();
+        }
+        CURRENT.remove();
+        registry.finish(this);
+    }
+}
@@ -0,0 +1,119 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tool callback decorator that removes the {@link ToolCallMeta#ARGUMENT} argument added by
+ * {@link RequestMetaModule} and publishes it in the {@link ToolContext} instead, so tools that declare a
+ * ToolContext parameter can correlate their work with the MCP request (e.g. to report progress).
+ * While the tool runs, the call is registered with the {@link CancellationRegistry} so that the client can
+ * cancel it; see {@link ToolCallCancellation#current()}. With {@link ToolBulkheads}, the call also runs in its
+ * tool's bulkhead, waiting for a slot inside the cancellation scope so that a cancelled call stops waiting.
+ */
+public class ToolCallContextCallback implements ToolCallback {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> ARGUMENTS_TYPE = new TypeReference<>() {};
+
+    private final ToolCallback delegate;
+    private final CancellationRegistry cancellationRegistry; // May be null when calls cannot be cancelled
+    private final ToolBulkheads bulkheads; // May be null when calls are not limited
+
+    public ToolCallContextCallback(ToolCallback delegate, CancellationRegistry cancellationRegistry) {
+        this(delegate, cancellationRegistry, null);
+    }
+
+    public ToolCallContextCallback(ToolCallback delegate, CancellationRegistry cancellationRegistry,
+            ToolBulkheads bulkheads) {
+        this.delegate = delegate;
+        this.cancellationRegistry = cancellationRegistry;
+        this.bulkheads = bulkheads;
+    }
+
+    /**
+     * Decorates every callback of a provider.
+     */
+    public static ToolCallbackProvider wrap(ToolCallbackProvider provider, CancellationRegistry cancellationRegistry) {
+        return wrap(provider, cancellationRegistry, null);
+    }
+
+    /**
+     * Decorates every callback of a provider, running each tool in its own bulkhead.
+     */
+    public static ToolCallbackProvider wrap(ToolCallbackProvider provider, CancellationRegistry cancellationRegistry,
+            ToolBulkheads bulkheads) {
+        return ToolCallbackProvider.from(Arrays.stream(provider.getToolCallbacks())
+                .map(callback -> new ToolCallContextCallback(callback, cancellationRegistry, bulkheads))
+                .toArray(ToolCallback[]::new));
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        if (toolInput == null || !toolInput.contains(ToolCallMeta.ARGUMENT)) {
+            return invoke(toolInput, toolContext);
+        }
+        Map<String, Object> arguments;
+        try {
+            arguments = MAPPER.readValue(toolInput, ARGUMENTS_TYPE);
+        } catch (JsonProcessingException e) {
+            return invoke(toolInput, toolContext); // Let the tool report malformed input
+        }
+        ToolCallMeta meta = ToolCallMeta.fromArgument(arguments.remove(ToolCallMeta.ARGUMENT));
+        if (meta == null) {
+            return invoke(toolInput, toolContext);
+        }
+
+        Map<String, Object> context = new HashMap<>();
+        if (toolContext != null) {
+            context.putAll(toolContext.getContext());
+        }
+        context.put(ToolCallMeta.CONTEXT_KEY, meta);
+        String input;
+        try {
+            input = MAPPER.writeValueAsString(arguments);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot re-encode tool arguments", e);
+        }
+        if (cancellationRegistry == null || meta.requestId() == null) {
+            return invoke(input, new ToolContext(context));
+        }
+        try (ToolCallCancellation cancellation = cancellationRegistry.begin(meta.requestId())) {
+            cancellation.throwIfCancelled();
+            return invoke(input, new ToolContext(context));
+        }
+    }
+
+    private String invoke(String input, ToolContext toolContext) {
+        if (bulkheads == null) {
+            return delegate.call(input, toolContext);
+        }
+        return bulkheads.call(delegate.getToolDefinition().name(), () -> delegate.call(input, toolContext));
+    }
+}
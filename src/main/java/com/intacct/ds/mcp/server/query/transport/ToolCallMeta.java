@@ -0,0 +1,48 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.util.Map;
+
+import org.springframework.ai.chat.model.ToolContext;
+
+/**
+ * Request metadata of an MCP tools/call that the SDK does not hand to tools: the JSON-RPC request id and
+ * the fields of the request's _meta object. {@link RequestMetaModule} carries it through the tool arguments
+ * under {@link #ARGUMENT}, and {@link ToolCallContextCallback} moves it into the {@link ToolContext}.
+ *
+ * @param requestId      JSON-RPC id of the tools/call request
+ * @param progressToken  Progress token sent by the client, or null if it did not ask for progress
+ * @param partialResults Whether the client asked for partial row batches
+ */
+public record ToolCallMeta(Object requestId, Object progressToken, boolean partialResults) {
+
+    /**
+     * Reserved tool argument the metadata travels in between the transport and the tool callback
+     */
+    public static final String ARGUMENT = "_mcp";
+
+    /**
+     * ToolContext key the metadata is published under
+     */
+    public static final String CONTEXT_KEY = "mcpToolCall";
+
+    /**
+     * Metadata of the current tool call.
+     *
+     * @return The metadata, or null if the call did not come through the MCP transport
+     */
+    public static ToolCallMeta from(ToolContext toolContext) {
+        if (toolContext == null) {
+            return null;
+        }
+        Object meta = toolContext.getContext().get(CONTEXT_KEY);
+        return meta instanceof ToolCallMeta toolCallMeta ? toolCallMeta : null;
+    }
+
+    static ToolCallMeta fromArgument(Object argument) {
+        if (!(argument instanceof Map<?, ?> map)) {
+            return null;
+        }
+        return new ToolCallMeta(map.get("requestId"), map.get("progressToken"),
+                Boolean.TRUE.equals(map.get("partialResults")));
+    }
+}
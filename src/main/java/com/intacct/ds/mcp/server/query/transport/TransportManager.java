@@ -4,11 +4,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
-import com.intacct.ds.mcp.server.query.config.McpServerProperties;
-
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
@@ -19,14 +16,11 @@ import jakarta.annotation.PreDestroy;
 public class TransportManager {
     private static final Logger logger = LoggerFactory.getLogger(TransportManager.class);
 
-    private final McpServerProperties properties;
-    private final ApplicationContext applicationContext;
-    private StdioTransport stdioTransport;
+    private final StdioTransport stdioTransport;
     private final AtomicBoolean initialized = new AtomicBoolean(false);
 
-    public TransportManager(McpServerProperties properties, ApplicationContext applicationContext) {
-        this.properties = properties;
-        this.applicationContext = applicationContext;
+    public TransportManager(StdioTransport stdioTransport) {
+        this.stdioTransport = stdioTransport;
     }
 
     @PostConstruct
@@ -38,7 +32,6 @@ public class TransportManager {
 
     private void initializeStdioTransport() {
         logger.info("Initializing STDIO transport...");
-        stdioTransport = new StdioTransport(properties, applicationContext);
         stdioTransport.initialize();
         logger.info("STDIO transport initialized successfully");
     }
@@ -46,10 +39,8 @@ public class TransportManager {
     @PreDestroy
     public void shutdown() {
         logger.info("Shutting down MCP transport manager...");
-        if (stdioTransport != null) {
-            stdioTransport.shutdown();
-            logger.info("STDIO transport shut down successfully");
-        }
+        stdioTransport.shutdown();
+        logger.info("STDIO transport shut down successfully");
         initialized.set(false);
     }
 
@@ -0,0 +1,142 @@
+package com.intacct.ds.mcp.server.query.filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for local evaluation of Query API filters
+ */
+public class FilterCompilerTest {
+
+    private static final List<Map<String, Object>> VENDORS = List.of(
+            Map.of("id", "V001", "name", "Acme Inc", "status", "active", "state", "CA", "totalDue", "1500.00"),
+            Map.of("id", "V002", "name", "Beta LLC", "status", "active", "state", "NY", "totalDue", "250.00"),
+            Map.of("id", "V003", "name", "Gamma Corp", "status", "inactive", "state", "CA", "totalDue", "0.00"),
+            Map.of("id", "V004", "name", "acme west", "status", "active", "state", "CA", "totalDue", "90.50")
+    );
+
+    // As in the vendor model, where totalDue has a decimal format and every other field is a string
+    private static final Set<String> NUMERIC = Set.of("totalDue");
+
+    private static CompiledFilter compile(List<Map<String, Map<String, Object>>> filters, String expression) {
+        return FilterCompiler.compile(filters, expression, true, NUMERIC).orElseThrow();
+    }
+
+    private static List<Object> ids(CompiledFilter filter) {
+        return VENDORS.stream().filter(filter).map(row -> row.get("id")).toList();
+    }
+
+    @Test
+    void testComparisonOperators() {
+        assertEquals(List.of("V001", "V002", "V004"), ids(compile(List.of(Map.of("$eq", Map.of("status", "active"))), null)));
+        assertEquals(List.of("V003"), ids(compile(List.of(Map.of("$ne", Map.of("status", "active"))), null)));
+
+        // Decimal fields come back as strings but compare numerically against numeric operands
+        assertEquals(List.of("V001"), ids(compile(List.of(Map.of("$gt", Map.of("totalDue", 1000))), null)));
+        assertEquals(List.of("V003", "V004"), ids(compile(List.of(Map.of("$lt", Map.of("totalDue", 100))), null)));
+        assertEquals(List.of("V002", "V004"),
+                ids(compile(List.of(Map.of("$between", Map.of("totalDue", List.of(50, 500)))), null)));
+        assertEquals(List.of("V001", "V003"),
+                ids(compile(List.of(Map.of("$notBetween", Map.of("totalDue", List.of(50, 500)))), null)));
+        assertEquals(List.of("V002", "V003"),
+                ids(compile(List.of(Map.of("$in", Map.of("id", List.of("V002", "V003")))), null)));
+        assertEquals(List.of("V001", "V004"),
+                ids(compile(List.of(Map.of("$notIn", Map.of("id", List.of("V002", "V003")))), null)));
+    }
+
+    @Test
+    void testStringOperatorsAndCaseSensitivity() {
+        assertEquals(List.of("V001"), ids(compile(List.of(Map.of("$contains", Map.of("name", "Acme"))), null)));
+        assertEquals(List.of("V002"), ids(compile(List.of(Map.of("$endsWith", Map.of("name", "LLC"))), null)));
+        assertEquals(List.of("V001", "V002", "V004"),
+                ids(compile(List.of(Map.of("$notStartsWith", Map.of("name", "G"))), null)));
+
+        CompiledFilter insensitive = FilterCompiler
+                .compile(List.of(Map.of("$startsWith", Map.of("name", "ACME"))), null, false, NUMERIC).orElseThrow();
+        assertEquals(List.of("V001", "V004"), ids(insensitive));
+    }
+
+    @Test
+    void testFilterExpression() {
+        List<Map<String, Map<String, Object>>> filters = List.of(
+                Map.of("$eq", Map.of("status", "inactive")),
+                Map.of("$gt", Map.of("totalDue", 1000)),
+                Map.of("$eq", Map.of("state", "CA")));
+
+        assertEquals(List.of("V001", "V003"), ids(compile(filters, "(1 or 2) and 3")));
+        assertEquals(List.of("V001", "V003"), ids(compile(filters, "1 or 2 and 3")));
+        assertEquals(List.of(), ids(compile(filters, null)));
+
+        assertNull(compile(filters, "(1 or 2) and 3").conjuncts());
+        assertEquals(3, compile(filters, "1 and (2 and 3)").conjuncts().size());
+    }
+
+    @Test
+    void testUnsupportedFiltersAreNotCompiled() {
+        // Relative date macros are resolved by Intacct and cannot be evaluated locally
+        assertTrue(FilterCompiler.compile(List.of(Map.of("$eq", Map.of("postingDate", "priorYear"))), null, true, NUMERIC).isEmpty());
+        assertTrue(FilterCompiler.compile(List.of(Map.of("$like", Map.of("name", "A%"))), null, true, NUMERIC).isEmpty());
+        assertTrue(FilterCompiler.compile(List.of(Map.of("$eq", Map.of("id", "1"))), "1 and 2", true, NUMERIC).isEmpty());
+        assertTrue(FilterCompiler.compile(List.of(Map.of("$in", Map.of("id", "V001"))), null, true, NUMERIC).isEmpty());
+    }
+
+    @Test
+    void testImplication() {
+        CompiledFilter active = compile(List.of(Map.of("$eq", Map.of("status", "active"))), null);
+        CompiledFilter activeInCa = compile(List.of(
+                Map.of("$eq", Map.of("status", "active")),
+                Map.of("$eq", Map.of("state", "CA"))), null);
+        CompiledFilter everything = compile(null, null);
+
+        assertTrue(activeInCa.implies(active));
+        assertTrue(active.implies(everything));
+        assertFalse(active.implies(activeInCa));
+    }
+
+    @Test
+    void testLocalQueryOrdersPagesAndProjects() {
+        CompiledFilter active = compile(List.of(Map.of("$eq", Map.of("status", "active"))), null);
+
+        List<Map<String, Object>> page = LocalQuery.evaluate(VENDORS, active, List.of(Map.of("totalDue", "desc")),
+                true, NUMERIC, 2, 2, List.of("id", "totalDue"));
+
+        // Ordered numerically: 1500.00, 250.00, 90.50 -> second page of size 2 starts at 250.00
+        assertEquals(List.of(Map.of("id", "V002", "totalDue", "250.00"), Map.of("id", "V004", "totalDue", "90.50")), page);
+    }
+
+    @Test
+    void testDigitsInStringFieldsCompareAsText() {
+        List<Map<String, Object>> vendors = List.of(Map.of("id", "10", "totalDue", "10"), Map.of("id", "9", "totalDue", "9"));
+        CompiledFilter idAbove9 = compile(List.of(Map.of("$gt", Map.of("id", "9"))), null);
+        CompiledFilter dueAbove9 = compile(List.of(Map.of("$gt", Map.of("totalDue", "9"))), null);
+
+        // The API compares string fields as text, where "10" < "9"
+        assertEquals(List.of(), vendors.stream().filter(idAbove9).toList());
+        assertEquals(List.of(vendors.get(0)), vendors.stream().filter(dueAbove9).toList());
+
+        List<Map<String, Object>> byId = LocalQuery.evaluate(vendors, compile(null, null), List.of(Map.of("id", "asc")),
+                true, NUMERIC, null, 10, List.of("id"));
+        List<Map<String, Object>> byDue = LocalQuery.evaluate(vendors, compile(null, null),
+                List.of(Map.of("totalDue", "asc")), true, NUMERIC, null, 10, List.of("id"));
+        assertEquals(List.of(Map.of("id", "10"), Map.of("id", "9")), byId);
+        assertEquals(List.of(Map.of("id", "9"), Map.of("id", "10")), byDue);
+    }
+
+    @Test
+    void testNestedAndDottedFields() {
+        Map<String, Object> dotted = Map.of("vendor.id", "V001");
+        Map<String, Object> nested = Map.of("vendor", Map.of("id", "V001"));
+        CompiledFilter filter = compile(List.of(Map.of("$eq", Map.of("vendor.id", "V001"))), null);
+
+        assertTrue(filter.test(dotted));
+        assertTrue(filter.test(nested));
+        assertFalse(filter.test(Map.of("vendor.id", "V002")));
+    }
+}
@@ -0,0 +1,121 @@
+package com.intacct.ds.mcp.server.query.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests for response decompression, request compression and transfer metrics
+ */
+public class CompressionInterceptorTest {
+
+    private static final byte[] JSON = ("{\"ia::result\":[" + "{\"key\":\"1\",\"name\":\"Vendor\"},".repeat(200)
+            + "{\"key\":\"2\"}]}").getBytes(StandardCharsets.UTF_8);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TransferMetrics metrics = new TransferMetrics(registry);
+
+    @Test
+    void testGzipResponseIsDecodedAndCounted() throws IOException {
+        byte[] compressed = gzip(JSON);
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST,
+                URI.create("https://api.example.com/ia/api/v1/services/core/query"));
+
+        try (ClientHttpResponse response = interceptor(new McpServerProperties()).intercept(request, new byte[0],
+                (req, body) -> response(compressed, "gzip"))) {
+            assertEquals(CompressionInterceptor.ACCEPTED_ENCODINGS,
+                    request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+            assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            assertArrayEquals(JSON, response.getBody().readAllBytes());
+        }
+
+        TransferMetrics.Snapshot snapshot = metrics.snapshot("query");
+        assertEquals(1, snapshot.requests());
+        assertEquals(compressed.length, snapshot.receivedWire());
+        assertEquals(JSON.length, snapshot.receivedBytes());
+        assertEquals(JSON.length, registry.get("intacct.http.client.bytes.received")
+                .tags("endpoint", "query", "encoding", "decoded").functionCounter().count());
+    }
+
+    @Test
+    void testDeflateResponseIsDecoded() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+            deflate.write(JSON);
+        }
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET,
+                URI.create("https://api.example.com/ia/api/v1/services/core/model?name=vendor"));
+
+        try (ClientHttpResponse response = interceptor(new McpServerProperties()).intercept(request, new byte[0],
+                (req, body) -> response(out.toByteArray(), "deflate"))) {
+            assertArrayEquals(JSON, response.getBody().readAllBytes());
+        }
+        assertEquals(JSON.length, metrics.snapshot("model").receivedBytes());
+    }
+
+    @Test
+    void testLargeRequestBodyIsCompressedWhenEnabled() throws IOException {
+        McpServerProperties properties = new McpServerProperties();
+        properties.getCompression().setCompressRequests(true);
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST,
+                URI.create("https://api.example.com/ia/api/v1/services/core/query"));
+        request.getHeaders().setContentLength(JSON.length);
+        AtomicReference<byte[]> sent = new AtomicReference<>();
+
+        interceptor(properties).intercept(request, JSON, (req, body) -> {
+            sent.set(body);
+            return response(new byte[0], null);
+        }).close();
+
+        assertEquals("gzip", request.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(sent.get().length, request.getHeaders().getContentLength());
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(sent.get()))) {
+            assertArrayEquals(JSON, in.readAllBytes());
+        }
+        assertEquals(JSON.length, metrics.snapshot("query").sentRaw());
+        assertEquals(sent.get().length, metrics.snapshot("query").sentWire());
+    }
+
+    private CompressionInterceptor interceptor(McpServerProperties properties) {
+        return new CompressionInterceptor(properties, metrics);
+    }
+
+    private static MockClientHttpResponse response(byte[] body, String encoding) {
+        MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+        response.getHeaders().setContentLength(body.length);
+        if (encoding != null) {
+            response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        return response;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
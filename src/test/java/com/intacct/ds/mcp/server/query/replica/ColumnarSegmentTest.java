@@ -0,0 +1,112 @@
+package com.intacct.ds.mcp.server.query.replica;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the memory-mapped columnar segment encodings and secondary indexes
+ */
+public class ColumnarSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    private ColumnarSegment write(List<Map<String, Object>> rows) throws Exception {
+        SegmentWriter writer = new SegmentWriter(List.of("key", "status", "count", "amount", "active", "vendor.id", "tags"),
+                Set.of("key", "status", "count"));
+        rows.forEach(writer::add);
+        return writer.write(directory, "accounts-payable/bill", writer.getWatermark());
+    }
+
+    private static Map<String, Object> row(String key, String status, Integer count, Double amount, Boolean active) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("key", key);
+        row.put("status", status);
+        row.put("count", count);
+        row.put("amount", amount);
+        row.put("active", active);
+        row.put("vendor", Map.of("id", "V" + key));
+        row.put("tags", List.of(key));
+        return row;
+    }
+
+    @Test
+    void testValuesRoundTrip() throws Exception {
+        ColumnarSegment segment = write(List.of(
+                row("1", "open", 5, 12.5, true),
+                row("2", null, null, null, null)));
+
+        assertEquals(2, segment.getRowCount());
+        assertEquals("open", segment.value(0, "status"));
+        assertEquals(5L, segment.value(0, "count"));
+        assertEquals(12.5, segment.value(0, "amount"));
+        assertEquals(true, segment.value(0, "active"));
+        assertEquals("V1", segment.value(0, "vendor.id"));
+        assertEquals(List.of("1"), segment.value(0, "tags"));
+        assertNull(segment.value(1, "status"));
+        assertNull(segment.value(1, "count"));
+        assertNull(segment.value(1, "active"));
+
+        Map<String, Object> view = segment.row(1);
+        assertEquals("2", view.get("key"));
+        assertEquals(true, view.containsKey("status"));
+    }
+
+    @Test
+    void testHashAndSortedIndexes() throws Exception {
+        ColumnarSegment segment = write(List.of(
+                row("1", "open", 30, 1.0, true),
+                row("2", "paid", 10, 2.0, true),
+                row("3", "open", 20, 3.0, false),
+                row("4", "draft", 10, 4.0, false)));
+
+        assertArrayEquals(new int[] {0, 2}, segment.lookup("$eq", "status", "open", true));
+        assertArrayEquals(new int[] {1, 3}, segment.lookup("$in", "status", List.of("paid", "draft", "void"), true));
+        assertArrayEquals(new int[0], segment.lookup("$eq", "status", "void", true));
+        assertArrayEquals(new int[] {1, 3}, segment.lookup("$eq", "count", 10, true));
+        assertArrayEquals(new int[] {0, 2}, segment.lookup("$gt", "count", 10, true));
+        assertArrayEquals(new int[] {1, 2, 3}, segment.lookup("$between", "count", List.of(10, 20), true));
+
+        // Conditions no index answers exactly fall back to a scan
+        assertNull(segment.lookup("$eq", "status", "OPEN", false));
+        assertNull(segment.lookup("$contains", "status", "pe", true));
+        assertNull(segment.lookup("$eq", "amount", 1.0, true));
+    }
+
+    @Test
+    void testReopenFromDisk() throws Exception {
+        write(List.of(row("1", "open", 1, 1.0, true)));
+
+        ColumnarSegment reopened = ColumnarSegment.open(directory);
+        assertEquals("accounts-payable/bill", reopened.getMeta().object());
+        assertArrayEquals(new int[] {0}, reopened.lookup("$eq", "key", "1", true));
+    }
+
+    @Test
+    void testRewriteKeepsOnlyTheCurrentFiles() throws Exception {
+        ColumnarSegment first = write(List.of(row("1", "open", 1, 1.0, true)));
+        // Left behind by a crashed writer
+        Files.createTempFile(directory, "meta-", ".tmp");
+
+        ColumnarSegment second = write(List.of(row("2", "paid", 2, 2.0, false)));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Set.of("meta.json", "segment.lock", second.getMeta().dataFile()),
+                    files.map(path -> path.getFileName().toString()).collect(Collectors.toSet()));
+        }
+        // The old mapping stays readable after its file is removed
+        assertEquals("open", first.value(0, "status"));
+        assertEquals("2", ColumnarSegment.open(directory).value(0, "key"));
+    }
+}
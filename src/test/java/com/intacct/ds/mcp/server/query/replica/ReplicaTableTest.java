@@ -0,0 +1,75 @@
+package com.intacct.ds.mcp.server.query.replica;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for bulk loads and delta syncs applied to a replica table
+ */
+public class ReplicaTableTest {
+
+    private static final List<String> FIELDS = List.of("key", "status", "audit.modifiedDateTime");
+
+    @TempDir
+    Path directory;
+
+    private static Map<String, Object> row(String key, String status, String modified) {
+        return Map.of("key", key, "status", status, "audit.modifiedDateTime", modified);
+    }
+
+    @Test
+    void testBulkLoadThenDeltaSync() throws Exception {
+        ReplicaTable table = new ReplicaTable("accounts-payable/vendor", FIELDS, directory, Set.of("status"), 100);
+        assertFalse(table.isLoaded());
+
+        table.replaceAll(List.of(
+                row("1", "active", "2025-01-02T10:00:00Z"),
+                row("2", "active", "2025-01-05T08:30:00Z")));
+        assertTrue(table.isLoaded());
+        assertEquals(2, table.size());
+        assertEquals("2025-01-05T08:30:00Z", table.getWatermark());
+
+        // A modified record replaces its previous version; a new record is added
+        int applied = table.upsert(List.of(
+                row("1", "inactive", "2025-01-06T09:00:00Z"),
+                row("3", "active", "2025-01-06T09:15:00Z")));
+        assertEquals(2, applied);
+        assertEquals(3, table.size());
+        assertEquals("2025-01-06T09:15:00Z", table.getWatermark());
+        assertTrue(table.rows().contains(row("1", "inactive", "2025-01-06T09:00:00Z")));
+
+        // Re-reading records at the watermark is harmless
+        table.upsert(List.of(row("3", "active", "2025-01-06T09:15:00Z")));
+        assertEquals(3, table.size());
+        assertEquals("2025-01-06T09:15:00Z", table.getWatermark());
+    }
+
+    @Test
+    void testRestoreAfterRestartAndCompaction() throws Exception {
+        ReplicaTable table = new ReplicaTable("accounts-payable/vendor", FIELDS, directory, Set.of("status"), 1);
+        table.replaceAll(List.of(
+                row("1", "active", "2025-01-02T10:00:00Z"),
+                row("2", "active", "2025-01-05T08:30:00Z")));
+
+        // A second changed row exceeds the overlay limit and is compacted into a new segment
+        table.upsert(List.of(row("2", "inactive", "2025-01-07T00:00:00Z"), row("3", "active", "2025-01-07T00:00:01Z")));
+
+        ReplicaTable restarted = new ReplicaTable("accounts-payable/vendor", FIELDS, directory, Set.of("status"), 1);
+        assertTrue(restarted.restore());
+        assertEquals(3, restarted.size());
+        assertEquals("2025-01-07T00:00:01Z", restarted.getWatermark());
+        assertTrue(restarted.rows().contains(row("2", "inactive", "2025-01-07T00:00:00Z")));
+
+        // A table with different fields does not reuse the segment
+        assertFalse(new ReplicaTable("accounts-payable/vendor", List.of("key", "audit.modifiedDateTime"), directory,
+                Set.of(), 1).restore());
+    }
+}
@@ -0,0 +1,121 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for access tokens: reusing a stored one and authorizing each API request with the current one
+ */
+public class AuthServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<String> authorizations = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/services/core/query", this::respond);
+        server.createContext("/oauth2/token", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            tokenRequests.incrementAndGet();
+            send(exchange, "{\"access_token\": \"fresh-token\", \"expires_in\": 3600}");
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+        send(exchange, "{\"ia::result\": [], \"ia::meta\": {\"totalCount\": 0}}");
+    }
+
+    private static void send(HttpExchange exchange, String response) throws IOException {
+        byte[] json = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(json);
+        }
+    }
+
+    @Test
+    void testEveryRequestCarriesTheCurrentToken() {
+        AuthService authService = mock(AuthService.class);
+        when(authService.getAccessToken()).thenReturn("token-1", "token-2", "token-3");
+        when(authService.getBaseUrl()).thenReturn("http://127.0.0.1:" + server.getAddress().getPort());
+        ModelService modelService = mock(ModelService.class);
+        when(modelService.requireObjectName(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        McpServerProperties properties = new McpServerProperties();
+        properties.getAdaptivePaging().setEnabled(false);
+        properties.getQueryCache().setEnabled(false);
+        QueryService queryService = new QueryService(authService, properties, null, null, null, null, modelService,
+                null, null, null);
+        try {
+            // The first token is taken at startup; the token has been renewed by each later request
+            queryService.executeQuery("accounts-payable/vendor", List.of("key"), null, null, null, null, null, 10,
+                    null, null, null);
+            queryService.executeQuery("accounts-payable/vendor", List.of("id"), null, null, null, null, null, 10,
+                    null, null, null);
+        } finally {
+            queryService.shutdown();
+        }
+        assertEquals(List.of("Bearer token-2", "Bearer token-3"), authorizations);
+    }
+
+    @Test
+    void testStoredTokenIsOnlyReusedWithEnoughLifeLeft() {
+        McpServerProperties properties = new McpServerProperties();
+        properties.getAuth().getOauth2().setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.getAuth().getOauth2().setClientId("client");
+        properties.getAuth().getOauth2().setClientSecret("secret");
+        properties.getAuth().getOauth2().setUsername("alice");
+        properties.getAuth().getOauth2().setPassword("password");
+        properties.getTokenStore().setEnabled(true);
+        properties.getTokenStore().setDirectory(dir.toString());
+        TokenStore tokenStore = new TokenStore(properties);
+        TokenStore.Owner owner = new TokenStore.Owner("client", "alice", properties.getAuth().getOauth2().getBaseUrl());
+
+        // Five minutes left: a session starting from it would soon send an expired token
+        tokenStore.save(owner, "secret\npassword", "stored-token", Instant.now().plusSeconds(300));
+        AuthService authService = new AuthService(10, 3300, properties);
+        authService.setTokenStore(tokenStore);
+        assertEquals("fresh-token", authService.getAccessToken());
+        assertEquals(1, tokenRequests.get());
+
+        tokenStore.save(owner, "secret\npassword", "stored-token", Instant.now().plusSeconds(1800));
+        authService = new AuthService(10, 3300, properties);
+        authService.setTokenStore(tokenStore);
+        assertEquals("stored-token", authService.getAccessToken());
+        assertEquals(1, tokenRequests.get());
+    }
+}
@@ -0,0 +1,130 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.ModelService.ObjectModel;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for generating the model catalog at build time and answering a cold session from it
+ */
+public class BundledCatalogTest {
+
+    private static final Path FIXTURE = Paths.get("src/test/resources/model-catalog-fixture.json");
+
+    @TempDir
+    Path dir;
+
+    // The query string of each request, or "catalog" for a listing
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+    private McpServerProperties properties;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/services/core/model", this::model);
+        server.start();
+        authService = mock(AuthService.class);
+        when(authService.getAccessToken()).thenReturn("test-token");
+        when(authService.getBaseUrl()).thenReturn("http://127.0.0.1:" + server.getAddress().getPort());
+        properties = new McpServerProperties();
+        properties.getBundledCatalog().setResource("file:" + dir.resolve("model-catalog.json"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    // The live catalog also has a custom object, which the bundled one lacks
+    private void model(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        requests.add(query != null ? query : "catalog");
+        String body = query == null
+                ? "{\"ia::result\": [{\"apiObject\": \"accounts-payable/vendor\"}, {\"apiObject\": \"platform-apps/nsp::invoice_note\"}]}"
+                : "{\"ia::result\": {\"fields\": {\"id\": {\"type\": \"string\"}}, \"refs\": {}}}";
+        byte[] json = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private ModelService modelService() {
+        return new ModelService(authService, properties, null, null, null, new BundledCatalog(properties));
+    }
+
+    @Test
+    void testGeneratorKeepsTheCatalogAndTheFieldsOfObjects() throws IOException {
+        ModelCatalogGenerator.write(ModelCatalogGenerator.fromFixture(FIXTURE), dir.resolve("model-catalog.json"));
+
+        BundledCatalog catalog = new BundledCatalog(properties);
+        assertEquals(4, catalog.models().size());
+        ObjectModel vendor = catalog.model("accounts-payable/vendor");
+        assertEquals(List.of("key", "id", "name", "status", "totalDue"), List.copyOf(vendor.fields().keySet()));
+        assertEquals(List.of("active", "inactive"), vendor.fields().get("status").enumValues());
+        assertEquals("GET,POST,PATCH,DELETE", vendor.httpMethods());
+        assertNull(vendor.groups());
+        assertNull(vendor.refs());
+        assertNull(catalog.model("accounts-payable/bill").lists());
+        // Services have no fields
+        assertNull(catalog.model("core/query"));
+    }
+
+    @Test
+    void testColdSessionIsAnsweredFromTheBundledCatalogWithoutRequests() throws IOException {
+        ModelCatalogGenerator.write(ModelCatalogGenerator.fromFixture(FIXTURE), dir.resolve("model-catalog.json"));
+        ModelService modelService = modelService();
+
+        assertEquals("accounts-payable/vendor", modelService.requireObjectName("vendors"));
+        assertEquals(4, modelService.listAvailableModels().size());
+        ObjectModel fields = modelService.getModelDefinition("ap/bill", null, null, null, null, List.of("fields"));
+        assertNotNull(fields.fields().get("billNumber"));
+        assertNotNull(modelService.loadFields("accounts-payable/vendor").fields().get("totalDue"));
+        assertEquals(List.of(), requests);
+
+        // Full models, and objects only the live catalog has, come from the Model API
+        assertNotNull(modelService.getModelDefinition("accounts-payable/vendor", null, null, null, null,
+                List.of("fields", "refs")).refs());
+        assertEquals("platform-apps/nsp::invoice_note", modelService.requireObjectName("platform-apps/nsp::invoice_note"));
+        assertEquals(List.of("name=accounts-payable/vendor", "catalog"), requests);
+        assertEquals(2, modelService.listAvailableModels().size());
+    }
+
+    @Test
+    void testOldOrMissingBundledCatalogIsNotUsed() throws IOException {
+        BundledCatalog.Contents contents = ModelCatalogGenerator.fromFixture(FIXTURE);
+        ModelCatalogGenerator.write(new BundledCatalog.Contents(System.currentTimeMillis() - 31L * 24 * 3600 * 1000,
+                contents.catalog(), contents.models()), dir.resolve("model-catalog.json"));
+        assertFalse(new BundledCatalog(properties).isAvailable());
+
+        properties.getBundledCatalog().setResource("classpath:no-such-catalog.json");
+        ModelService modelService = modelService();
+        assertEquals(2, modelService.listAvailableModels().size());
+        assertEquals(List.of("catalog"), requests);
+    }
+}
@@ -0,0 +1,139 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+/**
+ * Tests for the second-level cache on disk
+ */
+public class DiskCacheTest {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+
+    @TempDir
+    Path dir;
+
+    private McpServerProperties.DiskCacheConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new McpServerProperties.DiskCacheConfig();
+        config.setEnabled(true);
+        config.setDirectory(dir.toString());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(DiskCache.Entry entry) {
+        return entry != null ? new String(entry.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    @Test
+    void testEntriesSurviveRestartUntilTheyExpire() throws Exception {
+        DiskCache cache = new DiskCache(config);
+        cache.put("vendors", bytes("{\"ia::result\": []}"), HOUR);
+        cache.put("bills", bytes("old"), HOUR);
+        cache.put("bills", bytes("new"), HOUR);
+        cache.put("short", bytes("gone"), Duration.ofMillis(1));
+        cache.close();
+
+        DiskCache restarted = new DiskCache(config);
+        assertEquals("{\"ia::result\": []}", text(restarted.get("vendors")));
+        assertEquals("new", text(restarted.get("bills")));
+        Thread.sleep(5);
+        assertNull(restarted.get("short"));
+        assertNull(restarted.get("missing"));
+    }
+
+    @Test
+    void testCacheFilesAreReadableByTheUserOnly() throws Exception {
+        config.setDirectory(dir.resolve("l2-cache").toString());
+        DiskCache cache = new DiskCache(config);
+        cache.put("vendors", bytes("{\"ia::result\": []}"), HOUR);
+        cache.close();
+
+        Path directory = dir.resolve("l2-cache");
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> assertEquals("rw-------", permissions(file), file.toString()));
+        }
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        assertFalse(new DiskCache(new McpServerProperties.DiskCacheConfig()).isEnabled());
+    }
+
+    private static String permissions(Path file) {
+        try {
+            return PosixFilePermissions.toString(Files.getPosixFilePermissions(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void testProcessesSeeEachOthersAppendsAndTornRecordsAreSkipped() throws IOException {
+        // Two instances on one directory stand in for two server processes
+        DiskCache first = new DiskCache(config);
+        DiskCache second = new DiskCache(config);
+        first.put("a", bytes("1"), HOUR);
+        assertEquals("1", text(second.get("a")));
+        second.put("a", bytes("2"), HOUR);
+        assertEquals("2", text(first.get("a")));
+
+        // A crash in the middle of an append leaves a torn record at the end of the segment
+        Files.write(dir.resolve("segment-1.dat"), new byte[] {0x4D, 0x43, 0x51, 0x31, 0, 0, 0, 9},
+                StandardOpenOption.APPEND);
+        DiskCache restarted = new DiskCache(config);
+        assertEquals("2", text(restarted.get("a")));
+        restarted.put("b", bytes("3"), HOUR);
+        assertEquals("3", text(first.get("b")));
+        assertEquals("2", text(first.get("a")));
+    }
+
+    @Test
+    void testCompactionKeepsTheNewestEntriesWithinTheSizeBound() throws IOException {
+        config.setMaxBytes(4096);
+        config.setMaxSegmentBytes(1024);
+        DiskCache cache = new DiskCache(config);
+        DiskCache other = new DiskCache(config);
+        cache.put("early", bytes("x".repeat(100)), HOUR);
+        assertEquals("x".repeat(100), text(other.get("early")));
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("key-" + i, bytes(String.valueOf(i).repeat(50)), HOUR);
+        }
+        long size;
+        try (Stream<Path> files = Files.list(dir)) {
+            size = files.filter(file -> file.getFileName().toString().startsWith("segment-"))
+                    .mapToLong(file -> file.toFile().length()).sum();
+        }
+        assertTrue(size <= 4096, "segments hold " + size + " bytes");
+        assertNotNull(cache.get("key-99"));
+        assertNull(cache.get("key-0"));
+        // The other process finds its segments gone and re-indexes the compacted ones
+        assertEquals("99".repeat(50), text(other.get("key-99")));
+        assertNull(other.get("early"));
+    }
+}
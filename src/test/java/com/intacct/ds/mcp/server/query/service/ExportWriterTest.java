@@ -0,0 +1,111 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for writing exported rows to files
+ */
+public class ExportWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] json(String row) {
+        return row.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testNdjsonKeepsRowsAndChecksumMatchesFile() throws Exception {
+        Path file = dir.resolve("vendors.ndjson");
+        ExportWriter.Summary summary;
+        // A buffer smaller than the rows written, so the file is written across several drains
+        try (ExportWriter out = new ExportWriter(file, ExportWriter.Format.NDJSON, null, 16)) {
+            for (int i = 0; i < 1000; i++) {
+                out.row(json("{\"id\": \"V" + i + "\"}"));
+            }
+            summary = out.commit();
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(1000, lines.size());
+        assertEquals("{\"id\": \"V999\"}", lines.get(999));
+        assertEquals(1000, summary.rows());
+        assertEquals(Files.size(file), summary.bytes());
+        byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+        assertEquals(HexFormat.of().formatHex(sha256), summary.sha256());
+        assertEquals(List.of("vendors.ndjson"), List.of(dir.toFile().list()));
+    }
+
+    @Test
+    void testCsvFlattensNestedFieldsAndQuotesValues() throws Exception {
+        Path file = dir.resolve("bills.csv");
+        try (ExportWriter out = new ExportWriter(file, ExportWriter.Format.CSV, null, 4096)) {
+            out.row(json("{\"id\": \"B1\", \"vendor\": {\"id\": \"Acme, Inc.\", \"key\": 7}, \"memo\": \"say \\\"hi\\\"\"}"));
+            out.row(json("{\"id\": \"B2\", \"vendor\": {\"id\": \"Bolt\"}, \"memo\": null}"));
+            out.commit();
+        }
+
+        assertEquals(List.of(
+                "id,vendor.id,vendor.key,memo",
+                "B1,\"Acme, Inc.\",7,\"say \"\"hi\"\"\"",
+                "B2,Bolt,,"), Files.readAllLines(file));
+    }
+
+    @Test
+    void testUncommittedExportLeavesNoFile() throws Exception {
+        Path file = dir.resolve("partial.csv");
+        try (ExportWriter out = new ExportWriter(file, ExportWriter.Format.CSV, List.of("id", "name"), 4096)) {
+            out.row(json("{\"id\": \"V1\", \"name\": \"Acme\"}"));
+        }
+
+        assertFalse(Files.exists(file));
+        assertEquals(0, dir.toFile().list().length);
+    }
+
+    @Test
+    void testExportsToOneFileWriteSeparatePartFiles() throws Exception {
+        // E.g. a call rerun locally while the sidecar daemon's copy of it is still running
+        Path file = dir.resolve("vendors.ndjson");
+        try (ExportWriter first = new ExportWriter(file, ExportWriter.Format.NDJSON, null, 4096);
+                ExportWriter second = new ExportWriter(file, ExportWriter.Format.NDJSON, null, 4096)) {
+            first.row(json("{\"id\": \"V1\"}"));
+            second.row(json("{\"id\": \"V2\"}"));
+            first.row(json("{\"id\": \"V3\"}"));
+            first.commit();
+        }
+
+        assertEquals(List.of("{\"id\": \"V1\"}", "{\"id\": \"V3\"}"), Files.readAllLines(file));
+        assertEquals(List.of("vendors.ndjson"), List.of(dir.toFile().list()));
+    }
+
+    @Test
+    void testExportIsOnlyAccessibleToTheUser() throws Exception {
+        Path directory = dir.resolve("exports/2024");
+        ExportWriter.createDirectories(directory);
+        Path file = directory.resolve("vendors.ndjson");
+        try (ExportWriter out = new ExportWriter(file, ExportWriter.Format.NDJSON, null, 4096)) {
+            out.row(json("{\"id\": \"V1\"}"));
+            out.commit();
+        }
+
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve("exports"))));
+
+        // An existing directory is left as it is
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxr-xr-x"));
+        ExportWriter.createDirectories(directory);
+        assertEquals("rwxr-xr-x", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+    }
+}
@@ -0,0 +1,114 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.intacct.ds.mcp.server.query.service.QueryService.JoinResult;
+import com.intacct.ds.mcp.server.query.service.QueryService.ResultBudget;
+
+/**
+ * Tests for the client-side hash join
+ */
+public class HashJoinTest {
+
+    private static final ResultBudget UNLIMITED = new ResultBudget(1000, 1_000_000L, 100);
+
+    private static byte[] json(String row) {
+        return row.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static HashJoin vendors(boolean outer) throws Exception {
+        HashJoin join = new HashJoin("vendor.key", List.of("id", "totalDue"), "key", List.of("id", "term.id"),
+                "vendor", outer);
+        join.build(json("{\"key\": \"1\", \"id\": \"ACME\", \"term\": {\"id\": \"Net 30\"}}"));
+        join.build(json("{\"key\": \"2\", \"id\": \"BOLT\", \"term.id\": \"Net 10\"}"));
+        join.build(json("{\"id\": \"NOKEY\"}"));
+        return join;
+    }
+
+    @Test
+    void testInnerJoinReturnsOnlyTheProjectionOfMatches() throws Exception {
+        HashJoin join = vendors(false);
+        // Keys are matched across nested and flat rows and across numbers and strings
+        assertTrue(join.probe(json("{\"id\": \"B1\", \"totalDue\": \"10.00\", \"vendor\": {\"key\": 1}, \"memo\": \"x\"}"), 1, 10));
+        assertTrue(join.probe(json("{\"id\": \"B2\", \"totalDue\": \"5.00\", \"vendor.key\": \"9\"}"), 2, 10));
+        assertTrue(join.probe(json("{\"id\": \"B3\", \"totalDue\": \"7.00\", \"vendor.key\": \"2\"}"), 3, 10));
+
+        JoinResult result = join.result(UNLIMITED, 10, null);
+        assertEquals(List.of(
+                row("id", "B1", "totalDue", "10.00", "vendor.id", "ACME", "vendor.term.id", "Net 30"),
+                row("id", "B3", "totalDue", "7.00", "vendor.id", "BOLT", "vendor.term.id", "Net 10")), result.rows());
+        assertEquals(3, result.factRows());
+        assertEquals(3, result.dimensionRows());
+        assertEquals(1, result.unmatched());
+        assertFalse(result.truncated());
+        assertNull(result.nextStart());
+    }
+
+    @Test
+    void testLeftJoinKeepsUnmatchedFactRows() throws Exception {
+        HashJoin join = vendors(true);
+        join.probe(json("{\"id\": \"B2\", \"totalDue\": \"5.00\", \"vendor.key\": \"9\"}"), 1, 10);
+
+        assertEquals(List.of(row("id", "B2", "totalDue", "5.00", "vendor.id", null, "vendor.term.id", null)),
+                join.result(UNLIMITED, 10, null).rows());
+    }
+
+    @Test
+    void testStopsAtRowLimitAndContinuesFromFirstFactRowNotReturnedInFull() throws Exception {
+        HashJoin join = vendors(false);
+        // A second dimension row with key 1: each bill of vendor 1 joins twice
+        join.build(json("{\"key\": \"1\", \"id\": \"ACME2\"}"));
+        assertTrue(join.probe(json("{\"id\": \"B1\", \"vendor.key\": \"2\"}"), 5, 2));
+        // B2 joins twice, one row more than wanted: the fact side is not read any further
+        assertFalse(join.probe(json("{\"id\": \"B2\", \"vendor.key\": \"1\"}"), 6, 2));
+
+        JoinResult result = join.result(UNLIMITED, 2, 7);
+        // B2's second match did not fit, so B2 is left out whole and the next call starts from it
+        assertEquals(1, result.rows().size());
+        assertEquals("B1", result.rows().get(0).get("id"));
+        assertTrue(result.truncated());
+        assertEquals(6, result.nextStart());
+    }
+
+    @Test
+    void testFactRowWithMoreMatchesThanFitContinuesWithinTheRow() throws Exception {
+        HashJoin join = vendors(false);
+        join.build(json("{\"key\": \"1\", \"id\": \"ACME2\"}"));
+        join.build(json("{\"key\": \"1\", \"id\": \"ACME3\"}"));
+        // B1 joins three times, more than the two rows wanted
+        assertFalse(join.probe(json("{\"id\": \"B1\", \"vendor.key\": \"1\"}"), 4, 2));
+
+        JoinResult first = join.result(UNLIMITED, 2, 5);
+        assertEquals(List.of("ACME", "ACME2"), first.rows().stream().map(row -> row.get("vendor.id")).toList());
+        assertEquals(4, first.nextStart());
+        assertEquals(2, first.nextMatch());
+
+        // The next call starts from the same fact row and skips the matches already returned
+        HashJoin next = vendors(false);
+        next.build(json("{\"key\": \"1\", \"id\": \"ACME2\"}"));
+        next.build(json("{\"key\": \"1\", \"id\": \"ACME3\"}"));
+        next.resumeAt(first.nextStart(), first.nextMatch());
+        assertTrue(next.probe(json("{\"id\": \"B1\", \"vendor.key\": \"1\"}"), 4, 2));
+        JoinResult rest = next.result(UNLIMITED, 2, null);
+        assertEquals(List.of("ACME3"), rest.rows().stream().map(row -> row.get("vendor.id")).toList());
+        assertNull(rest.nextStart());
+        assertNull(rest.nextMatch());
+    }
+
+    private static Map<String, Object> row(Object... entries) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            row.put((String) entries[i], entries[i + 1]);
+        }
+        return row;
+    }
+}
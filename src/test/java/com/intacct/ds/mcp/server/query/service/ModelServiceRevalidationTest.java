@@ -0,0 +1,163 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.ModelService.ObjectModel;
+import com.intacct.ds.mcp.server.query.service.ModelService.ResourceSummary;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for revalidating cached models and the model catalog with conditional requests, and for keeping
+ * them in the disk cache across sessions
+ */
+public class ModelServiceRevalidationTest {
+
+    private static final String LAST_MODIFIED = "Tue, 13 Oct 2026 08:00:00 GMT";
+
+    @TempDir
+    Path dir;
+
+    // Each request as "<conditional header or 'plain'> -> <status>"
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+    private volatile String catalogEtag = "\"catalog-1\"";
+    private volatile String catalogObjects = "{\"apiObject\": \"accounts-payable/vendor\"}, {\"apiObject\": \"accounts-payable/bill\"}";
+    private McpServerProperties properties;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/services/core/model", this::model);
+        server.start();
+        authService = mock(AuthService.class);
+        when(authService.getAccessToken()).thenReturn("test-token");
+        when(authService.getBaseUrl()).thenReturn("http://127.0.0.1:" + server.getAddress().getPort());
+        properties = new McpServerProperties();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    // The catalog is served with an ETag (none when catalogEtag is null), models with a Last-Modified date
+    private void model(HttpExchange exchange) throws IOException {
+        boolean catalog = exchange.getRequestURI().getQuery() == null;
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        String body;
+        boolean notModified;
+        if (catalog) {
+            body = "{\"ia::result\": [" + catalogObjects + "]}";
+            notModified = catalogEtag != null && catalogEtag.equals(ifNoneMatch);
+            if (catalogEtag != null) {
+                exchange.getResponseHeaders().set("ETag", catalogEtag);
+            }
+        } else {
+            body = "{\"ia::result\": {\"fields\": {\"id\": {\"type\": \"string\"}}}}";
+            notModified = LAST_MODIFIED.equals(ifModifiedSince);
+            exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+        }
+        requests.add((ifNoneMatch != null ? ifNoneMatch : ifModifiedSince != null ? ifModifiedSince : "plain")
+                + " -> " + (notModified ? 304 : 200));
+        if (notModified) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] json = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    @Test
+    void testUnchangedCatalogIsRevalidatedWithItsEtag() {
+        ModelService modelService = new ModelService(authService, properties, null, null, null, null);
+        List<ResourceSummary> first = modelService.listAvailableModels();
+        List<ResourceSummary> second = modelService.listAvailableModels();
+
+        assertEquals(2, first.size());
+        assertSame(first, second);
+        assertEquals(List.of("plain -> 200", "\"catalog-1\" -> 304"), requests);
+
+        // A changed catalog gets a new ETag and is downloaded again
+        catalogEtag = "\"catalog-2\"";
+        catalogObjects = "{\"apiObject\": \"accounts-payable/vendor\"}";
+        assertEquals(1, modelService.listAvailableModels().size());
+        assertEquals("\"catalog-1\" -> 200", requests.get(2));
+    }
+
+    @Test
+    void testCatalogWithoutValidatorsIsComparedByContentHash() {
+        catalogEtag = null;
+        ModelService modelService = new ModelService(authService, properties, null, null, null, null);
+        List<ResourceSummary> first = modelService.listAvailableModels();
+
+        // The body is downloaded again, but an identical one keeps the catalog already decoded
+        assertSame(first, modelService.listAvailableModels());
+        assertEquals(List.of("plain -> 200", "plain -> 200"), requests);
+    }
+
+    @Test
+    void testStaleModelIsServedWhileItIsRevalidatedInTheBackground() throws Exception {
+        properties.getModelCache().setRevalidateAfterSeconds(1);
+        ModelService modelService = new ModelService(authService, properties, null, null, null, null);
+        ObjectModel model = modelService.loadModel("accounts-payable/vendor");
+        assertNotNull(model);
+
+        Thread.sleep(1100);
+        // Past the revalidation age: the cached model is returned at once and a conditional request is sent
+        assertSame(model, modelService.loadModel("accounts-payable/vendor"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (requests.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(List.of("plain -> 200", LAST_MODIFIED + " -> 304"), requests);
+        assertSame(model, modelService.loadModel("accounts-payable/vendor"));
+        assertTrue(modelService.isCached("accounts-payable/vendor"));
+    }
+
+    @Test
+    void testNewSessionStartsWithTheModelsAndCatalogOfEarlierOnes() {
+        properties.getDiskCache().setEnabled(true);
+        properties.getDiskCache().setDirectory(dir.toString());
+        ModelService first = new ModelService(authService, properties, null, null, new DiskCache(properties), null);
+        assertEquals("accounts-payable/vendor", first.requireObjectName("vendors"));
+        assertNotNull(first.loadModel("accounts-payable/vendor"));
+        assertEquals(List.of("plain -> 200", "plain -> 200"), requests);
+
+        // A new process: names resolve and the model loads without a request
+        ModelService second = new ModelService(authService, properties, null, null, new DiskCache(properties), null);
+        assertEquals("accounts-payable/bill", second.requireObjectName("ap/bill"));
+        assertEquals("string", second.loadModel("accounts-payable/vendor").fields().get("id").type());
+        assertEquals(2, requests.size());
+
+        // Listing again revalidates the restored catalog with the stored ETag
+        assertEquals(2, second.listAvailableModels().size());
+        assertEquals("\"catalog-1\" -> 304", requests.get(2));
+    }
+}
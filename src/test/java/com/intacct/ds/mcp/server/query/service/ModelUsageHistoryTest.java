@@ -0,0 +1,56 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+/**
+ * Tests for the persisted model usage history used by schema pre-warming
+ */
+public class ModelUsageHistoryTest {
+
+    @TempDir
+    Path directory;
+
+    private McpServerProperties properties() {
+        McpServerProperties properties = new McpServerProperties();
+        properties.getSchemaWarmup().setUsageHistoryFile(directory.resolve("usage/model-usage.json").toString());
+        return properties;
+    }
+
+    @Test
+    void testTopObjectsSurviveRestart() {
+        ModelUsageHistory history = new ModelUsageHistory(properties());
+        history.record("accounts-payable/bill");
+        history.record("general-ledger/account");
+        history.record("general-ledger/account");
+        history.record("accounts-payable/vendor");
+        history.record("general-ledger/account");
+        history.record("accounts-payable/vendor");
+        history.save();
+
+        ModelUsageHistory restored = new ModelUsageHistory(properties());
+
+        assertEquals(List.of("general-ledger/account", "accounts-payable/vendor"), restored.topObjects(2));
+        assertEquals(3, restored.topObjects(10).size());
+    }
+
+    @Test
+    void testSchemaWarmerWarmsConfiguredResourcesFirst() {
+        McpServerProperties properties = properties();
+        properties.getToolIntegration().setResources(List.of("vendor", "company-config/department", "unknown"));
+        ModelUsageHistory history = new ModelUsageHistory(properties);
+        history.record("general-ledger/account");
+        history.record("accounts-payable/vendor");
+
+        SchemaWarmer warmer = new SchemaWarmer(null, history, null, properties);
+
+        assertEquals(List.of("accounts-payable/vendor", "company-config/department", "general-ledger/account"),
+                warmer.objectsToWarm());
+    }
+}
@@ -0,0 +1,87 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.service.ModelService.ModelApiResponse;
+import com.intacct.ds.mcp.server.query.service.ModelService.ObjectModel;
+
+/**
+ * Tests for the compact model representation and section selection
+ */
+public class ObjectModelTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String VENDOR = """
+            {"ia::result": {
+              "fields": {
+                "id": {"type": "string", "readOnly": false},
+                "name": {"type": "string", "readOnly": false},
+                "status": {"type": "string", "enum": ["active", "inactive"]},
+                "totalDue": {"type": "string", "format": "decimal-precision-2", "readOnly": true}
+              },
+              "groups": {"audit": {"fields": {"createdDateTime": {"type": "string", "format": "date-time", "readOnly": true}}}},
+              "refs": {"contact": {"apiObject": "company-config/contact", "fields": {"id": {"type": "string", "readOnly": false}}}},
+              "lists": {"lines": {"apiObject": "accounts-payable/bill-line"}},
+              "httpMethods": "GET,POST"
+            }}""";
+
+    private static ObjectModel vendor() throws Exception {
+        return MAPPER.readValue(VENDOR, ModelApiResponse.class).result();
+    }
+
+    @Test
+    void testEqualFieldDefinitionsAreShared() throws Exception {
+        ObjectModel model = vendor();
+        ObjectModel other = vendor();
+
+        assertEquals(List.of("id", "name", "status", "totalDue"), List.copyOf(model.fields().keySet()));
+        assertSame(model.fields().get("id"), model.fields().get("name"));
+        assertSame(model.fields().get("id"), other.fields().get("id"));
+        assertSame(model.fields().get("id"), model.refs().get("contact").fields().get("id"));
+        assertEquals(List.of("active", "inactive"), model.fields().get("status").enumValues());
+    }
+
+    @Test
+    void testSectionsAreDecodedOnRead() throws Exception {
+        ObjectModel model = vendor();
+
+        assertEquals("date-time", model.groups().get("audit").fields().get("createdDateTime").format());
+        assertEquals("company-config/contact", model.refs().get("contact").apiObject());
+        assertEquals(Map.of("lines", Map.of("apiObject", "accounts-payable/bill-line")), model.lists());
+
+        var json = MAPPER.readTree(MAPPER.writeValueAsString(model));
+        assertEquals("date-time", json.at("/groups/audit/fields/createdDateTime/format").asText());
+        assertEquals("accounts-payable/bill-line", json.at("/lists/lines/apiObject").asText());
+        assertFalse(json.has("numericFields"));
+
+        // Decimals are typed as strings but compare as numbers
+        assertEquals(Set.of("totalDue"), model.numericFields());
+    }
+
+    @Test
+    void testSelectSections() throws Exception {
+        ObjectModel fieldsOnly = vendor().select(List.of("fields"));
+
+        assertNull(fieldsOnly.groups());
+        Map<String, Object> json = MAPPER.readValue(MAPPER.writeValueAsString(fieldsOnly), new TypeReference<>() {});
+        assertTrue(json.containsKey("fields"));
+        assertFalse(json.containsKey("groups"));
+        assertFalse(json.containsKey("refs"));
+        assertEquals("GET,POST", json.get("httpMethods"));
+
+        assertThrows(IllegalArgumentException.class, () -> vendor().select(List.of("columns")));
+    }
+}
@@ -0,0 +1,91 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.ObjectNameIndex.Resolution;
+import com.intacct.ds.mcp.server.query.service.ObjectNameIndex.Status;
+
+/**
+ * Tests for resolving object names against the model catalog
+ */
+public class ObjectNameIndexTest {
+
+    private final ObjectNameIndex index = new ObjectNameIndex(List.of(
+            "accounts-payable/vendor",
+            "accounts-payable/bill",
+            "accounts-payable/bill-line",
+            "accounts-receivable/customer",
+            "accounts-receivable/invoice",
+            "general-ledger/account",
+            "general-ledger/journal-entry",
+            "company-config/department",
+            "purchasing/document",
+            "order-entry/document",
+            "platform-apps/nsp::Project_Task"),
+            new McpServerProperties.ObjectResolutionConfig().getModuleAliases(),
+            new McpServerProperties.ObjectResolutionConfig().getObjectAliases(), 5);
+
+    @Test
+    void testExactNamesIgnoreCaseAndObjectsPrefix() {
+        assertResolved("accounts-payable/vendor", Status.EXACT, "accounts-payable/vendor");
+        assertResolved("objects/accounts-payable/vendor", Status.EXACT, "accounts-payable/vendor");
+        assertResolved("Accounts-Payable/Vendor", Status.EXACT, "accounts-payable/vendor");
+        assertResolved("platform-apps/nsp::project_task", Status.EXACT, "platform-apps/nsp::Project_Task");
+    }
+
+    @Test
+    void testCommonMistakesAreCorrected() {
+        assertResolved("vendors", Status.CORRECTED, "accounts-payable/vendor");
+        assertResolved("ap/vendor", Status.CORRECTED, "accounts-payable/vendor");
+        assertResolved("accounts-receivable/vendor", Status.CORRECTED, "accounts-payable/vendor");
+        assertResolved("supplier", Status.CORRECTED, "accounts-payable/vendor");
+        assertResolved("gl/journal_entries", Status.CORRECTED, "general-ledger/journal-entry");
+        assertResolved("invioce", Status.CORRECTED, "accounts-receivable/invoice");
+        assertResolved("departments", Status.CORRECTED, "company-config/department");
+    }
+
+    @Test
+    void testAmbiguousNamesListCandidates() {
+        Resolution resolution = index.resolve("document");
+
+        assertFalse(resolution.isResolved());
+        assertEquals(Status.AMBIGUOUS, resolution.status());
+        assertEquals(List.of("purchasing/document", "order-entry/document"), resolution.suggestions());
+        assertResolved("po/document", Status.CORRECTED, "purchasing/document");
+    }
+
+    @Test
+    void testUnknownNamesGetSuggestions() {
+        Resolution resolution = index.resolve("bil");
+
+        assertFalse(resolution.isResolved());
+        assertEquals(Status.UNKNOWN, resolution.status());
+        assertEquals("accounts-payable/bill", resolution.suggestions().get(0));
+        assertTrue(resolution.suggestions().contains("accounts-payable/bill-line"));
+        assertTrue(resolution.message().contains("Did you mean"));
+
+        Resolution unrelated = index.resolve("warehouse-transfer");
+        assertFalse(unrelated.isResolved());
+        assertTrue(unrelated.suggestions().isEmpty());
+    }
+
+    @Test
+    void testDistanceIsBounded() {
+        assertEquals(1, ObjectNameIndex.distance("invioce", "invoice", 2));
+        assertEquals(2, ObjectNameIndex.distance("vendor", "vender1", 2));
+        assertEquals(3, ObjectNameIndex.distance("vendor", "customer", 2));
+    }
+
+    private void assertResolved(String input, Status status, String expected) {
+        Resolution resolution = index.resolve(input);
+        assertEquals(expected, resolution.name(), input);
+        assertEquals(status, resolution.status(), input);
+    }
+}
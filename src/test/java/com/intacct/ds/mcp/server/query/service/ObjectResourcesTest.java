@@ -0,0 +1,116 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.ObjectProvider;
+
+import com.intacct.ds.mcp.server.query.config.McpServerConfiguration;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.QueryService.QueryResult;
+import com.intacct.ds.mcp.server.query.transport.ResourceSubscriptions;
+
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+
+/**
+ * Tests for serving tool-integration resources as MCP resources
+ */
+public class ObjectResourcesTest {
+
+    private McpServerProperties properties;
+    private QueryService queryService;
+    private ReplicaService replicaService;
+    private ResourceSubscriptions subscriptions;
+
+    @BeforeEach
+    void setUp() {
+        properties = new McpServerProperties();
+        properties.getToolIntegration().setResources(List.of("vendor", "customer", "unknown"));
+        properties.getObjectResources().setMaxRows(50);
+        queryService = mock(QueryService.class);
+        replicaService = mock(ReplicaService.class);
+        when(replicaService.objectOf("vendor")).thenReturn("accounts-payable/vendor");
+        when(replicaService.objectOf("customer")).thenReturn("accounts-receivable/customer");
+        subscriptions = mock(ResourceSubscriptions.class);
+    }
+
+    @Test
+    void testResourcesAreReadThroughTheQueryService() {
+        List<McpServerFeatures.SyncResourceSpecification> specifications =
+                new ObjectResources(properties, queryService, replicaService, subscriptions).specifications();
+        assertEquals(List.of("intacct://objects/vendor", "intacct://objects/customer"),
+                specifications.stream().map(specification -> specification.resource().uri()).toList());
+
+        when(queryService.executeQuery(eq("accounts-payable/vendor"), eq(QueryEstimator.DEFAULT_FIELDS), isNull(),
+                isNull(), isNull(), eq(List.of(Map.of("key", "asc"))), eq(1), eq(50), isNull(), isNull(), isNull()))
+                .thenReturn(new QueryResult(List.of(Map.of("key", "1", "id", "V100")), 1, false, null, null, null,
+                        "cache"));
+        McpSchema.ReadResourceResult result = specifications.get(0).readHandler()
+                .apply(null, new McpSchema.ReadResourceRequest("intacct://objects/vendor"));
+        McpSchema.TextResourceContents contents = (McpSchema.TextResourceContents) result.contents().get(0);
+        assertEquals("intacct://objects/vendor", contents.uri());
+        assertTrue(contents.text().contains("\"V100\""), contents.text());
+    }
+
+    @Test
+    void testReplicaChangesNotifyTheObjectsResource() {
+        new ObjectResources(properties, queryService, replicaService, subscriptions).start();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(replicaService).addChangeListener(listener.capture());
+
+        listener.getValue().accept("accounts-receivable/customer");
+        verify(subscriptions).updated("intacct://objects/customer");
+        verify(subscriptions, never()).updated("intacct://objects/vendor");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSubscriptionsAreOnlyAdvertisedWhileReplicaSyncsNotifyThem() {
+        McpServerConfiguration configuration = new McpServerConfiguration();
+        ObjectProvider<McpServerTransportProvider> provider = mock(ObjectProvider.class);
+        // Replicas are off by default
+        ResourceSubscriptions byDefault = new ResourceSubscriptions(provider, properties);
+        assertFalse(subscribe(configuration, byDefault));
+        assertFalse(byDefault.handles("resources/subscribe"));
+
+        properties.getReplica().setEnabled(true);
+        assertTrue(subscribe(configuration, new ResourceSubscriptions(provider, properties)));
+        properties.setResourceChangeNotification(false);
+        assertFalse(subscribe(configuration, new ResourceSubscriptions(provider, properties)));
+        properties.setResourceChangeNotification(true);
+        properties.getObjectResources().setEnabled(false);
+        assertFalse(subscribe(configuration, new ResourceSubscriptions(provider, properties)));
+    }
+
+    private static boolean subscribe(McpServerConfiguration configuration, ResourceSubscriptions subscriptions) {
+        return configuration.capabilitiesBuilder(subscriptions).resources(false, false).build().resources().subscribe();
+    }
+
+    @Test
+    void testDisabledResourcesAreNotRegistered() {
+        properties.getObjectResources().setEnabled(false);
+        ObjectResources resources = new ObjectResources(properties, queryService, replicaService, subscriptions);
+        resources.start();
+        assertEquals(List.of(), resources.specifications());
+        verify(replicaService, never()).addChangeListener(any());
+        verify(queryService, never()).executeQuery(any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), any());
+    }
+}
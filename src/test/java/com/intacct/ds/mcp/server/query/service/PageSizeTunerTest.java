@@ -0,0 +1,96 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+/**
+ * Tests for the page sizes learned from observed pages
+ */
+public class PageSizeTunerTest {
+
+    @TempDir
+    Path dir;
+
+    private McpServerProperties.AdaptivePagingConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new McpServerProperties.AdaptivePagingConfig();
+        config.setTargetPageMillis(1000);
+        config.setMaxPageBytes(1_000_000);
+        config.setStateFile(dir.resolve("page-sizes.json").toString());
+    }
+
+    @Test
+    void testFastNarrowPagesGrowAndSlowWidePagesShrink() {
+        PageSizeTuner tuner = new PageSizeTuner(config);
+        List<String> narrow = List.of("key", "id");
+        assertEquals(250, tuner.pageSize("vendor", narrow, 250));
+
+        // 250 rows in 100 ms: the target would be 2500 rows, but one page grows the size at most twofold
+        tuner.observe("vendor", narrow, 250, 250, 250 * 40L, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(500, tuner.pageSize("vendor", narrow, 250));
+        tuner.observe("vendor", narrow, 500, 500, 500 * 40L, TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1000, tuner.pageSize("vendor", narrow, 250));
+
+        // Rows of 10 KB: the memory budget allows 100 rows per page whatever the latency
+        List<String> wide = List.of("key", "description", "notes");
+        tuner.observe("vendor", wide, 250, 250, 250 * 10_000L, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(100, tuner.pageSize("vendor", wide, 250));
+
+        // 250 rows in 5 s: shrinks by at most half, and never below the minimum
+        tuner.observe("bill", null, 250, 250, 250 * 40L, TimeUnit.SECONDS.toNanos(5));
+        assertEquals(125, tuner.pageSize("bill", null, 250));
+        tuner.observe("bill", null, 125, 125, 125 * 40L, TimeUnit.SECONDS.toNanos(5));
+        tuner.observe("bill", null, 62, 62, 62 * 40L, TimeUnit.SECONDS.toNanos(5));
+        assertEquals(config.getMinPageSize(), tuner.pageSize("bill", null, 250));
+    }
+
+    @Test
+    void testShortLastPageDoesNotShrinkTheLearnedSize() {
+        PageSizeTuner tuner = new PageSizeTuner(config);
+        List<String> fields = List.of("key", "id");
+        tuner.observe("vendor", fields, 250, 250, 250 * 40L, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(500, tuner.pageSize("vendor", fields, 250));
+
+        // The last 3 rows of the result took the fixed cost of a request: 133 ms per row if taken at face value
+        tuner.observe("vendor", fields, 500, 3, 3 * 40L, TimeUnit.MILLISECONDS.toNanos(400));
+        assertEquals(500, tuner.pageSize("vendor", fields, 250));
+        assertEquals(1, tuner.tuning("vendor", fields).pages());
+    }
+
+    @Test
+    void testLearnedSizesSurviveRestart() {
+        PageSizeTuner tuner = new PageSizeTuner(config);
+        tuner.observe("customer", List.of("id", "key"), 250, 250, 250 * 40L, TimeUnit.MILLISECONDS.toNanos(100));
+        tuner.save();
+
+        PageSizeTuner restarted = new PageSizeTuner(config);
+        // The field order does not matter
+        assertEquals(500, restarted.pageSize("customer", List.of("key", "id"), 250));
+        PageSizeTuner.Tuning tuning = restarted.tuning("customer", List.of("key", "id"));
+        assertNotNull(tuning);
+        assertEquals(40.0, tuning.bytesPerRow(), 0.001);
+        assertEquals(1, tuning.pages());
+    }
+
+    @Test
+    void testDisabledTunerKeepsInitialSize() {
+        config.setEnabled(false);
+        PageSizeTuner tuner = new PageSizeTuner(config);
+        tuner.observe("vendor", null, 250, 250, 250 * 40L, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(250, tuner.pageSize("vendor", null, 250));
+        tuner.save();
+        assertTrue(dir.toFile().list().length == 0);
+    }
+}
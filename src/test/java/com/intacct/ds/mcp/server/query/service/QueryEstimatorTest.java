@@ -0,0 +1,80 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.service.ModelService.ModelApiResponse;
+import com.intacct.ds.mcp.server.query.service.ModelService.ObjectModel;
+import com.intacct.ds.mcp.server.query.service.QueryService.PagePlan;
+import com.intacct.ds.mcp.server.query.service.QueryService.ResultBudget;
+
+/**
+ * Tests for query size estimates and page plans
+ */
+public class QueryEstimatorTest {
+
+    private static final String VENDOR = """
+            {"ia::result": {
+              "fields": {
+                "key": {"type": "string"},
+                "id": {"type": "string"},
+                "status": {"type": "string", "enum": ["active", "inactive"]},
+                "totalDue": {"type": "string", "format": "decimal-precision-2"},
+                "isOnHold": {"type": "boolean"}
+              },
+              "groups": {"audit": {"fields": {"modifiedDateTime": {"type": "string", "format": "date-time"}}}},
+              "refs": {"contact": {"apiObject": "company-config/contact", "fields": {"id": {"type": "string"}}}}
+            }}""";
+
+    private static ObjectModel vendor() throws Exception {
+        return new ObjectMapper().readValue(VENDOR, ModelApiResponse.class).result();
+    }
+
+    @Test
+    void testRowSizeFollowsFieldTypes() throws Exception {
+        ObjectModel model = vendor();
+
+        // {"status":"inactive"} is 21 bytes; the estimate uses the average enum value
+        QueryEstimator.RowSize status = QueryEstimator.rowSize("accounts-payable/vendor", model, List.of("status"));
+        assertEquals(2 + "status".length() + 4 + 9, status.bytes());
+
+        QueryEstimator.RowSize wide = QueryEstimator.rowSize("accounts-payable/vendor", model,
+                List.of("id", "totalDue", "isOnHold", "audit.modifiedDateTime", "contact.id", "nickname"));
+        QueryEstimator.RowSize narrow = QueryEstimator.rowSize("accounts-payable/vendor", model, List.of("id"));
+        assertTrue(wide.bytes() > 5 * narrow.bytes() / 2, wide + " vs " + narrow);
+        assertEquals(List.of("nickname"), wide.unknownFields());
+
+        // Without fields the API returns key, id and href
+        QueryEstimator.RowSize defaults = QueryEstimator.rowSize("accounts-payable/vendor", null, null);
+        assertTrue(defaults.unknownFields().isEmpty());
+        assertTrue(defaults.bytes() > "accounts-payable/vendor".length());
+    }
+
+    @Test
+    void testPlanKeepsPagesWithinTheBudget() {
+        ResultBudget budget = new ResultBudget(500, 20_000L, 50);
+
+        PagePlan small = QueryEstimator.plan(30, 100, budget);
+        assertEquals(1, small.pages());
+        assertEquals(30, small.pageSize());
+
+        // 200 rows per page by bytes, below the 500-row cap
+        PagePlan paged = QueryEstimator.plan(1_000, 100, budget);
+        assertEquals(200, paged.pageSize());
+        assertEquals(5, paged.pages());
+        assertTrue(paged.recommendation().contains("5 pages"));
+
+        PagePlan huge = QueryEstimator.plan(100_000, 100, budget);
+        assertEquals(500, huge.pages());
+        assertTrue(huge.recommendation().startsWith("Too large"));
+
+        PagePlan unknown = QueryEstimator.plan(null, 100, budget);
+        assertNull(unknown.pages());
+        assertEquals(0, QueryEstimator.plan(0, 100, budget).pages());
+    }
+}
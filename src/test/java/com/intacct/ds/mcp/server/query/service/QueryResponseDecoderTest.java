@@ -0,0 +1,133 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.QueryResponseDecoder.Decoded;
+import com.intacct.ds.mcp.server.query.service.QueryService.QueryResult;
+import com.intacct.ds.mcp.server.query.service.QueryService.ResultBudget;
+
+/**
+ * Tests for result budgets applied while decoding Query API responses
+ */
+public class QueryResponseDecoderTest {
+
+    private static final ResultBudget UNLIMITED = new ResultBudget(1000, 1_000_000L, 100);
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // A body that fails if the decoder reads past the given prefix
+    private static InputStream truncatedBody(String prefix) {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("read past the budget");
+            }
+        };
+        return new SequenceInputStream(body(prefix), failing);
+    }
+
+    @Test
+    void testDecodesCompleteResponse() throws Exception {
+        Decoded decoded = QueryResponseDecoder.decode(body(
+                "{\"ia::result\": [{\"id\": \"V1\"}, {\"id\": \"V2\"}],"
+                        + " \"ia::meta\": {\"totalCount\": 2, \"start\": 1, \"pageSize\": 100}}"), UNLIMITED, 100);
+
+        assertEquals(List.of(Map.of("id", "V1"), Map.of("id", "V2")), decoded.rows());
+        assertEquals(2, decoded.meta().totalCount());
+        assertFalse(decoded.truncated());
+    }
+
+    @Test
+    void testStopsReadingAtRowBudget() throws Exception {
+        Decoded decoded = QueryResponseDecoder.decode(
+                truncatedBody("{\"ia::result\": [{\"id\": \"V1\"}, {\"id\": \"V2\"}, {\"id\": \"V3\"}"), UNLIMITED, 2);
+
+        assertEquals(2, decoded.rows().size());
+        assertEquals(QueryResponseDecoder.TRUNCATED_BY_ROWS, decoded.truncatedBy());
+
+        QueryResult result = QueryResult.of(decoded, 11, "api");
+        assertTrue(result.truncated());
+        assertEquals(13, result.nextStart());
+        assertNull(result.totalCount());
+    }
+
+    @Test
+    void testStopsReadingAtByteBudgetAndTrimsFields() throws Exception {
+        ResultBudget budget = new ResultBudget(1000, 40L, 1);
+        Decoded decoded = QueryResponseDecoder.decode(
+                truncatedBody("{\"ia::result\": [{\"id\": \"V1\", \"name\": \"Acme\"}, {\"id\": \"V2\", \"name\": \"Beta\"}"),
+                budget, 100);
+
+        assertEquals(List.of(Map.of("id", "V1")), decoded.rows());
+        assertEquals(QueryResponseDecoder.TRUNCATED_BY_BYTES, decoded.truncatedBy());
+        assertTrue(decoded.fieldsTruncated());
+    }
+
+    @Test
+    void testPerCallBudgetOnlyTightensServerBudget() {
+        McpServerProperties.ResultBudgetConfig server = new McpServerProperties.ResultBudgetConfig();
+        server.setMaxRows(500);
+
+        assertEquals(500, ResultBudget.effective(new ResultBudget(5000, null, null), server).maxRows());
+        assertEquals(50, ResultBudget.effective(new ResultBudget(50, null, null), server).maxRows());
+        assertEquals(server.getMaxBytes(), ResultBudget.effective(null, server).maxBytes());
+    }
+
+    @Test
+    void testPassthroughForwardsRawRows() throws Exception {
+        String rows = "[{\"id\":\"V1\",\"name\":\"Caf\u00e9 \\\"A\\\"\"},{\"id\": \"V2\", \"name\": null}]";
+        Decoded decoded = QueryResponseDecoder.passthrough(body("{\"ia::result\": " + rows
+                + ", \"ia::meta\": {\"totalCount\": 2}}"), UNLIMITED, 100, List.of("id", "name"));
+
+        RawRows raw = (RawRows) decoded.rows();
+        assertEquals(rows, raw.json());
+        assertEquals(2, raw.size());
+        assertEquals(2, decoded.meta().totalCount());
+        assertEquals("V2", raw.get(1).get("id"));
+
+        String json = new ObjectMapper().writeValueAsString(QueryResult.of(decoded, 1, "api"));
+        assertTrue(json.startsWith("{\"rows\":" + rows + ","), json);
+    }
+
+    @Test
+    void testPassthroughDropsUnrequestedKeysAndAppliesBudget() throws Exception {
+        Decoded decoded = QueryResponseDecoder.passthrough(
+                truncatedBody("{\"ia::result\": [{\"id\": \"V1\", \"href\": \"/v/1\", \"vendor\": {\"id\": \"X\", \"key\": 1}},"
+                        + " {\"id\": \"V2\"}, {\"id\": \"V3\"}"),
+                new ResultBudget(1000, 1_000_000L, 100), 2, List.of("id", "vendor.id"));
+
+        assertEquals("[{\"id\":\"V1\",\"vendor\":{\"id\":\"X\",\"key\":1}},{\"id\": \"V2\"}]",
+                ((RawRows) decoded.rows()).json());
+        assertEquals(QueryResponseDecoder.TRUNCATED_BY_ROWS, decoded.truncatedBy());
+    }
+
+    @Test
+    void testStreamHandsOnEachRowAsReturned() throws Exception {
+        List<String> rows = new ArrayList<>();
+        QueryResponseDecoder.Streamed streamed = QueryResponseDecoder.stream(body(
+                "{\"ia::result\": [{\"id\": \"V1\", \"vendor\": {\"id\": \"X\"}}, {\"id\":\"V2\"}],"
+                        + " \"ia::meta\": {\"totalCount\": 5, \"next\": 3}}"),
+                json -> rows.add(new String(json, StandardCharsets.UTF_8)));
+
+        assertEquals(List.of("{\"id\": \"V1\", \"vendor\": {\"id\": \"X\"}}", "{\"id\":\"V2\"}"), rows);
+        assertEquals(2, streamed.rows());
+        assertEquals(3, streamed.meta().next());
+    }
+}
@@ -0,0 +1,111 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.QueryService.QueryResult;
+import com.intacct.ds.mcp.server.query.service.QueryService.ResultBudget;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for keeping query responses in the disk cache
+ */
+public class QueryServiceDiskCacheTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private QueryService queryService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/services/core/query", this::respond);
+        server.start();
+
+        AuthService authService = mock(AuthService.class);
+        when(authService.getAccessToken()).thenReturn("test-token");
+        when(authService.getBaseUrl()).thenReturn("http://127.0.0.1:" + server.getAddress().getPort());
+        ModelService modelService = mock(ModelService.class);
+        when(modelService.requireObjectName(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        McpServerProperties properties = new McpServerProperties();
+        properties.getAdaptivePaging().setEnabled(false);
+        properties.getQueryCache().setEnabled(false);
+        properties.getDiskCache().setEnabled(true);
+        properties.getDiskCache().setDirectory(dir.toString());
+        queryService = new QueryService(authService, properties, null, null, null, null, modelService, null, null,
+                new DiskCache(properties));
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryService.shutdown();
+        server.stop(0);
+    }
+
+    // Always 5 vendors, whatever size is asked for
+    private void respond(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        requests.incrementAndGet();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            rows.add(Map.of("key", String.valueOf(i), "id", "V" + i));
+        }
+        byte[] json = MAPPER.writeValueAsBytes(Map.of("ia::result", rows, "ia::meta", Map.of("totalCount", 5)));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(json);
+        }
+    }
+
+    private QueryResult query(ResultBudget budget) {
+        return queryService.executeQuery("accounts-payable/vendor", List.of("key", "id"), null, null, null, null,
+                null, 10, budget, null, null);
+    }
+
+    @Test
+    void testCompleteResponseIsAnsweredFromDiskAfterwards() {
+        assertEquals(5, query(null).rows().size());
+        assertEquals(5, query(null).rows().size());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void testResultCutShortByTheBudgetIsNotCached() {
+        // A byte budget leaves the request unchanged, so both calls have the same cache key
+        QueryResult first = query(new ResultBudget(null, 40L, null));
+        assertTrue(first.truncated());
+        assertEquals(1, first.rows().size());
+
+        QueryResult second = query(null);
+        assertFalse(second.truncated());
+        assertEquals(5, second.rows().size());
+        assertEquals(2, requests.get());
+    }
+}
@@ -0,0 +1,173 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.ModelService.ModelApiResponse;
+import com.intacct.ds.mcp.server.query.service.QueryService.LookupResult;
+import com.intacct.ds.mcp.server.query.service.QueryService.QueryResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for batched record lookups: inlining referenced records into query results, and lookupRecords
+ */
+public class QueryServiceExpandTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String BILL_MODEL = """
+            {"ia::result": {
+              "fields": {"id": {"type": "string"}, "totalDue": {"type": "string"}},
+              "refs": {"vendor": {"apiObject": "accounts-payable/vendor", "fields": {"key": {"type": "string"}, "id": {"type": "string"}}}}
+            }}""";
+
+    private final List<JsonNode> requests = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+    private QueryService queryService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/services/core/query", exchange -> {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            requests.add(request);
+            respond(exchange, request);
+        });
+        server.start();
+
+        AuthService authService = mock(AuthService.class);
+        when(authService.getAccessToken()).thenReturn("test-token");
+        when(authService.getBaseUrl()).thenReturn("http://127.0.0.1:" + server.getAddress().getPort());
+        ModelService modelService = mock(ModelService.class);
+        when(modelService.requireObjectName(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(modelService.loadModel("accounts-payable/bill"))
+                .thenReturn(MAPPER.readValue(BILL_MODEL, ModelApiResponse.class).result());
+
+        McpServerProperties properties = new McpServerProperties();
+        properties.getLookup().setChunkSize(2);
+        properties.getAdaptivePaging().setEnabled(false);
+        queryService = new QueryService(authService, properties, null, null, null, null, modelService, null,
+                new RecordCache(properties), null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryService.shutdown();
+        server.stop(0);
+    }
+
+    // Bills reference vendors 1, 2, 3, 1, 4 and none; vendors are looked up by key or id ("V" + key) with $in
+    private static void respond(HttpExchange exchange, JsonNode request) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        JsonNode byKey = request.at("/filters/0/$in/key");
+        JsonNode byId = request.at("/filters/0/$in/id");
+        if (byKey.isArray() || byId.isArray()) {
+            for (JsonNode value : byKey.isArray() ? byKey : byId) {
+                String key = byKey.isArray() ? value.asText() : value.asText().substring(1);
+                if (!key.equals("9")) {
+                    rows.add(Map.of("key", key, "id", "V" + key, "name", "Vendor " + key));
+                }
+            }
+        } else {
+            String[] vendors = {"1", "2", "3", "1", "4", null};
+            for (int i = 0; i < vendors.length; i++) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", "B" + i);
+                row.put("vendor.key", vendors[i]);
+                rows.add(row);
+            }
+        }
+        byte[] json = MAPPER.writeValueAsBytes(Map.of("ia::result", rows, "ia::meta", Map.of("totalCount", rows.size())));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(json);
+        }
+    }
+
+    @Test
+    void testReferencedRecordsAreLookedUpInBatches() {
+        QueryResult result = queryService.executeQuery("accounts-payable/bill", List.of("id"), null, null, null,
+                null, null, null, null, Map.of("vendor", List.of("name")), null);
+
+        assertEquals(6, result.rows().size());
+        assertEquals("Vendor 1", result.rows().get(0).get("vendor.name"));
+        assertEquals("Vendor 1", result.rows().get(3).get("vendor.name"));
+        assertEquals("Vendor 4", result.rows().get(4).get("vendor.name"));
+        assertNull(result.rows().get(5).get("vendor.name"));
+
+        // One query for the bills, which also asks for the reference key, then 4 distinct keys in chunks of 2
+        assertEquals(3, requests.size());
+        assertTrue(requests.get(0).get("fields").toString().contains("vendor.key"));
+        Set<String> looked = new HashSet<>();
+        for (JsonNode request : requests.subList(1, 3)) {
+            assertEquals("accounts-payable/vendor", request.get("object").asText());
+            JsonNode keys = request.at("/filters/0/$in/key");
+            assertEquals(2, keys.size());
+            keys.forEach(key -> looked.add(key.asText()));
+        }
+        assertEquals(Set.of("1", "2", "3", "4"), looked);
+    }
+
+    @Test
+    void testUnknownRelationshipIsRejectedBeforeQuerying() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> queryService.executeQuery("accounts-payable/bill", List.of("id"), null, null, null, null, null,
+                        null, null, Map.of("payee", List.of("name")), null));
+
+        assertTrue(error.getMessage().contains("vendor"), error.getMessage());
+        assertTrue(requests.isEmpty());
+    }
+
+    @Test
+    void testLookupFetchesOnlyRecordsNotCached() {
+        LookupResult first = queryService.lookupRecords("accounts-payable/vendor", List.of("1", "2", "9"), null,
+                List.of("id", "name"));
+        assertEquals(List.of(Map.of("id", "V1", "name", "Vendor 1"), Map.of("id", "V2", "name", "Vendor 2")),
+                first.rows());
+        assertEquals(List.of("9"), first.notFound());
+        assertEquals(0, first.cached());
+        assertEquals(2, first.fetched());
+
+        // Overlapping lookup by id: V1 and V2 were cached under their ids too, so only V3 is fetched
+        requests.clear();
+        LookupResult second = queryService.lookupRecords("accounts-payable/vendor", List.of("V2", "V3", "V1"), "id",
+                List.of("name"));
+        assertEquals(List.of(Map.of("name", "Vendor 2"), Map.of("name", "Vendor 3"), Map.of("name", "Vendor 1")),
+                second.rows());
+        assertEquals(2, second.cached());
+        assertEquals(1, second.fetched());
+        assertEquals(1, requests.size());
+        assertEquals("[\"V3\"]", requests.get(0).at("/filters/0/$in/id").toString());
+
+        // A field that was never fetched is a miss
+        requests.clear();
+        LookupResult third = queryService.lookupRecords("accounts-payable/vendor", List.of("1"), null,
+                List.of("status"));
+        assertEquals(0, third.cached());
+        assertEquals(1, requests.size());
+    }
+}
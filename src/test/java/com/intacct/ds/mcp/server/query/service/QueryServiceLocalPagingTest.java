@@ -0,0 +1,93 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.ModelService.FieldDefinition;
+import com.intacct.ds.mcp.server.query.service.ModelService.ObjectModel;
+import com.intacct.ds.mcp.server.query.service.QueryService.CoreQueryRequest;
+import com.intacct.ds.mcp.server.query.service.QueryService.MetadataPages;
+import com.intacct.ds.mcp.server.query.service.QueryService.QueryResult;
+
+/**
+ * Tests for the paging metadata of queries answered from the query cache
+ */
+public class QueryServiceLocalPagingTest {
+
+    private static final String VENDOR = "accounts-payable/vendor";
+    private static final List<String> FIELDS = List.of("key", "id");
+
+    private QueryService queryService;
+
+    @BeforeEach
+    void setUp() {
+        AuthService authService = mock(AuthService.class);
+        when(authService.getAccessToken()).thenReturn("test-token");
+        // Nothing listens here: every query must be answered from the cache
+        when(authService.getBaseUrl()).thenReturn("http://127.0.0.1:9");
+        ModelService modelService = mock(ModelService.class);
+        when(modelService.requireObjectName(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        // Cached results are ordered by the model's field types
+        when(modelService.loadModel(VENDOR)).thenReturn(new ObjectModel(Map.of(
+                "key", new FieldDefinition(null, null, "integer", null, true, null, null, null),
+                "id", new FieldDefinition(null, null, "string", null, null, null, null, null)),
+                null, null, null, null, null));
+
+        McpServerProperties properties = new McpServerProperties();
+        properties.getAdaptivePaging().setEnabled(false);
+        QueryResultCache resultCache = new QueryResultCache(properties);
+        List<Map<String, Object>> vendors = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            vendors.add(Map.of("key", String.valueOf(i), "id", "V" + i));
+        }
+        resultCache.put(new CoreQueryRequest(VENDOR, FIELDS, null, null, null, null, null, 100), vendors,
+                new MetadataPages(25, 1, 100, null, null));
+        queryService = new QueryService(authService, properties, resultCache, null, null, null, modelService, null,
+                null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryService.shutdown();
+    }
+
+    private QueryResult page(int start, int size) {
+        return queryService.executeQuery(VENDOR, FIELDS, null, null, null, List.of(Map.of("key", "asc")), start, size,
+                null, null, null);
+    }
+
+    @Test
+    void testCachedPageReportsTheMatchCountAndTheNextPage() {
+        QueryResult first = page(1, 10);
+        assertEquals("cache", first.source());
+        assertEquals(10, first.rows().size());
+        assertEquals(25, first.totalCount());
+        assertFalse(first.truncated());
+        assertEquals(11, first.nextStart());
+
+        QueryResult second = page(first.nextStart(), 10);
+        assertEquals("V11", second.rows().get(0).get("id"));
+        assertEquals(21, second.nextStart());
+    }
+
+    @Test
+    void testLastCachedPageHasNoNextPage() {
+        QueryResult last = page(21, 10);
+        assertEquals(5, last.rows().size());
+        assertEquals(25, last.totalCount());
+        assertNull(last.nextStart());
+        assertNull(page(16, 10).nextStart());
+    }
+}
@@ -0,0 +1,48 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+/**
+ * Tests for the per-record cache
+ */
+public class RecordCacheTest {
+
+    @Test
+    void testLookupsOfDifferentFieldsBuildUpOneRecord() {
+        RecordCache cache = new RecordCache(new McpServerProperties());
+        cache.put("vendor", List.of("key", "id", "term.id"),
+                List.of(Map.of("key", "1", "id", "V1", "term", Map.of("id", "Net 30"))));
+        cache.put("vendor", List.of("key", "term.name"), List.of(Map.of("key", 1, "term", Map.of("name", "Thirty"))));
+
+        Map<String, Map<String, Object>> found = cache.get("vendor", "key", List.of("1", "2"),
+                List.of("key", "term.id", "term.name"));
+        assertEquals(Map.of("key", 1, "id", "V1", "term", Map.of("id", "Net 30", "name", "Thirty")), found.get("1"));
+        assertEquals(1, found.size());
+
+        // Found by id as well, but not with a field that was never fetched or on another object
+        assertEquals(1, cache.get("vendor", "id", List.of("V1"), List.of("key", "term.id")).size());
+        assertTrue(cache.get("vendor", "key", List.of("1"), List.of("key", "name")).isEmpty());
+        assertTrue(cache.get("customer", "key", List.of("1"), List.of("key")).isEmpty());
+    }
+
+    @Test
+    void testDefaultFieldSetOnlyCoversDefaultFieldLookupsAndDisabledCacheIsEmpty() {
+        RecordCache cache = new RecordCache(new McpServerProperties());
+        cache.put("vendor", null, List.of(Map.of("key", "1", "id", "V1")));
+        assertEquals(1, cache.get("vendor", "key", List.of("1"), null).size());
+        assertTrue(cache.get("vendor", "key", List.of("1"), List.of("key")).isEmpty());
+
+        McpServerProperties properties = new McpServerProperties();
+        properties.getRecordCache().setEnabled(false);
+        RecordCache disabled = new RecordCache(properties);
+        disabled.put("vendor", List.of("key"), List.of(Map.of("key", "1")));
+        assertTrue(disabled.get("vendor", "key", List.of("1"), List.of("key")).isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+/**
+ * Tests for where replicas are stored
+ */
+public class ReplicaServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private ReplicaService replicaService(String username) {
+        AuthService authService = mock(AuthService.class);
+        when(authService.getAccessToken()).thenReturn("test-token");
+        when(authService.getBaseUrl()).thenReturn("https://api.example.com");
+        when(authService.getUsername()).thenReturn(username);
+        McpServerProperties properties = new McpServerProperties();
+        properties.getReplica().setEnabled(true);
+        properties.getReplica().setStorageDir(dir.toString());
+        properties.getToolIntegration().setResources(List.of());
+        return new ReplicaService(authService, mock(ModelService.class), properties, null);
+    }
+
+    @Test
+    void testUsersOfOneCompanyKeepSeparateReplicas() throws Exception {
+        replicaService("alice").syncAll();
+        replicaService("bob").syncAll();
+
+        Path company = dir.resolve("https_api.example.com");
+        Path alice = company.resolve(ReplicaService.userDirectoryName("alice"));
+        Path bob = company.resolve(ReplicaService.userDirectoryName("bob"));
+        assertTrue(Files.isDirectory(alice));
+        assertTrue(Files.isDirectory(bob));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(company)));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(alice)));
+
+        // Names that only differ in characters replaced in directory names stay apart
+        assertNotEquals(ReplicaService.userDirectoryName("a@b"), ReplicaService.userDirectoryName("a_b"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.intacct.ds.mcp.server.query.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for keeping access tokens encrypted on disk across sessions
+ */
+public class TokenStoreTest {
+
+    private static final TokenStore.Owner OWNER = new TokenStore.Owner("client", "alice", "https://api.example.com");
+
+    @TempDir
+    Path dir;
+
+    private McpServerProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new McpServerProperties();
+        properties.getTokenStore().setEnabled(true);
+        properties.getTokenStore().setDirectory(dir.resolve("tokens").toString());
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir.resolve("tokens"))) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void testTokenIsOnlyReadWithTheOwnerAndCredentialsItWasStoredFor() throws IOException {
+        Instant expiration = Instant.now().plusSeconds(2400);
+        new TokenStore(properties).save(OWNER, "secret", "token-1", expiration);
+
+        TokenStore store = new TokenStore(properties);
+        TokenStore.StoredToken stored = store.load(OWNER, "secret");
+        assertEquals("token-1", stored.token());
+        assertEquals(expiration.toEpochMilli(), stored.expiration().toEpochMilli());
+        assertNull(store.load(new TokenStore.Owner("client", "bob", "https://api.example.com"), "secret"));
+        assertNull(store.load(OWNER, "changed password"));
+
+        // An expired token is dropped
+        store.save(OWNER, "secret", "token-0", Instant.now().minusSeconds(1));
+        assertNull(store.load(OWNER, "secret"));
+        assertEquals(List.of(), files());
+    }
+
+    @Test
+    void testFileIsEncryptedAndOnlyAccessibleToTheUser() throws IOException {
+        TokenStore store = new TokenStore(properties);
+        store.save(OWNER, "secret", "plain-token-value", Instant.now().plusSeconds(600));
+        store.save(OWNER, "secret", "plain-token-value", Instant.now().plusSeconds(900));
+
+        List<Path> files = files();
+        assertEquals(1, files.size());
+        String content = new String(Files.readAllBytes(files.get(0)), StandardCharsets.ISO_8859_1);
+        assertFalse(content.contains("plain-token-value"));
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(files.get(0))));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve("tokens"))));
+    }
+
+    @Test
+    void testNewSessionReusesTheStoredTokenWithoutFetching() throws IOException {
+        AtomicInteger grants = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/oauth2/token", exchange -> {
+            byte[] json = ("{\"access_token\": \"granted-" + grants.incrementAndGet()
+                    + "\", \"token_type\": \"Bearer\", \"expires_in\": 3600}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(json);
+            }
+        });
+        server.start();
+        try {
+            McpServerProperties.OAuth2Config oauth2 = properties.getAuth().getOauth2();
+            oauth2.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+            oauth2.setClientId("client");
+            oauth2.setClientSecret("client-secret");
+            oauth2.setUsername("alice");
+            oauth2.setPassword("password");
+
+            AuthService first = new AuthService(10, 3300, properties);
+            first.setTokenStore(new TokenStore(properties));
+            assertEquals("granted-1", first.getAccessToken());
+
+            AuthService second = new AuthService(10, 3300, properties);
+            second.setTokenStore(new TokenStore(properties));
+            assertEquals("granted-1", second.getAccessToken());
+            assertEquals(1, grants.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
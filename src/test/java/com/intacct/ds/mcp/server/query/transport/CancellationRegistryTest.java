@@ -0,0 +1,69 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for cancelling in-flight tool calls
+ */
+public class CancellationRegistryTest {
+
+    private final CancellationRegistry registry = new CancellationRegistry();
+
+    @Test
+    void testCancelInterruptsRunningCallAndRunsActions() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean closed = new AtomicBoolean();
+        Thread worker = new Thread(() -> {
+            try (ToolCallCancellation cancellation = registry.begin(5)) {
+                cancellation.onCancel(() -> closed.set(true));
+                started.countDown();
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        worker.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        registry.cancel(5L, "user abort");
+        worker.join(5_000);
+
+        assertTrue(interrupted.get());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void testCancellationBeforeTheCallStartsIsRemembered() {
+        registry.cancel("r1", "too slow");
+
+        try (ToolCallCancellation cancellation = registry.begin("r1")) {
+            assertSame(cancellation, ToolCallCancellation.current());
+            assertTrue(cancellation.isCancelled());
+            assertEquals("too slow", cancellation.getReason());
+            assertThrows(CancellationException.class, cancellation::throwIfCancelled);
+        }
+        // The interrupt must not leak into whatever the thread runs next
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertFalse(ToolCallCancellation.current().isCancelled());
+    }
+
+    @Test
+    void testOtherCallsAreNotAffected() {
+        registry.cancel(1, null);
+
+        try (ToolCallCancellation cancellation = registry.begin(2)) {
+            assertFalse(cancellation.isCancelled());
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.beans.factory.ObjectProvider;
+
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+import com.intacct.ds.mcp.server.query.service.AuthService;
+
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import reactor.core.publisher.Mono;
+
+/**
+ * Tests for forwarding tool calls and tokens from STDIO front-ends to the sidecar daemon
+ */
+public class SidecarTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger localCalls = new AtomicInteger();
+    private final CountDownLatch waiting = new CountDownLatch(1);
+    private final AtomicBoolean cancelledOnDaemon = new AtomicBoolean();
+    private McpServerProperties properties;
+    private McpServerTransportProvider transport;
+    private SidecarServer daemon;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        properties = new McpServerProperties();
+        properties.getSidecar().setSocketPath(dir.resolve("sidecar.sock").toString());
+        transport = mock(McpServerTransportProvider.class);
+        when(transport.notifyClients(any(), any())).thenReturn(Mono.empty());
+
+        AuthService authService = mock(AuthService.class);
+        when(authService.getBaseUrl()).thenReturn("http://127.0.0.1:1");
+        when(authService.getUsername()).thenReturn("alice");
+        when(authService.getAccessToken()).thenReturn("shared-token");
+        when(authService.getAccessTokenExpiration()).thenReturn(Instant.now().plusSeconds(3600));
+
+        ProgressNotifier daemonNotifier = new ProgressNotifier(mock(ObjectProvider.class), properties);
+        BiFunction<String, ToolContext, String> body = (input, context) -> {
+            if (input.contains("fail")) {
+                throw new IllegalArgumentException("Field 'fail' does not exist");
+            }
+            if (input.contains("wait")) {
+                waiting.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    cancelledOnDaemon.set(ToolCallCancellation.current().isCancelled());
+                }
+                return "stopped";
+            }
+            ProgressNotifier.Progress progress = daemonNotifier.start(context);
+            if (progress != null) {
+                progress.report(1, 2.0, "Fetched 1 of 2 rows");
+            }
+            return "daemon:" + input;
+        };
+        McpServerProperties.SidecarConfig daemonConfig = new McpServerProperties.SidecarConfig();
+        daemonConfig.setMode(McpServerProperties.SidecarMode.DAEMON);
+        daemonConfig.setSocketPath(properties.getSidecar().getSocketPath());
+        CancellationRegistry registry = new CancellationRegistry();
+        daemon = new SidecarServer(daemonConfig,
+                List.of(ToolCallContextCallback.wrap(
+                        ToolCallbackProvider.from(tool("work", body), tool("exportQuery", body)), registry)), authService, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        daemon.stop();
+    }
+
+    private static ToolCallback tool(String name, BiFunction<String, ToolContext, String> body) {
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return ToolDefinition.builder().name(name).description(name).inputSchema("{}").build();
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return call(toolInput, null);
+            }
+
+            @Override
+            public String call(String toolInput, ToolContext toolContext) {
+                return body.apply(toolInput, toolContext);
+            }
+        };
+    }
+
+    private ToolCallback frontEnd(String username, CancellationRegistry registry) {
+        return frontEnd(username, registry, "work");
+    }
+
+    // A front-end's callback as the application assembles it: forwarded, inside the request metadata decorator
+    @SuppressWarnings("unchecked")
+    private ToolCallback frontEnd(String username, CancellationRegistry registry, String name) {
+        properties.getSidecar().setMode(McpServerProperties.SidecarMode.CLIENT);
+        ObjectProvider<McpServerTransportProvider> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(transport);
+        SidecarClient client = new SidecarClient(properties, new ProgressNotifier(provider, properties));
+        client.identify("http://127.0.0.1:1", username);
+        ToolCallback local = tool(name, (input, context) -> {
+            localCalls.incrementAndGet();
+            return "local:" + input;
+        });
+        return ToolCallContextCallback.wrap(client.wrap(ToolCallbackProvider.from(local)), registry)
+                .getToolCallbacks()[0];
+    }
+
+    @Test
+    void testCallsRunOnTheDaemonWithProgressAndErrorsRelayed() throws Exception {
+        daemon.start();
+        ToolCallback tool = frontEnd("alice", new CancellationRegistry());
+
+        assertEquals("daemon:{\"object\":\"vendor\"}",
+                tool.call("{\"object\":\"vendor\",\"_mcp\":{\"requestId\":1,\"progressToken\":\"p1\"}}"));
+        verify(transport).notifyClients(eq(ProgressNotifier.METHOD_PROGRESS),
+                argThat(params -> params instanceof Map<?, ?> map && "p1".equals(map.get("progressToken"))
+                        && "Fetched 1 of 2 rows".equals(map.get("message"))));
+
+        ToolExecutionException error = assertThrows(ToolExecutionException.class,
+                () -> tool.call("{\"object\":\"fail\"}"));
+        assertEquals("Field 'fail' does not exist", error.getMessage());
+        assertEquals(0, localCalls.get());
+
+        SidecarClient client = new SidecarClient(properties, null);
+        client.identify("http://127.0.0.1:1", "alice");
+        assertEquals("shared-token", client.accessToken().token());
+    }
+
+    @Test
+    void testCallsRunLocallyWithoutAMatchingDaemon() throws Exception {
+        ToolCallback tool = frontEnd("alice", new CancellationRegistry());
+        assertEquals("local:{\"object\":\"vendor\"}", tool.call("{\"object\":\"vendor\"}"));
+
+        // A daemon serving another user turns the front-end away
+        daemon.start();
+        ToolCallback other = frontEnd("bob", new CancellationRegistry());
+        assertEquals("local:{\"object\":\"vendor\"}", other.call("{\"object\":\"vendor\"}"));
+        assertEquals(2, localCalls.get());
+    }
+
+    @Test
+    void testSocketIsOwnerOnlyWithoutChangingItsExistingDirectory() throws Exception {
+        // A directory shared with others, like /tmp
+        Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwxr-xr-x"));
+        daemon.start();
+
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve("sidecar.sock"))));
+        assertEquals("rwxr-xr-x", PosixFilePermissions.toString(Files.getPosixFilePermissions(dir)));
+    }
+
+    @Test
+    void testCancellationReachesTheDaemon() throws Exception {
+        daemon.start();
+        CancellationRegistry registry = new CancellationRegistry();
+        ToolCallback tool = frontEnd("alice", registry);
+
+        CompletableFuture<String> call = CompletableFuture.supplyAsync(
+                () -> tool.call("{\"object\":\"wait\",\"_mcp\":{\"requestId\":9}}"));
+        assertTrue(waiting.await(5, TimeUnit.SECONDS));
+        registry.cancel(9, "No longer needed");
+
+        // The front-end stops waiting, unless the daemon's answer to the cancelled call overtakes it
+        try {
+            assertEquals("stopped", call.get(5, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            assertInstanceOf(CancellationException.class, e.getCause());
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!cancelledOnDaemon.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(cancelledOnDaemon.get());
+    }
+
+    @Test
+    void testStuckDaemonIsCancelledAndTheCallRunsLocally() throws Exception {
+        daemon.start();
+        properties.getSidecar().setCallTimeoutSeconds(1);
+        ToolCallback tool = frontEnd("alice", new CancellationRegistry());
+
+        assertEquals("local:{\"object\":\"wait\"}", tool.call("{\"object\":\"wait\"}"));
+        assertEquals(1, localCalls.get());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!cancelledOnDaemon.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(cancelledOnDaemon.get());
+    }
+
+    @Test
+    void testStuckExportIsNotRunAgainLocally() throws Exception {
+        daemon.start();
+        properties.getSidecar().setCallTimeoutSeconds(1);
+        ToolCallback tool = frontEnd("alice", new CancellationRegistry(), "exportQuery");
+
+        // The daemon may still be writing the file
+        ToolExecutionException error = assertThrows(ToolExecutionException.class,
+                () -> tool.call("{\"object\":\"wait\"}"));
+        assertTrue(error.getMessage().contains("Retry"), error.getMessage());
+        assertEquals(0, localCalls.get());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!cancelledOnDaemon.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(cancelledOnDaemon.get());
+    }
+
+    @Test
+    void testWriteFromACancelledThreadKeepsTheConnectionOpen() throws Exception {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(dir.resolve("pair.sock"));
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(address);
+            SidecarChannel client = new SidecarChannel(SocketChannel.open(address), 1024);
+            SidecarChannel accepted = new SidecarChannel(server.accept(), 1024);
+            try {
+                // Cancellation interrupts the thread of a call, which must not close the connection it shares
+                Thread.currentThread().interrupt();
+                client.write(Map.of("type", "call", "id", 1));
+                assertTrue(Thread.interrupted());
+                client.write(Map.of("type", "call", "id", 2));
+
+                assertEquals(1, accepted.read().path("id").asInt());
+                assertEquals(2, accepted.read().path("id").asInt());
+            } finally {
+                client.close();
+                accepted.close();
+            }
+        }
+    }
+}
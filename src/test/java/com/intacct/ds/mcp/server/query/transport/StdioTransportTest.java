@@ -0,0 +1,244 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.ObjectProvider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+
+/**
+ * Tests for the pipelined STDIO transport, driven through a real MCP server over in-memory pipes
+ */
+public class StdioTransportTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    private Pipe.SinkChannel stdin;
+    private McpSyncServer server;
+    private ResourceSubscriptions subscriptions;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        Pipe in = Pipe.open();
+        Pipe out = Pipe.open();
+        stdin = in.sink();
+        McpServerProperties.StdioConfig config = new McpServerProperties.StdioConfig();
+        config.setWorkerThreads(4);
+        ObjectProvider<McpServerTransportProvider> provider = mock(ObjectProvider.class);
+        McpServerProperties properties = new McpServerProperties();
+        properties.getReplica().setEnabled(true);
+        subscriptions = new ResourceSubscriptions(provider, properties);
+        subscriptions.register("intacct://objects/vendor");
+        StdioTransport transport = new StdioTransport(MAPPER.copy().registerModule(new RequestMetaModule()), config,
+                in.source(), out.sink(), subscriptions);
+        when(provider.getIfAvailable()).thenReturn(transport);
+
+        // "first" blocks until the test releases it; every other call returns at once
+        McpServerFeatures.SyncToolSpecification waitTool = new McpServerFeatures.SyncToolSpecification(
+                new McpSchema.Tool("wait", "Test tool", "{\"type\":\"object\"}"),
+                (exchange, arguments) -> {
+                    if ("first".equals(arguments.get("name"))) {
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return new McpSchema.CallToolResult(List.of(new McpSchema.TextContent("done")), false);
+                });
+        server = McpServer.sync(transport)
+                .serverInfo("test", "1.0")
+                .capabilities(McpSchema.ServerCapabilities.builder().tools(false).build())
+                .tools(waitTool)
+                .build();
+
+        Thread collector = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(out.source()), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            } catch (IOException e) {
+                // Pipe closed
+            }
+        });
+        collector.setDaemon(true);
+        collector.start();
+
+        send("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{\"protocolVersion\":\"2024-11-05\","
+                + "\"capabilities\":{},\"clientInfo\":{\"name\":\"test\",\"version\":\"1\"}}}");
+        assertEquals(1, next().path("id").asInt());
+        send("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        stdin.close();
+        server.closeGracefully();
+    }
+
+    @Test
+    void testRequestsRunConcurrentlyAndAnswerOutOfOrder() throws Exception {
+        send(call(2, "first"));
+        send(call(3, "second"));
+
+        // The second call is answered while the first is still running
+        assertEquals(3, next().path("id").asInt());
+        release.countDown();
+        JsonNode first = next();
+        assertEquals(2, first.path("id").asInt());
+        assertEquals("done", first.at("/result/content/0/text").asText());
+    }
+
+    @Test
+    void testBatchIsAnsweredWithOneArray() throws Exception {
+        send("[" + call(10, "second") + ","
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/progress\",\"params\":{}},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":11,\"method\":\"ping\"},"
+                + "42]");
+
+        JsonNode batch = next();
+        assertTrue(batch.isArray());
+        assertEquals(3, batch.size());
+        List<String> ids = new ArrayList<>();
+        for (JsonNode response : batch) {
+            ids.add(response.path("id").asText("null"));
+        }
+        assertTrue(ids.containsAll(List.of("10", "11", "null")), ids.toString());
+    }
+
+    @Test
+    void testDuplicateRequestIdsAreRejectedInsideTheBatch() throws Exception {
+        send(call(40, "first"));
+        // 40 is still running outside the batch, 41 is used twice inside it
+        send("[" + call(40, "second") + ","
+                + "{\"jsonrpc\":\"2.0\",\"id\":41,\"method\":\"ping\"},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":41,\"method\":\"ping\"}]");
+
+        JsonNode batch = next();
+        assertTrue(batch.isArray());
+        assertEquals(3, batch.size());
+        Map<String, Integer> errors = new HashMap<>();
+        int results = 0;
+        for (JsonNode response : batch) {
+            if (response.has("error")) {
+                errors.put(response.path("id").asText(), response.at("/error/code").asInt());
+            } else {
+                assertEquals(41, response.path("id").asInt());
+                results++;
+            }
+        }
+        assertEquals(1, results);
+        assertEquals(Map.of("40", McpSchema.ErrorCodes.INVALID_REQUEST, "41", McpSchema.ErrorCodes.INVALID_REQUEST),
+                errors);
+
+        // The running request keeps its response, and its id can be used again once answered
+        release.countDown();
+        JsonNode first = next();
+        assertEquals(40, first.path("id").asInt());
+        assertEquals("done", first.at("/result/content/0/text").asText());
+        send("{\"jsonrpc\":\"2.0\",\"id\":40,\"method\":\"ping\"}");
+        assertTrue(next().has("result"));
+    }
+
+    @Test
+    void testMalformedMessageIsAnsweredAndReadingContinues() throws Exception {
+        send("{\"jsonrpc\":\"2.0\",\"id\":");
+        JsonNode error = next();
+        assertEquals(McpSchema.ErrorCodes.PARSE_ERROR, error.at("/error/code").asInt());
+        assertTrue(error.get("id") == null || error.get("id").isNull());
+
+        // A message split across several writes is reassembled
+        String ping = "{\"jsonrpc\":\"2.0\",\"id\":20,\"method\":\"ping\"}\n";
+        stdin.write(ByteBuffer.wrap(ping.substring(0, 10).getBytes(StandardCharsets.UTF_8)));
+        Thread.sleep(50);
+        stdin.write(ByteBuffer.wrap(ping.substring(10).getBytes(StandardCharsets.UTF_8)));
+        JsonNode pong = next();
+        assertEquals(20, pong.path("id").asInt());
+        assertEquals(Map.of(), MAPPER.convertValue(pong.get("result"), Map.class));
+    }
+
+    @Test
+    void testSubscribedResourcesAreNotifiedOfUpdates() throws Exception {
+        String vendors = "intacct://objects/vendor";
+        send("{\"jsonrpc\":\"2.0\",\"id\":30,\"method\":\"resources/subscribe\",\"params\":{\"uri\":\"" + vendors + "\"}}");
+        JsonNode subscribed = next();
+        assertEquals(30, subscribed.path("id").asInt());
+        assertTrue(subscribed.has("result"));
+
+        subscriptions.updated("intacct://objects/customer");
+        subscriptions.updated(vendors);
+        JsonNode updated = next();
+        assertEquals(ResourceSubscriptions.METHOD_UPDATED, updated.path("method").asText());
+        assertEquals(vendors, updated.at("/params/uri").asText());
+
+        send("{\"jsonrpc\":\"2.0\",\"id\":31,\"method\":\"resources/unsubscribe\",\"params\":{\"uri\":\"" + vendors + "\"}}");
+        assertEquals(31, next().path("id").asInt());
+        subscriptions.updated(vendors);
+        send("{\"jsonrpc\":\"2.0\",\"id\":32,\"method\":\"resources/subscribe\",\"params\":{}}");
+        JsonNode error = next();
+        assertEquals(32, error.path("id").asInt());
+        assertEquals(McpSchema.ErrorCodes.INVALID_PARAMS, error.at("/error/code").asInt());
+
+        // Only registered resources can be subscribed to
+        send("{\"jsonrpc\":\"2.0\",\"id\":33,\"method\":\"resources/subscribe\",\"params\":{\"uri\":\"intacct://objects/customer\"}}");
+        JsonNode unknown = next();
+        assertEquals(33, unknown.path("id").asInt());
+        assertEquals(McpSchema.ErrorCodes.INVALID_PARAMS, unknown.at("/error/code").asInt());
+        assertFalse(subscriptions.isSubscribed("intacct://objects/customer"));
+    }
+
+    private static String call(int id, String name) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"wait\",\"arguments\":{\"name\":\"" + name + "\"}}}";
+    }
+
+    private void send(String message) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            stdin.write(buffer);
+        }
+    }
+
+    private JsonNode next() throws Exception {
+        String line = lines.poll(10, TimeUnit.SECONDS);
+        assertNotNull(line, "No message written");
+        return MAPPER.readTree(line);
+    }
+}
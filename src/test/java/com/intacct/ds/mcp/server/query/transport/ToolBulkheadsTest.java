@@ -0,0 +1,139 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intacct.ds.mcp.server.query.config.McpServerProperties;
+
+/**
+ * Tests for the per-tool concurrency limits
+ */
+public class ToolBulkheadsTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ToolBulkheads bulkheads;
+    private CompletableFuture<String> slowCall;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        McpServerProperties.BulkheadConfig config = new McpServerProperties.BulkheadConfig();
+        McpServerProperties.ToolLimit slow = new McpServerProperties.ToolLimit();
+        slow.setMaxConcurrent(1);
+        slow.setMaxWaitMillis(50L);
+        config.getTools().put("listAvailableModels", slow);
+        bulkheads = new ToolBulkheads(config);
+
+        // Takes the only listAvailableModels slot until released
+        slowCall = CompletableFuture.supplyAsync(() -> bulkheads.call("listAvailableModels", () -> {
+            started.countDown();
+            await(release);
+            return "models";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void testFullToolIsRejectedWithStructuredErrorWhileOthersRun() throws Exception {
+        ToolBulkheads.RejectedException rejected = assertThrows(ToolBulkheads.RejectedException.class,
+                () -> bulkheads.call("listAvailableModels", () -> "second"));
+        JsonNode error = new ObjectMapper().readTree(rejected.getMessage());
+        assertEquals(ToolBulkheads.ERROR_CODE, error.path("error").asText());
+        assertEquals("listAvailableModels", error.path("tool").asText());
+        assertEquals(1, error.path("limit").asInt());
+        assertEquals(1, error.path("inFlight").asInt());
+        assertTrue(error.path("retryAfterMillis").asLong() > 0);
+
+        // Other tools have their own slots
+        assertEquals("rows", bulkheads.call("executeQuery", () -> "rows"));
+        assertEquals(1, bulkheads.snapshot("listAvailableModels").rejected());
+    }
+
+    @Test
+    void testWaitingCallGetsTheSlotWhenItIsReleased() throws Exception {
+        McpServerProperties.BulkheadConfig config = new McpServerProperties.BulkheadConfig();
+        config.setMaxConcurrent(1);
+        config.setMaxWaitMillis(5_000);
+        ToolBulkheads patient = new ToolBulkheads(config);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> patient.call("getModelDefinition", () -> {
+            holding.countDown();
+            await(done);
+            return "first";
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(
+                () -> patient.call("getModelDefinition", () -> "second"));
+
+        done.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, patient.snapshot("getModelDefinition").completed());
+        assertEquals(0, patient.snapshot("getModelDefinition").inFlight());
+    }
+
+    @Test
+    void testInterruptedWaiterIsCancelled() throws Exception {
+        McpServerProperties.BulkheadConfig config = new McpServerProperties.BulkheadConfig();
+        config.setMaxConcurrent(1);
+        config.setMaxWaitMillis(10_000);
+        ToolBulkheads patient = new ToolBulkheads(config);
+        CountDownLatch holding = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> patient.call("executeQuery", () -> {
+            holding.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                patient.call("executeQuery", () -> "never");
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        waiter.start();
+        while (patient.snapshot("executeQuery").waiting() == 0) {
+            Thread.sleep(5);
+        }
+        waiter.interrupt();
+        waiter.join(5_000);
+
+        assertInstanceOf(CancellationException.class, failure.get());
+        assertEquals("models", slowCallResult());
+    }
+
+    private String slowCallResult() throws Exception {
+        release.countDown();
+        return slowCall.get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
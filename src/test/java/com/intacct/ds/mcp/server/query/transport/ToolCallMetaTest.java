@@ -0,0 +1,86 @@
+package com.intacct.ds.mcp.server.query.transport;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCRequest;
+
+/**
+ * Tests for carrying tools/call request metadata from the transport into the ToolContext
+ */
+public class ToolCallMetaTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new RequestMetaModule());
+
+    @Test
+    void testRequestMetaSurvivesConversionToCallToolRequest() throws Exception {
+        JSONRPCRequest request = (JSONRPCRequest) McpSchema.deserializeJsonRpcMessage(mapper,
+                "{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"tools/call\",\"params\":{\"name\":\"executeQuery\","
+                        + "\"_meta\":{\"progressToken\":\"p1\",\"partialResults\":true},\"arguments\":{\"object\":\"x\"}}}");
+
+        assertEquals(7, request.id());
+        CallToolRequest call = mapper.convertValue(request.params(), CallToolRequest.class);
+        assertEquals("x", call.arguments().get("object"));
+        ToolCallMeta meta = ToolCallMeta.fromArgument(call.arguments().get(ToolCallMeta.ARGUMENT));
+        assertEquals(7, meta.requestId());
+        assertEquals("p1", meta.progressToken());
+        assertTrue(meta.partialResults());
+    }
+
+    @Test
+    void testOtherRequestsAreUnchanged() throws Exception {
+        JSONRPCRequest request = (JSONRPCRequest) McpSchema.deserializeJsonRpcMessage(mapper,
+                "{\"jsonrpc\":\"2.0\",\"id\":\"a\",\"method\":\"tools/list\",\"params\":{}}");
+
+        assertEquals("a", request.id());
+        assertEquals(Map.of(), request.params());
+    }
+
+    @Test
+    void testCallbackMovesMetaIntoToolContext() {
+        AtomicReference<String> input = new AtomicReference<>();
+        AtomicReference<ToolContext> context = new AtomicReference<>();
+        ToolCallback tool = new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return ToolDefinition.builder().name("t").description("t").inputSchema("{}").build();
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return call(toolInput, null);
+            }
+
+            @Override
+            public String call(String toolInput, ToolContext toolContext) {
+                input.set(toolInput);
+                context.set(toolContext);
+                return "ok";
+            }
+        };
+
+        new ToolCallContextCallback(tool, null).call("{\"object\":\"x\",\"_mcp\":{\"requestId\":3,\"progressToken\":9}}",
+                new ToolContext(Map.of("exchange", "e")));
+
+        assertEquals("{\"object\":\"x\"}", input.get());
+        assertEquals("e", context.get().getContext().get("exchange"));
+        ToolCallMeta meta = ToolCallMeta.from(context.get());
+        assertEquals(3, meta.requestId());
+        assertEquals(9, meta.progressToken());
+        assertFalse(meta.partialResults());
+        assertNull(ToolCallMeta.from(new ToolContext(Map.of())));
+    }
+}